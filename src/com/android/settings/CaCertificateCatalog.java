@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.http.SslCertificate;
+import android.os.RemoteException;
+import android.os.UserHandle;
+import android.security.IKeyChainService;
+import android.security.KeyChain;
+import android.util.ArrayMap;
+import android.util.LruCache;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.TrustedCredentialsSettings.Tab;
+import com.android.settings.core.SettingsTaskScheduler;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Process wide catalog of the CA certificates of each profile, for the trusted credentials
+ * screens.
+ *
+ * <p>Certificates are fetched and parsed in a few chunks in parallel on the
+ * {@link SettingsTaskScheduler}. The deleted state of a system certificate comes with the
+ * certificate itself: {@link KeyChain} only returns the encoded certificate of a deleted system
+ * alias when asked to include deleted ones. The lists are kept until the trust store changes, and
+ * up to {@link #MAX_PARSED_ENTRIES} parsed certificates, keyed by alias and content, across
+ * changes, so that only the new ones are parsed again.
+ */
+class CaCertificateCatalog {
+    private static final int MAX_CHUNKS = 4;
+    // A few times the size of the system trust store.
+    private static final int MAX_PARSED_ENTRIES = 500;
+
+    private static CaCertificateCatalog sInstance;
+
+    // Keyed by tab:profileId.
+    @GuardedBy("this")
+    private final ArrayMap<String, List<Entry>> mEntries = new ArrayMap<>();
+    // Keyed by alias:hash of the encoded certificate.
+    private final LruCache<String, Entry> mParsedEntries = new LruCache<>(MAX_PARSED_ENTRIES);
+    // Incremented on every trust store change, so that a list loaded meanwhile is not kept.
+    @GuardedBy("this")
+    private int mGeneration;
+
+    private final BroadcastReceiver mTrustStoreChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    /** Returns the process wide instance. */
+    static synchronized CaCertificateCatalog getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new CaCertificateCatalog(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    CaCertificateCatalog(@Nullable Context context) {
+        if (context != null) {
+            context.registerReceiverAsUser(mTrustStoreChangedReceiver, UserHandle.ALL,
+                    new IntentFilter(KeyChain.ACTION_TRUST_STORE_CHANGED),
+                    null /* broadcastPermission */, null /* scheduler */);
+        }
+    }
+
+    /**
+     * Returns the certificates of {@code tab} for {@code profileId}, sorted by subject. Runs
+     * {@code onCertificateLoaded} once per certificate that had to be fetched, from any thread.
+     */
+    @WorkerThread
+    List<Entry> getEntries(IKeyChainService service, Tab tab, int profileId,
+            Runnable onCertificateLoaded) throws RemoteException, InterruptedException {
+        final String key = tab.name() + ":" + profileId;
+        final int generation;
+        synchronized (this) {
+            final List<Entry> entries = mEntries.get(key);
+            if (entries != null) {
+                return entries;
+            }
+            generation = mGeneration;
+        }
+
+        final List<String> aliases = tab.getAliases(service);
+        final int chunkCount = Math.max(1, Math.min(MAX_CHUNKS, aliases.size()));
+        final List<Future<List<Entry>>> futures = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            final List<String> chunk = aliases.subList(aliases.size() * i / chunkCount,
+                    aliases.size() * (i + 1) / chunkCount);
+            futures.add(SettingsTaskScheduler.getInstance().submit(null /* owner */,
+                    SettingsTaskScheduler.Priority.UI_CRITICAL, "CaCertificateCatalog.load",
+                    () -> loadEntries(service, tab, chunk, onCertificateLoaded),
+                    null /* onResult */));
+        }
+
+        final List<Entry> entries = new ArrayList<>(aliases.size());
+        try {
+            for (Future<List<Entry>> future : futures) {
+                entries.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RemoteException) {
+                throw (RemoteException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<List<Entry>> future : futures) {
+                future.cancel(true /* mayInterruptIfRunning */);
+            }
+        }
+        Collections.sort(entries);
+
+        final List<Entry> result = Collections.unmodifiableList(entries);
+        synchronized (this) {
+            if (generation == mGeneration) {
+                mEntries.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /** Drop the certificate lists, e.g. after a certificate was installed or removed. */
+    synchronized void invalidate() {
+        mEntries.clear();
+        mGeneration++;
+    }
+
+    private List<Entry> loadEntries(IKeyChainService service, Tab tab, List<String> aliases,
+            Runnable onCertificateLoaded) throws RemoteException {
+        final List<Entry> entries = new ArrayList<>(aliases.size());
+        for (String alias : aliases) {
+            final Entry entry = loadEntry(service, tab, alias);
+            if (entry != null) {
+                entries.add(entry);
+            }
+            onCertificateLoaded.run();
+        }
+        return entries;
+    }
+
+    @Nullable
+    private Entry loadEntry(IKeyChainService service, Tab tab, String alias)
+            throws RemoteException {
+        boolean deleted = false;
+        byte[] encoded = service.getEncodedCaCertificate(alias, false /* includeDeletedSystem */);
+        if (encoded == null && tab == Tab.SYSTEM) {
+            deleted = true;
+            encoded = service.getEncodedCaCertificate(alias, true /* includeDeletedSystem */);
+        }
+        if (encoded == null) {
+            // Removed while loading.
+            return null;
+        }
+
+        final String key = alias + ":" + Arrays.hashCode(encoded);
+        Entry parsed = mParsedEntries.get(key);
+        if (parsed == null || !Arrays.equals(parsed.mEncoded, encoded)) {
+            parsed = new Entry(alias, encoded, KeyChain.toCertificate(encoded), deleted);
+            mParsedEntries.put(key, parsed);
+        }
+        return parsed.mDeleted == deleted ? parsed : parsed.withDeleted(deleted);
+    }
+
+    /** A CA certificate, with the subject fields shown in the list. */
+    static class Entry implements Comparable<Entry> {
+        final String mAlias;
+        final X509Certificate mCertificate;
+        final String mSubjectPrimary;
+        final String mSubjectSecondary;
+        final boolean mDeleted;
+        private final byte[] mEncoded;
+
+        @VisibleForTesting
+        Entry(String alias, byte[] encoded, X509Certificate certificate, boolean deleted) {
+            mAlias = alias;
+            mEncoded = encoded;
+            mCertificate = certificate;
+            mDeleted = deleted;
+
+            final SslCertificate.DName subject = new SslCertificate(certificate).getIssuedTo();
+            String cn = subject.getCName();
+            String o = subject.getOName();
+            String ou = subject.getUName();
+            // if we have a O, use O as primary subject, secondary prefer CN over OU
+            // if we don't have an O, use CN as primary, empty secondary
+            // if we don't have O or CN, use DName as primary, empty secondary
+            if (!o.isEmpty()) {
+                if (!cn.isEmpty()) {
+                    mSubjectPrimary = o;
+                    mSubjectSecondary = cn;
+                } else {
+                    mSubjectPrimary = o;
+                    mSubjectSecondary = ou;
+                }
+            } else {
+                if (!cn.isEmpty()) {
+                    mSubjectPrimary = cn;
+                    mSubjectSecondary = "";
+                } else {
+                    mSubjectPrimary = subject.getDName();
+                    mSubjectSecondary = "";
+                }
+            }
+        }
+
+        private Entry(Entry entry, boolean deleted) {
+            mAlias = entry.mAlias;
+            mEncoded = entry.mEncoded;
+            mCertificate = entry.mCertificate;
+            mSubjectPrimary = entry.mSubjectPrimary;
+            mSubjectSecondary = entry.mSubjectSecondary;
+            mDeleted = deleted;
+        }
+
+        Entry withDeleted(boolean deleted) {
+            return new Entry(this, deleted);
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int primary = mSubjectPrimary.compareToIgnoreCase(o.mSubjectPrimary);
+            if (primary != 0) {
+                return primary;
+            }
+            return mSubjectSecondary.compareToIgnoreCase(o.mSubjectSecondary);
+        }
+    }
+}
@@ -38,7 +38,6 @@ import android.content.pm.UserInfo;
 import android.content.res.Resources;
 import android.content.res.Resources.Theme;
 import android.graphics.drawable.Icon;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -63,6 +62,7 @@ import com.android.settings.activityembedding.ActivityEmbeddingUtils;
 import com.android.settings.applications.manageapplications.ManageApplications;
 import com.android.settings.core.OnActivityResultListener;
 import com.android.settings.core.SettingsBaseActivity;
+import com.android.settings.core.SettingsTaskScheduler;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.core.gateway.SettingsGateway;
 import com.android.settings.dashboard.DashboardFeatureProvider;
@@ -781,7 +781,11 @@ public class SettingsActivity extends SettingsBaseActivity
         // Generally the items that are will be changing from these updates will
         // not be in the top list of tiles, so run it in the background and the
         // SettingsBaseActivity will pick up on the updates automatically.
-        AsyncTask.execute(() -> doUpdateTilesList());
+        // Resumes that arrive while an update is pending are folded into it, and one arriving
+        // while it runs gets one more pass, since the running one may have read stale state.
+        SettingsTaskScheduler.getInstance().executeUnique(
+                SettingsTaskScheduler.Priority.PREFETCH, "updateTilesList",
+                this::doUpdateTilesList);
     }
 
     private void doUpdateTilesList() {
@@ -35,6 +35,9 @@ import android.telephony.TelephonyManager;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.SettingsTaskScheduler;
+import com.android.settings.core.instrumentation.ControllerProfiler;
+import com.android.settings.core.instrumentation.LatencyTracer;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
 import com.android.settingslib.net.DataUsageController;
@@ -61,6 +64,12 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_LATENCY = "latency";
+    @VisibleForTesting
+    static final String KEY_CONTROLLER_COSTS = "controller_costs";
+    @VisibleForTesting
+    static final String KEY_BACKGROUND_TASKS = "background_tasks";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -75,6 +84,10 @@ public class SettingsDumpService extends Service {
 
         try {
             dump.put(KEY_SERVICE, "Settings State");
+            // First, so that it is reported even if one of the others fails.
+            dump.put(KEY_LATENCY, LatencyTracer.toJson());
+            dump.put(KEY_CONTROLLER_COSTS, ControllerProfiler.getInstance().toJson());
+            dump.put(KEY_BACKGROUND_TASKS, SettingsTaskScheduler.getInstance().toJson());
             dump.put(KEY_STORAGE, dumpStorage());
             dump.put(KEY_DATAUSAGE, dumpDataUsage());
             dump.put(KEY_MEMORY, dumpMemory());
@@ -34,7 +34,6 @@ import android.content.pm.UserInfo;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
 import android.graphics.drawable.Drawable;
-import android.net.http.SslCertificate;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Parcelable;
@@ -73,9 +72,9 @@ import com.android.settings.core.InstrumentedFragment;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntConsumer;
 
 /**
@@ -92,6 +91,7 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
     private DevicePolicyManager mDevicePolicyManager;
     private UserManager mUserManager;
     private KeyguardManager mKeyguardManager;
+    private CaCertificateCatalog mCaCertificateCatalog;
     private int mTrustAllCaUserId;
 
     private static final String SAVED_CONFIRMED_CREDENTIAL_USERS = "ConfirmedCredentialUsers";
@@ -128,6 +128,7 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
         mDevicePolicyManager = activity.getSystemService(DevicePolicyManager.class);
         mUserManager = activity.getSystemService(UserManager.class);
         mKeyguardManager = activity.getSystemService(KeyguardManager.class);
+        mCaCertificateCatalog = CaCertificateCatalog.getInstance(activity);
         mTrustAllCaUserId = activity.getIntent().getIntExtra(ARG_SHOW_NEW_FOR_USER,
                 UserHandle.USER_NULL);
         mConfirmedCredentialUsers = new ArraySet<>(2);
@@ -693,7 +694,6 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
                         SparseArray<List<String>> aliasesByProfileId =
                                 new SparseArray<>(profiles.size());
                         int max = 0;
-                        int progress = 0;
                         for (UserHandle profile : profiles) {
                             int profileId = profile.getIdentifier();
                             if (shouldSkipProfile(profile)) {
@@ -711,6 +711,8 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
                             max += aliases.size();
                             aliasesByProfileId.put(profileId, aliases);
                         }
+                        final int total = max;
+                        final AtomicInteger progress = new AtomicInteger();
                         for (UserHandle profile : profiles) {
                             int profileId = profile.getIdentifier();
                             List<String> aliases = aliasesByProfileId.get(profileId);
@@ -726,16 +728,16 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
                                 continue;
                             }
                             IKeyChainService service = keyChainConnection.getService();
-                            List<CertHolder> certHolders = new ArrayList<>(max);
-                            for (String alias : aliases) {
-                                byte[] encodedCertificate = service.getEncodedCaCertificate(alias,
-                                        true);
-                                X509Certificate cert = KeyChain.toCertificate(encodedCertificate);
+                            // Already sorted by subject.
+                            List<CaCertificateCatalog.Entry> entries =
+                                    mCaCertificateCatalog.getEntries(service, mTab, profileId,
+                                            () -> publishProgress(progress.incrementAndGet(),
+                                                    total));
+                            List<CertHolder> certHolders = new ArrayList<>(entries.size());
+                            for (CaCertificateCatalog.Entry entry : entries) {
                                 certHolders.add(new CertHolder(service, mAdapter,
-                                        mTab, alias, cert, profileId));
-                                publishProgress(++progress, max);
+                                        mTab, entry, profileId));
                             }
-                            Collections.sort(certHolders);
                             certHoldersByProfile.put(profileId, certHolders);
                         }
                         return certHoldersByProfile;
@@ -822,7 +824,6 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
         private final String mAlias;
         private final X509Certificate mX509Cert;
 
-        private final SslCertificate mSslCert;
         private final String mSubjectPrimary;
         private final String mSubjectSecondary;
         private boolean mDeleted;
@@ -830,48 +831,17 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
         private CertHolder(IKeyChainService service,
                 GroupAdapter adapter,
                 Tab tab,
-                String alias,
-                X509Certificate x509Cert,
+                CaCertificateCatalog.Entry entry,
                 int profileId) {
             mProfileId = profileId;
             mService = service;
             mAdapter = adapter;
             mTab = tab;
-            mAlias = alias;
-            mX509Cert = x509Cert;
-
-            mSslCert = new SslCertificate(x509Cert);
-
-            String cn = mSslCert.getIssuedTo().getCName();
-            String o = mSslCert.getIssuedTo().getOName();
-            String ou = mSslCert.getIssuedTo().getUName();
-            // if we have a O, use O as primary subject, secondary prefer CN over OU
-            // if we don't have an O, use CN as primary, empty secondary
-            // if we don't have O or CN, use DName as primary, empty secondary
-            if (!o.isEmpty()) {
-                if (!cn.isEmpty()) {
-                    mSubjectPrimary = o;
-                    mSubjectSecondary = cn;
-                } else {
-                    mSubjectPrimary = o;
-                    mSubjectSecondary = ou;
-                }
-            } else {
-                if (!cn.isEmpty()) {
-                    mSubjectPrimary = cn;
-                    mSubjectSecondary = "";
-                } else {
-                    mSubjectPrimary = mSslCert.getIssuedTo().getDName();
-                    mSubjectSecondary = "";
-                }
-            }
-            try {
-                mDeleted = mTab.deleted(mService, mAlias);
-            } catch (RemoteException e) {
-                Log.e(TAG, "Remote exception while checking if alias " + mAlias + " is deleted.",
-                        e);
-                mDeleted = false;
-            }
+            mAlias = entry.mAlias;
+            mX509Cert = entry.mCertificate;
+            mSubjectPrimary = entry.mSubjectPrimary;
+            mSubjectSecondary = entry.mSubjectSecondary;
+            mDeleted = entry.mDeleted;
         }
 
         @Override
@@ -1014,6 +984,7 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
         @Override
         protected void onPostExecute(Boolean ok) {
             if (ok) {
+                mCaCertificateCatalog.invalidate();
                 if (mCertHolder.mTab.mSwitch) {
                     mCertHolder.mDeleted = !mCertHolder.mDeleted;
                 } else {
@@ -133,15 +133,5 @@ public class TrustedCredentialsSettings extends DashboardFragment {
             }
             throw new AssertionError();
         }
-
-        boolean deleted(IKeyChainService service, String alias) throws RemoteException {
-            switch (this) {
-                case SYSTEM:
-                    return !service.containsCaAlias(alias);
-                case USER:
-                    return false;
-            }
-            throw new AssertionError();
-        }
     }
 }
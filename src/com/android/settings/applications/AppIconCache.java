@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.UserHandle;
+import android.util.IconDrawableFactory;
+import android.util.LruCache;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.R;
+
+/**
+ * Process wide cache of app icons and labels, shared by every screen that lists apps.
+ *
+ * <p>Icons are badged for the user of the app, scaled down to {@link R.dimen#app_icon_size} or
+ * the size the caller asks for, and kept up to {@link #MAX_ICON_SIZE_BYTES}. Entries of a
+ * package are dropped when it is updated or removed for any user, and every label when the locale
+ * changes.
+ */
+public class AppIconCache {
+    // Room for a few hundred icons at the app list icon size.
+    @VisibleForTesting
+    static final int MAX_ICON_SIZE_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_LABEL_COUNT = 500;
+
+    private static AppIconCache sInstance;
+
+    private final Resources mResources;
+    private final PackageManager mPm;
+    private final IconDrawableFactory mIconDrawableFactory;
+    private final int mIconSize;
+    // Keyed by userId:size:packageName.
+    private final LruCache<String, Bitmap> mIcons = new LruCache<String, Bitmap>(
+            MAX_ICON_SIZE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap icon) {
+            return icon.getAllocationByteCount();
+        }
+    };
+    private final LruCache<String, CharSequence> mLabels = new LruCache<>(MAX_LABEL_COUNT);
+    // Bumped whenever entries are dropped, so that a load started before is not cached.
+    @GuardedBy("this")
+    private int mGeneration;
+
+    private final BroadcastReceiver mPackageChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_LOCALE_CHANGED.equals(intent.getAction())) {
+                synchronized (AppIconCache.this) {
+                    mGeneration++;
+                    mLabels.evictAll();
+                }
+                return;
+            }
+            final Uri data = intent.getData();
+            if (data != null) {
+                invalidate(data.getSchemeSpecificPart());
+            }
+        }
+    };
+
+    /** Returns the process wide instance. */
+    public static synchronized AppIconCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AppIconCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void setInstanceForTesting(@Nullable AppIconCache cache) {
+        sInstance = cache;
+    }
+
+    @VisibleForTesting
+    AppIconCache(Context context) {
+        mResources = context.getResources();
+        mPm = context.getPackageManager();
+        mIconDrawableFactory = IconDrawableFactory.newInstance(context);
+        mIconSize = mResources.getDimensionPixelSize(R.dimen.app_icon_size);
+
+        final IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        context.registerReceiverAsUser(mPackageChangeReceiver, UserHandle.ALL, packageFilter,
+                null /* broadcastPermission */, null /* scheduler */);
+        context.registerReceiver(mPackageChangeReceiver,
+                new IntentFilter(Intent.ACTION_LOCALE_CHANGED));
+    }
+
+    /**
+     * Returns the icon of {@code info}, badged for the user it belongs to. Each caller gets its
+     * own drawable, only the bitmap is shared.
+     */
+    @WorkerThread
+    public Drawable getBadgedIcon(ApplicationInfo info) {
+        return getBadgedIcon(info, mIconSize);
+    }
+
+    /**
+     * Returns the icon of {@code info} scaled to {@code sizePx}, for screens that show it larger
+     * than the app lists. Every size is cached on its own.
+     */
+    @WorkerThread
+    public Drawable getBadgedIcon(ApplicationInfo info, int sizePx) {
+        final String key = UserHandle.getUserId(info.uid) + ":" + sizePx + ":" + info.packageName;
+        Bitmap icon = mIcons.get(key);
+        if (icon == null) {
+            final int generation = getGeneration();
+            icon = createIcon(mIconDrawableFactory.getBadgedIcon(info), sizePx);
+            synchronized (this) {
+                if (generation == mGeneration) {
+                    mIcons.put(key, icon);
+                }
+            }
+        }
+        return new BitmapDrawable(mResources, icon);
+    }
+
+    /** Returns the label of {@code info} in the current locale. */
+    @WorkerThread
+    public CharSequence getLabel(ApplicationInfo info) {
+        final String key = getKey(info);
+        CharSequence label = mLabels.get(key);
+        if (label == null) {
+            final int generation = getGeneration();
+            label = info.loadLabel(mPm);
+            synchronized (this) {
+                if (generation == mGeneration) {
+                    mLabels.put(key, label);
+                }
+            }
+        }
+        return label;
+    }
+
+    /** Drop the cached icons and labels of {@code packageName}, for every user. */
+    public synchronized void invalidate(String packageName) {
+        mGeneration++;
+        final String suffix = ":" + packageName;
+        for (String key : mIcons.snapshot().keySet()) {
+            if (key.endsWith(suffix)) {
+                mIcons.remove(key);
+            }
+        }
+        for (String key : mLabels.snapshot().keySet()) {
+            if (key.endsWith(suffix)) {
+                mLabels.remove(key);
+            }
+        }
+    }
+
+    private synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    private static String getKey(ApplicationInfo info) {
+        return UserHandle.getUserId(info.uid) + ":" + info.packageName;
+    }
+
+    private static Bitmap createIcon(Drawable drawable, int sizePx) {
+        final Bitmap icon = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, sizePx, sizePx);
+        drawable.draw(new Canvas(icon));
+        return icon;
+    }
+}
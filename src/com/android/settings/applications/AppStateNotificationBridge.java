@@ -16,18 +16,16 @@
 package com.android.settings.applications;
 
 import android.app.usage.IUsageStatsManager;
-import android.app.usage.UsageEvents;
 import android.content.Context;
-import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
-import android.text.format.DateUtils;
 import android.util.ArrayMap;
 import android.util.Log;
 import android.widget.CompoundButton;
 
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settings.notification.NotificationActivityAggregator;
 import com.android.settings.notification.NotificationBackend;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
@@ -139,69 +137,31 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     protected Map<String, NotificationsSentState> getAggregatedUsageEvents() {
         ArrayMap<String, NotificationsSentState> aggregatedStats = new ArrayMap<>();
 
-        long now = System.currentTimeMillis();
-        long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
         for (int userId : mUserIds) {
-            UsageEvents events = null;
-            try {
-                events = mUsageStatsManager.queryEventsForUser(
-                        startTime, now, userId, mContext.getPackageName());
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-            if (events != null) {
-                UsageEvents.Event event = new UsageEvents.Event();
-                while (events.hasNextEvent()) {
-                    events.getNextEvent(event);
-                    NotificationsSentState stats =
-                            aggregatedStats.get(getKey(userId, event.getPackageName()));
-                    if (stats == null) {
-                        stats = new NotificationsSentState();
-                        aggregatedStats.put(getKey(userId, event.getPackageName()), stats);
-                    }
-
-                    if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                        if (event.getTimeStamp() > stats.lastSent) {
-                            stats.lastSent = event.getTimeStamp();
-                        }
-                        stats.sentCount++;
-                    }
-
-                }
+            final Map<String, NotificationBackend.NotificationsSentState> sentStates =
+                    NotificationActivityAggregator.getInstance().getSentStates(
+                            mUsageStatsManager, userId, mContext.getPackageName());
+            for (Map.Entry<String, NotificationBackend.NotificationsSentState> sentState
+                    : sentStates.entrySet()) {
+                aggregatedStats.put(getKey(userId, sentState.getKey()),
+                        toNotificationsSentState(sentState.getValue()));
             }
         }
         return aggregatedStats;
     }
 
     protected NotificationsSentState getAggregatedUsageEvents(int userId, String pkg) {
-        NotificationsSentState stats = null;
-
-        long now = System.currentTimeMillis();
-        long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
-        UsageEvents events = null;
-        try {
-            events = mUsageStatsManager.queryEventsForPackageForUser(
-                    startTime, now, userId, pkg, mContext.getPackageName());
-        } catch (RemoteException e) {
-            e.printStackTrace();
-        }
-        if (events != null) {
-            UsageEvents.Event event = new UsageEvents.Event();
-            while (events.hasNextEvent()) {
-                events.getNextEvent(event);
-
-                if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                    if (stats == null) {
-                        stats = new NotificationsSentState();
-                    }
-                    if (event.getTimeStamp() > stats.lastSent) {
-                        stats.lastSent = event.getTimeStamp();
-                    }
-                    stats.sentCount++;
-                }
+        final NotificationBackend.NotificationsSentState sentState =
+                NotificationActivityAggregator.getInstance().getSentStates(
+                        mUsageStatsManager, userId, mContext.getPackageName()).get(pkg);
+        return sentState != null ? toNotificationsSentState(sentState) : null;
+    }
 
-            }
-        }
+    private static NotificationsSentState toNotificationsSentState(
+            NotificationBackend.NotificationsSentState sentState) {
+        final NotificationsSentState stats = new NotificationsSentState();
+        stats.sentCount = sentState.sentCount;
+        stats.lastSent = sentState.lastSent;
         return stats;
     }
 
@@ -43,6 +43,8 @@ import android.text.format.Formatter;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
 import com.android.settingslib.Utils;
 import com.android.settingslib.applications.InterestingConfigChanges;
@@ -69,9 +71,12 @@ public class RunningState {
     static final int MSG_UPDATE_CONTENTS = 2;
     static final int MSG_REFRESH_UI = 3;
     static final int MSG_UPDATE_TIME = 4;
+    static final int MSG_RESET_UPDATE_DELAY = 5;
 
     static final long TIME_UPDATE_DELAY = 1000;
     static final long CONTENTS_UPDATE_DELAY = 2000;
+    // Polling backs off up to this while no service or process comes or goes.
+    static final long MAX_CONTENTS_UPDATE_DELAY = 16000;
 
     static final int MAX_SERVICES = 100;
 
@@ -125,17 +130,28 @@ public class RunningState {
     final SparseArray<MergedItem> mOtherUserBackgroundItems = new SparseArray<MergedItem>();
 
     static class AppProcessInfo {
-        final ActivityManager.RunningAppProcessInfo info;
+        ActivityManager.RunningAppProcessInfo info;
         boolean hasServices;
         boolean hasForegroundServices;
 
         AppProcessInfo(ActivityManager.RunningAppProcessInfo _info) {
             info = _info;
         }
+
+        void reset(ActivityManager.RunningAppProcessInfo _info) {
+            info = _info;
+            hasServices = false;
+            hasForegroundServices = false;
+        }
     }
 
-    // Temporary structure used when updating above information.
-    final SparseArray<AppProcessInfo> mTmpAppProcesses = new SparseArray<AppProcessInfo>();
+    // Temporary structure used when updating above information. The entries of the previous
+    // update are kept so that they can be reused for the pids that are still running.
+    SparseArray<AppProcessInfo> mTmpAppProcesses = new SparseArray<AppProcessInfo>();
+    SparseArray<AppProcessInfo> mPrevAppProcesses = new SparseArray<AppProcessInfo>();
+
+    // Only touched by the background thread.
+    long mContentsUpdateDelay = CONTENTS_UPDATE_DELAY;
 
     int mSequence = 0;
 
@@ -210,6 +226,7 @@ public class RunningState {
     boolean mResumed;
     boolean mHaveData;
     boolean mWatchingBackgroundItems;
+    boolean mListeningToUidImportance;
 
     ArrayList<BaseItem> mItems = new ArrayList<BaseItem>();
     ArrayList<MergedItem> mMergedItems = new ArrayList<MergedItem>();
@@ -244,12 +261,23 @@ public class RunningState {
                             return;
                         }
                     }
+                    final boolean changed = update(mApplicationContext, mAm);
                     Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
-                    cmd.arg1 = update(mApplicationContext, mAm) ? 1 : 0;
+                    cmd.arg1 = changed ? 1 : 0;
                     mHandler.sendMessage(cmd);
                     removeMessages(MSG_UPDATE_CONTENTS);
                     msg = obtainMessage(MSG_UPDATE_CONTENTS);
-                    sendMessageDelayed(msg, CONTENTS_UPDATE_DELAY);
+                    sendMessageDelayed(msg, onContentsUpdated(changed));
+                    break;
+                case MSG_RESET_UPDATE_DELAY:
+                    if (!resetContentsUpdateDelay()) {
+                        // The next update is close enough.
+                        return;
+                    }
+                    if (hasMessages(MSG_UPDATE_CONTENTS)) {
+                        removeMessages(MSG_UPDATE_CONTENTS);
+                        sendEmptyMessage(MSG_UPDATE_CONTENTS);
+                    }
                     break;
             }
         }
@@ -257,6 +285,34 @@ public class RunningState {
 
     final BackgroundHandler mBackgroundHandler;
 
+    /**
+     * Returns the delay until the next update, after an update that found {@code changed}
+     * services or processes. The delay doubles while nothing changes.
+     */
+    @VisibleForTesting
+    long onContentsUpdated(boolean changed) {
+        mContentsUpdateDelay = changed ? CONTENTS_UPDATE_DELAY
+                : Math.min(mContentsUpdateDelay * 2, MAX_CONTENTS_UPDATE_DELAY);
+        return mContentsUpdateDelay;
+    }
+
+    /** Brings the update delay back to its base, and returns whether it was longer. */
+    @VisibleForTesting
+    boolean resetContentsUpdateDelay() {
+        if (mContentsUpdateDelay == CONTENTS_UPDATE_DELAY) {
+            return false;
+        }
+        mContentsUpdateDelay = CONTENTS_UPDATE_DELAY;
+        return true;
+    }
+
+    // Brings polling back to full speed as soon as a process starts or stops running services.
+    final ActivityManager.OnUidImportanceListener mUidImportanceListener = (uid, importance) -> {
+        if (!mBackgroundHandler.hasMessages(MSG_RESET_UPDATE_DELAY)) {
+            mBackgroundHandler.sendEmptyMessage(MSG_RESET_UPDATE_DELAY);
+        }
+    };
+
     final Handler mHandler = new Handler() {
         int mNextUpdate = OnRefreshUiListener.REFRESH_TIME;
 
@@ -394,6 +450,7 @@ public class RunningState {
 
         final int mUid;
         final String mProcessName;
+        private final AppIconCache mIconCache;
         int mPid;
 
         ProcessItem mClient;
@@ -413,6 +470,7 @@ public class RunningState {
 
         public ProcessItem(Context context, int uid, String processName) {
             super(true, UserHandle.getUserId(uid));
+            mIconCache = AppIconCache.getInstance(context);
             mDescription = context.getResources().getString(
                     R.string.service_process_name, processName);
             mUid = uid;
@@ -428,7 +486,7 @@ public class RunningState {
                 ApplicationInfo ai = pm.getApplicationInfo(mProcessName,
                         PackageManager.MATCH_ANY_USER);
                 if (ai.uid == mUid) {
-                    mDisplayLabel = ai.loadLabel(pm);
+                    mDisplayLabel = mIconCache.getLabel(ai);
                     mLabel = mDisplayLabel.toString();
                     mPackageInfo = ai;
                     return;
@@ -445,7 +503,7 @@ public class RunningState {
                 try {
                     ApplicationInfo ai = pm.getApplicationInfo(pkgs[0],
                             PackageManager.MATCH_ANY_USER);
-                    mDisplayLabel = ai.loadLabel(pm);
+                    mDisplayLabel = mIconCache.getLabel(ai);
                     mLabel = mDisplayLabel.toString();
                     mPackageInfo = ai;
                     return;
@@ -478,7 +536,7 @@ public class RunningState {
                 ApplicationInfo ai = mServices.values().iterator().next()
                         .mServiceInfo.applicationInfo;
                 mPackageInfo = ai;
-                mDisplayLabel = mPackageInfo.loadLabel(pm);
+                mDisplayLabel = mIconCache.getLabel(mPackageInfo);
                 mLabel = mDisplayLabel.toString();
                 return;
             }
@@ -487,7 +545,7 @@ public class RunningState {
             try {
                 ApplicationInfo ai = pm.getApplicationInfo(pkgs[0],
                         PackageManager.MATCH_ANY_USER);
-                mDisplayLabel = ai.loadLabel(pm);
+                mDisplayLabel = mIconCache.getLabel(ai);
                 mLabel = mDisplayLabel.toString();
                 mPackageInfo = ai;
                 return;
@@ -781,8 +839,13 @@ public class RunningState {
     }
 
     private RunningState(Context context) {
+        this(context, context.getApplicationContext().getSystemService(ActivityManager.class));
+    }
+
+    @VisibleForTesting
+    RunningState(Context context, ActivityManager am) {
         mApplicationContext = context.getApplicationContext();
-        mAm = mApplicationContext.getSystemService(ActivityManager.class);
+        mAm = am;
         mPm = mApplicationContext.getPackageManager();
         mUm = mApplicationContext.getSystemService(UserManager.class);
         mMyUserId = UserHandle.myUserId();
@@ -808,10 +871,20 @@ public class RunningState {
                 mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
                 mBackgroundHandler.sendEmptyMessage(MSG_RESET_CONTENTS);
             }
+            mBackgroundHandler.sendEmptyMessage(MSG_RESET_UPDATE_DELAY);
             if (!mBackgroundHandler.hasMessages(MSG_UPDATE_CONTENTS)) {
                 mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
             }
             mHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+            if (!mListeningToUidImportance) {
+                try {
+                    mAm.addOnUidImportanceListener(mUidImportanceListener,
+                            ActivityManager.RunningAppProcessInfo.IMPORTANCE_SERVICE);
+                    mListeningToUidImportance = true;
+                } catch (SecurityException e) {
+                    Log.w(TAG, "Cannot observe process states, only polling", e);
+                }
+            }
         }
     }
 
@@ -844,6 +917,10 @@ public class RunningState {
             mResumed = false;
             mRefreshUiListener = null;
             mHandler.removeMessages(MSG_UPDATE_TIME);
+            if (mListeningToUidImportance) {
+                mAm.removeOnUidImportanceListener(mUidImportanceListener);
+                mListeningToUidImportance = false;
+            }
         }
     }
 
@@ -938,10 +1015,19 @@ public class RunningState {
         List<ActivityManager.RunningAppProcessInfo> processes
                 = am.getRunningAppProcesses();
         final int NP = processes != null ? processes.size() : 0;
+        final SparseArray<AppProcessInfo> prevAppProcesses = mTmpAppProcesses;
+        mTmpAppProcesses = mPrevAppProcesses;
+        mPrevAppProcesses = prevAppProcesses;
         mTmpAppProcesses.clear();
         for (int i = 0; i < NP; i++) {
             ActivityManager.RunningAppProcessInfo pi = processes.get(i);
-            mTmpAppProcesses.put(pi.pid, new AppProcessInfo(pi));
+            AppProcessInfo ainfo = prevAppProcesses.get(pi.pid);
+            if (ainfo != null) {
+                ainfo.reset(pi);
+            } else {
+                ainfo = new AppProcessInfo(pi);
+            }
+            mTmpAppProcesses.put(pi.pid, ainfo);
         }
 
         // Initial iteration through running services to collect per-process
@@ -150,6 +150,7 @@ public class BluetoothPairingDetail extends DeviceListPreferenceFragment impleme
     void updateContent(int bluetoothState) {
         switch (bluetoothState) {
             case BluetoothAdapter.STATE_ON:
+                mDiscoveredDevices.clear();
                 mDevicePreferenceMap.clear();
                 mBluetoothAdapter.enable();
 
@@ -212,7 +213,9 @@ public class BluetoothPairingDetail extends DeviceListPreferenceFragment impleme
             final BluetoothDevice device = cachedDevice.getDevice();
             if (device != null && mSelectedList.contains(device)) {
                 finish();
-            } else if (mDevicePreferenceMap.containsKey(cachedDevice)) {
+            } else if (mDevicePreferenceMap.containsKey(cachedDevice)
+                    || mDiscoveredDevices.contains(cachedDevice)) {
+                // Also drop devices that are tracked but not displayed yet
                 onDeviceDeleted(cachedDevice);
             }
         }
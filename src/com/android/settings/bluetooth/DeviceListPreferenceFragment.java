@@ -19,6 +19,8 @@ package com.android.settings.bluetooth;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.SystemProperties;
 import android.text.BidiFormatter;
 import android.util.Log;
@@ -38,7 +40,11 @@ import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Parent class for settings fragments that contain a list of Bluetooth
@@ -58,6 +64,13 @@ public abstract class DeviceListPreferenceFragment extends
     private static final String BLUETOOTH_SHOW_DEVICES_WITHOUT_NAMES_PROPERTY =
             "persist.bluetooth.showdeviceswithoutnames";
 
+    // Discovery in crowded places can find hundreds of devices, only the best ranked are shown.
+    @VisibleForTesting
+    static final int MAX_DISPLAYED_DEVICES = 50;
+    // Device found, name and signal updates are applied to the list at most this often.
+    @VisibleForTesting
+    static final long DEVICE_LIST_UPDATE_INTERVAL_MS = 500;
+
     private BluetoothDeviceFilter.Filter mFilter;
 
     @VisibleForTesting
@@ -75,6 +88,13 @@ public abstract class DeviceListPreferenceFragment extends
             new HashMap<>();
     final List<BluetoothDevice> mSelectedList = new ArrayList<>();
 
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mUpdateDeviceListRunnable = this::updateDeviceList;
+    private boolean mDeviceListUpdateScheduled;
+    @VisibleForTesting
+    final DiscoveredDeviceList mDiscoveredDevices =
+            new DiscoveredDeviceList(MAX_DISPLAYED_DEVICES, this::scheduleDeviceListUpdate);
+
     boolean mShowDevicesWithoutNames;
 
     DeviceListPreferenceFragment(String restrictedKey) {
@@ -84,10 +104,14 @@ public abstract class DeviceListPreferenceFragment extends
 
     final void setFilter(BluetoothDeviceFilter.Filter filter) {
         mFilter = filter;
+        // Only devices matching the current filter are tracked
+        if (mDiscoveredDevices.removeIf(device -> !filter.matches(device.getDevice()))) {
+            scheduleDeviceListUpdate();
+        }
     }
 
     final void setFilter(int filterType) {
-        mFilter = BluetoothDeviceFilter.getFilter(filterType);
+        setFilter(BluetoothDeviceFilter.getFilter(filterType));
     }
 
     @Override
@@ -133,6 +157,8 @@ public abstract class DeviceListPreferenceFragment extends
     }
 
     void removeAllDevices() {
+        cancelDeviceListUpdate();
+        mDiscoveredDevices.clear();
         mDevicePreferenceMap.clear();
         mDeviceListGroup.removeAll();
     }
@@ -177,8 +203,59 @@ public abstract class DeviceListPreferenceFragment extends
         // Prevent updates while the list shows one of the state messages
         if (mBluetoothAdapter.getState() != BluetoothAdapter.STATE_ON) return;
 
-        if (mFilter.matches(cachedDevice.getDevice())) {
-            createDevicePreference(cachedDevice);
+        if (mFilter.matches(cachedDevice.getDevice()) && mDiscoveredDevices.add(cachedDevice)) {
+            scheduleDeviceListUpdate();
+        }
+    }
+
+    private void scheduleDeviceListUpdate() {
+        if (!mDeviceListUpdateScheduled) {
+            mDeviceListUpdateScheduled = true;
+            mHandler.postDelayed(mUpdateDeviceListRunnable, DEVICE_LIST_UPDATE_INTERVAL_MS);
+        }
+    }
+
+    private void cancelDeviceListUpdate() {
+        mHandler.removeCallbacks(mUpdateDeviceListRunnable);
+        mDeviceListUpdateScheduled = false;
+    }
+
+    /**
+     * Show the best ranked discovered devices, in rank order. Devices that dropped out of the
+     * ranking are removed and only preferences whose rank changed get a new order, so the list
+     * adapter only sees the minimal set of moves.
+     */
+    @VisibleForTesting
+    void updateDeviceList() {
+        cancelDeviceListUpdate();
+        if (mDeviceListGroup == null) {
+            return;
+        }
+
+        final List<CachedBluetoothDevice> displayedDevices =
+                mDiscoveredDevices.getDisplayedDevices();
+        final Set<CachedBluetoothDevice> displayedSet = new HashSet<>(displayedDevices);
+        final Iterator<Map.Entry<CachedBluetoothDevice, BluetoothDevicePreference>> iterator =
+                mDevicePreferenceMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<CachedBluetoothDevice, BluetoothDevicePreference> entry =
+                    iterator.next();
+            if (!displayedSet.contains(entry.getKey())) {
+                mDeviceListGroup.removePreference(entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        for (int i = 0, size = displayedDevices.size(); i < size; i++) {
+            final CachedBluetoothDevice cachedDevice = displayedDevices.get(i);
+            if (!mDevicePreferenceMap.containsKey(cachedDevice)) {
+                createDevicePreference(cachedDevice);
+            }
+            final BluetoothDevicePreference preference = mDevicePreferenceMap.get(cachedDevice);
+            if (preference != null) {
+                // No-op when the rank is unchanged
+                preference.setOrder(i);
+            }
         }
     }
 
@@ -193,8 +270,9 @@ public abstract class DeviceListPreferenceFragment extends
         BluetoothDevicePreference preference = (BluetoothDevicePreference) getCachedPreference(key);
 
         if (preference == null) {
+            // Ordered by rank through setOrder() in updateDeviceList()
             preference = new BluetoothDevicePreference(getPrefContext(), cachedDevice,
-                    mShowDevicesWithoutNames, BluetoothDevicePreference.SortType.TYPE_FIFO);
+                    mShowDevicesWithoutNames, BluetoothDevicePreference.SortType.TYPE_NO_SORT);
             preference.setKey(key);
             //Set hideSecondTarget is true if it's bonded device.
             preference.hideSecondTarget(true);
@@ -220,6 +298,10 @@ public abstract class DeviceListPreferenceFragment extends
 
     @Override
     public void onDeviceDeleted(CachedBluetoothDevice cachedDevice) {
+        // A device further down the ranking may now take its place
+        if (mDiscoveredDevices.remove(cachedDevice)) {
+            scheduleDeviceListUpdate();
+        }
         BluetoothDevicePreference preference = mDevicePreferenceMap.remove(cachedDevice);
         if (preference != null) {
             mDeviceListGroup.removePreference(preference);
@@ -269,6 +351,8 @@ public abstract class DeviceListPreferenceFragment extends
             // Don't show bonded devices when screen turned back on
             setFilter(BluetoothDeviceFilter.UNBONDED_DEVICE_FILTER);
             addCachedDevices();
+            // Reuse the cached preferences before the leftovers are removed below
+            updateDeviceList();
         }
         setFilter(filter);
         preferenceGroup.setEnabled(true);
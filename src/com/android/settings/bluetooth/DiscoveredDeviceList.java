@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Model of the devices found by a Bluetooth discovery screen.
+ *
+ * It keeps every device that has been found, but only exposes the best ranked ones for display,
+ * see {@link #RANK_COMPARATOR}. Any change of a tracked device is reported through the listener
+ * given at construction, so the screen can coalesce them into a single list update.
+ */
+class DiscoveredDeviceList {
+
+    /**
+     * Devices with a human readable name come first, then devices with a stronger signal. The
+     * address breaks ties so the order stays stable between updates.
+     */
+    static final Comparator<CachedBluetoothDevice> RANK_COMPARATOR = (device1, device2) -> {
+        final boolean hasName1 = device1.hasHumanReadableName();
+        if (hasName1 != device2.hasHumanReadableName()) {
+            return hasName1 ? -1 : 1;
+        }
+        final int rssiCompare = Short.compare(device2.getRssi(), device1.getRssi());
+        if (rssiCompare != 0) {
+            return rssiCompare;
+        }
+        return device1.getAddress().compareTo(device2.getAddress());
+    };
+
+    private final Set<CachedBluetoothDevice> mDevices = new HashSet<>();
+    private final int mMaxDisplayedCount;
+    private final CachedBluetoothDevice.Callback mCallback;
+
+    DiscoveredDeviceList(int maxDisplayedCount, Runnable onDeviceListChanged) {
+        mMaxDisplayedCount = maxDisplayedCount;
+        mCallback = onDeviceListChanged::run;
+    }
+
+    /**
+     * Start tracking {@code device}.
+     *
+     * @return {@code true} if the device was not tracked before
+     */
+    boolean add(CachedBluetoothDevice device) {
+        if (!mDevices.add(device)) {
+            return false;
+        }
+        device.registerCallback(mCallback);
+        return true;
+    }
+
+    /**
+     * Stop tracking {@code device}.
+     *
+     * @return {@code true} if the device was tracked before
+     */
+    boolean remove(CachedBluetoothDevice device) {
+        if (!mDevices.remove(device)) {
+            return false;
+        }
+        device.unregisterCallback(mCallback);
+        return true;
+    }
+
+    /**
+     * Stop tracking the devices matching {@code filter}.
+     *
+     * @return {@code true} if any device was removed
+     */
+    boolean removeIf(Predicate<CachedBluetoothDevice> filter) {
+        boolean removed = false;
+        final Iterator<CachedBluetoothDevice> iterator = mDevices.iterator();
+        while (iterator.hasNext()) {
+            final CachedBluetoothDevice device = iterator.next();
+            if (filter.test(device)) {
+                iterator.remove();
+                device.unregisterCallback(mCallback);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    void clear() {
+        for (CachedBluetoothDevice device : mDevices) {
+            device.unregisterCallback(mCallback);
+        }
+        mDevices.clear();
+    }
+
+    boolean contains(CachedBluetoothDevice device) {
+        return mDevices.contains(device);
+    }
+
+    int size() {
+        return mDevices.size();
+    }
+
+    /**
+     * Return at most {@code maxDisplayedCount} devices, best ranked first.
+     */
+    List<CachedBluetoothDevice> getDisplayedDevices() {
+        if (mDevices.size() <= mMaxDisplayedCount) {
+            final List<CachedBluetoothDevice> devices = new ArrayList<>(mDevices);
+            devices.sort(RANK_COMPARATOR);
+            return devices;
+        }
+
+        // Keep the best ranked devices in a bounded heap whose head is the worst one kept, so
+        // selecting them costs O(n log k) rather than sorting every device found.
+        final PriorityQueue<CachedBluetoothDevice> topDevices =
+                new PriorityQueue<>(mMaxDisplayedCount, Collections.reverseOrder(RANK_COMPARATOR));
+        for (CachedBluetoothDevice device : mDevices) {
+            if (topDevices.size() < mMaxDisplayedCount) {
+                topDevices.add(device);
+            } else if (RANK_COMPARATOR.compare(device, topDevices.peek()) < 0) {
+                topDevices.poll();
+                topDevices.add(device);
+            }
+        }
+        final List<CachedBluetoothDevice> devices = new ArrayList<>(topDevices);
+        devices.sort(RANK_COMPARATOR);
+        return devices;
+    }
+}
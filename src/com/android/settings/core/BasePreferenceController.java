@@ -34,6 +34,8 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.Utils;
+import com.android.settings.core.instrumentation.ControllerProfiler;
+import com.android.settings.core.instrumentation.ControllerProfiler.Call;
 import com.android.settings.slices.SettingsSliceProvider;
 import com.android.settings.slices.SliceData;
 import com.android.settings.slices.Sliceable;
@@ -126,6 +128,7 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     @Nullable
     private UserHandle mWorkProfileUser;
     private int mMetricsCategory;
+    private boolean mProfiled;
     private boolean mPrefVisibility;
 
     /**
@@ -257,7 +260,10 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
             return false;
         }
 
-        final int availabilityStatus = getAvailabilityStatus();
+        final int availabilityStatus = mProfiled
+                ? ControllerProfiler.getInstance().time(mMetricsCategory, this,
+                        Call.GET_AVAILABILITY_STATUS, this::getAvailabilityStatus)
+                : getAvailabilityStatus();
         return (availabilityStatus == AVAILABLE
                 || availabilityStatus == AVAILABLE_UNSEARCHABLE
                 || availabilityStatus == DISABLED_DEPENDENT_SETTING);
@@ -289,6 +295,16 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
         }
     }
 
+    @Override
+    protected void refreshSummary(Preference preference) {
+        if (!mProfiled) {
+            super.refreshSummary(preference);
+            return;
+        }
+        ControllerProfiler.getInstance().time(mMetricsCategory, this, Call.GET_SUMMARY,
+                () -> super.refreshSummary(preference));
+    }
+
     /**
      * @return the UI type supported by the controller.
      */
@@ -424,6 +440,15 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
         mMetricsCategory = metricsCategory;
     }
 
+    /**
+     * Set whether the calls to this controller are timed by {@link ControllerProfiler}.
+     *
+     * Called by DashboardFragment#onAttach
+     */
+    public void setProfiled(boolean profiled) {
+        mProfiled = profiled;
+    }
+
     /**
      * @return the metrics category of the parent fragment.
      */
@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntDef;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs Settings background work on a small set of priority lanes.
+ *
+ * <p>Every task has a name, used for its timing stats and, with
+ * {@link #executeUnique(int, String, Runnable)}, to skip a task while another one with the same
+ * name is still pending. Tasks bound to a {@link LifecycleOwner} are cancelled when the owner is
+ * stopped, and their result is then never delivered. Work that must run in order, such as
+ * writing back a change after the load it depends on, goes through an executor from
+ * {@link #newSerialExecutor(int)}.
+ */
+public class SettingsTaskScheduler {
+    private static final String TAG = "SettingsTaskScheduler";
+    // Tasks running longer than this are logged.
+    private static final long SLOW_TASK_THRESHOLD_MS = 500;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({Priority.UI_CRITICAL,
+            Priority.PREFETCH,
+            Priority.MAINTENANCE})
+    public @interface Priority {
+        /** Work the user is waiting on, such as the content of the current page. */
+        int UI_CRITICAL = 0;
+        /** Work that warms up data the user may look at next. */
+        int PREFETCH = 1;
+        /** Bookkeeping nobody is waiting on. */
+        int MAINTENANCE = 2;
+    }
+
+    private static SettingsTaskScheduler sInstance;
+
+    private final Executor[] mLanes;
+    @GuardedBy("mUniqueTasks")
+    private final Map<String, Task<?>> mUniqueTasks = new ArrayMap<>();
+    @GuardedBy("mTaskStats")
+    private final Map<String, TaskStats> mTaskStats = new ArrayMap<>();
+
+    /** Returns the process wide scheduler. */
+    public static synchronized SettingsTaskScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new SettingsTaskScheduler();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+    public static synchronized void setInstanceForTesting(SettingsTaskScheduler scheduler) {
+        sInstance = scheduler;
+    }
+
+    private SettingsTaskScheduler() {
+        mLanes = new Executor[]{
+                createLane("ui", Math.max(2, Runtime.getRuntime().availableProcessors()),
+                        Process.THREAD_PRIORITY_DEFAULT),
+                createLane("prefetch", 2, Process.THREAD_PRIORITY_BACKGROUND),
+                createLane("maintenance", 1, Process.THREAD_PRIORITY_LOWEST)};
+    }
+
+    /** Creates a scheduler running every lane on {@code executor}. */
+    @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+    public SettingsTaskScheduler(Executor executor) {
+        mLanes = new Executor[]{executor, executor, executor};
+    }
+
+    /**
+     * Run {@code task} in the background.
+     */
+    public Future<?> execute(@Priority int priority, @NonNull String name,
+            @NonNull Runnable task) {
+        return execute(mLanes[priority], name, task);
+    }
+
+    /**
+     * Run {@code task} on {@code executor}, such as one from {@link #newSerialExecutor(int)}.
+     */
+    public Future<?> execute(@NonNull Executor executor, @NonNull String name,
+            @NonNull Runnable task) {
+        return schedule(null /* owner */, executor, name, false /* unique */,
+                Executors.callable(task), null /* onResult */);
+    }
+
+    /**
+     * Run {@code task} in the background, unless a task with the same {@code name} is already
+     * pending. In that case the pending task is returned. If the task with that name has already
+     * started, it may have read stale state, so it is run once more after it is done.
+     */
+    public Future<?> executeUnique(@Priority int priority, @NonNull String name,
+            @NonNull Runnable task) {
+        return schedule(null /* owner */, mLanes[priority], name, true /* unique */,
+                Executors.callable(task), null /* onResult */);
+    }
+
+    /**
+     * Run {@code task} in the background and deliver its result to {@code onResult} on the main
+     * thread. If {@code owner} is not null, the task is cancelled and its result dropped when the
+     * owner is stopped. Must be called on the main thread when {@code owner} is not null.
+     */
+    public <T> Future<T> submit(@Nullable LifecycleOwner owner, @Priority int priority,
+            @NonNull String name, @NonNull Callable<T> task, @Nullable Consumer<T> onResult) {
+        return submit(owner, mLanes[priority], name, task, onResult);
+    }
+
+    /**
+     * Same as {@link #submit(LifecycleOwner, int, String, Callable, Consumer)}, but runs
+     * {@code task} on {@code executor}, such as one from {@link #newSerialExecutor(int)}.
+     */
+    public <T> Future<T> submit(@Nullable LifecycleOwner owner, @NonNull Executor executor,
+            @NonNull String name, @NonNull Callable<T> task, @Nullable Consumer<T> onResult) {
+        return schedule(owner, executor, name, false /* unique */, task, onResult);
+    }
+
+    /**
+     * Returns a new executor running its tasks one at a time, in the order they were scheduled,
+     * on the {@code priority} lane. Each writer that needs its tasks ordered holds its own, so
+     * unrelated pages don't wait on each other.
+     */
+    public Executor newSerialExecutor(@Priority int priority) {
+        return new SerialExecutor(mLanes[priority]);
+    }
+
+    /**
+     * Returns the timing stats of every task name run so far.
+     */
+    public JSONObject toJson() throws JSONException {
+        final JSONObject tasks = new JSONObject();
+        synchronized (mTaskStats) {
+            for (Map.Entry<String, TaskStats> entry : mTaskStats.entrySet()) {
+                final TaskStats stats = entry.getValue();
+                tasks.put(entry.getKey(), new JSONObject()
+                        .put("count", stats.mCount)
+                        .put("total_ms", stats.mTotalMs)
+                        .put("max_ms", stats.mMaxMs));
+            }
+        }
+        return tasks;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Future<T> schedule(@Nullable LifecycleOwner owner, Executor executor,
+            String name, boolean unique, Callable<T> callable, @Nullable Consumer<T> onResult) {
+        final Task<T> task = new Task<>(owner, executor, name, unique, callable, onResult);
+        if (unique) {
+            synchronized (mUniqueTasks) {
+                final Task<?> inFlightTask = mUniqueTasks.get(name);
+                if (inFlightTask != null) {
+                    if (inFlightTask.mStarted) {
+                        inFlightTask.mRunAgain = true;
+                    }
+                    return (Future<T>) inFlightTask;
+                }
+                mUniqueTasks.put(name, task);
+            }
+        }
+        if (owner != null) {
+            if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                task.cancel(false /* mayInterruptIfRunning */);
+                return task;
+            }
+            owner.getLifecycle().addObserver(task);
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    private void recordDuration(String name, long durationMs) {
+        if (durationMs > SLOW_TASK_THRESHOLD_MS) {
+            Log.w(TAG, "Slow task " + name + ": " + durationMs + " ms");
+        }
+        synchronized (mTaskStats) {
+            TaskStats stats = mTaskStats.get(name);
+            if (stats == null) {
+                stats = new TaskStats();
+                mTaskStats.put(name, stats);
+            }
+            stats.mCount++;
+            stats.mTotalMs += durationMs;
+            stats.mMaxMs = Math.max(stats.mMaxMs, durationMs);
+        }
+    }
+
+    private static Executor createLane(String name, int threadCount, int threadPriority) {
+        final AtomicInteger threadIndex = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> new Thread(() -> {
+            Process.setThreadPriority(threadPriority);
+            runnable.run();
+        }, TAG + "-" + name + "-" + threadIndex.incrementAndGet());
+        return Executors.newFixedThreadPool(threadCount, threadFactory);
+    }
+
+    private class Task<T> extends FutureTask<T> implements LifecycleEventObserver {
+        private final LifecycleOwner mOwner;
+        private final Executor mExecutor;
+        private final String mName;
+        private final boolean mUnique;
+        private final Callable<T> mCallable;
+        private final Consumer<T> mOnResult;
+        // Whether a unique task has started, after which a new request runs it once more.
+        @GuardedBy("mUniqueTasks")
+        private boolean mStarted;
+        @GuardedBy("mUniqueTasks")
+        private boolean mRunAgain;
+
+        Task(@Nullable LifecycleOwner owner, Executor executor, String name, boolean unique,
+                Callable<T> callable, @Nullable Consumer<T> onResult) {
+            super(() -> {
+                final long startTime = SystemClock.elapsedRealtime();
+                try {
+                    return callable.call();
+                } catch (Exception e) {
+                    Log.w(TAG, "Task " + name + " failed", e);
+                    throw e;
+                } finally {
+                    recordDuration(name, SystemClock.elapsedRealtime() - startTime);
+                }
+            });
+            mOwner = owner;
+            mExecutor = executor;
+            mName = name;
+            mUnique = unique;
+            mCallable = callable;
+            mOnResult = onResult;
+        }
+
+        @Override
+        public void run() {
+            if (mUnique) {
+                synchronized (mUniqueTasks) {
+                    mStarted = true;
+                }
+            }
+            super.run();
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source,
+                @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_STOP || event == Lifecycle.Event.ON_DESTROY) {
+                cancel(true /* mayInterruptIfRunning */);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (mUnique) {
+                final boolean runAgain;
+                synchronized (mUniqueTasks) {
+                    if (mUniqueTasks.get(mName) == this) {
+                        mUniqueTasks.remove(mName);
+                    }
+                    runAgain = mRunAgain;
+                }
+                if (runAgain) {
+                    schedule(null /* owner */, mExecutor, mName, true /* unique */, mCallable,
+                            mOnResult);
+                }
+            }
+            if (mOwner != null || mOnResult != null) {
+                ThreadUtils.postOnMainThread(this::onDoneOnMainThread);
+            }
+        }
+
+        @MainThread
+        private void onDoneOnMainThread() {
+            if (mOwner != null) {
+                mOwner.getLifecycle().removeObserver(this);
+            }
+            if (mOnResult == null || isCancelled()) {
+                return;
+            }
+            final T result;
+            try {
+                result = get();
+            } catch (ExecutionException | InterruptedException e) {
+                // Already logged by the task itself.
+                return;
+            }
+            mOnResult.accept(result);
+        }
+    }
+
+    private static class SerialExecutor implements Executor {
+        private final Executor mExecutor;
+        @GuardedBy("this")
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+        @GuardedBy("this")
+        private Runnable mActive;
+
+        SerialExecutor(Executor executor) {
+            mExecutor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            mTasks.offer(() -> {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (mActive == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            mActive = mTasks.poll();
+            if (mActive != null) {
+                mExecutor.execute(mActive);
+            }
+        }
+    }
+
+    private static class TaskStats {
+        private int mCount;
+        private long mTotalMs;
+        private long mMaxMs;
+    }
+}
@@ -42,4 +42,8 @@ public class SettingsUIDeviceConfig {
      * {@code true} whether or not event_log for generic actions is enabled. Default is true.
      */
     public static final String GENERIC_EVENT_LOGGING_ENABLED = "event_logging_enabled";
+    /**
+     * The share of pages, from 0 to 1, whose preference controllers are profiled. Default is 0.
+     */
+    public static final String CONTROLLER_PROFILER_SAMPLE_RATE = "controller_profiler_sample_rate";
 }
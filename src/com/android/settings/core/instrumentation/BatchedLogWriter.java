@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import android.util.Pair;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.core.instrumentation.LogWriter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link LogWriter} that hands the events to other writers on a background thread, so that
+ * logging adds no latency to the UI and binder threads.
+ *
+ * <p>Events are copied into a preallocated ring buffer without taking a lock or allocating, and
+ * drained in batches by a single worker thread. When the worker falls behind and the buffer is
+ * full, new events are dropped and counted rather than blocking the caller.
+ */
+public class BatchedLogWriter implements LogWriter {
+    private static final String TAG = "BatchedLogWriter";
+
+    // Must be a power of two.
+    @VisibleForTesting
+    static final int CAPACITY = 256;
+    // Lets a burst of events, e.g. while scrolling a list, be written as one batch.
+    @VisibleForTesting
+    static final long BATCH_DELAY_MS = 100;
+
+    private static final int TYPE_VISIBLE = 0;
+    private static final int TYPE_HIDDEN = 1;
+    private static final int TYPE_ACTION_TAGGED = 2;
+    private static final int TYPE_ACTION_INT = 3;
+    private static final int TYPE_ACTION_BOOLEAN = 4;
+    private static final int TYPE_ACTION_STRING = 5;
+    private static final int TYPE_ACTION = 6;
+
+    private final LogWriter[] mWriters;
+    private final Handler mHandler;
+
+    // A bounded multi producer queue: mSequences[i] tells whether slot i is free for the producer
+    // at that position (== position) or holds an event for the consumer (== position + 1).
+    private final AtomicLongArray mSequences = new AtomicLongArray(CAPACITY);
+    private final AtomicLong mTail = new AtomicLong();
+    // Only touched by the worker thread.
+    private long mHead;
+    private final int[] mTypes = new int[CAPACITY];
+    private final int[] mAttributions = new int[CAPACITY];
+    private final int[] mActions = new int[CAPACITY];
+    private final int[] mPageIds = new int[CAPACITY];
+    private final int[] mValues = new int[CAPACITY];
+    private final String[] mKeys = new String[CAPACITY];
+    private final Context[] mContexts = new Context[CAPACITY];
+    private final Pair<Integer, Object>[][] mTaggedData = new Pair[CAPACITY][];
+
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private long mReportedDroppedCount;
+
+    public BatchedLogWriter(LogWriter... writers) {
+        this(Arrays.asList(writers), createWorkerHandler());
+    }
+
+    @VisibleForTesting
+    BatchedLogWriter(List<LogWriter> writers, Handler handler) {
+        mWriters = writers.toArray(new LogWriter[0]);
+        mHandler = handler;
+        for (int i = 0; i < CAPACITY; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    private static Handler createWorkerHandler() {
+        final HandlerThread workerThread = new HandlerThread(TAG,
+                Process.THREAD_PRIORITY_BACKGROUND);
+        workerThread.start();
+        return new Handler(workerThread.getLooper());
+    }
+
+    @Override
+    public void visible(Context context, int attribution, int pageId, int latency) {
+        enqueue(TYPE_VISIBLE, context, attribution, 0 /* action */, pageId, null /* key */,
+                latency, null /* taggedData */);
+    }
+
+    @Override
+    public void hidden(Context context, int pageId, int visibleTime) {
+        enqueue(TYPE_HIDDEN, context, 0 /* attribution */, 0 /* action */, pageId,
+                null /* key */, visibleTime, null /* taggedData */);
+    }
+
+    @Override
+    public void action(Context context, int action, Pair<Integer, Object>... taggedData) {
+        enqueue(TYPE_ACTION_TAGGED, context, 0 /* attribution */, action, 0 /* pageId */,
+                null /* key */, 0 /* value */, taggedData);
+    }
+
+    @Override
+    public void action(Context context, int action, int value) {
+        enqueue(TYPE_ACTION_INT, context, 0 /* attribution */, action, 0 /* pageId */,
+                null /* key */, value, null /* taggedData */);
+    }
+
+    @Override
+    public void action(Context context, int action, boolean value) {
+        enqueue(TYPE_ACTION_BOOLEAN, context, 0 /* attribution */, action, 0 /* pageId */,
+                null /* key */, value ? 1 : 0, null /* taggedData */);
+    }
+
+    @Override
+    public void action(Context context, int action, String pkg) {
+        enqueue(TYPE_ACTION_STRING, context, 0 /* attribution */, action, 0 /* pageId */,
+                pkg, 0 /* value */, null /* taggedData */);
+    }
+
+    @Override
+    public void action(int attribution, int action, int pageId, String key, int value) {
+        enqueue(TYPE_ACTION, null /* context */, attribution, action, pageId, key, value,
+                null /* taggedData */);
+    }
+
+    /** Returns the number of events dropped because the buffer was full. */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    private void enqueue(int type, Context context, int attribution, int action, int pageId,
+            String key, int value, Pair<Integer, Object>[] taggedData) {
+        long position = mTail.get();
+        int index;
+        while (true) {
+            index = (int) (position & (CAPACITY - 1));
+            final long diff = mSequences.get(index) - position;
+            if (diff == 0) {
+                if (mTail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = mTail.get();
+            } else if (diff < 0) {
+                // The worker has not freed this slot yet, the buffer is full.
+                mDroppedCount.incrementAndGet();
+                scheduleDrain();
+                return;
+            } else {
+                position = mTail.get();
+            }
+        }
+        mTypes[index] = type;
+        mContexts[index] = context;
+        mAttributions[index] = attribution;
+        mActions[index] = action;
+        mPageIds[index] = pageId;
+        mKeys[index] = key;
+        mValues[index] = value;
+        mTaggedData[index] = taggedData;
+        // Publishes the slot, and everything written to it, to the worker.
+        mSequences.set(index, position + 1);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mHandler.postDelayed(mDrainRunnable, BATCH_DELAY_MS);
+        }
+    }
+
+    private final Runnable mDrainRunnable = () -> {
+        // Cleared first, so that an event published while draining schedules the next batch.
+        mDrainScheduled.set(false);
+        while (true) {
+            final int index = (int) (mHead & (CAPACITY - 1));
+            if (mSequences.get(index) != mHead + 1) {
+                break;
+            }
+            write(index);
+            mContexts[index] = null;
+            mKeys[index] = null;
+            mTaggedData[index] = null;
+            mSequences.set(index, mHead + CAPACITY);
+            mHead++;
+        }
+        final long droppedCount = mDroppedCount.get();
+        if (droppedCount != mReportedDroppedCount) {
+            Log.w(TAG, "Dropped " + (droppedCount - mReportedDroppedCount)
+                    + " events, buffer full");
+            mReportedDroppedCount = droppedCount;
+        }
+    };
+
+    private void write(int index) {
+        final Context context = mContexts[index];
+        for (LogWriter writer : mWriters) {
+            switch (mTypes[index]) {
+                case TYPE_VISIBLE:
+                    writer.visible(context, mAttributions[index], mPageIds[index],
+                            mValues[index]);
+                    break;
+                case TYPE_HIDDEN:
+                    writer.hidden(context, mPageIds[index], mValues[index]);
+                    break;
+                case TYPE_ACTION_TAGGED:
+                    writer.action(context, mActions[index], mTaggedData[index]);
+                    break;
+                case TYPE_ACTION_INT:
+                    writer.action(context, mActions[index], mValues[index]);
+                    break;
+                case TYPE_ACTION_BOOLEAN:
+                    writer.action(context, mActions[index], mValues[index] != 0);
+                    break;
+                case TYPE_ACTION_STRING:
+                    writer.action(context, mActions[index], mKeys[index]);
+                    break;
+                case TYPE_ACTION:
+                    writer.action(mAttributions[index], mActions[index], mPageIds[index],
+                            mKeys[index], mValues[index]);
+                    break;
+            }
+        }
+    }
+}
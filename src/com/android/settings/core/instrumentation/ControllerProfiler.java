@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.provider.DeviceConfig;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.SettingsUIDeviceConfig;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Attributes the wall and CPU time of preference controller calls to each controller class and
+ * page, for {@link com.android.settings.SettingsDumpService}.
+ *
+ * <p>Profiling is off unless {@link SettingsUIDeviceConfig#CONTROLLER_PROFILER_SAMPLE_RATE} is
+ * set. Then that share of page attaches is sampled, and every controller call of a sampled page
+ * is timed. The time of a call excludes the profiled calls nested in it, such as getSummary within
+ * updateState, so that the calls of a controller add up without overlap. The time spent in the
+ * profiler itself is counted, and no page is sampled and no call is timed once it used up
+ * {@link #OVERHEAD_BUDGET_NANOS} in the current minute.
+ */
+public class ControllerProfiler {
+
+    @VisibleForTesting
+    static final long OVERHEAD_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long BUDGET_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // Only the most expensive controllers are dumped.
+    private static final int MAX_DUMPED_CONTROLLERS = 50;
+
+    /** The profiled controller calls. */
+    public enum Call {
+        GET_AVAILABILITY_STATUS("getAvailabilityStatus"),
+        DISPLAY_PREFERENCE("displayPreference"),
+        UPDATE_STATE("updateState"),
+        GET_SUMMARY("getSummary");
+
+        private final String mName;
+
+        Call(String name) {
+            mName = name;
+        }
+    }
+
+    private static ControllerProfiler sInstance;
+
+    private final Random mRandom = new Random();
+    // Keyed by page metrics category, then by controller class name.
+    private final ArrayMap<Integer, ArrayMap<String, ControllerCost>> mCosts = new ArrayMap<>();
+    private long mWindowStartMillis;
+    private long mOverheadNanos;
+    // The innermost call being timed on each thread.
+    private final ThreadLocal<Sample> mCurrentSample = new ThreadLocal<>();
+
+    /** Returns the instance shared by every page. */
+    public static synchronized ControllerProfiler getInstance() {
+        if (sInstance == null) {
+            sInstance = new ControllerProfiler();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    public static synchronized void setInstanceForTesting(
+            @Nullable ControllerProfiler profiler) {
+        sInstance = profiler;
+    }
+
+    /**
+     * Returns whether the controller calls of a page that is being attached should be profiled.
+     */
+    public boolean shouldSample() {
+        final float sampleRate = getSampleRate();
+        if (sampleRate <= 0 || mRandom.nextFloat() >= sampleRate) {
+            return false;
+        }
+        synchronized (this) {
+            return isWithinBudgetLocked();
+        }
+    }
+
+    @GuardedBy("this")
+    private boolean isWithinBudgetLocked() {
+        final long now = SystemClock.elapsedRealtime();
+        if (now - mWindowStartMillis >= BUDGET_WINDOW_MILLIS) {
+            mWindowStartMillis = now;
+            mOverheadNanos = 0;
+        }
+        return mOverheadNanos < OVERHEAD_BUDGET_NANOS;
+    }
+
+    @VisibleForTesting
+    float getSampleRate() {
+        return DeviceConfig.getFloat(DeviceConfig.NAMESPACE_SETTINGS_UI,
+                SettingsUIDeviceConfig.CONTROLLER_PROFILER_SAMPLE_RATE, 0f /* default */);
+    }
+
+    /**
+     * Starts timing a controller call of a sampled page. Pass the result to {@link #end}, on the
+     * same thread, in a finally block. Returns null if the overhead budget is used up. Prefer
+     * {@link #time}.
+     */
+    @Nullable
+    public Sample begin() {
+        synchronized (this) {
+            if (!isWithinBudgetLocked()) {
+                return null;
+            }
+        }
+        final Sample sample = new Sample();
+        sample.mParent = mCurrentSample.get();
+        mCurrentSample.set(sample);
+        sample.mCpuStartNanos = getCpuNanos();
+        sample.mWallStartNanos = getWallNanos();
+        return sample;
+    }
+
+    /**
+     * Times {@code task} as {@code call} of {@code controller} on {@code page}. The sample is ended
+     * even if {@code task} throws.
+     */
+    public void time(int page, Object controller, Call call, Runnable task) {
+        final Sample sample = begin();
+        try {
+            task.run();
+        } finally {
+            end(sample, page, controller, call);
+        }
+    }
+
+    /** Same as {@link #time(int, Object, Call, Runnable)}, returning the result of {@code task}. */
+    public <T> T time(int page, Object controller, Call call, Supplier<T> task) {
+        final Sample sample = begin();
+        try {
+            return task.get();
+        } finally {
+            end(sample, page, controller, call);
+        }
+    }
+
+    /** Stops timing {@code sample} and attributes it to {@code controller} on {@code page}. */
+    public void end(@Nullable Sample sample, int page, Object controller, Call call) {
+        if (sample == null) {
+            return;
+        }
+        final long overheadStartNanos = System.nanoTime();
+        final long wallNanos = getWallNanos() - sample.mWallStartNanos;
+        final long cpuNanos = getCpuNanos() - sample.mCpuStartNanos;
+        mCurrentSample.set(sample.mParent);
+        if (sample.mParent != null) {
+            sample.mParent.mNestedWallNanos += wallNanos;
+            sample.mParent.mNestedCpuNanos += cpuNanos;
+        }
+        final String controllerName = controller.getClass().getName();
+        synchronized (this) {
+            ArrayMap<String, ControllerCost> pageCosts = mCosts.get(page);
+            if (pageCosts == null) {
+                pageCosts = new ArrayMap<>();
+                mCosts.put(page, pageCosts);
+            }
+            ControllerCost cost = pageCosts.get(controllerName);
+            if (cost == null) {
+                cost = new ControllerCost(page, controllerName);
+                pageCosts.put(controllerName, cost);
+            }
+            cost.add(call, wallNanos - sample.mNestedWallNanos,
+                    cpuNanos - sample.mNestedCpuNanos);
+            mOverheadNanos += System.nanoTime() - overheadStartNanos;
+        }
+    }
+
+    @VisibleForTesting
+    long getWallNanos() {
+        return System.nanoTime();
+    }
+
+    @VisibleForTesting
+    long getCpuNanos() {
+        return Debug.threadCpuTimeNanos();
+    }
+
+    /**
+     * Returns the costs of the {@link #MAX_DUMPED_CONTROLLERS} controllers that took the most wall
+     * time, most expensive first.
+     */
+    public synchronized JSONArray toJson() throws JSONException {
+        final List<ControllerCost> costs = new ArrayList<>();
+        for (int i = 0; i < mCosts.size(); i++) {
+            costs.addAll(mCosts.valueAt(i).values());
+        }
+        costs.sort((a, b) -> Long.compare(b.getTotalWallNanos(), a.getTotalWallNanos()));
+        final JSONArray array = new JSONArray();
+        for (int i = 0; i < Math.min(MAX_DUMPED_CONTROLLERS, costs.size()); i++) {
+            array.put(costs.get(i).toJson());
+        }
+        return array;
+    }
+
+    /** A controller call being timed. */
+    public static class Sample {
+        private Sample mParent;
+        private long mCpuStartNanos;
+        private long mWallStartNanos;
+        // Time of the profiled calls nested in this one.
+        private long mNestedCpuNanos;
+        private long mNestedWallNanos;
+    }
+
+    private static class ControllerCost {
+        private final int mPage;
+        private final String mController;
+        private final long[] mCounts = new long[Call.values().length];
+        private final long[] mWallNanos = new long[Call.values().length];
+        private final long[] mCpuNanos = new long[Call.values().length];
+
+        ControllerCost(int page, String controller) {
+            mPage = page;
+            mController = controller;
+        }
+
+        void add(Call call, long wallNanos, long cpuNanos) {
+            mCounts[call.ordinal()]++;
+            mWallNanos[call.ordinal()] += Math.max(0, wallNanos);
+            mCpuNanos[call.ordinal()] += Math.max(0, cpuNanos);
+        }
+
+        long getTotalWallNanos() {
+            long total = 0;
+            for (long wallNanos : mWallNanos) {
+                total += wallNanos;
+            }
+            return total;
+        }
+
+        JSONObject toJson() throws JSONException {
+            final JSONObject calls = new JSONObject();
+            for (Call call : Call.values()) {
+                if (mCounts[call.ordinal()] == 0) {
+                    continue;
+                }
+                calls.put(call.mName, new JSONObject()
+                        .put("count", mCounts[call.ordinal()])
+                        .put("wall_us",
+                                TimeUnit.NANOSECONDS.toMicros(mWallNanos[call.ordinal()]))
+                        .put("cpu_us", TimeUnit.NANOSECONDS.toMicros(mCpuNanos[call.ordinal()])));
+            }
+            return new JSONObject()
+                    .put("page", mPage)
+                    .put("controller", mController)
+                    .put("calls", calls);
+        }
+    }
+}
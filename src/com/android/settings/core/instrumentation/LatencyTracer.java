@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.os.Trace;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Traces the hot paths of Settings and keeps a latency histogram for each of them, so that
+ * {@link com.android.settings.SettingsDumpService} can report percentiles on user builds.
+ *
+ * <pre>
+ * final long startTime = LatencyTracer.begin(LatencyTracer.Section.SLICE_BIND);
+ * try {
+ *     ...
+ * } finally {
+ *     LatencyTracer.end(LatencyTracer.Section.SLICE_BIND, startTime);
+ * }
+ * </pre>
+ *
+ * <p>Recording takes no lock, so it is safe to call from any thread.
+ */
+public final class LatencyTracer {
+
+    /** The traced code paths. */
+    public enum Section {
+        FRAGMENT_ATTACH("fragment_attach", "DashboardFragment.onAttach"),
+        CONTROLLER_CREATION("controller_creation", "DashboardFragment.createControllers"),
+        UPDATE_PREFERENCE_STATES("update_preference_states",
+                "DashboardFragment.updatePreferenceStates"),
+        SLICE_BIND("slice_bind", "SettingsSliceProvider.onBindSlice"),
+        SLICE_INDEX("slice_index", "SlicesIndexer.indexSliceData"),
+        SEARCH_INDEX_QUERY("search_index_query", "SettingsSearchIndexablesProvider.query"),
+        LOADER("loader", "ContextualCardLoader.loadInBackground"),
+        TILE_LOADING("tile_loading", "CategoryManager.loadTiles");
+
+        private final String mKey;
+        private final String mTraceName;
+
+        Section(String key, String traceName) {
+            mKey = key;
+            mTraceName = traceName;
+        }
+    }
+
+    private static final Histogram[] sHistograms = new Histogram[Section.values().length];
+
+    static {
+        reset();
+    }
+
+    private LatencyTracer() {
+    }
+
+    /**
+     * Starts a trace section on the calling thread and returns the start time to pass to
+     * {@link #end}.
+     */
+    public static long begin(Section section) {
+        Trace.beginSection(section.mTraceName);
+        return System.nanoTime();
+    }
+
+    /** Ends the trace section started by {@link #begin} on this thread and records its latency. */
+    public static void end(Section section, long startTime) {
+        Trace.endSection();
+        record(section, System.nanoTime() - startTime);
+    }
+
+    /** Records a latency measured without a trace section, e.g. across threads. */
+    public static void record(Section section, long durationNanos) {
+        sHistograms[section.ordinal()].record(durationNanos);
+    }
+
+    /** Returns the histogram of every section that recorded at least once, keyed by section. */
+    public static JSONObject toJson() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (Section section : Section.values()) {
+            final Histogram histogram = sHistograms[section.ordinal()];
+            if (histogram.getCount() > 0) {
+                obj.put(section.mKey, histogram.toJson());
+            }
+        }
+        return obj;
+    }
+
+    @VisibleForTesting
+    static void reset() {
+        for (int i = 0; i < sHistograms.length; i++) {
+            sHistograms[i] = new Histogram();
+        }
+    }
+
+    @VisibleForTesting
+    static Histogram getHistogram(Section section) {
+        return sHistograms[section.ordinal()];
+    }
+
+    /**
+     * A histogram with power of two buckets, in microseconds: bucket {@code i} counts the
+     * latencies in [2^i, 2^(i+1)), and the last one everything above. Percentiles are reported as
+     * the upper bound of their bucket, so they are at most twice the real value.
+     */
+    @VisibleForTesting
+    static class Histogram {
+        private static final int BUCKET_COUNT = 32;
+
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSumMicros = new AtomicLong();
+        private final AtomicLong mMaxMicros = new AtomicLong();
+
+        void record(long durationNanos) {
+            final long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos));
+            mBuckets.incrementAndGet(getBucket(micros));
+            mCount.incrementAndGet();
+            mSumMicros.addAndGet(micros);
+            long max = mMaxMicros.get();
+            while (micros > max && !mMaxMicros.compareAndSet(max, micros)) {
+                max = mMaxMicros.get();
+            }
+        }
+
+        long getCount() {
+            return mCount.get();
+        }
+
+        /** Returns the latency under which {@code percentile} percent of the samples are. */
+        long getPercentileMicros(int percentile) {
+            final long count = mCount.get();
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets.get(i);
+                if (seen >= rank) {
+                    return Math.min((1L << (i + 1)) - 1, mMaxMicros.get());
+                }
+            }
+            return mMaxMicros.get();
+        }
+
+        JSONObject toJson() throws JSONException {
+            final long count = mCount.get();
+            return new JSONObject()
+                    .put("count", count)
+                    .put("mean_us", count > 0 ? mSumMicros.get() / count : 0)
+                    .put("p50_us", getPercentileMicros(50))
+                    .put("p90_us", getPercentileMicros(90))
+                    .put("p99_us", getPercentileMicros(99))
+                    .put("max_us", mMaxMicros.get());
+        }
+
+        private static int getBucket(long micros) {
+            if (micros <= 1) {
+                return 0;
+            }
+            return Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(micros));
+        }
+    }
+}
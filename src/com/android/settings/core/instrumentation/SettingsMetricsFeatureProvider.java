@@ -27,8 +27,9 @@ public class SettingsMetricsFeatureProvider extends MetricsFeatureProvider {
 
     @Override
     protected void installLogWriters() {
-        mLoggerWriters.add(new StatsLogWriter());
-        mLoggerWriters.add(new SettingsEventLogWriter());
+        // Written off the calling thread, which is often the UI thread.
+        mLoggerWriters.add(
+                new BatchedLogWriter(new StatsLogWriter(), new SettingsEventLogWriter()));
         mLoggerWriters.add(new SettingsIntelligenceLogWriter());
     }
 
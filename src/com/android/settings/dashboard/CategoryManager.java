@@ -25,6 +25,8 @@ import android.util.Pair;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.instrumentation.LatencyTracer;
+import com.android.settings.core.instrumentation.LatencyTracer.Section;
 import com.android.settings.homepage.HighlightableMenu;
 import com.android.settingslib.applications.InterestingConfigChanges;
 import com.android.settingslib.drawer.CategoryKey;
@@ -54,7 +56,7 @@ public class CategoryManager {
     // Tile cache (key: category key, value: category)
     private final Map<String, DashboardCategory> mCategoryByKeyMap;
 
-    private List<DashboardCategory> mCategories;
+    private volatile List<DashboardCategory> mCategories;
 
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
@@ -70,6 +72,14 @@ public class CategoryManager {
         mInterestingConfigChanges.applyNewConfig(context.getResources());
     }
 
+    /**
+     * Returns whether the categories have been loaded. Unlike the getters, this never waits for
+     * the tiles to be queried.
+     */
+    public boolean isCategoriesLoaded() {
+        return mCategories != null;
+    }
+
     public synchronized DashboardCategory getTilesByCategory(Context context, String categoryKey) {
         tryInitCategories(context);
 
@@ -146,7 +156,9 @@ public class CategoryManager {
                 mTileByComponentCache.clear();
             }
             mCategoryByKeyMap.clear();
+            final long startTime = LatencyTracer.begin(Section.TILE_LOADING);
             mCategories = TileUtils.getCategories(context, mTileByComponentCache);
+            LatencyTracer.end(Section.TILE_LOADING, startTime);
             for (DashboardCategory category : mCategories) {
                 mCategoryByKeyMap.put(category.key, category);
             }
@@ -39,6 +39,10 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
 import com.android.settings.core.PreferenceControllerListHelper;
+import com.android.settings.core.instrumentation.ControllerProfiler;
+import com.android.settings.core.instrumentation.ControllerProfiler.Call;
+import com.android.settings.core.instrumentation.LatencyTracer;
+import com.android.settings.core.instrumentation.LatencyTracer.Section;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -81,52 +85,68 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private List<String> mSuppressInjectedTileKeys;
+    // Whether the controller calls of this page are timed by ControllerProfiler.
+    private boolean mProfiled;
 
     @Override
     public void onAttach(Context context) {
-        super.onAttach(context);
-        mSuppressInjectedTileKeys = Arrays.asList(context.getResources().getStringArray(
-                R.array.config_suppress_injected_tile_keys));
-        mDashboardFeatureProvider = FeatureFactory.getFactory(context).
-                getDashboardFeatureProvider(context);
-        // Load preference controllers from code
-        final List<AbstractPreferenceController> controllersFromCode =
-                createPreferenceControllers(context);
-        // Load preference controllers from xml definition
-        final List<BasePreferenceController> controllersFromXml = PreferenceControllerListHelper
-                .getPreferenceControllersFromXml(context, getPreferenceScreenResId());
-        // Filter xml-based controllers in case a similar controller is created from code already.
-        final List<BasePreferenceController> uniqueControllerFromXml =
-                PreferenceControllerListHelper.filterControllers(
-                        controllersFromXml, controllersFromCode);
-
-        // Add unique controllers to list.
-        if (controllersFromCode != null) {
-            mControllers.addAll(controllersFromCode);
-        }
-        mControllers.addAll(uniqueControllerFromXml);
-
-        // And wire up with lifecycle.
-        final Lifecycle lifecycle = getSettingsLifecycle();
-        uniqueControllerFromXml.forEach(controller -> {
-            if (controller instanceof LifecycleObserver) {
-                lifecycle.addObserver((LifecycleObserver) controller);
+        final long attachStartTime = LatencyTracer.begin(Section.FRAGMENT_ATTACH);
+        try {
+            super.onAttach(context);
+            mSuppressInjectedTileKeys = Arrays.asList(context.getResources().getStringArray(
+                    R.array.config_suppress_injected_tile_keys));
+            mDashboardFeatureProvider = FeatureFactory.getFactory(context).
+                    getDashboardFeatureProvider(context);
+            final List<AbstractPreferenceController> controllersFromCode;
+            final List<BasePreferenceController> controllersFromXml;
+            final long controllerStartTime = LatencyTracer.begin(Section.CONTROLLER_CREATION);
+            try {
+                // Load preference controllers from code
+                controllersFromCode = createPreferenceControllers(context);
+                // Load preference controllers from xml definition
+                controllersFromXml = PreferenceControllerListHelper
+                        .getPreferenceControllersFromXml(context, getPreferenceScreenResId());
+            } finally {
+                LatencyTracer.end(Section.CONTROLLER_CREATION, controllerStartTime);
             }
-        });
-
-        // Set metrics category for BasePreferenceController.
-        final int metricCategory = getMetricsCategory();
-        mControllers.forEach(controller -> {
-            if (controller instanceof BasePreferenceController) {
-                ((BasePreferenceController) controller).setMetricsCategory(metricCategory);
+            // Filter xml-based controllers in case a similar controller is created from code
+            // already.
+            final List<BasePreferenceController> uniqueControllerFromXml =
+                    PreferenceControllerListHelper.filterControllers(
+                            controllersFromXml, controllersFromCode);
+
+            // Add unique controllers to list.
+            if (controllersFromCode != null) {
+                mControllers.addAll(controllersFromCode);
             }
-        });
+            mControllers.addAll(uniqueControllerFromXml);
 
-        mPlaceholderPreferenceController =
-                new DashboardTilePlaceholderPreferenceController(context);
-        mControllers.add(mPlaceholderPreferenceController);
-        for (AbstractPreferenceController controller : mControllers) {
-            addPreferenceController(controller);
+            // And wire up with lifecycle.
+            final Lifecycle lifecycle = getSettingsLifecycle();
+            uniqueControllerFromXml.forEach(controller -> {
+                if (controller instanceof LifecycleObserver) {
+                    lifecycle.addObserver((LifecycleObserver) controller);
+                }
+            });
+
+            // Set metrics category for BasePreferenceController.
+            final int metricCategory = getMetricsCategory();
+            mProfiled = ControllerProfiler.getInstance().shouldSample();
+            mControllers.forEach(controller -> {
+                if (controller instanceof BasePreferenceController) {
+                    ((BasePreferenceController) controller).setMetricsCategory(metricCategory);
+                    ((BasePreferenceController) controller).setProfiled(mProfiled);
+                }
+            });
+
+            mPlaceholderPreferenceController =
+                    new DashboardTilePlaceholderPreferenceController(context);
+            mControllers.add(mPlaceholderPreferenceController);
+            for (AbstractPreferenceController controller : mControllers) {
+                addPreferenceController(controller);
+            }
+        } finally {
+            LatencyTracer.end(Section.FRAGMENT_ATTACH, attachStartTime);
         }
     }
 
@@ -199,10 +219,12 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onStart() {
         super.onStart();
-        final DashboardCategory category =
-                mDashboardFeatureProvider.getTilesForCategory(getCategoryKey());
-        if (category == null) {
-            return;
+        if (isDashboardTilesReady()) {
+            final DashboardCategory category =
+                    mDashboardFeatureProvider.getTilesForCategory(getCategoryKey());
+            if (category == null) {
+                return;
+            }
         }
         final Activity activity = getActivity();
         if (activity instanceof CategoryHandler) {
@@ -348,7 +370,15 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      */
     protected void displayResourceTilesToScreen(PreferenceScreen screen) {
         mPreferenceControllers.values().stream().flatMap(Collection::stream).forEach(
-                controller -> controller.displayPreference(screen));
+                controller -> {
+                    if (mProfiled) {
+                        ControllerProfiler.getInstance().time(getMetricsCategory(), controller,
+                                Call.DISPLAY_PREFERENCE,
+                                () -> controller.displayPreference(screen));
+                    } else {
+                        controller.displayPreference(screen);
+                    }
+                });
     }
 
     /**
@@ -362,30 +392,41 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      * Update state of each preference managed by PreferenceController.
      */
     protected void updatePreferenceStates() {
-        final PreferenceScreen screen = getPreferenceScreen();
-        Collection<List<AbstractPreferenceController>> controllerLists =
-                mPreferenceControllers.values();
-        for (List<AbstractPreferenceController> controllerList : controllerLists) {
-            for (AbstractPreferenceController controller : controllerList) {
-                if (!controller.isAvailable()) {
-                    continue;
-                }
+        final long startTime = LatencyTracer.begin(Section.UPDATE_PREFERENCE_STATES);
+        try {
+            final PreferenceScreen screen = getPreferenceScreen();
+            Collection<List<AbstractPreferenceController>> controllerLists =
+                    mPreferenceControllers.values();
+            for (List<AbstractPreferenceController> controllerList : controllerLists) {
+                for (AbstractPreferenceController controller : controllerList) {
+                    if (!controller.isAvailable()) {
+                        continue;
+                    }
 
-                final String key = controller.getPreferenceKey();
-                if (TextUtils.isEmpty(key)) {
-                    Log.d(TAG, String.format("Preference key is %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
-                }
+                    final String key = controller.getPreferenceKey();
+                    if (TextUtils.isEmpty(key)) {
+                        Log.d(TAG, String.format("Preference key is %s in Controller %s",
+                                key, controller.getClass().getSimpleName()));
+                        continue;
+                    }
 
-                final Preference preference = screen.findPreference(key);
-                if (preference == null) {
-                    Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
+                    final Preference preference = screen.findPreference(key);
+                    if (preference == null) {
+                        Log.d(TAG, String.format(
+                                "Cannot find preference with key %s in Controller %s",
+                                key, controller.getClass().getSimpleName()));
+                        continue;
+                    }
+                    if (mProfiled) {
+                        ControllerProfiler.getInstance().time(getMetricsCategory(), controller,
+                                Call.UPDATE_STATE, () -> controller.updateState(preference));
+                    } else {
+                        controller.updateState(preference);
+                    }
                 }
-                controller.updateState(preference);
             }
+        } finally {
+            LatencyTracer.end(Section.UPDATE_PREFERENCE_STATES, startTime);
         }
     }
 
@@ -404,12 +445,14 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         // Add resource based tiles.
         displayResourceTiles();
 
-        refreshDashboardTiles(tag);
+        if (isDashboardTilesReady()) {
+            refreshDashboardTiles(tag);
 
-        final Activity activity = getActivity();
-        if (activity != null) {
-            Log.d(tag, "All preferences added, reporting fully drawn");
-            activity.reportFullyDrawn();
+            final Activity activity = getActivity();
+            if (activity != null) {
+                Log.d(tag, "All preferences added, reporting fully drawn");
+                activity.reportFullyDrawn();
+            }
         }
 
         updatePreferenceVisibility(mPreferenceControllers);
@@ -507,12 +550,15 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                         getActivity(), this, forceRoundedIcons, preference, tile, key,
                         mPlaceholderPreferenceController.getOrder());
             } else {
-                // Don't have this key, add it.
-                final Preference pref = createPreference(tile);
+                // Don't have this key, add it unless a placeholder is already showing it.
+                final Preference placeholder = takePlaceholderPreference(key);
+                final Preference pref = placeholder != null ? placeholder : createPreference(tile);
                 observers = mDashboardFeatureProvider.bindPreferenceToTileAndGetObservers(
                         getActivity(), this, forceRoundedIcons, pref, tile, key,
                         mPlaceholderPreferenceController.getOrder());
-                screen.addPreference(pref);
+                if (placeholder == null) {
+                    screen.addPreference(pref);
+                }
                 registerDynamicDataObservers(observers);
                 mDashboardTilePrefKeys.put(key, observers);
             }
@@ -554,6 +600,28 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         controller.setUiBlockerFinished(mBlockerController.isBlockerFinished());
     }
 
+    /**
+     * Returns whether the dashboard tiles can be read without blocking. When false, tiles are not
+     * added until {@link #onCategoriesChanged(Set)} is called once they are loaded.
+     */
+    protected boolean isDashboardTilesReady() {
+        return true;
+    }
+
+    /** Returns the keys of the preferences bound to dashboard tiles. */
+    protected Set<String> getDashboardTileKeys() {
+        return Collections.unmodifiableSet(mDashboardTilePrefKeys.keySet());
+    }
+
+    /**
+     * Returns a preference already on the screen that stands in for the tile with {@code key}, so
+     * the tile is bound to it instead of a new preference. The placeholder is handed over only
+     * once.
+     */
+    protected Preference takePlaceholderPreference(String key) {
+        return null;
+    }
+
     protected Preference createPreference(Tile tile) {
         return tile instanceof ProviderTile
                 ? new SwitchPreference(getPrefContext())
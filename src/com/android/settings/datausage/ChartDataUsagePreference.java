@@ -32,15 +32,13 @@ import androidx.preference.PreferenceViewHolder;
 
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settings.widget.UsageChartModel;
 import com.android.settings.widget.UsageView;
 import com.android.settingslib.net.NetworkCycleChartData;
 import com.android.settingslib.net.NetworkCycleData;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ChartDataUsagePreference extends Preference {
 
@@ -56,6 +54,9 @@ public class ChartDataUsagePreference extends Preference {
     private long mStart;
     private long mEnd;
     private NetworkCycleChartData mNetworkCycleChartData;
+    // Built once per data or policy change, so that binding the view recomputes nothing.
+    private UsageChartModel mChartModel;
+    private CharSequence[] mBottomLabels;
     private int mSecondaryColor;
     private int mSeriesColor;
 
@@ -72,21 +73,13 @@ public class ChartDataUsagePreference extends Preference {
     public void onBindViewHolder(PreferenceViewHolder holder) {
         super.onBindViewHolder(holder);
         final UsageView chart = (UsageView) holder.findViewById(R.id.data_usage);
-        if (mNetworkCycleChartData == null) {
+        if (mChartModel == null) {
             return;
         }
 
-        final int top = getTop();
-        chart.clearPaths();
-        chart.configureGraph(toInt(mEnd - mStart), top);
-        calcPoints(chart, mNetworkCycleChartData.getUsageBuckets());
-        setupContentDescription(chart, mNetworkCycleChartData.getUsageBuckets());
-        chart.setBottomLabels(new CharSequence[] {
-                Utils.formatDateRange(getContext(), mStart, mStart),
-                Utils.formatDateRange(getContext(), mEnd, mEnd),
-        });
-
-        bindNetworkPolicy(chart, mPolicy, top);
+        mChartModel.applyTo(chart);
+        chart.setBottomLabels(mBottomLabels);
+        bindNetworkPolicy(chart, mPolicy, mChartModel.getMaxY());
     }
 
     public int getTop() {
@@ -96,10 +89,38 @@ public class ChartDataUsagePreference extends Preference {
         return (int) (Math.max(totalData, policyMax) / RESOLUTION);
     }
 
+    private void updateChartModel() {
+        if (mNetworkCycleChartData == null) {
+            mChartModel = null;
+            return;
+        }
+        final List<NetworkCycleData> usageSummary = mNetworkCycleChartData.getUsageBuckets();
+        final UsageChartModel.Builder builder = new UsageChartModel.Builder()
+                .setMax(toInt(mEnd - mStart), getTop())
+                .setContentDescription(getContentDescription(usageSummary));
+        final SparseIntArray points = calcPoints(usageSummary);
+        if (points != null) {
+            builder.addPath(points);
+        }
+        mChartModel = builder.build();
+        mBottomLabels = new CharSequence[] {
+                Utils.formatDateRange(getContext(), mStart, mStart),
+                Utils.formatDateRange(getContext(), mEnd, mEnd),
+        };
+    }
+
     @VisibleForTesting
     void calcPoints(UsageView chart, List<NetworkCycleData> usageSummary) {
+        final SparseIntArray points = calcPoints(usageSummary);
+        if (points != null) {
+            chart.addPath(points);
+        }
+    }
+
+    // Returns the cumulative usage over time, or null if there is nothing to draw.
+    private SparseIntArray calcPoints(List<NetworkCycleData> usageSummary) {
         if (usageSummary == null) {
-            return;
+            return null;
         }
         final SparseIntArray points = new SparseIntArray();
         points.put(0, 0);
@@ -122,12 +143,10 @@ public class ChartDataUsagePreference extends Preference {
             points.put(toInt(startTime - mStart + 1), (int) (totalData / RESOLUTION));
             points.put(toInt(endTime - mStart), (int) (totalData / RESOLUTION));
         }
-        if (points.size() > 1) {
-            chart.addPath(points);
-        }
+        return points.size() > 1 ? points : null;
     }
 
-    private void setupContentDescription(UsageView chart, List<NetworkCycleData> usageSummary) {
+    private String getContentDescription(List<NetworkCycleData> usageSummary) {
         final Context context = getContext();
         final StringBuilder contentDescription = new StringBuilder();
         final int flags = DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_ABBREV_MONTH;
@@ -143,8 +162,7 @@ public class ChartDataUsagePreference extends Preference {
             final String noDataContentDescription = mResources
                     .getString(R.string.data_usage_chart_no_data_content_description);
             contentDescription.append(noDataContentDescription);
-            chart.setContentDescription(contentDescription);
-            return;
+            return contentDescription.toString();
         }
 
         // Append more detailed stats.
@@ -163,8 +181,7 @@ public class ChartDataUsagePreference extends Preference {
 
             contentDescription.append(nodeContentDescription);
         }
-
-        chart.setContentDescription(contentDescription);
+        return contentDescription.toString();
     }
 
     /**
@@ -173,47 +190,31 @@ public class ChartDataUsagePreference extends Preference {
      */
     @VisibleForTesting
     List<DataUsageSummaryNode> getDensedStatsData(List<NetworkCycleData> usageSummary) {
-        final List<DataUsageSummaryNode> dataUsageSummaryNodes = new ArrayList<>();
-        final long overallDataUsage = Math.max(1L, usageSummary.stream()
-                .mapToLong(NetworkCycleData::getTotalUsage).sum());
-        long cumulatedDataUsage = 0L;
-        int cumulatedDataUsagePercentage = 0;
-
-        // Collect List of DataUsageSummaryNode for data usage percentage information.
+        long overallDataUsage = 0L;
         for (NetworkCycleData data : usageSummary) {
-            cumulatedDataUsage += data.getTotalUsage();
-            cumulatedDataUsagePercentage = (int) ((cumulatedDataUsage * 100) / overallDataUsage);
-
-            final DataUsageSummaryNode node = new DataUsageSummaryNode(data.getStartTime(),
-                    data.getEndTime(), cumulatedDataUsagePercentage);
-            dataUsageSummaryNodes.add(node);
+            overallDataUsage += data.getTotalUsage();
         }
+        overallDataUsage = Math.max(1L, overallDataUsage);
 
-        // Group nodes of the same data usage percentage.
-        final Map<Integer, List<DataUsageSummaryNode>> nodesByDataUsagePercentage
-                = dataUsageSummaryNodes.stream().collect(
-                        Collectors.groupingBy(DataUsageSummaryNode::getDataUsagePercentage));
-
-        // Collect densed nodes from collection of the same  data usage percentage
+        // The cumulated percentage never decreases, so nodes of the same percentage are
+        // consecutive and come out sorted by percentage.
         final List<DataUsageSummaryNode> densedNodes = new ArrayList<>();
-        nodesByDataUsagePercentage.forEach((percentage, nodes) -> {
-            final long startTime = nodes.stream().mapToLong(DataUsageSummaryNode::getStartTime)
-                    .min().getAsLong();
-            final long endTime = nodes.stream().mapToLong(DataUsageSummaryNode::getEndTime)
-                    .max().getAsLong();
-
-            final DataUsageSummaryNode densedNode = new DataUsageSummaryNode(
-                    startTime, endTime, percentage);
-            if (nodes.size() > 1) {
-                densedNode.setFromMultiNode(true /* isFromMultiNode */);
+        DataUsageSummaryNode lastNode = null;
+        long cumulatedDataUsage = 0L;
+        for (NetworkCycleData data : usageSummary) {
+            cumulatedDataUsage += data.getTotalUsage();
+            final int cumulatedDataUsagePercentage =
+                    (int) ((cumulatedDataUsage * 100) / overallDataUsage);
+            if (lastNode != null
+                    && lastNode.getDataUsagePercentage() == cumulatedDataUsagePercentage) {
+                lastNode.merge(data.getStartTime(), data.getEndTime());
+                continue;
             }
-
-            densedNodes.add(densedNode);
-        });
-
-        return densedNodes.stream()
-                .sorted(Comparator.comparingInt(DataUsageSummaryNode::getDataUsagePercentage))
-                .collect(Collectors.toList());
+            lastNode = new DataUsageSummaryNode(data.getStartTime(), data.getEndTime(),
+                    cumulatedDataUsagePercentage);
+            densedNodes.add(lastNode);
+        }
+        return densedNodes;
     }
 
     @VisibleForTesting
@@ -242,6 +243,13 @@ public class ChartDataUsagePreference extends Preference {
             return mDataUsagePercentage;
         }
 
+        /** Extends this node over another node of the same percentage. */
+        void merge(long startTime, long endTime) {
+            mStartTime = Math.min(mStartTime, startTime);
+            mEndTime = Math.max(mEndTime, endTime);
+            mIsFromMultiNode = true;
+        }
+
         public void setFromMultiNode(boolean isFromMultiNode) {
             mIsFromMultiNode = isFromMultiNode;
         }
@@ -293,6 +301,7 @@ public class ChartDataUsagePreference extends Preference {
 
     public void setNetworkPolicy(NetworkPolicy policy) {
         mPolicy = policy;
+        updateChartModel();
         notifyChanged();
     }
 
@@ -308,6 +317,7 @@ public class ChartDataUsagePreference extends Preference {
         mNetworkCycleChartData = data;
         mStart = data.getStartTime();
         mEnd = data.getEndTime();
+        updateChartModel();
         notifyChanged();
     }
 
@@ -397,7 +397,8 @@ public class DataUsageList extends DataUsageBaseFragment
     /**
      * Bind the given {@link NetworkStats}, or {@code null} to clear list.
      */
-    private void bindStats(NetworkStats stats, int[] restrictedUids) {
+    @VisibleForTesting
+    void bindStats(NetworkStats stats, int[] restrictedUids) {
         mApps.removeAll();
         if (stats == null) {
             if (LOGD) {
@@ -22,7 +22,6 @@ import android.content.Context;
 import android.content.om.IOverlayManager;
 import android.content.om.OverlayInfo;
 import android.content.pm.PackageManager;
-import android.os.AsyncTask;
 import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.text.TextUtils;
@@ -36,11 +35,13 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
 import com.android.settings.core.PreferenceControllerMixin;
+import com.android.settings.core.SettingsTaskScheduler;
 import com.android.settingslib.development.DeveloperOptionsPreferenceController;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Preference controller to allow users to choose an overlay from a list for a given category.
@@ -59,6 +60,8 @@ public class OverlayCategoryPreferenceController extends DeveloperOptionsPrefere
     private final boolean mAvailable;
     private final String mCategory;
     private final PackageManager mPackageManager;
+    // Applies overlay changes in the order they were picked.
+    private final Executor mOverlayExecutor;
 
     private ListPreference mPreference;
 
@@ -69,6 +72,8 @@ public class OverlayCategoryPreferenceController extends DeveloperOptionsPrefere
         mOverlayManager = overlayManager;
         mPackageManager = packageManager;
         mCategory = category;
+        mOverlayExecutor = SettingsTaskScheduler.getInstance().newSerialExecutor(
+                SettingsTaskScheduler.Priority.UI_CRITICAL);
         mAvailable = overlayManager != null && !getOverlayInfos().isEmpty();
     }
 
@@ -116,32 +121,28 @@ public class OverlayCategoryPreferenceController extends DeveloperOptionsPrefere
             return true;
         }
 
-        new AsyncTask<Void, Void, Boolean>() {
-            @Override
-            protected Boolean doInBackground(Void... params) {
-                try {
-                    if (PACKAGE_DEVICE_DEFAULT.equals(packageName)) {
-                        return mOverlayManager.setEnabled(currentPackageName, false, USER_SYSTEM);
-                    } else {
-                        return mOverlayManager.setEnabledExclusiveInCategory(packageName,
-                                USER_SYSTEM);
+        SettingsTaskScheduler.getInstance().submit(null /* owner */, mOverlayExecutor, TAG,
+                () -> {
+                    try {
+                        if (PACKAGE_DEVICE_DEFAULT.equals(packageName)) {
+                            return mOverlayManager.setEnabled(currentPackageName, false,
+                                    USER_SYSTEM);
+                        } else {
+                            return mOverlayManager.setEnabledExclusiveInCategory(packageName,
+                                    USER_SYSTEM);
+                        }
+                    } catch (SecurityException | IllegalStateException | RemoteException e) {
+                        Log.w(TAG, "Error enabling overlay.", e);
+                        return false;
                     }
-                } catch (SecurityException | IllegalStateException | RemoteException e) {
-                    Log.w(TAG, "Error enabling overlay.", e);
-                    return false;
-                }
-            }
-
-            @Override
-            protected void onPostExecute(Boolean success) {
-                updateState(mPreference);
-                if (!success) {
-                    Toast.makeText(
-                            mContext, R.string.overlay_toast_failed_to_apply, Toast.LENGTH_LONG)
-                            .show();
-                }
-            }
-        }.execute();
+                }, success -> {
+                    updateState(mPreference);
+                    if (!success) {
+                        Toast.makeText(
+                                mContext, R.string.overlay_toast_failed_to_apply,
+                                Toast.LENGTH_LONG).show();
+                    }
+                });
 
         return true; // Assume success; toast on failure.
     }
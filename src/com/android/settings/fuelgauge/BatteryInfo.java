@@ -35,6 +35,7 @@ import androidx.annotation.WorkerThread;
 import com.android.internal.os.BatteryStatsHistoryIterator;
 import com.android.settings.Utils;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.widget.UsageChartModel;
 import com.android.settings.widget.UsageView;
 import com.android.settingslib.R;
 import com.android.settingslib.fuelgauge.Estimate;
@@ -61,6 +62,8 @@ public class BatteryInfo {
     private BatteryUsageStats mBatteryUsageStats;
     private static final String LOG_TAG = "BatteryInfo";
     private long timePeriod;
+    // The history graph, parsed on the first bind and reused by the following ones.
+    private UsageChartModel mHistoryChartModel;
 
     public interface Callback {
         void onBatteryInfoLoaded(BatteryInfo info);
@@ -68,6 +71,12 @@ public class BatteryInfo {
 
     public void bindHistory(final UsageView view, BatteryDataParser... parsers) {
         final Context context = view.getContext();
+        if (mHistoryChartModel != null && parsers.length == 0) {
+            mHistoryChartModel.applyTo(view);
+            bindHistoryLabels(context, view);
+            return;
+        }
+        final UsageChartModel.Builder chartBuilder = new UsageChartModel.Builder();
         BatteryDataParser parser = new BatteryDataParser() {
             SparseIntArray points = new SparseIntArray();
             long startTime;
@@ -78,9 +87,8 @@ public class BatteryInfo {
             public void onParsingStarted(long startTime, long endTime) {
                 this.startTime = startTime;
                 timePeriod = endTime - startTime;
-                view.clearPaths();
                 // Initially configure the graph for history only.
-                view.configureGraph((int) timePeriod, 100);
+                chartBuilder.setMax((int) timePeriod, 100);
             }
 
             @Override
@@ -93,7 +101,7 @@ public class BatteryInfo {
             @Override
             public void onDataGap() {
                 if (points.size() > 1) {
-                    view.addPath(points);
+                    chartBuilder.addPath(points);
                 }
                 points.clear();
             }
@@ -122,8 +130,7 @@ public class BatteryInfo {
                 // If we have a projection, reconfigure the graph to show it.
                 if (points != null && points.size() > 0) {
                     int maxTime = points.keyAt(points.size() - 1);
-                    view.configureGraph(maxTime, 100);
-                    view.addProjectedPath(points);
+                    chartBuilder.setMax(maxTime, 100).setProjectedPath(points);
                 }
             }
         };
@@ -133,6 +140,12 @@ public class BatteryInfo {
         }
         parserList[parsers.length] = parser;
         parseBatteryHistory(parserList);
+        mHistoryChartModel = chartBuilder.build();
+        mHistoryChartModel.applyTo(view);
+        bindHistoryLabels(context, view);
+    }
+
+    private void bindHistoryLabels(Context context, UsageView view) {
         String timeString = context.getString(R.string.charge_length_format,
                 Formatter.formatShortElapsedTime(context, timePeriod));
         String remaining = "";
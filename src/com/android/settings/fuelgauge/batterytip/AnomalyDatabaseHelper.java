@@ -33,7 +33,7 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
     private static final String TAG = "BatteryDatabaseHelper";
 
     private static final String DATABASE_NAME = "battery_settings.db";
-    private static final int DATABASE_VERSION = 5;
+    private static final int DATABASE_VERSION = 6;
 
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({State.NEW,
@@ -98,6 +98,16 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
                     + AnomalyColumns.ANOMALY_STATE + "," + AnomalyColumns.TIME_STAMP_MS + ")"
                     + ")";
 
+    // Serves the cleanup job, which deletes anomalies older than a timestamp.
+    private static final String CREATE_ANOMALY_TIME_STAMP_INDEX =
+            "CREATE INDEX anomaly_time_stamp_index ON " + Tables.TABLE_ANOMALY
+                    + "(" + AnomalyColumns.TIME_STAMP_MS + ")";
+
+    // Serves the tip detectors, which query anomalies in one state after a timestamp.
+    private static final String CREATE_ANOMALY_STATE_INDEX =
+            "CREATE INDEX anomaly_state_index ON " + Tables.TABLE_ANOMALY
+                    + "(" + AnomalyColumns.ANOMALY_STATE + "," + AnomalyColumns.TIME_STAMP_MS + ")";
+
 
     public interface ActionColumns {
         /**
@@ -145,6 +155,9 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
 
     private AnomalyDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Anomalies are written from the detection job while the battery pages read them, so let
+        // readers proceed against the last committed state instead of waiting for the writer.
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -177,6 +190,8 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
 
     private void bootstrapDB(SQLiteDatabase db) {
         db.execSQL(CREATE_ANOMALY_TABLE);
+        db.execSQL(CREATE_ANOMALY_TIME_STAMP_INDEX);
+        db.execSQL(CREATE_ANOMALY_STATE_INDEX);
         db.execSQL(CREATE_ACTION_TABLE);
         Log.i(TAG, "Bootstrapped database");
     }
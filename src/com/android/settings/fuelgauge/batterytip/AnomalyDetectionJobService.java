@@ -103,13 +103,21 @@ public class AnomalyDetectionJobService extends JobService {
             final MetricsFeatureProvider metricsFeatureProvider = FeatureFactory
                     .getFactory(this).getMetricsFeatureProvider();
 
+            final BatteryDatabaseManager.AnomalyBatch batch =
+                    new BatteryDatabaseManager.AnomalyBatch();
+            final List<JobWorkItem> items = new ArrayList<>();
             for (JobWorkItem item = dequeueWork(params); item != null; item = dequeueWork(params)) {
                 saveAnomalyToDatabase(context, userManager,
-                        batteryDatabaseManager, batteryUtils, policy, powerAllowlistBackend,
+                        batch, batteryUtils, policy, powerAllowlistBackend,
                         contentResolver, powerUsageFeatureProvider, metricsFeatureProvider,
                         item.getIntent().getExtras());
+                items.add(item);
+            }
 
-                completeWork(params, item);
+            // Commit the whole burst at once, then release the work items it came from.
+            batteryDatabaseManager.insertAnomalies(batch);
+            for (int i = 0, size = items.size(); i < size; i++) {
+                completeWork(params, items.get(i));
             }
         });
 
@@ -126,7 +134,7 @@ public class AnomalyDetectionJobService extends JobService {
 
     @VisibleForTesting
     void saveAnomalyToDatabase(Context context, UserManager userManager,
-            BatteryDatabaseManager databaseManager, BatteryUtils batteryUtils,
+            BatteryDatabaseManager.AnomalyBatch batch, BatteryUtils batteryUtils,
             BatteryTipPolicy policy, PowerAllowlistBackend powerAllowlistBackend,
             ContentResolver contentResolver, PowerUsageFeatureProvider powerUsageFeatureProvider,
             MetricsFeatureProvider metricsFeatureProvider, Bundle bundle) {
@@ -162,11 +170,11 @@ public class AnomalyDetectionJobService extends JobService {
                     // Auto restrict this app
                     batteryUtils.setForceAppStandby(uid, packageName,
                             AppOpsManager.MODE_IGNORED);
-                    databaseManager.insertAnomaly(uid, packageName, anomalyInfo.anomalyType,
+                    batch.add(uid, packageName, anomalyInfo.anomalyType,
                             AnomalyDatabaseHelper.State.AUTO_HANDLED,
                             timeMs);
                 } else {
-                    databaseManager.insertAnomaly(uid, packageName, anomalyInfo.anomalyType,
+                    batch.add(uid, packageName, anomalyInfo.anomalyType,
                             AnomalyDatabaseHelper.State.NEW,
                             timeMs);
                 }
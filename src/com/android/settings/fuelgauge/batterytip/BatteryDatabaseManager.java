@@ -47,8 +47,9 @@ import java.util.Map;
 /**
  * Database manager for battery data. Now it only contains anomaly data stored in {@link AppInfo}.
  *
- * This manager may be accessed by multi-threads. All the database related methods are synchronized
- * so each operation won't be interfered by other threads.
+ * This manager may be accessed by multi-threads. All the database write methods are synchronized
+ * so each write won't be interfered by other threads. The database uses write-ahead logging, so
+ * query methods are not synchronized and never wait for a writer.
  */
 public class BatteryDatabaseManager {
     private static BatteryDatabaseManager sSingleton;
@@ -95,10 +96,35 @@ public class BatteryDatabaseManager {
         return db.insertWithOnConflict(TABLE_ANOMALY, null, values, CONFLICT_IGNORE) != -1;
     }
 
+    /**
+     * Insert all the anomaly logs in {@code batch} to database in a single transaction.
+     *
+     * @return the number of anomalies inserted
+     */
+    public synchronized int insertAnomalies(AnomalyBatch batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int insertedCount = 0;
+        final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            for (ContentValues values : batch.mValues) {
+                if (db.insertWithOnConflict(TABLE_ANOMALY, null, values, CONFLICT_IGNORE) != -1) {
+                    insertedCount++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return insertedCount;
+    }
+
     /**
      * Query all the anomalies that happened after {@code timestampMsAfter} and with {@code state}.
      */
-    public synchronized List<AppInfo> queryAllAnomalies(long timestampMsAfter, int state) {
+    public List<AppInfo> queryAllAnomalies(long timestampMsAfter, int state) {
         final List<AppInfo> appInfos = new ArrayList<>();
         final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
         final String[] projection = {PACKAGE_NAME, ANOMALY_TYPE, UID};
@@ -165,7 +191,7 @@ public class BatteryDatabaseManager {
      * @param type of action been performed
      * @return {@link SparseLongArray} where key is uid and value is timestamp
      */
-    public synchronized SparseLongArray queryActionTime(
+    public SparseLongArray queryActionTime(
             @AnomalyDatabaseHelper.ActionType int type) {
         final SparseLongArray timeStamps = new SparseLongArray();
         final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
@@ -217,4 +243,36 @@ public class BatteryDatabaseManager {
 
         return db.delete(TABLE_ACTION, where, whereArgs) != 0;
     }
+
+    /**
+     * Anomaly logs collected by one detection job, to be inserted by
+     * {@link #insertAnomalies(AnomalyBatch)}.
+     */
+    public static class AnomalyBatch {
+        private final List<ContentValues> mValues = new ArrayList<>();
+
+        /**
+         * Add an anomaly log to this batch.
+         *
+         * @see #insertAnomaly(int, String, int, int, long)
+         */
+        public void add(int uid, String packageName, int type, int anomalyState,
+                long timestampMs) {
+            final ContentValues values = new ContentValues();
+            values.put(UID, uid);
+            values.put(PACKAGE_NAME, packageName);
+            values.put(ANOMALY_TYPE, type);
+            values.put(ANOMALY_STATE, anomalyState);
+            values.put(TIME_STAMP_MS, timestampMs);
+            mValues.add(values);
+        }
+
+        public boolean isEmpty() {
+            return mValues.isEmpty();
+        }
+
+        public int size() {
+            return mValues.size();
+        }
+    }
 }
@@ -18,35 +18,71 @@ package com.android.settings.fuelgauge.batterytip;
 
 import android.content.Context;
 import android.os.BatteryUsageStats;
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
 
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.SettingsTaskScheduler;
 import com.android.settings.fuelgauge.BatteryInfo;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.detectors.BatteryDefenderDetector;
+import com.android.settings.fuelgauge.batterytip.detectors.BatteryTipDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.DockDefenderDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.EarlyWarningDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.HighUsageDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.LowBatteryDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.SmartBatteryDetector;
+import com.android.settings.fuelgauge.batterytip.tips.BatteryDefenderTip;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.DockDefenderTip;
+import com.android.settings.fuelgauge.batterytip.tips.EarlyWarningTip;
+import com.android.settings.fuelgauge.batterytip.tips.HighUsageTip;
 import com.android.settings.fuelgauge.batterytip.tips.LowBatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.SmartBatteryTip;
 import com.android.settings.fuelgauge.batterytip.tips.SummaryTip;
 import com.android.settingslib.fuelgauge.EstimateKt;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Loader to compute and return a battery tip list. It will always return a full length list even
  * though some tips may have state {@code BaseBatteryTip.StateType.INVISIBLE}.
+ *
+ * <p>Detectors run in parallel on the {@link SettingsTaskScheduler} over one shared
+ * {@link BatteryInfo} and {@link BatteryUsageStats} snapshot. Results are kept for as long as the
+ * battery state they were computed from is unchanged: cacheable detectors are not run again, and
+ * a detector that does not finish within {@link #DETECTOR_TIMEOUT_MS} is replaced by its last
+ * result, or by an invisible tip if there is none.
  */
 public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
     private static final String TAG = "BatteryTipLoader";
 
     private static final boolean USE_FAKE_DATA = false;
+    @VisibleForTesting
+    static final long DETECTOR_TIMEOUT_MS = 500;
+
+    private static final Object sCacheLock = new Object();
+    // Battery state the cached tips were computed from.
+    @GuardedBy("sCacheLock")
+    private static DetectorInputs sLastInputs;
+    // Last result per tip type, reused by cacheable detectors and when a detector misses its time
+    // budget. Cleared when the battery state changes.
+    @GuardedBy("sCacheLock")
+    private static final SparseArray<BatteryTip> sLastTips = new SparseArray<>();
 
     private BatteryUsageStats mBatteryUsageStats;
     @VisibleForTesting
@@ -63,23 +99,127 @@ public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
         if (USE_FAKE_DATA) {
             return getFakeData();
         }
-        final List<BatteryTip> tips = new ArrayList<>();
         final BatteryTipPolicy policy = new BatteryTipPolicy(getContext());
         final BatteryInfo batteryInfo = mBatteryUtils.getBatteryInfo(TAG);
         final Context context = getContext();
 
-        tips.add(new LowBatteryDetector(context, policy, batteryInfo).detect());
-        tips.add(new HighUsageDetector(context, policy, mBatteryUsageStats, batteryInfo).detect());
-        tips.add(new SmartBatteryDetector(
-                context, policy, batteryInfo, context.getContentResolver()).detect());
-        tips.add(new EarlyWarningDetector(policy, context).detect());
-        tips.add(new BatteryDefenderDetector(
-                batteryInfo, context.getApplicationContext()).detect());
-        tips.add(new DockDefenderDetector(batteryInfo, context.getApplicationContext()).detect());
+        final List<DetectorTask> tasks = new ArrayList<>();
+        tasks.add(new DetectorTask(new LowBatteryDetector(context, policy, batteryInfo),
+                new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false /* powerSaveModeOn */)));
+        // High usage parses the whole battery history, its inputs are all in DetectorInputs.
+        tasks.add(new DetectorTask(
+                new HighUsageDetector(context, policy, mBatteryUsageStats, batteryInfo),
+                new HighUsageTip(0 /* lastFullChargeTimeMs */, new ArrayList<>()),
+                true /* cacheable */));
+        tasks.add(new DetectorTask(new SmartBatteryDetector(
+                context, policy, batteryInfo, context.getContentResolver()),
+                new SmartBatteryTip(BatteryTip.StateType.INVISIBLE)));
+        tasks.add(new DetectorTask(new EarlyWarningDetector(policy, context),
+                new EarlyWarningTip(BatteryTip.StateType.INVISIBLE, false /* powerSaveModeOn */)));
+        tasks.add(new DetectorTask(new BatteryDefenderDetector(
+                batteryInfo, context.getApplicationContext()),
+                new BatteryDefenderTip(BatteryTip.StateType.INVISIBLE)));
+        tasks.add(new DetectorTask(
+                new DockDefenderDetector(batteryInfo, context.getApplicationContext()),
+                new DockDefenderTip(BatteryTip.StateType.INVISIBLE,
+                        BatteryUtils.DockDefenderMode.DISABLED)));
+
+        final List<BatteryTip> tips = runDetectors(tasks,
+                new DetectorInputs(batteryInfo, mBatteryUsageStats));
         Collections.sort(tips);
         return tips;
     }
 
+    @VisibleForTesting
+    List<BatteryTip> runDetectors(List<DetectorTask> tasks, DetectorInputs inputs) {
+        synchronized (sCacheLock) {
+            if (!inputs.equals(sLastInputs)) {
+                sLastInputs = inputs;
+                sLastTips.clear();
+            }
+        }
+
+        final SettingsTaskScheduler scheduler = SettingsTaskScheduler.getInstance();
+        final BatteryTip[] tips = new BatteryTip[tasks.size()];
+        final List<Future<BatteryTip>> futures = new ArrayList<>(tasks.size());
+        for (int i = 0, size = tasks.size(); i < size; i++) {
+            final DetectorTask task = tasks.get(i);
+            tips[i] = task.mCacheable ? getLastTip(task.mFallback.getType(), inputs) : null;
+            futures.add(tips[i] != null ? null : scheduler.submit(null /* owner */,
+                    SettingsTaskScheduler.Priority.UI_CRITICAL,
+                    TAG + ":" + task.mFallback.getType(), task, null /* onResult */));
+        }
+
+        final long deadline = SystemClock.elapsedRealtime() + DETECTOR_TIMEOUT_MS;
+        boolean interrupted = false;
+        for (int i = 0, size = tasks.size(); i < size; i++) {
+            final Future<BatteryTip> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            if (!interrupted) {
+                try {
+                    tips[i] = future.get(Math.max(0, deadline - SystemClock.elapsedRealtime()),
+                            TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Log.w(TAG, "Interrupted while detecting battery tips", e);
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                } catch (TimeoutException e) {
+                    Log.w(TAG, "Detector timed out, tip type: "
+                            + tasks.get(i).mFallback.getType());
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to detect battery tip", e);
+                }
+            }
+            if (tips[i] == null) {
+                future.cancel(true /* mayInterruptIfRunning */);
+                final BatteryTip lastTip = getLastTip(tasks.get(i).mFallback.getType(), inputs);
+                tips[i] = lastTip != null ? lastTip : tasks.get(i).mFallback;
+            } else {
+                setLastTip(tips[i], inputs);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(tips));
+    }
+
+    @Nullable
+    private static BatteryTip getLastTip(int type, DetectorInputs inputs) {
+        synchronized (sCacheLock) {
+            final BatteryTip lastTip = sLastTips.get(type);
+            return lastTip != null && inputs.equals(sLastInputs) ? copyTip(lastTip) : null;
+        }
+    }
+
+    private static void setLastTip(BatteryTip tip, DetectorInputs inputs) {
+        synchronized (sCacheLock) {
+            // Another load may have seen a newer battery state meanwhile.
+            if (inputs.equals(sLastInputs)) {
+                sLastTips.put(tip.getType(), copyTip(tip));
+            }
+        }
+    }
+
+    // The preference controller mutates the tips it receives, so the cache never shares them.
+    private static BatteryTip copyTip(BatteryTip tip) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(tip, 0 /* flags */);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(BatteryTip.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @VisibleForTesting
+    static void clearCache() {
+        synchronized (sCacheLock) {
+            sLastInputs = null;
+            sLastTips.clear();
+        }
+    }
+
     @Override
     protected void onDiscardResult(List<BatteryTip> result) {
     }
@@ -93,4 +233,65 @@ public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
         return tips;
     }
 
+    /**
+     * Runs one {@link BatteryTipDetector}, with the tip to use if it never produced one. A
+     * cacheable detector only depends on {@link DetectorInputs}, so its last result is reused
+     * instead of running it again.
+     */
+    @VisibleForTesting
+    static class DetectorTask implements Callable<BatteryTip> {
+        private final BatteryTipDetector mDetector;
+        private final BatteryTip mFallback;
+        private final boolean mCacheable;
+
+        DetectorTask(BatteryTipDetector detector, BatteryTip fallback) {
+            this(detector, fallback, false /* cacheable */);
+        }
+
+        DetectorTask(BatteryTipDetector detector, BatteryTip fallback, boolean cacheable) {
+            mDetector = detector;
+            mFallback = fallback;
+            mCacheable = cacheable;
+        }
+
+        @Override
+        public BatteryTip call() {
+            return mDetector.detect();
+        }
+    }
+
+    /** The battery state the detectors read, cached tips are dropped when it changes. */
+    @VisibleForTesting
+    static final class DetectorInputs {
+        private final int mBatteryLevel;
+        private final int mBatteryStatus;
+        private final int mPluggedStatus;
+        private final long mStatsStartTimestamp;
+
+        DetectorInputs(BatteryInfo batteryInfo, @Nullable BatteryUsageStats batteryUsageStats) {
+            mBatteryLevel = batteryInfo.batteryLevel;
+            mBatteryStatus = batteryInfo.batteryStatus;
+            mPluggedStatus = batteryInfo.pluggedStatus;
+            mStatsStartTimestamp = batteryUsageStats != null
+                    ? batteryUsageStats.getStatsStartTimestamp() : 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DetectorInputs)) {
+                return false;
+            }
+            final DetectorInputs other = (DetectorInputs) o;
+            return mBatteryLevel == other.mBatteryLevel
+                    && mBatteryStatus == other.mBatteryStatus
+                    && mPluggedStatus == other.mPluggedStatus
+                    && mStatsStartTimestamp == other.mStatsStartTimestamp;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mBatteryLevel, mBatteryStatus, mPluggedStatus,
+                    mStatsStartTimestamp);
+        }
+    }
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The last rendered state of the homepage, used to draw the first frame of a cold start before
+ * the dashboard tiles and the user avatar are loaded.
+ *
+ * <p>A snapshot is only valid for the build and configuration it was taken with, so a locale or
+ * theme change never shows stale titles or icons.
+ */
+final class HomepageSnapshot {
+    private static final String TAG = "HomepageSnapshot";
+    @VisibleForTesting
+    static final String FILE_NAME = "homepage_snapshot";
+    private static final int VERSION = 1;
+
+    /** A dashboard tile of the top level list. */
+    static final class TileEntry {
+        final String mKey;
+        final CharSequence mTitle;
+        final CharSequence mSummary;
+        final int mOrder;
+        @Nullable
+        final Bitmap mIcon;
+
+        TileEntry(String key, CharSequence title, CharSequence summary, int order,
+                @Nullable Bitmap icon) {
+            mKey = key;
+            mTitle = title;
+            mSummary = summary;
+            mOrder = order;
+            mIcon = icon;
+        }
+    }
+
+    private final List<TileEntry> mTiles;
+    @Nullable
+    private final Bitmap mAvatar;
+
+    HomepageSnapshot(List<TileEntry> tiles, @Nullable Bitmap avatar) {
+        mTiles = Collections.unmodifiableList(tiles);
+        mAvatar = avatar;
+    }
+
+    List<TileEntry> getTiles() {
+        return mTiles;
+    }
+
+    @Nullable
+    Bitmap getAvatar() {
+        return mAvatar;
+    }
+
+    /**
+     * Reads the snapshot saved by {@link #save(Context)}. Returns null if there is none, or if it
+     * was taken with another build or configuration. The snapshot only holds a few small icons,
+     * so it is read on the main thread before the first frame.
+     */
+    @Nullable
+    static HomepageSnapshot load(Context context) {
+        final File file = getFile(context);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new AtomicFile(file).openRead())) {
+            if (in.readInt() != VERSION
+                    || !TextUtils.equals(in.readUTF(), getFingerprint(context))) {
+                Log.d(TAG, "Discard stale snapshot");
+                return null;
+            }
+            final Bitmap avatar = readBitmap(in);
+            final int count = in.readInt();
+            final List<TileEntry> tiles = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tiles.add(new TileEntry(in.readUTF(), in.readUTF(), in.readUTF(), in.readInt(),
+                        readBitmap(in)));
+            }
+            return new HomepageSnapshot(tiles, avatar);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read snapshot", e);
+            return null;
+        }
+    }
+
+    /** Persists this snapshot, replacing the previous one. */
+    @WorkerThread
+    void save(Context context) {
+        final AtomicFile file = new AtomicFile(getFile(context));
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            final DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(VERSION);
+            out.writeUTF(getFingerprint(context));
+            writeBitmap(out, mAvatar);
+            out.writeInt(mTiles.size());
+            for (TileEntry tile : mTiles) {
+                out.writeUTF(tile.mKey);
+                out.writeUTF(toString(tile.mTitle));
+                out.writeUTF(toString(tile.mSummary));
+                out.writeInt(tile.mOrder);
+                writeBitmap(out, tile.mIcon);
+            }
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write snapshot", e);
+            file.failWrite(stream);
+        }
+    }
+
+    /**
+     * Whether {@code other} shows the same tiles and avatar, in which case it doesn't need to be
+     * saved again.
+     */
+    boolean hasSameContent(@Nullable HomepageSnapshot other) {
+        if (other == null || other.mTiles.size() != mTiles.size()
+                || !isSameBitmap(other.mAvatar, mAvatar)) {
+            return false;
+        }
+        for (int i = 0; i < mTiles.size(); i++) {
+            final TileEntry tile = mTiles.get(i);
+            final TileEntry otherTile = other.mTiles.get(i);
+            if (!TextUtils.equals(tile.mKey, otherTile.mKey)
+                    || !TextUtils.equals(toString(tile.mTitle), toString(otherTile.mTitle))
+                    || !TextUtils.equals(toString(tile.mSummary), toString(otherTile.mSummary))
+                    || tile.mOrder != otherTile.mOrder
+                    || !isSameBitmap(tile.mIcon, otherTile.mIcon)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Renders {@code drawable} at its intrinsic size, or returns null if it has none. */
+    @Nullable
+    static Bitmap toBitmap(@Nullable Drawable drawable) {
+        if (drawable == null) {
+            return null;
+        }
+        final int width = drawable.getIntrinsicWidth();
+        final int height = drawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        // Draw the shown drawable itself so that its tint and state are kept.
+        final Rect bounds = drawable.copyBounds();
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(new Canvas(bitmap));
+        drawable.setBounds(bounds);
+        return bitmap;
+    }
+
+    private static File getFile(Context context) {
+        return new File(context.getCacheDir(), FILE_NAME);
+    }
+
+    private static String getFingerprint(Context context) {
+        final Configuration config = context.getResources().getConfiguration();
+        return Build.FINGERPRINT
+                + "|" + config.getLocales().toLanguageTags()
+                + "|" + config.densityDpi
+                + "|" + (config.uiMode & Configuration.UI_MODE_NIGHT_MASK);
+    }
+
+    private static String toString(@Nullable CharSequence text) {
+        return text == null ? "" : text.toString();
+    }
+
+    private static boolean isSameBitmap(@Nullable Bitmap first, @Nullable Bitmap second) {
+        return first == null ? second == null : second != null && first.sameAs(second);
+    }
+
+    @Nullable
+    private static Bitmap readBitmap(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length == 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return BitmapFactory.decodeByteArray(bytes, 0, length);
+    }
+
+    private static void writeBitmap(DataOutputStream out, @Nullable Bitmap bitmap)
+            throws IOException {
+        if (bitmap == null) {
+            out.writeInt(0);
+            return;
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100 /* quality */, bytes);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+}
@@ -32,7 +32,7 @@ import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.ApplicationInfoFlags;
 import android.content.pm.UserInfo;
-import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.content.res.Configuration;
 import android.net.Uri;
@@ -51,6 +51,7 @@ import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.Toolbar;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -63,8 +64,6 @@ import androidx.fragment.app.FragmentTransaction;
 import androidx.window.embedding.ActivityEmbeddingController;
 import androidx.window.embedding.SplitRule;
 
-import com.android.internal.util.UserIcons;
-
 import com.android.settings.R;
 import com.android.settings.Settings;
 import com.android.settings.SettingsActivity;
@@ -74,17 +73,20 @@ import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.activityembedding.ActivityEmbeddingUtils;
 import com.android.settings.core.CategoryMixin;
 import com.android.settings.core.FeatureFlags;
+import com.android.settings.core.SettingsTaskScheduler;
+import com.android.settings.dashboard.CategoryManager;
 import com.android.settings.homepage.contextualcards.ContextualCardsFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.safetycenter.SafetyCenterManagerWrapper;
+import com.android.settings.users.UserAvatarCache;
 import com.android.settingslib.Utils;
 import com.android.settingslib.core.lifecycle.HideNonSystemOverlayMixin;
 
 import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
-import com.android.settingslib.drawable.CircleFramedDrawable;
-
 /** Settings homepage activity */
 public class SettingsHomepageActivity extends FragmentActivity implements
         CategoryMixin.CategoryHandler {
@@ -118,6 +120,9 @@ public class SettingsHomepageActivity extends FragmentActivity implements
     private boolean mIsTwoPane;
     // A regular layout shows icons on homepage, whereas a simplified layout doesn't.
     private boolean mIsRegularLayout = true;
+    private HomepageSnapshot mSnapshot;
+    // The snapshot last read or written, so that an unchanged homepage is not saved again.
+    private HomepageSnapshot mSavedSnapshot;
 
     /** A listener receiving homepage loaded events. */
     public interface HomepageLoadedListener {
@@ -178,6 +183,12 @@ public class SettingsHomepageActivity extends FragmentActivity implements
         return mCategoryMixin;
     }
 
+    /** Returns the snapshot to draw a cold start with, or null if there is none. */
+    @Nullable
+    HomepageSnapshot getHomepageSnapshot() {
+        return mSnapshot;
+    }
+
     Context context;
     ImageView avatarView;
     UserManager mUserManager;
@@ -227,6 +238,12 @@ public class SettingsHomepageActivity extends FragmentActivity implements
 
         Context context = getApplicationContext();
         mUserManager = context.getSystemService(UserManager.class);
+        // On a cold start, draw the last homepage while the tiles and the avatar are loaded. The
+        // snapshot is read before the first frame, so its tiles are there from the start.
+        if (!CategoryManager.get(context).isCategoriesLoaded()) {
+            mSnapshot = HomepageSnapshot.load(context);
+            mSavedSnapshot = mSnapshot;
+        }
 
         updateHomepageAppBar();
         updateHomepageBackground();
@@ -236,7 +253,9 @@ public class SettingsHomepageActivity extends FragmentActivity implements
 
         avatarView = findViewById(R.id.account_avatar);
         //final AvatarViewMixin avatarViewMixin = new AvatarViewMixin(this, avatarView);
-        avatarView.setImageDrawable(getCircularUserIcon(context));
+        if (mSnapshot != null && mSnapshot.getAvatar() != null) {
+            avatarView.setImageDrawable(new BitmapDrawable(getResources(), mSnapshot.getAvatar()));
+        }
         avatarView.setVisibility(View.VISIBLE);
         avatarView.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -743,24 +762,54 @@ public class SettingsHomepageActivity extends FragmentActivity implements
         }
     }
 
-    private Drawable getCircularUserIcon(Context context) {
-        Bitmap bitmapUserIcon = mUserManager.getUserIcon(UserHandle.myUserId());
+    @Override
+    public void onResume() {
+        super.onResume();
+        updateAvatar();
+    }
 
-        if (bitmapUserIcon == null) {
-            // get default user icon.
-            final Drawable defaultUserIcon = UserIcons.getDefaultUserIcon(
-                    context.getResources(), UserHandle.myUserId(), false);
-            bitmapUserIcon = UserIcons.convertToBitmap(defaultUserIcon);
+    private void updateAvatar() {
+        // The shared cache drops the avatar when the user info changes, so an unchanged avatar
+        // is reused instead of decoded again on every resume.
+        final UserAvatarCache avatarCache = UserAvatarCache.getInstance(this);
+        final int userId = UserHandle.myUserId();
+        final Drawable avatar = avatarCache.getAvatar(userId);
+        if (avatar != null) {
+            avatarView.setImageDrawable(avatar);
+            return;
         }
-        Drawable drawableUserIcon = new CircleFramedDrawable(bitmapUserIcon,
-                (int) context.getResources().getDimension(R.dimen.circle_avatar_size));
-
-        return drawableUserIcon;
+        avatarCache.loadAvatars(Collections.singletonList(userId), () -> {
+            final Drawable loadedAvatar = avatarCache.getAvatar(userId);
+            if (loadedAvatar != null && !isDestroyed()) {
+                avatarView.setImageDrawable(loadedAvatar);
+            }
+        });
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        avatarView.setImageDrawable(getCircularUserIcon(getApplicationContext()));
+    protected void onStop() {
+        super.onStop();
+        saveSnapshot();
+    }
+
+    private void saveSnapshot() {
+        if (mMainFragment == null || avatarView == null) {
+            return;
+        }
+        final List<HomepageSnapshot.TileEntry> tiles = mMainFragment.getSnapshotTiles();
+        if (tiles == null) {
+            // Still showing the previous snapshot.
+            return;
+        }
+        final HomepageSnapshot snapshot = new HomepageSnapshot(tiles,
+                HomepageSnapshot.toBitmap(avatarView.getDrawable()));
+        if (snapshot.hasSameContent(mSavedSnapshot)) {
+            return;
+        }
+        mSavedSnapshot = snapshot;
+        final Context context = getApplicationContext();
+        SettingsTaskScheduler.getInstance().executeUnique(
+                SettingsTaskScheduler.Priority.MAINTENANCE, TAG + ".saveSnapshot",
+                () -> snapshot.save(context));
     }
 }
@@ -23,13 +23,16 @@ import android.app.ActivityManager;
 import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
@@ -41,7 +44,9 @@ import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.activityembedding.ActivityEmbeddingUtils;
+import com.android.settings.core.SettingsTaskScheduler;
 import com.android.settings.core.SubSettingLauncher;
+import com.android.settings.dashboard.DashboardFeatureProvider;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.search.BaseSearchIndexProvider;
@@ -52,6 +57,10 @@ import com.android.settingslib.core.instrumentation.Instrumentable;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.search.SearchIndexable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
 @SearchIndexable(forTarget = MOBILE)
 public class TopLevelSettings extends DashboardFragment implements SplitLayoutListener,
         PreferenceFragmentCompat.OnPreferenceStartFragmentCallback {
@@ -66,6 +75,12 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
     private boolean mScrollNeeded = true;
     private boolean mFirstStarted = true;
     private ActivityEmbeddingController mActivityEmbeddingController;
+    // Tiles of the last homepage, shown on a cold start until the real tiles are loaded.
+    private HomepageSnapshot mSnapshot;
+    // Whether the dashboard tiles are still loaded in the background on a cold start.
+    private boolean mTilesPending;
+    private Future<?> mLoadTilesTask;
+    private final ArrayMap<String, Preference> mPlaceholderPreferences = new ArrayMap<>();
 
     public TopLevelSettings() {
         final Bundle args = new Bundle();
@@ -94,6 +109,14 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
         super.onAttach(context);
         HighlightableMenu.fromXml(context, getPreferenceScreenResId());
         use(SupportPreferenceController.class).setActivity(getActivity());
+        if (getActivity() instanceof SettingsHomepageActivity) {
+            final HomepageSnapshot snapshot =
+                    ((SettingsHomepageActivity) getActivity()).getHomepageSnapshot();
+            if (snapshot != null && !snapshot.getTiles().isEmpty()) {
+                mSnapshot = snapshot;
+            }
+            mTilesPending = mSnapshot != null;
+        }
     }
 
     @Override
@@ -177,6 +200,10 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
             setHighlightMenuKey(getString(SettingsHomepageActivity.DEFAULT_HIGHLIGHT_MENU_KEY),
                     /* scrollNeeded= */ false);
         }
+        if (mTilesPending && mLoadTilesTask != null && mLoadTilesTask.isDone()) {
+            // The load was cancelled when the page stopped before the tiles arrived.
+            loadTilesInBackground();
+        }
         super.onStart();
     }
 
@@ -197,6 +224,92 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
     @Override
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
         super.onCreatePreferences(savedInstanceState, rootKey);
+        if (mTilesPending) {
+            showSnapshotTiles();
+            loadTilesInBackground();
+        }
+        tintIcons();
+    }
+
+    @Override
+    protected boolean isDashboardTilesReady() {
+        return !mTilesPending;
+    }
+
+    @Override
+    protected Preference takePlaceholderPreference(String key) {
+        return mPlaceholderPreferences.remove(key);
+    }
+
+    /**
+     * Returns the dashboard tiles as currently shown, or null while they are still loading.
+     */
+    @Nullable
+    List<HomepageSnapshot.TileEntry> getSnapshotTiles() {
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (mTilesPending || screen == null) {
+            return null;
+        }
+        final List<HomepageSnapshot.TileEntry> tiles = new ArrayList<>();
+        for (String key : getDashboardTileKeys()) {
+            final Preference preference = screen.findPreference(key);
+            if (preference != null && preference.isVisible()) {
+                tiles.add(new HomepageSnapshot.TileEntry(key, preference.getTitle(),
+                        preference.getSummary(), preference.getOrder(),
+                        HomepageSnapshot.toBitmap(preference.getIcon())));
+            }
+        }
+        return tiles;
+    }
+
+    private void showSnapshotTiles() {
+        final PreferenceScreen screen = getPreferenceScreen();
+        for (HomepageSnapshot.TileEntry tile : mSnapshot.getTiles()) {
+            if (screen.findPreference(tile.mKey) != null) {
+                continue;
+            }
+            final Preference preference = new HomepagePreference(getPrefContext());
+            preference.setKey(tile.mKey);
+            preference.setTitle(tile.mTitle);
+            preference.setSummary(TextUtils.isEmpty(tile.mSummary) ? null : tile.mSummary);
+            preference.setOrder(tile.mOrder);
+            if (tile.mIcon != null) {
+                preference.setIcon(new BitmapDrawable(getResources(), tile.mIcon));
+            }
+            screen.addPreference(preference);
+            mPlaceholderPreferences.put(tile.mKey, preference);
+        }
+    }
+
+    private void loadTilesInBackground() {
+        final DashboardFeatureProvider dashboardFeatureProvider =
+                FeatureFactory.getFactory(getContext()).getDashboardFeatureProvider(getContext());
+        final String categoryKey = getCategoryKey();
+        mLoadTilesTask = SettingsTaskScheduler.getInstance().submit(this,
+                SettingsTaskScheduler.Priority.UI_CRITICAL, TAG + ".loadTiles",
+                () -> dashboardFeatureProvider.getTilesForCategory(categoryKey),
+                category -> onTilesLoaded());
+    }
+
+    private void onTilesLoaded() {
+        if (!mTilesPending) {
+            return;
+        }
+        mTilesPending = false;
+        mSnapshot = null;
+        // Rebinds the placeholders in place, so the list doesn't move.
+        onCategoriesChanged(null /* categories */);
+        final PreferenceScreen screen = getPreferenceScreen();
+        mPlaceholderPreferences.values().forEach(screen::removePreference);
+        mPlaceholderPreferences.clear();
+        tintIcons();
+        if (getActivity() != null) {
+            Log.d(TAG, "Dashboard tiles loaded, reporting fully drawn");
+            getActivity().reportFullyDrawn();
+        }
+    }
+
+    private void tintIcons() {
         int tintColor = Utils.getHomepageIconColor(getContext());
         iteratePreferences(preference -> {
             Drawable icon = preference.getIcon();
@@ -34,8 +34,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
+import com.android.settings.core.instrumentation.LatencyTracer;
+import com.android.settings.core.instrumentation.LatencyTracer.Section;
 import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUtils;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.slices.SliceDataCache;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
@@ -108,6 +111,7 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             Log.d(TAG, "Skipping - in legacy suggestion mode");
             return result;
         }
+        final long startTime = LatencyTracer.begin(Section.LOADER);
         try (Cursor cursor = getContextualCardsFromProvider()) {
             if (cursor.getCount() > 0) {
                 for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
@@ -119,8 +123,14 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
                     }
                 }
             }
+            final List<ContextualCard> displayableCards = getDisplayableCards(result);
+            SliceDataCache.getInstance(mContext).prewarm(displayableCards.stream()
+                    .map(ContextualCard::getSliceUri)
+                    .collect(Collectors.toList()));
+            return displayableCards;
+        } finally {
+            LatencyTracer.end(Section.LOADER, startTime);
         }
-        return getDisplayableCards(result);
     }
 
     // Get final displayed cards and log what cards will be displayed/hidden
@@ -142,6 +142,7 @@ public abstract class ActiveSubscriptionsListener
     public void onSubscriptionsChanged() {
         // clear value in cache
         clearCache();
+        SubscriptionRepository.invalidateSharedSnapshot(mContext);
         listenerNotify();
     }
 
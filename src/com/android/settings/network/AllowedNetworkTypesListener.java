@@ -17,19 +17,20 @@
 package com.android.settings.network;
 
 import android.content.Context;
-import android.telephony.TelephonyCallback;
 import android.telephony.TelephonyManager;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.network.telephony.TelephonyEventHub;
+
 import java.util.concurrent.Executor;
 
 /**
- * {@link TelephonyCallback} to listen to Allowed Network Types changed
+ * Listens to Allowed Network Types changed, through the telephony callback that
+ * {@link TelephonyEventHub} shares between the controllers of a subscription.
  */
-public class AllowedNetworkTypesListener extends TelephonyCallback implements
-        TelephonyCallback.AllowedNetworkTypesListener {
+public class AllowedNetworkTypesListener implements TelephonyEventHub.Listener {
     private static final String LOG_TAG = "NetworkModeListener";
 
     @VisibleForTesting
@@ -46,29 +47,31 @@ public class AllowedNetworkTypesListener extends TelephonyCallback implements
     }
 
     /**
-     * Register a TelephonyCallback for Allowed Network Types changed.
+     * Start listening to Allowed Network Types changed.
      * @param context the Context
      * @param subId the subscription id.
      */
     public void register(Context context, int subId) {
-        TelephonyManager telephonyManager = context.getSystemService(
-                TelephonyManager.class).createForSubscriptionId(subId);
-        telephonyManager.registerTelephonyCallback(mExecutor, this);
+        TelephonyEventHub.getInstance(context).addListener(subId,
+                TelephonyEventHub.EVENT_ALLOWED_NETWORK_TYPES, this);
     }
 
     /**
-     * Unregister a TelephonyCallback for Allowed Network Types changed.
+     * Stop listening to Allowed Network Types changed.
      * @param context the Context
      * @param subId the subscription id.
      */
     public void unregister(Context context, int subId) {
-        TelephonyManager telephonyManager = context.getSystemService(
-                TelephonyManager.class).createForSubscriptionId(subId);
-        telephonyManager.unregisterTelephonyCallback(this);
+        TelephonyEventHub.getInstance(context).removeListener(subId, this);
     }
 
     @Override
-    public void onAllowedNetworkTypesChanged(int reason, long newAllowedNetworkType) {
+    public void onAllowedNetworkTypesChanged(int subId, int reason, long allowedNetworkTypes) {
+        mExecutor.execute(() -> onAllowedNetworkTypesChanged(reason, allowedNetworkTypes));
+    }
+
+    @VisibleForTesting
+    void onAllowedNetworkTypesChanged(int reason, long newAllowedNetworkType) {
         if (reason != TelephonyManager.ALLOWED_NETWORK_TYPES_REASON_USER
                 && reason != TelephonyManager.ALLOWED_NETWORK_TYPES_REASON_CARRIER) {
             return;
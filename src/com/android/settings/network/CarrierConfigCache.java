@@ -34,14 +34,24 @@ import android.util.Log;
 import androidx.annotation.GuardedBy;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.SettingsTaskScheduler;
+
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is a singleton class for Carrier-Configuration cache.
+ *
+ * The configurations of the active subscriptions are fetched again in the background whenever
+ * they change or a SIM state changes, so that the mobile network pages do not wait on
+ * {@link CarrierConfigManager} for them.
  */
 public class CarrierConfigCache {
     private static final String TAG = "CarrConfCache";
+    // Hidden Intent.ACTION_SIM_STATE_CHANGED.
+    private static final String ACTION_SIM_STATE_CHANGED =
+            "android.intent.action.SIM_STATE_CHANGED";
+    private static final String PREFETCH_TASK = "CarrierConfigCache.prefetch";
 
     private static final Object sInstanceLock = new Object();
     /**
@@ -62,8 +72,13 @@ public class CarrierConfigCache {
     @VisibleForTesting
     protected static final Map<Integer, PersistableBundle> sCarrierConfigs =
             new ConcurrentHashMap<>();
+    // Bumped whenever cached configs are dropped, so that a fetch started before is not cached.
+    @GuardedBy("sCarrierConfigs")
+    private static int sGeneration;
     @VisibleForTesting
     protected static CarrierConfigManager sCarrierConfigManager;
+    @VisibleForTesting
+    protected static SubscriptionManager sSubscriptionManager;
 
     /**
      * Static method to create a singleton class for Carrier-Configuration cache.
@@ -86,7 +101,10 @@ public class CarrierConfigCache {
             final CarrierConfigChangeReceiver receiver = new CarrierConfigChangeReceiver();
             final Context appContext = context.getApplicationContext();
             sCarrierConfigManager = appContext.getSystemService(CarrierConfigManager.class);
-            appContext.registerReceiver(receiver, new IntentFilter(ACTION_CARRIER_CONFIG_CHANGED));
+            sSubscriptionManager = appContext.getSystemService(SubscriptionManager.class);
+            final IntentFilter filter = new IntentFilter(ACTION_CARRIER_CONFIG_CHANGED);
+            filter.addAction(ACTION_SIM_STATE_CHANGED);
+            appContext.registerReceiver(receiver, filter);
             return sInstance;
         }
     }
@@ -139,20 +157,49 @@ public class CarrierConfigCache {
     public PersistableBundle getConfigForSubId(int subId) {
         if (sCarrierConfigManager == null) return null;
 
+        final PersistableBundle cachedConfig = sCarrierConfigs.get(subId);
+        if (cachedConfig != null) {
+            return cachedConfig;
+        }
+        final int generation;
         synchronized (sCarrierConfigs) {
-            if (sCarrierConfigs.containsKey(subId)) {
-                return sCarrierConfigs.get(subId);
-            }
-            final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
-            if (config == null) {
-                Log.e(TAG, "Could not get carrier config, subId:" + subId);
-                return null;
+            generation = sGeneration;
+        }
+        // Not under the lock, so that reads of cached configs never wait on the binder call.
+        final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
+        if (config == null) {
+            Log.e(TAG, "Could not get carrier config, subId:" + subId);
+            return null;
+        }
+        synchronized (sCarrierConfigs) {
+            if (generation != sGeneration) {
+                // Changed while fetching, the next read fetches it again.
+                return config;
             }
-            sCarrierConfigs.put(subId, config);
-            return config;
+            final PersistableBundle racingConfig = sCarrierConfigs.putIfAbsent(subId, config);
+            return racingConfig != null ? racingConfig : config;
         }
     }
 
+    /**
+     * Fetches the Carrier-Configurations of the active subscriptions that are not cached yet in
+     * the background. The bundles are unparcelled there too, so that reading the first key on the
+     * main thread does not pay for it.
+     */
+    public void prefetchActiveSubscriptions() {
+        if (sCarrierConfigManager == null || sSubscriptionManager == null) return;
+
+        SettingsTaskScheduler.getInstance().executeUnique(
+                SettingsTaskScheduler.Priority.PREFETCH, PREFETCH_TASK, () -> {
+                    for (int subId : sSubscriptionManager.getActiveSubscriptionIdList()) {
+                        final PersistableBundle config = getConfigForSubId(subId);
+                        if (config != null) {
+                            config.size();
+                        }
+                    }
+                });
+    }
+
     /**
      * Gets the Carrier-Configuration for the default subscription.
      *
@@ -167,16 +214,21 @@ public class CarrierConfigCache {
     private static class CarrierConfigChangeReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
-            if (!ACTION_CARRIER_CONFIG_CHANGED.equals(intent.getAction())) return;
-
-            final int subId = intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID);
-            synchronized (sCarrierConfigs) {
-                if (SubscriptionManager.isValidSubscriptionId(subId)) {
-                    sCarrierConfigs.remove(subId);
-                } else {
-                    sCarrierConfigs.clear();
+            if (ACTION_CARRIER_CONFIG_CHANGED.equals(intent.getAction())) {
+                final int subId =
+                        intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID);
+                synchronized (sCarrierConfigs) {
+                    sGeneration++;
+                    if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                        sCarrierConfigs.remove(subId);
+                    } else {
+                        sCarrierConfigs.clear();
+                    }
                 }
+            } else if (!ACTION_SIM_STATE_CHANGED.equals(intent.getAction())) {
+                return;
             }
+            getInstance(context).prefetchActiveSubscriptions();
         }
     }
 }
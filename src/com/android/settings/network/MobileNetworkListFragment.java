@@ -57,6 +57,13 @@ public class MobileNetworkListFragment extends DashboardFragment {
         return SettingsEnums.MOBILE_NETWORK_LIST;
     }
 
+    @Override
+    public void onAttach(Context context) {
+        SubscriptionRepository.getInstance(context).observe(getSettingsLifecycle());
+        CarrierConfigCache.getInstance(context).prefetchActiveSubscriptions();
+        super.onAttach(context);
+    }
+
     @Override
     protected List<AbstractPreferenceController> createPreferenceControllers(Context context) {
         final List<AbstractPreferenceController> controllers = new ArrayList<>();
@@ -67,6 +67,8 @@ public class NetworkDashboardFragment extends DashboardFragment implements
 
     @Override
     public void onAttach(Context context) {
+        SubscriptionRepository.getInstance(context).observe(getSettingsLifecycle());
+        CarrierConfigCache.getInstance(context).prefetchActiveSubscriptions();
         super.onAttach(context);
 
         use(AirplaneModePreferenceController.class).setFragment(this);
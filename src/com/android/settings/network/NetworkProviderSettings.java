@@ -32,8 +32,8 @@ import android.net.NetworkTemplate;
 import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiManager;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.Settings;
@@ -76,6 +76,7 @@ import com.android.settings.wifi.LongPressWifiEntryPreference;
 import com.android.settings.wifi.WifiConfigUiBase2;
 import com.android.settings.wifi.WifiConnectListener;
 import com.android.settings.wifi.WifiDialog2;
+import com.android.settings.wifi.WifiEntryListDiffer;
 import com.android.settings.wifi.WifiPickerTrackerHelper;
 import com.android.settings.wifi.WifiUtils;
 import com.android.settings.wifi.details.WifiNetworkDetailsFragment;
@@ -126,6 +127,8 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
     static final int ADD_NETWORK_REQUEST = 2;
     static final int CONFIG_NETWORK_REQUEST = 3;
     static final int MANAGE_SUBSCRIPTION = 4;
+    // Min interval between two rebuilds of the list while scan results keep arriving
+    private static final long MIN_WIFI_ENTRY_UPDATE_INTERVAL_MS = 300;
 
     private static final String PREF_KEY_AIRPLANE_MODE_MSG = "airplane_mode_message";
     private static final String PREF_KEY_EMPTY_WIFI_LIST = "wifi_empty_list";
@@ -187,8 +190,11 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
     };
 
     private boolean mIsWifiEntryListStale = true;
+    // Uptime of the last list update, see MIN_WIFI_ENTRY_UPDATE_INTERVAL_MS.
+    private long mLastWifiEntryUpdateTime;
     @VisibleForTesting
     final Runnable mUpdateWifiEntryPreferencesRunnable = () -> {
+        mLastWifiEntryUpdateTime = SystemClock.uptimeMillis();
         updateWifiEntryPreferences();
         getView().postDelayed(mRemoveLoadingRunnable, 10);
     };
@@ -218,6 +224,7 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
     @VisibleForTesting
     WifiPickerTracker mWifiPickerTracker;
     private WifiPickerTrackerHelper mWifiPickerTrackerHelper;
+    private final WifiEntryListDiffer mWifiEntryListDiffer = new WifiEntryListDiffer();
     @VisibleForTesting
     InternetUpdater mInternetUpdater;
 
@@ -923,20 +930,25 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
     }
 
     /**
-     * Updates WifiEntries from {@link WifiPickerTracker#getWifiEntries()}. Adds a delay to have
-     * progress bar displayed before starting to modify entries.
+     * Updates WifiEntries from {@link WifiPickerTracker#getWifiEntries()} on the next frame, so
+     * that the progress bar is displayed first and a burst of scan results is applied at once.
+     * While scan results keep arriving, the list is rebuilt at most once per
+     * {@link #MIN_WIFI_ENTRY_UPDATE_INTERVAL_MS}.
      */
     private void updateWifiEntryPreferencesDelayed() {
         // Safeguard from some delayed event handling
         if (getActivity() != null && !mIsRestricted && mWifiPickerTracker != null
                 && mWifiPickerTracker.getWifiState() == WifiManager.WIFI_STATE_ENABLED) {
             final View view = getView();
-            final Handler handler = view.getHandler();
-            if (handler != null && handler.hasCallbacks(mUpdateWifiEntryPreferencesRunnable)) {
-                return;
-            }
             setProgressBarVisible(true);
-            view.postDelayed(mUpdateWifiEntryPreferencesRunnable, 300);
+            view.removeCallbacks(mUpdateWifiEntryPreferencesRunnable);
+            final long delayMs = mLastWifiEntryUpdateTime + MIN_WIFI_ENTRY_UPDATE_INTERVAL_MS
+                    - SystemClock.uptimeMillis();
+            if (delayMs > 0) {
+                view.postDelayed(mUpdateWifiEntryPreferencesRunnable, delayMs);
+            } else {
+                view.postOnAnimation(mUpdateWifiEntryPreferencesRunnable);
+            }
         }
     }
 
@@ -989,47 +1001,52 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         }
 
         int index = 0;
-        cacheRemoveAllPrefs(mWifiEntryPreferenceCategory);
-        List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
+        final List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
+        final WifiEntryListDiffer.Diff diff = mWifiEntryListDiffer.update(wifiEntries);
+        for (String key : diff.getRemovedKeys()) {
+            removeWifiEntryPreference(key);
+        }
         for (WifiEntry wifiEntry : wifiEntries) {
             hasAvailableWifiEntries = true;
 
-            String key = wifiEntry.getKey();
-            LongPressWifiEntryPreference pref =
-                    (LongPressWifiEntryPreference) getCachedPreference(key);
-            if (pref != null) {
-                if (pref.getWifiEntry() == wifiEntry) {
-                    pref.setOrder(index++);
-                    continue;
-                } else {
-                    // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
-                }
-            }
-
-            pref = createLongPressWifiEntryPreference(wifiEntry);
-            pref.setKey(wifiEntry.getKey());
-            pref.setOrder(index++);
-            pref.refresh();
+            final String key = wifiEntry.getKey();
+            final int order = index++;
+            LongPressWifiEntryPreference pref = mWifiEntryPreferenceCategory.findPreference(key);
+            if (pref == null) {
+                pref = createLongPressWifiEntryPreference(wifiEntry);
+                pref.setKey(key);
+                pref.setOrder(order);
+                pref.refresh();
 
-            if (wifiEntry.getHelpUriString() != null) {
+                final LongPressWifiEntryPreference helpPref = pref;
                 pref.setOnButtonClickListener(preference -> {
-                    openSubscriptionHelpPage(wifiEntry);
+                    openSubscriptionHelpPage(helpPref.getWifiEntry());
                 });
+                mWifiEntryPreferenceCategory.addPreference(pref);
+                continue;
+            }
+            if (pref.getWifiEntry() != wifiEntry) {
+                // Same network with a new WifiEntry object, rebind the row instead of recreating.
+                pref.setWifiEntry(wifiEntry);
+            } else if (diff.isChanged(key)) {
+                pref.refresh();
             }
-            mWifiEntryPreferenceCategory.addPreference(pref);
+            pref.setOrder(order);
         }
-        removeCachedPrefs(mWifiEntryPreferenceCategory);
 
         if (!hasAvailableWifiEntries) {
             setProgressBarVisible(true);
-            Preference pref = new Preference(getPrefContext());
-            pref.setSelectable(false);
-            pref.setSummary(R.string.wifi_empty_list_wifi_on);
-            pref.setOrder(index++);
-            pref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
-            mWifiEntryPreferenceCategory.addPreference(pref);
+            if (mWifiEntryPreferenceCategory.findPreference(PREF_KEY_EMPTY_WIFI_LIST) == null) {
+                Preference pref = new Preference(getPrefContext());
+                pref.setSelectable(false);
+                pref.setSummary(R.string.wifi_empty_list_wifi_on);
+                pref.setOrder(index);
+                pref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
+                mWifiEntryPreferenceCategory.addPreference(pref);
+            }
+            index++;
         } else {
+            removeWifiEntryPreference(PREF_KEY_EMPTY_WIFI_LIST);
             // Continuing showing progress bar for an additional delay to overlap with animation
             getView().postDelayed(mHideProgressBarRunnable, 1700 /* delay millis */);
         }
@@ -1102,9 +1119,17 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
 
     private void removeWifiEntryPreference() {
         mWifiEntryPreferenceCategory.removeAll();
+        mWifiEntryListDiffer.reset();
         mWifiEntryPreferenceCategory.setVisible(false);
     }
 
+    private void removeWifiEntryPreference(String key) {
+        final Preference preference = mWifiEntryPreferenceCategory.findPreference(key);
+        if (preference != null) {
+            mWifiEntryPreferenceCategory.removePreference(preference);
+        }
+    }
+
     @VisibleForTesting
     void setAdditionalSettingsSummaries() {
         mConfigureWifiSettingsPreference.setSummary(getString(
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static androidx.lifecycle.Lifecycle.Event.ON_START;
+import static androidx.lifecycle.Lifecycle.Event.ON_STOP;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.OnLifecycleEvent;
+
+/**
+ * Keeps one {@link SubscriptionSnapshot} while a network or SIM page is started, so that
+ * {@link SubscriptionUtil} answers every controller of the page from it. The snapshot is
+ * replaced on each {@link SubscriptionManager.OnSubscriptionsChangedListener} callback, including
+ * the ones of the pages' own listeners, and whenever the status of a SIM slot changes.
+ *
+ * <p>While no page is started nothing is kept and {@link SubscriptionUtil} queries
+ * {@link SubscriptionManager} directly, as a background caller may not get the callbacks.
+ */
+public class SubscriptionRepository {
+    private static SubscriptionRepository sInstance;
+
+    private final Context mContext;
+    private final SubscriptionManager mSubscriptionManager;
+    private final SubscriptionManager.OnSubscriptionsChangedListener mSubscriptionsChangedListener =
+            new SubscriptionManager.OnSubscriptionsChangedListener() {
+                @Override
+                public void onSubscriptionsChanged() {
+                    invalidate();
+                }
+            };
+    // Slot changes don't always change a subscription, but they change the slots info.
+    private final BroadcastReceiver mSlotStatusReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    @GuardedBy("this")
+    private int mStartedPageCount;
+    @GuardedBy("this")
+    private SubscriptionSnapshot mSnapshot;
+
+    /** Returns the process wide instance. */
+    public static synchronized SubscriptionRepository getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SubscriptionRepository(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static synchronized void setInstanceForTesting(@Nullable SubscriptionRepository repository) {
+        sInstance = repository;
+    }
+
+    /**
+     * Returns the snapshot shared by the started pages, or {@code null} if no page is started or
+     * {@code context} does not belong to this application, e.g. a mock.
+     */
+    @Nullable
+    static SubscriptionSnapshot getSharedSnapshot(Context context) {
+        final SubscriptionRepository repository = getSharedInstance(context);
+        return repository != null ? repository.getSnapshot() : null;
+    }
+
+    /**
+     * Drop the shared snapshot, if any. Listeners of the pages call this before they notify their
+     * controllers of a subscription change, so a controller querying again on that callback
+     * never gets the snapshot taken before the change.
+     */
+    static void invalidateSharedSnapshot(Context context) {
+        final SubscriptionRepository repository = getSharedInstance(context);
+        if (repository != null) {
+            repository.invalidate();
+        }
+    }
+
+    @Nullable
+    private static SubscriptionRepository getSharedInstance(Context context) {
+        final SubscriptionRepository repository;
+        synchronized (SubscriptionRepository.class) {
+            repository = sInstance;
+        }
+        if (repository == null || context.getApplicationContext() != repository.mContext) {
+            return null;
+        }
+        return repository;
+    }
+
+    @VisibleForTesting
+    SubscriptionRepository(Context context) {
+        mContext = context;
+        mSubscriptionManager = context.getSystemService(SubscriptionManager.class);
+    }
+
+    /** Share a snapshot between the controllers of the page whose lifecycle this is. */
+    public void observe(Lifecycle lifecycle) {
+        lifecycle.addObserver(new LifecycleObserver() {
+            @OnLifecycleEvent(ON_START)
+            void onStart() {
+                onPageStarted();
+            }
+
+            @OnLifecycleEvent(ON_STOP)
+            void onStop() {
+                onPageStopped();
+            }
+        });
+    }
+
+    @VisibleForTesting
+    void onPageStarted() {
+        synchronized (this) {
+            if (mStartedPageCount++ > 0) {
+                return;
+            }
+        }
+        mSubscriptionManager.addOnSubscriptionsChangedListener(mContext.getMainExecutor(),
+                mSubscriptionsChangedListener);
+        mContext.registerReceiver(mSlotStatusReceiver,
+                new IntentFilter(TelephonyManager.ACTION_SIM_SLOT_STATUS_CHANGED));
+    }
+
+    @VisibleForTesting
+    void onPageStopped() {
+        synchronized (this) {
+            if (--mStartedPageCount > 0) {
+                return;
+            }
+            mSnapshot = null;
+        }
+        mSubscriptionManager.removeOnSubscriptionsChangedListener(mSubscriptionsChangedListener);
+        mContext.unregisterReceiver(mSlotStatusReceiver);
+    }
+
+    /** Drop the snapshot, the next query takes a new one. */
+    public synchronized void invalidate() {
+        mSnapshot = null;
+    }
+
+    @Nullable
+    private synchronized SubscriptionSnapshot getSnapshot() {
+        if (mStartedPageCount == 0) {
+            return null;
+        }
+        if (mSnapshot == null) {
+            mSnapshot = new SubscriptionSnapshot(mContext, mSubscriptionManager);
+        }
+        return mSnapshot;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.content.Context;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.telephony.UiccSlotInfo;
+import android.util.SparseArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The subscriptions of the device as of one {@link
+ * SubscriptionManager.OnSubscriptionsChangedListener} callback, shared by the controllers of the
+ * network and SIM pages through {@link SubscriptionRepository}.
+ *
+ * <p>Each value is queried on first use and then kept. Callers get their own copy of lists and
+ * maps, so the snapshot itself never changes.
+ */
+public class SubscriptionSnapshot {
+    private final Context mContext;
+    private final SubscriptionManager mSubscriptionManager;
+
+    @GuardedBy("this")
+    private boolean mSelectableSubscriptionsLoaded;
+    @GuardedBy("this")
+    private List<SubscriptionInfo> mSelectableSubscriptions;
+    @GuardedBy("this")
+    private boolean mUiccSlotsInfoLoaded;
+    @GuardedBy("this")
+    private UiccSlotInfo[] mUiccSlotsInfo;
+    @GuardedBy("this")
+    private Map<Integer, CharSequence> mUniqueDisplayNames;
+    @GuardedBy("this")
+    private final SparseArray<String> mFormattedPhoneNumbers = new SparseArray<>();
+
+    SubscriptionSnapshot(Context context, SubscriptionManager subscriptionManager) {
+        mContext = context;
+        mSubscriptionManager = subscriptionManager;
+    }
+
+    /** Returns {@link SubscriptionUtil#getSelectableSubscriptionInfoList(Context)}. */
+    @Nullable
+    public synchronized List<SubscriptionInfo> getSelectableSubscriptions() {
+        if (!mSelectableSubscriptionsLoaded) {
+            mSelectableSubscriptions = SubscriptionUtil.loadSelectableSubscriptionInfoList(
+                    mContext, mSubscriptionManager,
+                    mSubscriptionManager.getAvailableSubscriptionInfoList());
+            mSelectableSubscriptionsLoaded = true;
+        }
+        return mSelectableSubscriptions != null ? new ArrayList<>(mSelectableSubscriptions) : null;
+    }
+
+    /** Returns {@link android.telephony.TelephonyManager#getUiccSlotsInfo()}. */
+    @Nullable
+    public synchronized UiccSlotInfo[] getUiccSlotsInfo() {
+        if (!mUiccSlotsInfoLoaded) {
+            mUiccSlotsInfo = SubscriptionUtil.loadUiccSlotsInfo(mContext);
+            mUiccSlotsInfoLoaded = true;
+        }
+        return mUiccSlotsInfo != null ? mUiccSlotsInfo.clone() : null;
+    }
+
+    /** Returns {@link SubscriptionUtil#getUniqueSubscriptionDisplayNames(Context)}. */
+    public synchronized Map<Integer, CharSequence> getUniqueDisplayNames() {
+        if (mUniqueDisplayNames == null) {
+            final List<SubscriptionInfo> selectable = getSelectableSubscriptions();
+            mUniqueDisplayNames = SubscriptionUtil.loadUniqueSubscriptionDisplayNames(mContext,
+                    selectable != null ? selectable : new ArrayList<>());
+        }
+        return new HashMap<>(mUniqueDisplayNames);
+    }
+
+    /** Returns {@link SubscriptionUtil#getFormattedPhoneNumber(Context, SubscriptionInfo)}. */
+    @Nullable
+    public synchronized String getFormattedPhoneNumber(SubscriptionInfo info) {
+        final int subId = info.getSubscriptionId();
+        final int index = mFormattedPhoneNumbers.indexOfKey(subId);
+        if (index >= 0) {
+            return mFormattedPhoneNumbers.valueAt(index);
+        }
+        final String phoneNumber =
+                SubscriptionUtil.loadFormattedPhoneNumber(mSubscriptionManager, info);
+        mFormattedPhoneNumbers.put(subId, phoneNumber);
+        return phoneNumber;
+    }
+}
@@ -148,6 +148,14 @@ public class SubscriptionUtil {
     }
 
     private static UiccSlotInfo [] getUiccSlotsInfo(Context context) {
+        final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(context);
+        if (snapshot != null) {
+            return snapshot.getUiccSlotsInfo();
+        }
+        return loadUiccSlotsInfo(context);
+    }
+
+    static UiccSlotInfo[] loadUiccSlotsInfo(Context context) {
         final TelephonyManager telMgr = context.getSystemService(TelephonyManager.class);
         return telMgr.getUiccSlotsInfo();
     }
@@ -254,6 +262,17 @@ public class SubscriptionUtil {
      */
     @VisibleForTesting
     public static Map<Integer, CharSequence> getUniqueSubscriptionDisplayNames(Context context) {
+        if (sAvailableResultsForTesting == null) {
+            final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(context);
+            if (snapshot != null) {
+                return snapshot.getUniqueDisplayNames();
+            }
+        }
+        return loadUniqueSubscriptionDisplayNames(context, getAvailableSubscriptions(context));
+    }
+
+    static Map<Integer, CharSequence> loadUniqueSubscriptionDisplayNames(Context context,
+            List<SubscriptionInfo> availableSubscriptions) {
         class DisplayInfo {
             public SubscriptionInfo subscriptionInfo;
             public CharSequence originalName;
@@ -262,7 +281,7 @@ public class SubscriptionUtil {
 
         // Map of SubscriptionId to DisplayName
         final Supplier<Stream<DisplayInfo>> originalInfos =
-                () -> getAvailableSubscriptions(context)
+                () -> availableSubscriptions
                 .stream()
                 .filter(i -> {
                     // Filter out null values.
@@ -405,8 +424,17 @@ public class SubscriptionUtil {
      * @return list of user selectable subscriptions.
      */
     public static List<SubscriptionInfo> getSelectableSubscriptionInfoList(Context context) {
+        final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(context);
+        if (snapshot != null) {
+            return snapshot.getSelectableSubscriptions();
+        }
         SubscriptionManager subManager = context.getSystemService(SubscriptionManager.class);
-        List<SubscriptionInfo> availableList = subManager.getAvailableSubscriptionInfoList();
+        return loadSelectableSubscriptionInfoList(context, subManager,
+                subManager.getAvailableSubscriptionInfoList());
+    }
+
+    static List<SubscriptionInfo> loadSelectableSubscriptionInfoList(Context context,
+            SubscriptionManager subManager, List<SubscriptionInfo> availableList) {
         if (availableList == null) {
             return null;
         } else {
@@ -552,8 +580,16 @@ public class SubscriptionUtil {
             return null;
         }
 
-        final SubscriptionManager subscriptionManager = context.getSystemService(
-                SubscriptionManager.class);
+        final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(context);
+        if (snapshot != null) {
+            return snapshot.getFormattedPhoneNumber(subscriptionInfo);
+        }
+        return loadFormattedPhoneNumber(
+                context.getSystemService(SubscriptionManager.class), subscriptionInfo);
+    }
+
+    static String loadFormattedPhoneNumber(SubscriptionManager subscriptionManager,
+            SubscriptionInfo subscriptionInfo) {
         String rawPhoneNumber = subscriptionManager.getPhoneNumber(
                 subscriptionInfo.getSubscriptionId());
         if (TextUtils.isEmpty(rawPhoneNumber)) {
@@ -100,6 +100,7 @@ public class SubscriptionsChangeListener extends ContentObserver {
     }
 
     private void subscriptionsChangedCallback() {
+        SubscriptionRepository.invalidateSharedSnapshot(mContext);
         mClient.onSubscriptionsChanged();
     }
 
@@ -170,6 +170,10 @@ public class ApnPreference extends Preference implements CompoundButton.OnChecke
         mSubId = subId;
     }
 
+    public int getSubId() {
+        return mSubId;
+    }
+
     /**
      * Hide details
      */
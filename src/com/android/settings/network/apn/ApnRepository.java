@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.apn;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Telephony;
+import android.telephony.SubscriptionManager;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.SettingsTaskScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the parsed APN rows and the preferred APN of one subscription.
+ *
+ * <p>Rows are read in the background, and read again whenever the carriers table changes while
+ * at least one {@link Callback} is registered. Callbacks are only told about lists that differ
+ * from the last one they got. There is one repository per subscription, so that the APN pages of
+ * both subscriptions of a dual SIM device can be open at the same time. It is dropped once its
+ * last callback is unregistered.
+ */
+public class ApnRepository {
+    private static final String TAG = "ApnRepository";
+
+    private static final String[] CARRIERS_PROJECTION = new String[] {
+            Telephony.Carriers._ID,
+            Telephony.Carriers.NAME,
+            Telephony.Carriers.APN,
+            Telephony.Carriers.TYPE,
+            Telephony.Carriers.MVNO_TYPE,
+            Telephony.Carriers.MVNO_MATCH_DATA,
+            Telephony.Carriers.EDITED_STATUS,
+    };
+
+    private static final int ID_INDEX = 0;
+    private static final int NAME_INDEX = 1;
+    private static final int APN_INDEX = 2;
+    private static final int TYPES_INDEX = 3;
+    private static final int MVNO_TYPE_INDEX = 4;
+    private static final int MVNO_MATCH_DATA_INDEX = 5;
+    private static final int EDITED_INDEX = 6;
+
+    // Emergency APNs are not shown, users should not mess with them.
+    private static final String WHERE = "NOT (type='ia' AND (apn=\"\" OR apn IS NULL)) AND "
+            + "user_visible!=0 AND NOT (type='emergency')";
+
+    // Repositories with at least one callback. Main thread only.
+    private static final SparseArray<ApnRepository> sRepositories = new SparseArray<>();
+
+    /** Receives the APN list of a subscription on the main thread. */
+    public interface Callback {
+        /**
+         * Called with the APN rows of the subscription, in display order, and the key of the
+         * preferred APN, or {@code null} if there is none.
+         */
+        void onApnListChanged(@NonNull List<ApnEntry> entries, @Nullable String selectedKey);
+    }
+
+    private final ContentResolver mContentResolver;
+    private final int mSubId;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<Callback> mCallbacks = new CopyOnWriteArrayList<>();
+    private final ContentObserver mObserver = new ContentObserver(mHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            refresh();
+        }
+    };
+
+    // Only accessed on the main thread.
+    private List<ApnEntry> mEntries;
+    private String mSelectedKey;
+    private boolean mLoading;
+    private boolean mReloadPending;
+
+    /**
+     * Returns the repository of {@code subId}. It is shared with the other callers once a callback
+     * is registered.
+     */
+    @MainThread
+    public static ApnRepository getInstance(Context context, int subId) {
+        final ApnRepository repository = sRepositories.get(subId);
+        if (repository != null) {
+            return repository;
+        }
+        return new ApnRepository(context.getApplicationContext().getContentResolver(), subId);
+    }
+
+    @VisibleForTesting
+    ApnRepository(ContentResolver contentResolver, int subId) {
+        mContentResolver = contentResolver;
+        mSubId = subId;
+    }
+
+    /**
+     * Registers {@code callback}. It is called right away with the cached list if there is one,
+     * and again whenever the list changes until {@link #removeCallback} is called.
+     */
+    @MainThread
+    public void addCallback(@NonNull Callback callback) {
+        if (mCallbacks.contains(callback)) {
+            return;
+        }
+        mCallbacks.add(callback);
+        if (mCallbacks.size() == 1) {
+            mContentResolver.registerContentObserver(Telephony.Carriers.CONTENT_URI,
+                    true /* notifyForDescendants */, mObserver);
+            if (sRepositories.get(mSubId) == null) {
+                sRepositories.put(mSubId, this);
+            }
+        }
+        if (mEntries != null) {
+            callback.onApnListChanged(mEntries, mSelectedKey);
+        }
+        refresh();
+    }
+
+    /**
+     * Unregisters {@code callback}. When it was the last one, the repository and its cached list
+     * are no longer shared, and {@link #getInstance} creates a new one for the next caller.
+     */
+    @MainThread
+    public void removeCallback(@NonNull Callback callback) {
+        if (mCallbacks.remove(callback) && mCallbacks.isEmpty()) {
+            mContentResolver.unregisterContentObserver(mObserver);
+            if (sRepositories.get(mSubId) == this) {
+                sRepositories.remove(mSubId);
+            }
+        }
+    }
+
+    /**
+     * Reads the APN list again in the background. Callbacks are only called if it changed.
+     * Requests made while a read is running are merged into a single read after it.
+     */
+    @MainThread
+    public void refresh() {
+        if (mLoading) {
+            mReloadPending = true;
+            return;
+        }
+        mLoading = true;
+        SettingsTaskScheduler.getInstance().submit(null /* owner */,
+                SettingsTaskScheduler.Priority.UI_CRITICAL, TAG + ".load", this::load,
+                result -> {
+                    mLoading = false;
+                    onLoaded(result.mEntries, result.mSelectedKey);
+                    if (mReloadPending) {
+                        mReloadPending = false;
+                        refresh();
+                    }
+                });
+    }
+
+    @VisibleForTesting
+    void onLoaded(@Nullable List<ApnEntry> entries, @Nullable String selectedKey) {
+        if (entries == null) {
+            // The provider is not available; keep what is shown.
+            return;
+        }
+        if (entries.equals(mEntries) && Objects.equals(selectedKey, mSelectedKey)) {
+            return;
+        }
+        mEntries = Collections.unmodifiableList(entries);
+        mSelectedKey = selectedKey;
+        for (Callback callback : mCallbacks) {
+            callback.onApnListChanged(mEntries, mSelectedKey);
+        }
+    }
+
+    // Never throws, so that mLoading is always cleared. On failure, the result has no entries.
+    private LoadResult load() {
+        final LoadResult result = new LoadResult();
+        final Uri simApnUri = Uri.withAppendedPath(Telephony.Carriers.SIM_APN_URI,
+                String.valueOf(mSubId));
+        try (Cursor cursor = mContentResolver.query(simApnUri, CARRIERS_PROJECTION, WHERE,
+                null /* selectionArgs */, Telephony.Carriers.DEFAULT_SORT_ORDER)) {
+            if (cursor == null) {
+                return result;
+            }
+            final List<ApnEntry> entries = parse(cursor);
+            result.mSelectedKey = loadSelectedKey();
+            result.mEntries = entries;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Error reading APNs of subscription " + mSubId, e);
+            return result;
+        }
+        return result;
+    }
+
+    @Nullable
+    private String loadSelectedKey() {
+        Uri uri = Uri.parse(ApnSettings.PREFERRED_APN_URI);
+        if (SubscriptionManager.isValidSubscriptionId(mSubId)) {
+            uri = Uri.withAppendedPath(uri, "subId/" + mSubId);
+        }
+        try (Cursor cursor = mContentResolver.query(uri, new String[] {"_id"}, null, null,
+                Telephony.Carriers.DEFAULT_SORT_ORDER)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                return cursor.getString(ID_INDEX);
+            }
+        }
+        return null;
+    }
+
+    /** Reads the rows of a cursor over {@link #CARRIERS_PROJECTION}. */
+    @VisibleForTesting
+    static List<ApnEntry> parse(Cursor cursor) {
+        final List<ApnEntry> entries = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            entries.add(new ApnEntry(
+                    cursor.getString(ID_INDEX),
+                    cursor.getString(NAME_INDEX),
+                    cursor.getString(APN_INDEX),
+                    cursor.getString(TYPES_INDEX),
+                    cursor.getString(MVNO_TYPE_INDEX),
+                    cursor.getString(MVNO_MATCH_DATA_INDEX),
+                    cursor.getInt(EDITED_INDEX)));
+        }
+        return entries;
+    }
+
+    private static class LoadResult {
+        List<ApnEntry> mEntries;
+        String mSelectedKey;
+    }
+
+    /** One row of the carriers table, as shown in the APN list. */
+    public static class ApnEntry {
+        private final String mKey;
+        private final String mName;
+        private final String mApn;
+        private final String mType;
+        private final String mMvnoType;
+        private final String mMvnoMatchData;
+        private final int mEditedStatus;
+
+        @VisibleForTesting
+        ApnEntry(String key, String name, String apn, String type, String mvnoType,
+                String mvnoMatchData, int editedStatus) {
+            mKey = key;
+            mName = name;
+            mApn = apn;
+            mType = type;
+            mMvnoType = mvnoType;
+            mMvnoMatchData = mvnoMatchData;
+            mEditedStatus = editedStatus;
+        }
+
+        /** Returns the row id, used as preference key. */
+        public String getKey() {
+            return mKey;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public String getApn() {
+            return mApn;
+        }
+
+        public String getType() {
+            return mType;
+        }
+
+        public String getMvnoType() {
+            return mMvnoType;
+        }
+
+        public String getMvnoMatchData() {
+            return mMvnoMatchData;
+        }
+
+        /** Returns one of the {@code Telephony.Carriers} edited status values. */
+        public int getEditedStatus() {
+            return mEditedStatus;
+        }
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ApnEntry)) {
+                return false;
+            }
+            final ApnEntry other = (ApnEntry) o;
+            return mEditedStatus == other.mEditedStatus
+                    && Objects.equals(mKey, other.mKey)
+                    && Objects.equals(mName, other.mName)
+                    && Objects.equals(mApn, other.mApn)
+                    && Objects.equals(mType, other.mType)
+                    && Objects.equals(mMvnoType, other.mMvnoType)
+                    && Objects.equals(mMvnoMatchData, other.mMvnoMatchData);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mKey, mName, mApn, mType, mMvnoType, mMvnoMatchData,
+                    mEditedStatus);
+        }
+    }
+}
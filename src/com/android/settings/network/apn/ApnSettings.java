@@ -26,7 +26,6 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
@@ -45,6 +44,7 @@ import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.telephony.data.ApnSetting;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -58,13 +58,16 @@ import androidx.preference.PreferenceGroup;
 import com.android.settings.R;
 import com.android.settings.RestrictedSettingsFragment;
 import com.android.settings.network.SubscriptionUtil;
+import com.android.settings.network.apn.ApnRepository.ApnEntry;
 import com.android.settingslib.RestrictedLockUtils.EnforcedAdmin;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /** Handle each different apn setting. */
 public class ApnSettings extends RestrictedSettingsFragment
-        implements Preference.OnPreferenceChangeListener {
+        implements Preference.OnPreferenceChangeListener, ApnRepository.Callback {
     static final String TAG = "ApnSettings";
 
     public static final String EXTRA_POSITION = "position";
@@ -78,16 +81,6 @@ public class ApnSettings extends RestrictedSettingsFragment
     public static final String MVNO_TYPE = "mvno_type";
     public static final String MVNO_MATCH_DATA = "mvno_match_data";
 
-    private static final String[] CARRIERS_PROJECTION = new String[] {
-            Telephony.Carriers._ID,
-            Telephony.Carriers.NAME,
-            Telephony.Carriers.APN,
-            Telephony.Carriers.TYPE,
-            Telephony.Carriers.MVNO_TYPE,
-            Telephony.Carriers.MVNO_MATCH_DATA,
-            Telephony.Carriers.EDITED_STATUS,
-    };
-
     /** Copied from {@code com.android.internal.telephony.TelephonyIntents} */
     private static final String ACTION_SIM_STATE_CHANGED =
             "android.intent.action.SIM_STATE_CHANGED";
@@ -95,14 +88,6 @@ public class ApnSettings extends RestrictedSettingsFragment
     public static final String INTENT_KEY_ICC_STATE = "ss";
     public static final String INTENT_VALUE_ICC_ABSENT = "ABSENT";
 
-    private static final int ID_INDEX = 0;
-    private static final int NAME_INDEX = 1;
-    private static final int APN_INDEX = 2;
-    private static final int TYPES_INDEX = 3;
-    private static final int MVNO_TYPE_INDEX = 4;
-    private static final int MVNO_MATCH_DATA_INDEX = 5;
-    private static final int EDITED_INDEX = 6;
-
     private static final int MENU_NEW = Menu.FIRST;
     private static final int MENU_RESTORE = Menu.FIRST + 1;
 
@@ -128,6 +113,9 @@ public class ApnSettings extends RestrictedSettingsFragment
     private String mMvnoMatchData;
 
     private String mSelectedKey;
+    private ApnRepository mApnRepository;
+    // The entries shown by each ApnPreference, by key.
+    private final Map<String, ApnEntry> mShownEntries = new ArrayMap<>();
 
     private IntentFilter mIntentFilter;
 
@@ -147,7 +135,9 @@ public class ApnSettings extends RestrictedSettingsFragment
                 PreciseDataConnectionState dataConnectionState) {
             if (dataConnectionState.getState() == TelephonyManager.DATA_CONNECTED) {
                 if (!mRestoreDefaultApnMode) {
-                    fillList();
+                    if (mApnRepository != null) {
+                        mApnRepository.refresh();
+                    }
                 } else {
                     showDialog(DIALOG_RESTORE_DEFAULTAPN);
                 }
@@ -181,8 +171,11 @@ public class ApnSettings extends RestrictedSettingsFragment
                     mSubId = extraSubId;
                     mSubscriptionInfo = getSubscriptionInfo(mSubId);
                     restartPhoneStateListener(mSubId);
+                    setApnRepository(getCurrentSubId());
+                }
+                if (mApnRepository != null) {
+                    mApnRepository.refresh();
                 }
-                fillList();
             }
         }
     };
@@ -272,8 +265,9 @@ public class ApnSettings extends RestrictedSettingsFragment
 
         restartPhoneStateListener(mSubId);
 
+        // While restoring, the list is bound once the restore completes.
         if (!mRestoreDefaultApnMode) {
-            fillList();
+            setApnRepository(getCurrentSubId());
         }
     }
 
@@ -289,6 +283,11 @@ public class ApnSettings extends RestrictedSettingsFragment
 
         mTelephonyManager.listen(mPhoneStateListener,
                 PhoneStateListener.LISTEN_NONE);
+
+        if (mApnRepository != null) {
+            mApnRepository.removeCallback(this);
+            mApnRepository = null;
+        }
     }
 
     @Override
@@ -315,80 +314,109 @@ public class ApnSettings extends RestrictedSettingsFragment
         return SubscriptionManager.from(getActivity()).getActiveSubscriptionInfo(subId);
     }
 
-    private void fillList() {
-        final int subId = mSubscriptionInfo != null ? mSubscriptionInfo.getSubscriptionId()
+    private int getCurrentSubId() {
+        return mSubscriptionInfo != null ? mSubscriptionInfo.getSubscriptionId()
                 : SubscriptionManager.INVALID_SUBSCRIPTION_ID;
-        final Uri simApnUri = Uri.withAppendedPath(Telephony.Carriers.SIM_APN_URI,
-                String.valueOf(subId));
-        final StringBuilder where =
-                new StringBuilder("NOT (type='ia' AND (apn=\"\" OR apn IS NULL)) AND "
-                + "user_visible!=0");
-        // Remove Emergency type, users should not mess with that
-        where.append(" AND NOT (type='emergency')");
-
-        if (mHideImsApn) {
-            where.append(" AND NOT (type='ims')");
-        }
+    }
 
-        final Cursor cursor = getContentResolver().query(simApnUri,
-                CARRIERS_PROJECTION, where.toString(), null,
-                Telephony.Carriers.DEFAULT_SORT_ORDER);
-
-        if (cursor != null) {
-            final PreferenceGroup apnPrefList = (PreferenceGroup) findPreference("apn_list");
-            apnPrefList.removeAll();
-
-            final ArrayList<ApnPreference> apnList = new ArrayList<ApnPreference>();
-            final ArrayList<ApnPreference> mmsApnList = new ArrayList<ApnPreference>();
-
-            mSelectedKey = getSelectedApnKey();
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast()) {
-                final String name = cursor.getString(NAME_INDEX);
-                final String apn = cursor.getString(APN_INDEX);
-                final String key = cursor.getString(ID_INDEX);
-                final String type = cursor.getString(TYPES_INDEX);
-                final int edited = cursor.getInt(EDITED_INDEX);
-                mMvnoType = cursor.getString(MVNO_TYPE_INDEX);
-                mMvnoMatchData = cursor.getString(MVNO_MATCH_DATA_INDEX);
-
-                final ApnPreference pref = new ApnPreference(getPrefContext());
-
-                pref.setKey(key);
-                pref.setTitle(name);
-                pref.setPersistent(false);
-                pref.setOnPreferenceChangeListener(this);
-                pref.setSubId(subId);
-                if (mHidePresetApnDetails && edited == Telephony.Carriers.UNEDITED) {
-                    pref.setHideDetails();
-                } else {
-                    pref.setSummary(apn);
-                }
+    private void setApnRepository(int subId) {
+        final ApnRepository apnRepository = ApnRepository.getInstance(getActivity(), subId);
+        if (apnRepository == mApnRepository) {
+            return;
+        }
+        if (mApnRepository != null) {
+            mApnRepository.removeCallback(this);
+        }
+        mApnRepository = apnRepository;
+        mApnRepository.addCallback(this);
+    }
 
-                final boolean selectable =
-                        ((type == null) || type.contains(ApnSetting.TYPE_DEFAULT_STRING));
-                pref.setSelectable(selectable);
-                if (selectable) {
-                    if ((mSelectedKey != null) && mSelectedKey.equals(key)) {
-                        pref.setChecked();
-                    }
-                    apnList.add(pref);
-                } else {
-                    mmsApnList.add(pref);
-                }
-                cursor.moveToNext();
+    @Override
+    public void onApnListChanged(List<ApnEntry> entries, String selectedKey) {
+        final PreferenceGroup apnPrefList = (PreferenceGroup) findPreference("apn_list");
+        if (apnPrefList == null) {
+            return;
+        }
+        final int subId = getCurrentSubId();
+        final String shownSelectedKey = mSelectedKey;
+        mSelectedKey = selectedKey;
+
+        final List<ApnEntry> apnList = new ArrayList<>();
+        final List<ApnEntry> mmsApnList = new ArrayList<>();
+        for (ApnEntry entry : entries) {
+            if (mHideImsApn && "ims".equals(entry.getType())) {
+                continue;
             }
-            cursor.close();
-
-            for (Preference preference : apnList) {
-                apnPrefList.addPreference(preference);
+            mMvnoType = entry.getMvnoType();
+            mMvnoMatchData = entry.getMvnoMatchData();
+            if (isSelectable(entry)) {
+                apnList.add(entry);
+            } else {
+                mmsApnList.add(entry);
+            }
+        }
+        apnList.addAll(mmsApnList);
+
+        // Keep the rows whose entry and checked state did not change, and replace the others.
+        final Map<String, ApnEntry> shownEntries = new ArrayMap<>(mShownEntries);
+        mShownEntries.clear();
+        for (int i = 0; i < apnList.size(); i++) {
+            final ApnEntry entry = apnList.get(i);
+            ApnPreference pref = apnPrefList.findPreference(entry.getKey());
+            if (pref != null && (!entry.equals(shownEntries.get(entry.getKey()))
+                    || pref.getSubId() != subId
+                    || isSelected(entry, shownSelectedKey) != isSelected(entry, selectedKey))) {
+                apnPrefList.removePreference(pref);
+                pref = null;
             }
-            for (Preference preference : mmsApnList) {
-                apnPrefList.addPreference(preference);
+            if (pref == null) {
+                pref = createApnPreference(entry, subId);
+                pref.setOrder(i);
+                apnPrefList.addPreference(pref);
+            } else {
+                pref.setOrder(i);
+            }
+            mShownEntries.put(entry.getKey(), entry);
+        }
+        for (int i = apnPrefList.getPreferenceCount() - 1; i >= 0; i--) {
+            final Preference preference = apnPrefList.getPreference(i);
+            if (!mShownEntries.containsKey(preference.getKey())) {
+                apnPrefList.removePreference(preference);
             }
         }
     }
 
+    private ApnPreference createApnPreference(ApnEntry entry, int subId) {
+        final ApnPreference pref = new ApnPreference(getPrefContext());
+
+        pref.setKey(entry.getKey());
+        pref.setTitle(entry.getName());
+        pref.setPersistent(false);
+        pref.setOnPreferenceChangeListener(this);
+        pref.setSubId(subId);
+        if (mHidePresetApnDetails && entry.getEditedStatus() == Telephony.Carriers.UNEDITED) {
+            pref.setHideDetails();
+        } else {
+            pref.setSummary(entry.getApn());
+        }
+
+        final boolean selectable = isSelectable(entry);
+        pref.setSelectable(selectable);
+        if (isSelected(entry, mSelectedKey)) {
+            pref.setChecked();
+        }
+        return pref;
+    }
+
+    private static boolean isSelectable(ApnEntry entry) {
+        return (entry.getType() == null)
+                || entry.getType().contains(ApnSetting.TYPE_DEFAULT_STRING);
+    }
+
+    private static boolean isSelected(ApnEntry entry, String selectedKey) {
+        return isSelectable(entry) && entry.getKey().equals(selectedKey);
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         if (!mUnavailable) {
@@ -453,19 +481,6 @@ public class ApnSettings extends RestrictedSettingsFragment
         resolver.update(getUriForCurrSubId(PREFERAPN_URI), values, null, null);
     }
 
-    private String getSelectedApnKey() {
-        String key = null;
-
-        final Cursor cursor = getContentResolver().query(getUriForCurrSubId(PREFERAPN_URI),
-                new String[] {"_id"}, null, null, Telephony.Carriers.DEFAULT_SORT_ORDER);
-        if (cursor.getCount() > 0) {
-            cursor.moveToFirst();
-            key = cursor.getString(ID_INDEX);
-        }
-        cursor.close();
-        return key;
-    }
-
     private boolean restoreDefaultApn() {
         // Callback of data connection change could be some noise during the stage of restore.
         mTelephonyManager.listen(mPhoneStateListener, PhoneStateListener.LISTEN_NONE);
@@ -511,7 +526,11 @@ public class ApnSettings extends RestrictedSettingsFragment
                         mRestoreDefaultApnMode = false;
                         return;
                     }
-                    fillList();
+                    if (mApnRepository != null) {
+                        mApnRepository.refresh();
+                    } else if (isResumed()) {
+                        setApnRepository(getCurrentSubId());
+                    }
                     getPreferenceScreen().setEnabled(true);
                     mRestoreDefaultApnMode = false;
                     removeDialog(DIALOG_RESTORE_DEFAULTAPN);
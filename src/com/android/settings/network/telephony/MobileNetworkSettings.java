@@ -43,6 +43,7 @@ import com.android.settings.datausage.BillingCyclePreferenceController;
 import com.android.settings.datausage.DataUsageSummaryPreferenceController;
 import com.android.settings.network.ActiveSubscriptionsListener;
 import com.android.settings.network.CarrierWifiTogglePreferenceController;
+import com.android.settings.network.SubscriptionRepository;
 import com.android.settings.network.SubscriptionUtil;
 import com.android.settings.network.telephony.cdma.CdmaSubscriptionPreferenceController;
 import com.android.settings.network.telephony.cdma.CdmaSystemSelectPreferenceController;
@@ -150,6 +151,7 @@ public class MobileNetworkSettings extends AbstractMobileNetworkSettings {
 
     @Override
     public void onAttach(Context context) {
+        SubscriptionRepository.getInstance(context).observe(getSettingsLifecycle());
         super.onAttach(context);
 
         Intent intent = getIntent();
@@ -17,52 +17,51 @@
 package com.android.settings.network.telephony;
 
 import android.content.Context;
-import android.telephony.PhoneStateListener;
 import android.telephony.SignalStrength;
-import android.telephony.TelephonyCallback;
-import android.telephony.TelephonyManager;
 import android.util.ArraySet;
 
 import androidx.annotation.VisibleForTesting;
 
 import com.google.common.collect.Sets;
 
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 /** Helper class to manage listening to signal strength changes on a set of mobile network
- *  subscriptions */
+ *  subscriptions. The telephony callbacks are shared through {@link TelephonyEventHub}. */
 public class SignalStrengthListener {
 
-    private TelephonyManager mBaseTelephonyManager;
-    private Callback mCallback;
-    private Context mContext;
+    private final TelephonyEventHub mTelephonyEventHub;
+    private final Callback mCallback;
     @VisibleForTesting
-    Map<Integer, SignalStrengthTelephonyCallback> mTelephonyCallbacks;
+    final Set<Integer> mSubscriptionIds = new ArraySet<>();
+    @VisibleForTesting
+    final TelephonyEventHub.Listener mHubListener = new TelephonyEventHub.Listener() {
+        @Override
+        public void onSignalStrengthsChanged(int subId, SignalStrength signalStrength) {
+            mCallback.onSignalStrengthChanged();
+        }
+    };
 
     public interface Callback {
         void onSignalStrengthChanged();
     }
 
     public SignalStrengthListener(Context context, Callback callback) {
-        mBaseTelephonyManager = context.getSystemService(TelephonyManager.class);
+        mTelephonyEventHub = TelephonyEventHub.getInstance(context);
         mCallback = callback;
-        mContext = context;
-        mTelephonyCallbacks = new TreeMap<>();
     }
 
     /** Resumes listening for signal strength changes for the set of ids from the last call to
      * {@link #updateSubscriptionIds(Set)}  */
     public void resume() {
-        for (int subId : mTelephonyCallbacks.keySet()) {
+        for (int subId : mSubscriptionIds) {
             startListening(subId);
         }
     }
 
     /** Pauses listening for signal strength changes */
     public void pause() {
-        for (int subId : mTelephonyCallbacks.keySet()) {
+        for (int subId : mSubscriptionIds) {
             stopListening(subId);
         }
     }
@@ -70,36 +69,23 @@ public class SignalStrengthListener {
     /** Updates the set of ids we want to be listening for, beginning to listen for any new ids and
      * stopping listening for any ids not contained in the new set */
     public void updateSubscriptionIds(Set<Integer> ids) {
-        Set<Integer> currentIds = new ArraySet<>(mTelephonyCallbacks.keySet());
+        Set<Integer> currentIds = new ArraySet<>(mSubscriptionIds);
         for (int idToRemove : Sets.difference(currentIds, ids)) {
             stopListening(idToRemove);
-            mTelephonyCallbacks.remove(idToRemove);
+            mSubscriptionIds.remove(idToRemove);
         }
         for (int idToAdd : Sets.difference(ids, currentIds)) {
-            SignalStrengthTelephonyCallback telephonyCallback =
-                    new SignalStrengthTelephonyCallback();
-            mTelephonyCallbacks.put(idToAdd, telephonyCallback);
+            mSubscriptionIds.add(idToAdd);
             startListening(idToAdd);
         }
     }
 
-    @VisibleForTesting
-    class SignalStrengthTelephonyCallback extends TelephonyCallback implements
-            TelephonyCallback.SignalStrengthsListener {
-        @Override
-        public void onSignalStrengthsChanged(SignalStrength signalStrength) {
-            mCallback.onSignalStrengthChanged();
-        }
-    }
-
     private void startListening(int subId) {
-        TelephonyManager mgr = mBaseTelephonyManager.createForSubscriptionId(subId);
-        mgr.registerTelephonyCallback(
-                mContext.getMainExecutor(), mTelephonyCallbacks.get(subId));
+        mTelephonyEventHub.addListener(subId, TelephonyEventHub.EVENT_SIGNAL_STRENGTH,
+                mHubListener);
     }
 
     private void stopListening(int subId) {
-        TelephonyManager mgr = mBaseTelephonyManager.createForSubscriptionId(subId);
-        mgr.unregisterTelephonyCallback(mTelephonyCallbacks.get(subId));
+        mTelephonyEventHub.removeListener(subId, mHubListener);
     }
 }
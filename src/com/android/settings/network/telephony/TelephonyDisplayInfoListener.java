@@ -17,7 +17,6 @@
 package com.android.settings.network.telephony;
 
 import android.content.Context;
-import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyDisplayInfo;
 import android.telephony.TelephonyManager;
 import android.util.ArraySet;
@@ -29,15 +28,25 @@ import java.util.Map;
 import java.util.Set;
 
 /**
- * Help to listen telephony display info change to subscriptions.
+ * Help to listen telephony display info change to subscriptions. The telephony callbacks are
+ * shared through {@link TelephonyEventHub}.
  * TODO(b/177647571): unit test is needed.
  */
 public class TelephonyDisplayInfoListener {
 
-    private TelephonyManager mBaseTelephonyManager;
+    private TelephonyEventHub mTelephonyEventHub;
     private Callback mCallback;
-    private Map<Integer, PhoneStateListener> mListeners;
     private Map<Integer, TelephonyDisplayInfo> mDisplayInfos;
+    private final TelephonyEventHub.Listener mHubListener = new TelephonyEventHub.Listener() {
+        @Override
+        public void onDisplayInfoChanged(int subId, TelephonyDisplayInfo displayInfo) {
+            if (!mDisplayInfos.containsKey(subId)) {
+                return;
+            }
+            mDisplayInfos.put(subId, displayInfo);
+            mCallback.onTelephonyDisplayInfoChanged(subId, displayInfo);
+        }
+    };
 
     private static final TelephonyDisplayInfo mDefaultTelephonyDisplayInfo =
             new TelephonyDisplayInfo(TelephonyManager.NETWORK_TYPE_UNKNOWN,
@@ -53,9 +62,8 @@ public class TelephonyDisplayInfoListener {
     }
 
     public TelephonyDisplayInfoListener(Context context, Callback callback) {
-        mBaseTelephonyManager = context.getSystemService(TelephonyManager.class);
+        mTelephonyEventHub = TelephonyEventHub.getInstance(context);
         mCallback = callback;
-        mListeners = new HashMap<>();
         mDisplayInfos = new HashMap<>();
     }
     /**
@@ -68,14 +76,14 @@ public class TelephonyDisplayInfoListener {
     /** Resumes listening telephony display info changes to the set of ids from the last call to
      * {@link #updateSubscriptionIds(Set)}  */
     public void resume() {
-        for (int subId : mListeners.keySet()) {
+        for (int subId : mDisplayInfos.keySet()) {
             startListening(subId);
         }
     }
 
     /** Pauses listening for telephony display info changes */
     public void pause() {
-        for (int subId : mListeners.keySet()) {
+        for (int subId : mDisplayInfos.keySet()) {
             stopListening(subId);
         }
     }
@@ -83,33 +91,22 @@ public class TelephonyDisplayInfoListener {
     /** Updates the set of ids we want to be listening for, beginning to listen for any new ids and
      * stopping listening for any ids not contained in the new set */
     public void updateSubscriptionIds(Set<Integer> ids) {
-        Set<Integer> currentIds = new ArraySet<>(mListeners.keySet());
+        Set<Integer> currentIds = new ArraySet<>(mDisplayInfos.keySet());
         for (int idToRemove : Sets.difference(currentIds, ids)) {
             stopListening(idToRemove);
-            mListeners.remove(idToRemove);
             mDisplayInfos.remove(idToRemove);
         }
         for (int idToAdd : Sets.difference(ids, currentIds)) {
-            PhoneStateListener listener = new PhoneStateListener() {
-                @Override
-                public void onDisplayInfoChanged(TelephonyDisplayInfo telephonyDisplayInfo) {
-                    mDisplayInfos.put(idToAdd, telephonyDisplayInfo);
-                    mCallback.onTelephonyDisplayInfoChanged(idToAdd, telephonyDisplayInfo);
-                }
-            };
             mDisplayInfos.put(idToAdd, mDefaultTelephonyDisplayInfo);
-            mListeners.put(idToAdd, listener);
             startListening(idToAdd);
         }
     }
 
     private void startListening(int subId) {
-        TelephonyManager mgr = mBaseTelephonyManager.createForSubscriptionId(subId);
-        mgr.listen(mListeners.get(subId), PhoneStateListener.LISTEN_DISPLAY_INFO_CHANGED);
+        mTelephonyEventHub.addListener(subId, TelephonyEventHub.EVENT_DISPLAY_INFO, mHubListener);
     }
 
     private void stopListening(int subId) {
-        TelephonyManager mgr = mBaseTelephonyManager.createForSubscriptionId(subId);
-        mgr.listen(mListeners.get(subId), PhoneStateListener.LISTEN_NONE);
+        mTelephonyEventHub.removeListener(subId, mHubListener);
     }
 }
@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerExecutor;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.telephony.SignalStrength;
+import android.telephony.TelephonyCallback;
+import android.telephony.TelephonyDisplayInfo;
+import android.telephony.TelephonyManager;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+import android.util.SparseLongArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares the telephony callbacks of each subscription between every listener in the process.
+ *
+ * <p>Telephony is called once per subscription and event type, whatever the number of listeners,
+ * and the callback is unregistered with the last listener of that type. A listener added later
+ * gets the last event right away. Signal strength and display info changes are delivered at most
+ * once per {@link #FRAME_INTERVAL_MS}, with the latest value.
+ *
+ * <p>Listeners are called on the main thread.
+ */
+public class TelephonyEventHub {
+    /** Listen to {@link Listener#onSignalStrengthsChanged}. */
+    public static final int EVENT_SIGNAL_STRENGTH = 1 << 0;
+    /** Listen to {@link Listener#onDisplayInfoChanged}. */
+    public static final int EVENT_DISPLAY_INFO = 1 << 1;
+    /** Listen to {@link Listener#onAllowedNetworkTypesChanged}. */
+    public static final int EVENT_ALLOWED_NETWORK_TYPES = 1 << 2;
+
+    @VisibleForTesting
+    static final long FRAME_INTERVAL_MS = 16;
+
+    private static TelephonyEventHub sInstance;
+
+    /** Receives the events of one subscription. */
+    public interface Listener {
+        /** Called with the latest signal strength of {@code subId}. */
+        default void onSignalStrengthsChanged(int subId, SignalStrength signalStrength) {
+        }
+
+        /** Called with the latest display info of {@code subId}. */
+        default void onDisplayInfoChanged(int subId, TelephonyDisplayInfo displayInfo) {
+        }
+
+        /** Called on every change of the allowed network types of {@code subId}. */
+        default void onAllowedNetworkTypesChanged(int subId, int reason,
+                long allowedNetworkTypes) {
+        }
+    }
+
+    private final TelephonyManager mTelephonyManager;
+    private final Handler mHandler;
+    @GuardedBy("this")
+    private final SparseArray<SubscriptionEvents> mSubscriptions = new SparseArray<>();
+
+    /** Returns the process wide instance. */
+    public static synchronized TelephonyEventHub getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            sInstance = new TelephonyEventHub(appContext.getSystemService(TelephonyManager.class),
+                    new Handler(Looper.getMainLooper()));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    public static synchronized void setInstanceForTesting(@Nullable TelephonyEventHub hub) {
+        sInstance = hub;
+    }
+
+    @VisibleForTesting
+    TelephonyEventHub(TelephonyManager telephonyManager, Handler handler) {
+        mTelephonyManager = telephonyManager;
+        mHandler = handler;
+    }
+
+    /**
+     * Starts delivering the {@code events} of {@code subId} to {@code listener}, a combination of
+     * {@link #EVENT_SIGNAL_STRENGTH}, {@link #EVENT_DISPLAY_INFO} and
+     * {@link #EVENT_ALLOWED_NETWORK_TYPES}. Adding a listener again replaces its events.
+     */
+    public synchronized void addListener(int subId, int events, Listener listener) {
+        SubscriptionEvents subscription = mSubscriptions.get(subId);
+        if (subscription == null) {
+            subscription = new SubscriptionEvents(subId);
+            mSubscriptions.put(subId, subscription);
+        }
+        subscription.setListener(listener, events);
+    }
+
+    /** Stops delivering the events of {@code subId} to {@code listener}. */
+    public synchronized void removeListener(int subId, Listener listener) {
+        final SubscriptionEvents subscription = mSubscriptions.get(subId);
+        if (subscription == null) {
+            return;
+        }
+        subscription.setListener(listener, 0 /* events */);
+        if (subscription.isEmpty()) {
+            mSubscriptions.remove(subId);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized boolean isRegistered(int subId, int event) {
+        final SubscriptionEvents subscription = mSubscriptions.get(subId);
+        return subscription != null && (subscription.mRegisteredEvents & event) != 0;
+    }
+
+    private class SubscriptionEvents {
+        private final int mSubId;
+        private final TelephonyManager mSubTelephonyManager;
+        private final Map<Listener, Integer> mListeners = new ArrayMap<>();
+        private final SignalStrengthCallback mSignalStrengthCallback =
+                new SignalStrengthCallback();
+        private final DisplayInfoCallback mDisplayInfoCallback = new DisplayInfoCallback();
+        private final AllowedNetworkTypesCallback mAllowedNetworkTypesCallback =
+                new AllowedNetworkTypesCallback();
+        private final Runnable mDispatchFrame = this::dispatchFrame;
+        private int mRegisteredEvents;
+
+        // The last events, replayed to new listeners.
+        private SignalStrength mSignalStrength;
+        private TelephonyDisplayInfo mDisplayInfo;
+        private final SparseLongArray mAllowedNetworkTypes = new SparseLongArray();
+        // The coalesced events not delivered yet.
+        private int mPendingEvents;
+        private long mLastFrameMillis;
+
+        SubscriptionEvents(int subId) {
+            mSubId = subId;
+            mSubTelephonyManager = mTelephonyManager.createForSubscriptionId(subId);
+        }
+
+        boolean isEmpty() {
+            return mListeners.isEmpty();
+        }
+
+        @GuardedBy("TelephonyEventHub.this")
+        void setListener(Listener listener, int events) {
+            final Integer oldEvents = mListeners.get(listener);
+            if (events == 0) {
+                mListeners.remove(listener);
+            } else {
+                mListeners.put(listener, events);
+                final int addedEvents = events & ~(oldEvents != null ? oldEvents : 0);
+                if (hasLastEvent(addedEvents)) {
+                    mHandler.post(() -> replay(listener, addedEvents));
+                }
+            }
+            int neededEvents = 0;
+            for (int listenerEvents : mListeners.values()) {
+                neededEvents |= listenerEvents;
+            }
+            updateRegistration(EVENT_SIGNAL_STRENGTH, neededEvents, mSignalStrengthCallback);
+            updateRegistration(EVENT_DISPLAY_INFO, neededEvents, mDisplayInfoCallback);
+            updateRegistration(EVENT_ALLOWED_NETWORK_TYPES, neededEvents,
+                    mAllowedNetworkTypesCallback);
+        }
+
+        @GuardedBy("TelephonyEventHub.this")
+        private boolean hasLastEvent(int events) {
+            return ((events & EVENT_SIGNAL_STRENGTH) != 0 && mSignalStrength != null)
+                    || ((events & EVENT_DISPLAY_INFO) != 0 && mDisplayInfo != null)
+                    || ((events & EVENT_ALLOWED_NETWORK_TYPES) != 0
+                            && mAllowedNetworkTypes.size() > 0);
+        }
+
+        @GuardedBy("TelephonyEventHub.this")
+        private void updateRegistration(int event, int neededEvents, TelephonyCallback callback) {
+            final boolean needed = (neededEvents & event) != 0;
+            final boolean registered = (mRegisteredEvents & event) != 0;
+            if (needed == registered) {
+                return;
+            }
+            if (needed) {
+                mSubTelephonyManager.registerTelephonyCallback(new HandlerExecutor(mHandler),
+                        callback);
+                mRegisteredEvents |= event;
+            } else {
+                mSubTelephonyManager.unregisterTelephonyCallback(callback);
+                mRegisteredEvents &= ~event;
+                forget(event);
+            }
+        }
+
+        @GuardedBy("TelephonyEventHub.this")
+        private void forget(int event) {
+            switch (event) {
+                case EVENT_SIGNAL_STRENGTH:
+                    mSignalStrength = null;
+                    break;
+                case EVENT_DISPLAY_INFO:
+                    mDisplayInfo = null;
+                    break;
+                case EVENT_ALLOWED_NETWORK_TYPES:
+                    mAllowedNetworkTypes.clear();
+                    break;
+            }
+            mPendingEvents &= ~event;
+        }
+
+        private void replay(Listener listener, int events) {
+            final SignalStrength signalStrength;
+            final TelephonyDisplayInfo displayInfo;
+            final SparseLongArray allowedNetworkTypes;
+            synchronized (TelephonyEventHub.this) {
+                final Integer currentEvents = mListeners.get(listener);
+                if (currentEvents == null) {
+                    return;
+                }
+                events &= currentEvents;
+                signalStrength = mSignalStrength;
+                displayInfo = mDisplayInfo;
+                allowedNetworkTypes = mAllowedNetworkTypes.clone();
+            }
+            if ((events & EVENT_SIGNAL_STRENGTH) != 0 && signalStrength != null) {
+                listener.onSignalStrengthsChanged(mSubId, signalStrength);
+            }
+            if ((events & EVENT_DISPLAY_INFO) != 0 && displayInfo != null) {
+                listener.onDisplayInfoChanged(mSubId, displayInfo);
+            }
+            if ((events & EVENT_ALLOWED_NETWORK_TYPES) != 0) {
+                for (int i = 0; i < allowedNetworkTypes.size(); i++) {
+                    listener.onAllowedNetworkTypesChanged(mSubId, allowedNetworkTypes.keyAt(i),
+                            allowedNetworkTypes.valueAt(i));
+                }
+            }
+        }
+
+        // Called on the main thread by the telephony callbacks.
+        private void onFrameEvent(int event) {
+            final long now = SystemClock.uptimeMillis();
+            synchronized (TelephonyEventHub.this) {
+                final boolean scheduled = mPendingEvents != 0;
+                mPendingEvents |= event;
+                if (scheduled) {
+                    return;
+                }
+                final long nextFrameMillis = mLastFrameMillis + FRAME_INTERVAL_MS;
+                if (now < nextFrameMillis) {
+                    mHandler.postAtTime(mDispatchFrame, nextFrameMillis);
+                    return;
+                }
+            }
+            dispatchFrame();
+        }
+
+        private void dispatchFrame() {
+            final int events;
+            final SignalStrength signalStrength;
+            final TelephonyDisplayInfo displayInfo;
+            final List<Map.Entry<Listener, Integer>> listeners;
+            synchronized (TelephonyEventHub.this) {
+                events = mPendingEvents;
+                mPendingEvents = 0;
+                mLastFrameMillis = SystemClock.uptimeMillis();
+                signalStrength = mSignalStrength;
+                displayInfo = mDisplayInfo;
+                listeners = new ArrayList<>(mListeners.entrySet());
+            }
+            for (Map.Entry<Listener, Integer> entry : listeners) {
+                final int listenerEvents = entry.getValue() & events;
+                if ((listenerEvents & EVENT_SIGNAL_STRENGTH) != 0 && signalStrength != null) {
+                    entry.getKey().onSignalStrengthsChanged(mSubId, signalStrength);
+                }
+                if ((listenerEvents & EVENT_DISPLAY_INFO) != 0 && displayInfo != null) {
+                    entry.getKey().onDisplayInfoChanged(mSubId, displayInfo);
+                }
+            }
+        }
+
+        private class SignalStrengthCallback extends TelephonyCallback implements
+                TelephonyCallback.SignalStrengthsListener {
+            @Override
+            public void onSignalStrengthsChanged(SignalStrength signalStrength) {
+                synchronized (TelephonyEventHub.this) {
+                    mSignalStrength = signalStrength;
+                }
+                onFrameEvent(EVENT_SIGNAL_STRENGTH);
+            }
+        }
+
+        private class DisplayInfoCallback extends TelephonyCallback implements
+                TelephonyCallback.DisplayInfoListener {
+            @Override
+            public void onDisplayInfoChanged(TelephonyDisplayInfo displayInfo) {
+                synchronized (TelephonyEventHub.this) {
+                    mDisplayInfo = displayInfo;
+                }
+                onFrameEvent(EVENT_DISPLAY_INFO);
+            }
+        }
+
+        private class AllowedNetworkTypesCallback extends TelephonyCallback implements
+                TelephonyCallback.AllowedNetworkTypesListener {
+            @Override
+            public void onAllowedNetworkTypesChanged(int reason, long allowedNetworkTypes) {
+                final List<Listener> listeners = new ArrayList<>();
+                synchronized (TelephonyEventHub.this) {
+                    mAllowedNetworkTypes.put(reason, allowedNetworkTypes);
+                    for (Map.Entry<Listener, Integer> entry : mListeners.entrySet()) {
+                        if ((entry.getValue() & EVENT_ALLOWED_NETWORK_TYPES) != 0) {
+                            listeners.add(entry.getKey());
+                        }
+                    }
+                }
+                for (Listener listener : listeners) {
+                    listener.onAllowedNetworkTypesChanged(mSubId, reason, allowedNetworkTypes);
+                }
+            }
+        }
+    }
+}
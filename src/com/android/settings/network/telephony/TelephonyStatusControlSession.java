@@ -16,35 +16,81 @@
 
 package com.android.settings.network.telephony;
 
+import android.os.Process;
+import android.os.SystemClock;
+import android.telephony.SubscriptionManager;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.core.BasePreferenceController;
 import com.android.settingslib.core.AbstractPreferenceController;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Session for controlling the status of TelephonyPreferenceController(s).
  *
  * Within this session, result of {@link BasePreferenceController#availabilityStatus()}
  * would be under control.
+ *
+ * The availability of every controller is probed on a small pool dedicated to telephony, the
+ * controllers that were the cheapest to probe last time first. Building the session waits for
+ * the probes at most {@link #DEADLINE_MS}. A controller bound to a subscription whose probe
+ * misses the deadline reports the status it had in the previous session, if any, so that the
+ * page does not wait on a slow IMS query.
  */
 public class TelephonyStatusControlSession implements AutoCloseable {
 
     private static final String LOG_TAG = "TelephonyStatusControlSS";
 
-    private Collection<AbstractPreferenceController> mControllers;
-    private Collection<Future<Boolean>> mResult = new ArrayList<>();
+    @VisibleForTesting
+    static final long DEADLINE_MS = 300;
+    private static final int POOL_SIZE = 3;
+    private static final long POOL_KEEP_ALIVE_SECONDS = 10;
+    // Only the slowest probes of a session are logged.
+    private static final int MAX_LOGGED_PROBES = 3;
+
+    private static ExecutorService sExecutor;
+    // Keyed by controller class and subscription id.
+    private static final Map<String, Integer> sLastKnownStatus = new ConcurrentHashMap<>();
+    private static final Map<String, Long> sLastProbeMillis = new ConcurrentHashMap<>();
+
+    private final List<AbstractPreferenceController> mProbedControllers = new ArrayList<>();
+    private final List<Future<Boolean>> mResult = new ArrayList<>();
+    @GuardedBy("this")
+    private final Map<TelephonyAvailabilityHandler, Integer> mSetCounts = new ArrayMap<>();
+    @GuardedBy("this")
+    private final Map<String, Long> mProbeMillis = new ArrayMap<>();
+    @GuardedBy("this")
+    private final Set<AbstractPreferenceController> mProbeDone = new ArraySet<>();
+    @GuardedBy("this")
+    private boolean mClosed;
 
     /**
      * Buider of session
      */
     public static class Builder {
         private Collection<AbstractPreferenceController> mControllers;
+        private ExecutorService mExecutor;
 
         /**
          * Constructor
@@ -57,20 +103,59 @@ public class TelephonyStatusControlSession implements AutoCloseable {
             mControllers = controllers;
         }
 
+        @VisibleForTesting
+        Builder setExecutor(ExecutorService executor) {
+            mExecutor = executor;
+            return this;
+        }
+
         /**
          * Method to build this session.
          * @return {@link TelephonyStatusControlSession} session been setup.
          */
         public TelephonyStatusControlSession build() {
-            return new TelephonyStatusControlSession(mControllers);
+            return new TelephonyStatusControlSession(mControllers,
+                    mExecutor != null ? mExecutor : getExecutor());
         }
     }
 
-    private TelephonyStatusControlSession(Collection<AbstractPreferenceController> controllers) {
-        mControllers = controllers;
-        controllers.forEach(prefCtrl -> mResult
-                .add(ThreadUtils.postOnBackgroundThread(() -> setupAvailabilityStatus(prefCtrl))));
+    private TelephonyStatusControlSession(Collection<AbstractPreferenceController> controllers,
+            ExecutorService executor) {
+        final long deadlineMillis = SystemClock.elapsedRealtime() + DEADLINE_MS;
+
+        for (AbstractPreferenceController controller : controllers) {
+            if (controller instanceof TelephonyAvailabilityHandler) {
+                mProbedControllers.add(controller);
+            }
+        }
+        mProbedControllers.sort((a, b) -> Long.compare(
+                sLastProbeMillis.getOrDefault(getKey(a), 0L),
+                sLastProbeMillis.getOrDefault(getKey(b), 0L)));
+        mProbedControllers.forEach(prefCtrl -> mResult
+                .add(executor.submit(() -> setupAvailabilityStatus(prefCtrl))));
+        awaitProbes(deadlineMillis);
+    }
 
+    /**
+     * Waits for the probes until {@code deadlineMillis}, then falls back to the status of the
+     * previous session for the ones that are still running.
+     */
+    private void awaitProbes(long deadlineMillis) {
+        int timedOut = 0;
+        for (int i = 0; i < mResult.size(); i++) {
+            try {
+                final long remainingMillis = deadlineMillis - SystemClock.elapsedRealtime();
+                mResult.get(i).get(Math.max(0, remainingMillis), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException exception) {
+                applyLastKnownStatus(mProbedControllers.get(i));
+                timedOut++;
+            } catch (ExecutionException | InterruptedException | CancellationException exception) {
+                Log.e(LOG_TAG, "setup availability status failed!", exception);
+            }
+        }
+        if (timedOut > 0) {
+            Log.w(LOG_TAG, timedOut + " availability probes missed the deadline");
+        }
     }
 
     /**
@@ -79,39 +164,117 @@ public class TelephonyStatusControlSession implements AutoCloseable {
      * No longer control the status.
      */
     public void close() {
-        //check the background thread is finished then unset the status of availability.
-
+        // Still queued probes are dropped, running ones finish for the next session.
         for (Future<Boolean> result : mResult) {
-            try {
-                result.get();
-            } catch (ExecutionException | InterruptedException exception) {
-                Log.e(LOG_TAG, "setup availability status failed!", exception);
+            result.cancel(false /* mayInterruptIfRunning */);
+        }
+        synchronized (this) {
+            mClosed = true;
+            logProbeCosts();
+            for (Map.Entry<TelephonyAvailabilityHandler, Integer> entry : mSetCounts.entrySet()) {
+                for (int i = 0; i < entry.getValue(); i++) {
+                    entry.getKey().unsetAvailabilityStatus();
+                }
             }
+            mSetCounts.clear();
         }
-        unsetAvailabilityStatus(mControllers);
     }
 
     private Boolean setupAvailabilityStatus(AbstractPreferenceController controller) {
+        final String key = getKey(controller);
+        final long startTime = SystemClock.elapsedRealtime();
         try {
-            if (controller instanceof TelephonyAvailabilityHandler) {
-                int status = ((BasePreferenceController) controller)
-                        .getAvailabilityStatus();
-                ((TelephonyAvailabilityHandler) controller).setAvailabilityStatus(status);
+            final int subId = getSubId(controller);
+            // The status of the previous session is applied already if this probe missed the
+            // deadline while queued, so ask for the status of the subscription rather than the
+            // controller's.
+            int status = SubscriptionManager.isValidSubscriptionId(subId)
+                    ? ((TelephonyAvailabilityCallback) controller).getAvailabilityStatus(subId)
+                    : ((BasePreferenceController) controller).getAvailabilityStatus();
+            sLastKnownStatus.put(key, status);
+            synchronized (this) {
+                mProbeDone.add(controller);
+                applyAvailabilityStatus(controller, status);
             }
             return true;
         } catch (Exception exception) {
             Log.e(LOG_TAG, "Setup availability status failed!", exception);
             return false;
+        } finally {
+            final long probeMillis = SystemClock.elapsedRealtime() - startTime;
+            sLastProbeMillis.put(key, probeMillis);
+            synchronized (this) {
+                mProbeMillis.put(key, probeMillis);
+            }
+        }
+    }
+
+    private synchronized void applyLastKnownStatus(AbstractPreferenceController controller) {
+        if (mProbeDone.contains(controller)
+                || !SubscriptionManager.isValidSubscriptionId(getSubId(controller))) {
+            return;
+        }
+        final Integer lastKnownStatus = sLastKnownStatus.get(getKey(controller));
+        if (lastKnownStatus != null) {
+            applyAvailabilityStatus(controller, lastKnownStatus);
+        }
+    }
+
+    private synchronized void applyAvailabilityStatus(AbstractPreferenceController controller,
+            int status) {
+        if (mClosed) {
+            return;
+        }
+        final TelephonyAvailabilityHandler handler = (TelephonyAvailabilityHandler) controller;
+        handler.setAvailabilityStatus(status);
+        mSetCounts.put(handler, mSetCounts.getOrDefault(handler, 0) + 1);
+    }
+
+    @GuardedBy("this")
+    private void logProbeCosts() {
+        if (!Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+            return;
+        }
+        final List<Map.Entry<String, Long>> probes = new ArrayList<>(mProbeMillis.entrySet());
+        probes.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        for (int i = 0; i < Math.min(MAX_LOGGED_PROBES, probes.size()); i++) {
+            Log.d(LOG_TAG, "Probe " + probes.get(i).getKey() + " took "
+                    + probes.get(i).getValue() + " ms");
+        }
+    }
+
+    private static String getKey(AbstractPreferenceController controller) {
+        return controller.getClass().getName() + ":" + getSubId(controller);
+    }
+
+    private static int getSubId(AbstractPreferenceController controller) {
+        if (controller instanceof TelephonyBasePreferenceController) {
+            return ((TelephonyBasePreferenceController) controller).mSubId;
+        } else if (controller instanceof TelephonyTogglePreferenceController) {
+            return ((TelephonyTogglePreferenceController) controller).mSubId;
+        }
+        return SubscriptionManager.INVALID_SUBSCRIPTION_ID;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            final AtomicInteger threadIndex = new AtomicInteger();
+            final ThreadFactory threadFactory = runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+                runnable.run();
+            }, "TelephonyStatus-" + threadIndex.incrementAndGet());
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                    POOL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+            sExecutor = executor;
         }
+        return sExecutor;
     }
 
-    private void unsetAvailabilityStatus(
-            Collection<AbstractPreferenceController> controllerLists) {
-        controllerLists.stream()
-                .filter(controller -> controller instanceof TelephonyAvailabilityHandler)
-                .map(TelephonyAvailabilityHandler.class::cast)
-                .forEach(controller -> {
-                    controller.unsetAvailabilityStatus();
-                });
+    @VisibleForTesting
+    static void clearLastKnownStatus() {
+        sLastKnownStatus.clear();
+        sLastProbeMillis.clear();
     }
 }
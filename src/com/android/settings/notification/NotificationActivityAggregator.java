@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification;
+
+import android.app.usage.IUsageStatsManager;
+import android.app.usage.UsageEvents;
+import android.os.RemoteException;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.notification.NotificationBackend.NotificationsSentState;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Keeps how often and how recently each package sent notifications over the last
+ * {@link NotificationBackend#DAYS_TO_CHECK} days, per user.
+ *
+ * <p>The usage events of a user are read in a single pass the first time they are needed. Every
+ * later request only reads the events that arrived after the previous read, and drops the ones
+ * that fell out of the window, so the app notification pages and the notifications app list share
+ * one summary instead of each re-reading a week of events.
+ */
+public class NotificationActivityAggregator {
+    private static final String TAG = "NotifActivityAggregator";
+
+    private static NotificationActivityAggregator sInstance;
+
+    private final SparseArray<UserActivity> mUserActivities = new SparseArray<>();
+
+    /** Returns the instance shared by every notification settings page. */
+    public static synchronized NotificationActivityAggregator getInstance() {
+        if (sInstance == null) {
+            sInstance = new NotificationActivityAggregator();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    public static synchronized void setInstanceForTesting(
+            @Nullable NotificationActivityAggregator aggregator) {
+        sInstance = aggregator;
+    }
+
+    /**
+     * Returns the notifications sent by each package of {@code userId}, keyed by package name.
+     * Packages that sent no notification are not included.
+     */
+    @NonNull
+    public synchronized Map<String, NotificationsSentState> getSentStates(
+            IUsageStatsManager usageStatsManager, int userId, String callingPackage) {
+        final UserActivity userActivity = update(usageStatsManager, userId, callingPackage);
+        final Map<String, NotificationsSentState> sentStates =
+                new ArrayMap<>(userActivity.mPackages.size());
+        for (int i = 0; i < userActivity.mPackages.size(); i++) {
+            sentStates.put(userActivity.mPackages.keyAt(i),
+                    userActivity.mPackages.valueAt(i).getSentState());
+        }
+        return sentStates;
+    }
+
+    /** Returns the notifications sent by {@code pkg} in {@code userId}, keyed by channel id. */
+    @NonNull
+    public synchronized Map<String, NotificationsSentState> getSentStatesByChannel(
+            IUsageStatsManager usageStatsManager, int userId, String pkg,
+            String callingPackage) {
+        final PackageActivity packageActivity =
+                update(usageStatsManager, userId, callingPackage).mPackages.get(pkg);
+        return packageActivity != null
+                ? packageActivity.getSentStateByChannel() : new ArrayMap<>();
+    }
+
+    /** Forgets every summary, so that the next request reads the whole window again. */
+    public synchronized void clear() {
+        mUserActivities.clear();
+    }
+
+    private UserActivity update(IUsageStatsManager usageStatsManager, int userId,
+            String callingPackage) {
+        final long now = System.currentTimeMillis();
+        UserActivity userActivity = mUserActivities.get(userId);
+        if (userActivity == null || now < userActivity.mWatermark) {
+            // Start over on first use, or when the clock moved backwards.
+            userActivity = new UserActivity();
+            mUserActivities.put(userId, userActivity);
+        }
+        final long windowStart =
+                now - (DateUtils.DAY_IN_MILLIS * NotificationBackend.DAYS_TO_CHECK);
+        userActivity.prune(windowStart);
+
+        UsageEvents events = null;
+        try {
+            events = usageStatsManager.queryEventsForUser(
+                    Math.max(windowStart, userActivity.mWatermark), now, userId,
+                    callingPackage);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Error reading usage events of user " + userId, e);
+        }
+        if (events == null) {
+            return userActivity;
+        }
+        final UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                userActivity.record(event.getPackageName(), event.mNotificationChannelId,
+                        event.getTimeStamp());
+            }
+        }
+        userActivity.mWatermark = now;
+        return userActivity;
+    }
+
+    private static class UserActivity {
+        // Events at or after the watermark have not been read yet.
+        long mWatermark;
+        final ArrayMap<String, PackageActivity> mPackages = new ArrayMap<>();
+
+        void record(String pkg, @Nullable String channelId, long timestamp) {
+            PackageActivity packageActivity = mPackages.get(pkg);
+            if (packageActivity == null) {
+                packageActivity = new PackageActivity();
+                mPackages.put(pkg, packageActivity);
+            }
+            packageActivity.record(channelId, timestamp);
+        }
+
+        void prune(long windowStart) {
+            for (int i = mPackages.size() - 1; i >= 0; i--) {
+                if (mPackages.valueAt(i).prune(windowStart)) {
+                    mPackages.removeAt(i);
+                }
+            }
+        }
+    }
+
+    /** The notifications sent by one package, per channel. */
+    public static class PackageActivity {
+        // Keyed by channel id; events without a channel are kept under the null key.
+        private final ArrayMap<String, Timestamps> mChannels = new ArrayMap<>();
+
+        /** Records a notification sent at {@code timestamp} on {@code channelId}. */
+        public void record(@Nullable String channelId, long timestamp) {
+            Timestamps timestamps = mChannels.get(channelId);
+            if (timestamps == null) {
+                timestamps = new Timestamps();
+                mChannels.put(channelId, timestamps);
+            }
+            timestamps.add(timestamp);
+        }
+
+        /** Returns the notifications sent on any channel, or without one. */
+        @NonNull
+        public NotificationsSentState getSentState() {
+            final NotificationsSentState sentState = new NotificationsSentState();
+            for (int i = 0; i < mChannels.size(); i++) {
+                final Timestamps timestamps = mChannels.valueAt(i);
+                sentState.sentCount += timestamps.mSize;
+                sentState.lastSent = Math.max(sentState.lastSent, timestamps.mLastSent);
+            }
+            NotificationBackend.calculateAvgSentCounts(sentState);
+            return sentState;
+        }
+
+        /** Returns the notifications sent on each channel, keyed by channel id. */
+        @NonNull
+        public Map<String, NotificationsSentState> getSentStateByChannel() {
+            final Map<String, NotificationsSentState> sentStates = new ArrayMap<>();
+            for (int i = 0; i < mChannels.size(); i++) {
+                final String channelId = mChannels.keyAt(i);
+                if (channelId == null) {
+                    continue;
+                }
+                final NotificationsSentState sentState = new NotificationsSentState();
+                sentState.sentCount = mChannels.valueAt(i).mSize;
+                sentState.lastSent = mChannels.valueAt(i).mLastSent;
+                NotificationBackend.calculateAvgSentCounts(sentState);
+                sentStates.put(channelId, sentState);
+            }
+            return sentStates;
+        }
+
+        // Returns whether no notification is left in the window.
+        boolean prune(long windowStart) {
+            for (int i = mChannels.size() - 1; i >= 0; i--) {
+                if (mChannels.valueAt(i).prune(windowStart)) {
+                    mChannels.removeAt(i);
+                }
+            }
+            return mChannels.isEmpty();
+        }
+    }
+
+    private static class Timestamps {
+        long[] mValues = new long[4];
+        int mSize;
+        long mLastSent;
+
+        void add(long timestamp) {
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, mSize * 2);
+            }
+            mValues[mSize++] = timestamp;
+            mLastSent = Math.max(mLastSent, timestamp);
+        }
+
+        // Returns whether no timestamp is left in the window.
+        boolean prune(long windowStart) {
+            int size = 0;
+            long lastSent = 0;
+            for (int i = 0; i < mSize; i++) {
+                if (mValues[i] >= windowStart) {
+                    mValues[size++] = mValues[i];
+                    lastSent = Math.max(lastSent, mValues[i]);
+                }
+            }
+            mSize = size;
+            mLastSent = lastSent;
+            return mSize == 0;
+        }
+    }
+}
@@ -54,13 +54,13 @@ import android.os.UserHandle;
 import android.provider.Settings;
 import android.service.notification.ConversationChannelWrapper;
 import android.service.notification.NotificationListenerFilter;
-import android.text.format.DateUtils;
 import android.util.IconDrawableFactory;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
 import com.android.internal.util.CollectionUtils;
+import com.android.settings.applications.AppIconCache;
 import com.android.settingslib.R;
 import com.android.settingslib.Utils;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
@@ -71,7 +71,6 @@ import com.android.settingslib.utils.StringUtil;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -81,7 +80,7 @@ public class NotificationBackend {
 
     static IUsageStatsManager sUsageStatsManager = IUsageStatsManager.Stub.asInterface(
             ServiceManager.getService(Context.USAGE_STATS_SERVICE));
-    private static final int DAYS_TO_CHECK = 7;
+    static final int DAYS_TO_CHECK = 7;
     static INotificationManager sINM = INotificationManager.Stub.asInterface(
             ServiceManager.getService(Context.NOTIFICATION_SERVICE));
 
@@ -90,18 +89,20 @@ public class NotificationBackend {
         row.pkg = app.packageName;
         row.uid = app.uid;
         try {
-            row.label = app.loadLabel(pm);
+            row.label = AppIconCache.getInstance(context).getLabel(app);
         } catch (Throwable t) {
             Log.e(TAG, "Error loading application label for " + row.pkg, t);
             row.label = row.pkg;
         }
-        row.icon = IconDrawableFactory.newInstance(context).getBadgedIcon(app);
+        // The app header shows the icon larger than the app lists, cache it at that size.
+        row.icon = AppIconCache.getInstance(context).getBadgedIcon(app,
+                context.getResources().getDimensionPixelSize(
+                        com.android.settings.R.dimen.notification_app_icon_size));
         row.banned = getNotificationsBanned(row.pkg, row.uid);
         row.showBadge = canShowBadge(row.pkg, row.uid);
         row.bubblePreference = getBubblePreference(row.pkg, row.uid);
         row.userId = UserHandle.getUserId(row.uid);
-        row.blockedChannelCount = getBlockedChannelCount(row.pkg, row.uid);
-        row.channelCount = getChannelCount(row.pkg, row.uid);
+        recordChannelCounts(getGroups(row.pkg, row.uid, true /* includeDeleted */).getList(), row);
         recordAggregatedUsageEvents(context, row);
         return row;
     }
@@ -273,14 +274,42 @@ public class NotificationBackend {
     }
 
     public ParceledListSlice<NotificationChannelGroup> getGroups(String pkg, int uid) {
+        return getGroups(pkg, uid, false /* includeDeleted */);
+    }
+
+    private ParceledListSlice<NotificationChannelGroup> getGroups(String pkg, int uid,
+            boolean includeDeleted) {
         try {
-            return sINM.getNotificationChannelGroupsForPackage(pkg, uid, false);
+            return sINM.getNotificationChannelGroupsForPackage(pkg, uid, includeDeleted);
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
             return ParceledListSlice.emptyList();
         }
     }
 
+    /**
+     * Counts the channels, blocked channels and deleted channels of an app from its channel groups,
+     * which are read in one call instead of one call per count.
+     */
+    @VisibleForTesting
+    void recordChannelCounts(List<NotificationChannelGroup> groups, AppRow row) {
+        row.channelCount = 0;
+        row.blockedChannelCount = 0;
+        row.deletedChannelCount = 0;
+        for (NotificationChannelGroup group : groups) {
+            for (NotificationChannel channel : group.getChannels()) {
+                if (channel.isDeleted()) {
+                    row.deletedChannelCount++;
+                    continue;
+                }
+                row.channelCount++;
+                if (channel.getImportance() == IMPORTANCE_NONE) {
+                    row.blockedChannelCount++;
+                }
+            }
+        }
+    }
+
     public ParceledListSlice<ConversationChannelWrapper> getConversations(String pkg, int uid) {
         try {
             return sINM.getConversationsForPackage(pkg, uid);
@@ -465,47 +494,36 @@ public class NotificationBackend {
     }
 
     protected void recordAggregatedUsageEvents(Context context, AppRow appRow) {
-        long now = System.currentTimeMillis();
-        long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
-        UsageEvents events = null;
-        try {
-            events = sUsageStatsManager.queryEventsForPackageForUser(
-                    startTime, now, appRow.userId, appRow.pkg, context.getPackageName());
-        } catch (RemoteException e) {
-            e.printStackTrace();
-        }
-        recordAggregatedUsageEvents(events, appRow);
+        recordAggregatedUsageEvents(NotificationActivityAggregator.getInstance()
+                .getSentStatesByChannel(sUsageStatsManager, appRow.userId, appRow.pkg,
+                        context.getPackageName()), appRow);
     }
 
     protected void recordAggregatedUsageEvents(UsageEvents events, AppRow appRow) {
-        appRow.sentByChannel = new HashMap<>();
-        appRow.sentByApp = new NotificationsSentState();
+        final NotificationActivityAggregator.PackageActivity packageActivity =
+                new NotificationActivityAggregator.PackageActivity();
         if (events != null) {
             UsageEvents.Event event = new UsageEvents.Event();
             while (events.hasNextEvent()) {
                 events.getNextEvent(event);
 
                 if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                    String channelId = event.mNotificationChannelId;
-                    if (channelId != null) {
-                        NotificationsSentState stats = appRow.sentByChannel.get(channelId);
-                        if (stats == null) {
-                            stats = new NotificationsSentState();
-                            appRow.sentByChannel.put(channelId, stats);
-                        }
-                        if (event.getTimeStamp() > stats.lastSent) {
-                            stats.lastSent = event.getTimeStamp();
-                            appRow.sentByApp.lastSent = event.getTimeStamp();
-                        }
-                        stats.sentCount++;
-                        appRow.sentByApp.sentCount++;
-                        calculateAvgSentCounts(stats);
-                    }
+                    packageActivity.record(event.mNotificationChannelId, event.getTimeStamp());
                 }
-
             }
-            calculateAvgSentCounts(appRow.sentByApp);
         }
+        recordAggregatedUsageEvents(packageActivity.getSentStateByChannel(), appRow);
+    }
+
+    private void recordAggregatedUsageEvents(Map<String, NotificationsSentState> sentByChannel,
+            AppRow appRow) {
+        appRow.sentByChannel = sentByChannel;
+        appRow.sentByApp = new NotificationsSentState();
+        for (NotificationsSentState stats : sentByChannel.values()) {
+            appRow.sentByApp.sentCount += stats.sentCount;
+            appRow.sentByApp.lastSent = Math.max(appRow.sentByApp.lastSent, stats.lastSent);
+        }
+        calculateAvgSentCounts(appRow.sentByApp);
     }
 
     public static CharSequence getSentSummary(Context context, NotificationsSentState state,
@@ -529,7 +547,7 @@ public class NotificationBackend {
         }
     }
 
-    private void calculateAvgSentCounts(NotificationsSentState stats) {
+    static void calculateAvgSentCounts(NotificationsSentState stats) {
         if (stats != null) {
             stats.avgSentDaily = Math.round((float) stats.sentCount / DAYS_TO_CHECK);
             if (stats.sentCount < DAYS_TO_CHECK) {
@@ -695,6 +713,7 @@ public class NotificationBackend {
         public int userId;
         public int blockedChannelCount;
         public int channelCount;
+        public int deletedChannelCount;
         public Map<String, NotificationsSentState> sentByChannel;
         public NotificationsSentState sentByApp;
     }
@@ -24,13 +24,17 @@ import android.app.NotificationChannelGroup;
 import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.Settings;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.OnLifecycleEvent;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceGroup;
@@ -39,6 +43,7 @@ import androidx.preference.SwitchPreference;
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.applications.AppInfoBase;
+import com.android.settings.core.SettingsTaskScheduler;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.notification.NotificationBackend;
 import com.android.settingslib.PrimarySwitchPreference;
@@ -47,16 +52,24 @@ import com.android.settingslib.RestrictedSwitchPreference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 
-public class ChannelListPreferenceController extends NotificationPreferenceController {
+public class ChannelListPreferenceController extends NotificationPreferenceController
+        implements LifecycleObserver {
 
+    private static final String TAG = "ChannelListPrefCtrl";
     private static final String KEY = "channels";
     private static final String KEY_GENERAL_CATEGORY = "categories";
     private static final String KEY_ZERO_CATEGORIES = "zeroCategories";
     public static final String ARG_FROM_SETTINGS = "fromSettings";
+    // Channel rows bound per main thread message while the list is loaded.
+    private static final int CHANNELS_PER_PAGE = 20;
 
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
     private List<NotificationChannelGroup> mChannelGroupList;
     private PreferenceCategory mPreference;
+    private Future<?> mLoadTask;
+    private GroupListUpdate mListUpdate;
 
     public ChannelListPreferenceController(Context context, NotificationBackend backend) {
         super(context, backend);
@@ -92,23 +105,33 @@ public class ChannelListPreferenceController extends NotificationPreferenceContr
     @Override
     public void updateState(Preference preference) {
         mPreference = (PreferenceCategory) preference;
-        // Load channel settings
-        new AsyncTask<Void, Void, Void>() {
-            @Override
-            protected Void doInBackground(Void... unused) {
-                mChannelGroupList = mBackend.getGroups(mAppRow.pkg, mAppRow.uid).getList();
-                Collections.sort(mChannelGroupList, CHANNEL_GROUP_COMPARATOR);
-                return null;
-            }
+        // Load channel settings. A newer request supersedes one that is still loading.
+        if (mLoadTask != null) {
+            mLoadTask.cancel(false /* mayInterruptIfRunning */);
+        }
+        final String pkg = mAppRow.pkg;
+        final int uid = mAppRow.uid;
+        mLoadTask = SettingsTaskScheduler.getInstance().submit(null /* owner */,
+                SettingsTaskScheduler.Priority.UI_CRITICAL, TAG + ".loadGroups", () -> {
+                    final List<NotificationChannelGroup> groups =
+                            mBackend.getGroups(pkg, uid).getList();
+                    Collections.sort(groups, CHANNEL_GROUP_COMPARATOR);
+                    return groups;
+                }, groups -> {
+                    mChannelGroupList = groups;
+                    updateFullList(mPreference, mChannelGroupList, CHANNELS_PER_PAGE);
+                });
+    }
 
-            @Override
-            protected void onPostExecute(Void unused) {
-                if (mContext == null) {
-                    return;
-                }
-                updateFullList(mPreference, mChannelGroupList);
-            }
-        }.execute();
+    /** Stops loading and binding the channel rows; they are reloaded on the next resume. */
+    @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+    public void onStop() {
+        if (mLoadTask != null) {
+            mLoadTask.cancel(false /* mayInterruptIfRunning */);
+            mLoadTask = null;
+        }
+        mHandler.removeCallbacksAndMessages(null);
+        mListUpdate = null;
     }
 
     /**
@@ -118,6 +141,20 @@ public class ChannelListPreferenceController extends NotificationPreferenceContr
      */
     void updateFullList(@NonNull PreferenceCategory groupPrefsList,
                 @NonNull List<NotificationChannelGroup> channelGroups) {
+        updateFullList(groupPrefsList, channelGroups, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #updateFullList(PreferenceCategory, List)}, but binds at most
+     * {@code channelsPerPage} channel rows at a time and yields the main thread between pages, so
+     * that apps with hundreds of channels show their first rows right away.
+     */
+    private void updateFullList(@NonNull PreferenceCategory groupPrefsList,
+            @NonNull List<NotificationChannelGroup> channelGroups, int channelsPerPage) {
+        if (mListUpdate != null) {
+            mHandler.removeCallbacks(mListUpdate);
+            mListUpdate = null;
+        }
         if (channelGroups.isEmpty()) {
             if (groupPrefsList.getPreferenceCount() == 1
                     && KEY_ZERO_CATEGORIES.equals(groupPrefsList.getPreference(0).getKey())) {
@@ -140,7 +177,8 @@ public class ChannelListPreferenceController extends NotificationPreferenceContr
                 groupCategory.addPreference(empty);
             }
         } else {
-            updateGroupList(groupPrefsList, channelGroups);
+            mListUpdate = new GroupListUpdate(groupPrefsList, channelGroups, channelsPerPage);
+            mListUpdate.run();
         }
     }
 
@@ -175,30 +213,81 @@ public class ChannelListPreferenceController extends NotificationPreferenceContr
         return groupCategory;
     }
 
-    private void updateGroupList(@NonNull PreferenceCategory groupPrefsList,
-            @NonNull List<NotificationChannelGroup> channelGroups) {
-        // Update the list, but optimize for the most common case where the list hasn't changed.
-        int numFinalGroups = channelGroups.size();
-        int initialPrefCount = groupPrefsList.getPreferenceCount();
-        List<PreferenceCategory> finalOrderedGroups = new ArrayList<>(numFinalGroups);
-        for (int i = 0; i < numFinalGroups; i++) {
-            NotificationChannelGroup group = channelGroups.get(i);
-            PreferenceCategory groupCategory =
-                    findOrCreateGroupCategoryForKey(groupPrefsList, group.getId(), i);
-            finalOrderedGroups.add(groupCategory);
-            updateGroupPreferences(group, groupCategory);
+    /**
+     * Updates the group categories to match the given groups, one page of channel rows at a time.
+     * Rows are found by key and updated in place; the rows of a group are only re-added when
+     * channels were added to or removed from it.
+     */
+    private class GroupListUpdate implements Runnable {
+        private final PreferenceCategory mGroupPrefsList;
+        private final List<NotificationChannelGroup> mChannelGroups;
+        private final int mChannelsPerPage;
+        private final int mInitialPrefCount;
+        private final List<PreferenceCategory> mFinalOrderedGroups;
+        private int mGroupIndex;
+        private GroupUpdate mGroupUpdate;
+
+        GroupListUpdate(@NonNull PreferenceCategory groupPrefsList,
+                @NonNull List<NotificationChannelGroup> channelGroups, int channelsPerPage) {
+            mGroupPrefsList = groupPrefsList;
+            mChannelGroups = channelGroups;
+            mChannelsPerPage = channelsPerPage;
+            mInitialPrefCount = groupPrefsList.getPreferenceCount();
+            mFinalOrderedGroups = new ArrayList<>(channelGroups.size());
+        }
+
+        @Override
+        public void run() {
+            update(mChannelsPerPage);
+        }
+
+        /** Binds every remaining row now. */
+        void runToCompletion() {
+            mHandler.removeCallbacks(this);
+            update(Integer.MAX_VALUE);
+        }
+
+        private void update(int maxRows) {
+            int remainingRows = maxRows;
+            while (mGroupIndex < mChannelGroups.size()) {
+                if (mGroupUpdate == null) {
+                    final NotificationChannelGroup group = mChannelGroups.get(mGroupIndex);
+                    final PreferenceCategory groupCategory = findOrCreateGroupCategoryForKey(
+                            mGroupPrefsList, group.getId(), mGroupIndex);
+                    mFinalOrderedGroups.add(groupCategory);
+                    mGroupUpdate = new GroupUpdate(group, groupCategory);
+                }
+                remainingRows -= mGroupUpdate.updateChannels(remainingRows);
+                if (!mGroupUpdate.isDone()) {
+                    mHandler.post(this);
+                    return;
+                }
+                mGroupUpdate.finish();
+                mGroupUpdate = null;
+                mGroupIndex++;
+            }
+            finish();
+            if (mListUpdate == this) {
+                mListUpdate = null;
+            }
         }
-        int postAddPrefCount = groupPrefsList.getPreferenceCount();
-        // If any groups were inserted (into a non-empty list) or need to be removed, we need to
-        // remove all groups and re-add them all.
-        // This is required to ensure proper ordering of inserted groups, and it simplifies logic
-        // at the cost of computation in the rare case that the list is changing.
-        boolean hasInsertions = initialPrefCount != 0 && initialPrefCount != numFinalGroups;
-        boolean requiresRemoval = postAddPrefCount != numFinalGroups;
-        if (hasInsertions || requiresRemoval) {
-            groupPrefsList.removeAll();
-            for (PreferenceCategory group : finalOrderedGroups) {
-                groupPrefsList.addPreference(group);
+
+        private void finish() {
+            // Update the list, but optimize for the most common case where the list hasn't
+            // changed.
+            int numFinalGroups = mChannelGroups.size();
+            int postAddPrefCount = mGroupPrefsList.getPreferenceCount();
+            // If any groups were inserted (into a non-empty list) or need to be removed, we need
+            // to remove all groups and re-add them all.
+            // This is required to ensure proper ordering of inserted groups, and it simplifies
+            // logic at the cost of computation in the rare case that the list is changing.
+            boolean hasInsertions = mInitialPrefCount != 0 && mInitialPrefCount != numFinalGroups;
+            boolean requiresRemoval = postAddPrefCount != numFinalGroups;
+            if (hasInsertions || requiresRemoval) {
+                mGroupPrefsList.removeAll();
+                for (PreferenceCategory group : mFinalOrderedGroups) {
+                    mGroupPrefsList.addPreference(group);
+                }
             }
         }
     }
@@ -234,47 +323,82 @@ public class ChannelListPreferenceController extends NotificationPreferenceContr
 
     private void updateGroupPreferences(@NonNull NotificationChannelGroup group,
             @NonNull PreferenceGroup groupPrefGroup) {
-        int initialPrefCount = groupPrefGroup.getPreferenceCount();
-        List<Preference> finalOrderedPrefs = new ArrayList<>();
-        if (group.getId() == null) {
-            // For the 'null' group, set the "Other" title.
-            groupPrefGroup.setTitle(R.string.notification_channels_other);
-        } else {
-            // For an app-defined group, set their name and create a row to toggle 'isBlocked'.
-            groupPrefGroup.setTitle(group.getName());
-            finalOrderedPrefs.add(addOrUpdateGroupToggle(groupPrefGroup, group));
+        final GroupUpdate groupUpdate = new GroupUpdate(group, groupPrefGroup);
+        groupUpdate.updateChannels(Integer.MAX_VALUE);
+        groupUpdate.finish();
+    }
+
+    /** Updates the rows of a single group, possibly over several pages. */
+    private class GroupUpdate {
+        private final NotificationChannelGroup mGroup;
+        private final PreferenceGroup mGroupPrefGroup;
+        private final int mInitialPrefCount;
+        private final List<Preference> mFinalOrderedPrefs = new ArrayList<>();
+        private final boolean mInitiallyEmpty;
+        private final List<NotificationChannel> mChannels;
+        private int mChannelIndex;
+
+        GroupUpdate(@NonNull NotificationChannelGroup group,
+                @NonNull PreferenceGroup groupPrefGroup) {
+            mGroup = group;
+            mGroupPrefGroup = groupPrefGroup;
+            mInitialPrefCount = groupPrefGroup.getPreferenceCount();
+            if (group.getId() == null) {
+                // For the 'null' group, set the "Other" title.
+                groupPrefGroup.setTitle(R.string.notification_channels_other);
+            } else {
+                // For an app-defined group, set their name and create a row to toggle
+                // 'isBlocked'.
+                groupPrefGroup.setTitle(group.getName());
+                mFinalOrderedPrefs.add(addOrUpdateGroupToggle(groupPrefGroup, group));
+            }
+            // Here "empty" means having no channel rows; the group toggle is ignored for this
+            // purpose.
+            mInitiallyEmpty = groupPrefGroup.getPreferenceCount() == mFinalOrderedPrefs.size();
+
+            mChannels = group.isBlocked() ? Collections.emptyList() : group.getChannels();
+            Collections.sort(mChannels, CHANNEL_COMPARATOR);
         }
-        // Here "empty" means having no channel rows; the group toggle is ignored for this purpose.
-        boolean initiallyEmpty = groupPrefGroup.getPreferenceCount() == finalOrderedPrefs.size();
-
-        // For each channel, add or update the preference object.
-        final List<NotificationChannel> channels =
-                group.isBlocked() ? Collections.emptyList() : group.getChannels();
-        Collections.sort(channels, CHANNEL_COMPARATOR);
-        for (NotificationChannel channel : channels) {
-            if (!TextUtils.isEmpty(channel.getConversationId()) && !channel.isDemoted()) {
-                // conversations get their own section
-                continue;
+
+        /** Adds or updates up to {@code maxRows} channel rows, and returns how many it did. */
+        int updateChannels(int maxRows) {
+            int rows = 0;
+            while (mChannelIndex < mChannels.size() && rows < maxRows) {
+                final NotificationChannel channel = mChannels.get(mChannelIndex++);
+                if (!TextUtils.isEmpty(channel.getConversationId()) && !channel.isDemoted()) {
+                    // conversations get their own section
+                    continue;
+                }
+                // Get or create the row, and populate its current state.
+                PrimarySwitchPreference channelPref = findOrCreateChannelPrefForKey(
+                        mGroupPrefGroup, channel.getId(),
+                        /* expectedIndex */ mFinalOrderedPrefs.size());
+                updateSingleChannelPrefs(channelPref, channel, mGroup.isBlocked());
+                mFinalOrderedPrefs.add(channelPref);
+                rows++;
             }
-            // Get or create the row, and populate its current state.
-            PrimarySwitchPreference channelPref = findOrCreateChannelPrefForKey(groupPrefGroup,
-                    channel.getId(), /* expectedIndex */ finalOrderedPrefs.size());
-            updateSingleChannelPrefs(channelPref, channel, group.isBlocked());
-            finalOrderedPrefs.add(channelPref);
+            return rows;
         }
-        int postAddPrefCount = groupPrefGroup.getPreferenceCount();
-
-        // If any channels were inserted (into a non-empty list) or need to be removed, we need to
-        // remove all preferences and re-add them all.
-        // This is required to ensure proper ordering of inserted channels, and it simplifies logic
-        // at the cost of computation in the rare case that the list is changing.
-        int numFinalGroups = finalOrderedPrefs.size();
-        boolean hasInsertions = !initiallyEmpty && initialPrefCount != numFinalGroups;
-        boolean requiresRemoval = postAddPrefCount != numFinalGroups;
-        if (hasInsertions || requiresRemoval) {
-            groupPrefGroup.removeAll();
-            for (Preference preference : finalOrderedPrefs) {
-                groupPrefGroup.addPreference(preference);
+
+        boolean isDone() {
+            return mChannelIndex == mChannels.size();
+        }
+
+        void finish() {
+            int postAddPrefCount = mGroupPrefGroup.getPreferenceCount();
+
+            // If any channels were inserted (into a non-empty list) or need to be removed, we
+            // need to remove all preferences and re-add them all.
+            // This is required to ensure proper ordering of inserted channels, and it simplifies
+            // logic at the cost of computation in the rare case that the list is changing.
+            int numFinalGroups = mFinalOrderedPrefs.size();
+            boolean hasInsertions = !mInitiallyEmpty && mInitialPrefCount != numFinalGroups;
+            boolean requiresRemoval = postAddPrefCount != numFinalGroups;
+            if (hasInsertions || requiresRemoval) {
+                mGroupPrefGroup.removeAll();
+                for (Preference preference : mFinalOrderedPrefs) {
+                    mGroupPrefGroup.addPreference(preference);
+                }
             }
         }
     }
@@ -370,6 +494,10 @@ public class ChannelListPreferenceController extends NotificationPreferenceContr
         if (group == null) {
             return;
         }
+        if (mListUpdate != null) {
+            // The group may still be waiting for its rows.
+            mListUpdate.runToCompletion();
+        }
         PreferenceGroup groupPrefGroup = mPreference.findPreference(group.getId());
         if (groupPrefGroup != null) {
             updateGroupPreferences(group, groupPrefGroup);
@@ -48,7 +48,7 @@ public class DeletedChannelsPreferenceController extends NotificationPreferenceC
             return false;
         }
 
-        return mBackend.getDeletedChannelCount(mAppRow.pkg, mAppRow.uid) > 0;
+        return mAppRow.deletedChannelCount > 0;
     }
 
     @Override
@@ -58,7 +58,7 @@ public class DeletedChannelsPreferenceController extends NotificationPreferenceC
 
     public void updateState(Preference preference) {
         if (mAppRow != null) {
-            int deletedChannelCount = mBackend.getDeletedChannelCount(mAppRow.pkg, mAppRow.uid);
+            int deletedChannelCount = mAppRow.deletedChannelCount;
             preference.setTitle(mContext.getResources().getQuantityString(
                     R.plurals.deleted_channels, deletedChannelCount, deletedChannelCount));
         }
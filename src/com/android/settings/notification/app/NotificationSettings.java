@@ -149,6 +149,9 @@ abstract public class NotificationSettings extends DashboardFragment {
                 getSettingsLifecycle().addObserver(
                         use(ConversationHeaderPreferenceController.class));
             }
+            if (use(ChannelListPreferenceController.class) != null) {
+                getSettingsLifecycle().addObserver(use(ChannelListPreferenceController.class));
+            }
 
             for (NotificationPreferenceController controller : mControllers) {
                 controller.onResume(mAppRow, mChannel, mChannelGroup, null, null,
@@ -68,6 +68,7 @@ import com.android.internal.widget.LockPatternUtils;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
+import com.android.settings.applications.AppIconCache;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -676,7 +677,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
     private Drawable loadPackageIconDrawable(String pkg, int userId) {
         Drawable icon = null;
         try {
-            icon = mPm.getApplicationIcon(pkg);
+            icon = AppIconCache.getInstance(mContext).getBadgedIcon(
+                    mPm.getApplicationInfo(pkg, 0 /* flags */));
         } catch (PackageManager.NameNotFoundException e) {
             Log.e(TAG, "Cannot get application icon", e);
         }
@@ -688,7 +690,7 @@ public class NotificationStation extends SettingsPreferenceFragment {
         try {
             ApplicationInfo info = mPm.getApplicationInfo(pkg,
                     PackageManager.MATCH_ANY_USER);
-            if (info != null) return mPm.getApplicationLabel(info);
+            if (info != null) return AppIconCache.getInstance(mContext).getLabel(info);
         } catch (PackageManager.NameNotFoundException e) {
             Log.e(TAG, "Cannot load package name", e);
         }
@@ -55,6 +55,7 @@ import com.android.internal.annotations.VisibleForTesting;
 import com.android.settings.R;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.panel.PanelLoggingContract.PanelClosedKeys;
+import com.android.settings.slices.SliceDataCache;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.ThreadUtils;
 
@@ -229,6 +230,8 @@ public class PanelFragment extends Fragment {
             activity.finish();
             return;
         }
+        // Load the slice data while the panel is set up, so that the first bind is complete.
+        SliceDataCache.getInstance(activity).prewarm(mPanel.getSlices());
 
         mPanel.registerCallback(new LocalPanelCallback());
         if (mPanel instanceof LifecycleObserver) {
@@ -65,7 +65,8 @@ import androidx.slice.SliceViewManager;
 
 import com.android.settings.R;
 import com.android.settings.SettingsActivity;
-import com.android.settings.dashboard.CategoryManager;
+import com.android.settings.core.instrumentation.LatencyTracer;
+import com.android.settings.core.instrumentation.LatencyTracer.Section;
 import com.android.settings.dashboard.DashboardFeatureProvider;
 import com.android.settings.dashboard.DashboardFragmentRegistry;
 import com.android.settings.overlay.FeatureFactory;
@@ -81,6 +82,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
@@ -97,6 +99,10 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
     private static final Collection<String> INVALID_KEYS;
 
+    // Category key of the page of each search index provider class, empty if the page hosts none.
+    private static final Map<Class<?>, String> sCategoryKeyByProviderClass =
+            new ConcurrentHashMap<>();
+
     // Search enabled states for injection (key: category key, value: search enabled)
     private Map<String, Boolean> mSearchEnabledByCategoryKeyMap;
 
@@ -112,6 +118,17 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         return true;
     }
 
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+            String sortOrder) {
+        final long startTime = LatencyTracer.begin(Section.SEARCH_INDEX_QUERY);
+        try {
+            return super.query(uri, projection, selection, selectionArgs, sortOrder);
+        } finally {
+            LatencyTracer.end(Section.SEARCH_INDEX_QUERY, startTime);
+        }
+    }
+
     @Override
     public Cursor queryXmlResources(String[] projection) {
         final MatrixCursor cursor = new MatrixCursor(INDEXABLES_XML_RES_COLUMNS);
@@ -231,11 +248,13 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         }
 
         // Loop through custom site map registry to build additional SiteMapPairs
-        for (String childClass : CustomSiteMapRegistry.CUSTOM_SITE_MAP.keySet()) {
-            final String parentClass = CustomSiteMapRegistry.CUSTOM_SITE_MAP.get(childClass);
+        for (Map.Entry<String, String> childToParent
+                : CustomSiteMapRegistry.CUSTOM_SITE_MAP.entrySet()) {
             cursor.newRow()
-                    .add(SearchIndexablesContract.SiteMapColumns.PARENT_CLASS, parentClass)
-                    .add(SearchIndexablesContract.SiteMapColumns.CHILD_CLASS, childClass);
+                    .add(SearchIndexablesContract.SiteMapColumns.PARENT_CLASS,
+                            childToParent.getValue())
+                    .add(SearchIndexablesContract.SiteMapColumns.CHILD_CLASS,
+                            childToParent.getKey());
         }
         // Done.
         return cursor;
@@ -425,26 +444,32 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
     @VisibleForTesting
     void refreshSearchEnabledState(Context context, BaseSearchIndexProvider provider) {
-        // Provider's class name is like "com.android.settings.Settings$1"
-        String className = provider.getClass().getName();
-        final int delimiter = className.lastIndexOf("$");
-        if (delimiter > 0) {
-            // Parse the outer class name of this provider
-            className = className.substring(0, delimiter);
-        }
-
-        // Lookup the category key by the class name
-        final String categoryKey = DashboardFragmentRegistry.PARENT_TO_CATEGORY_KEY_MAP
-                .get(className);
-        if (categoryKey == null) {
+        final String categoryKey = getCategoryKey(provider);
+        if (categoryKey.isEmpty()) {
             return;
         }
+        // The state is only read for the categories that have tiles, so there is no need to load
+        // the tiles of this one here.
+        mSearchEnabledByCategoryKeyMap.put(categoryKey, provider.isPageSearchEnabled(context));
+    }
 
-        final DashboardCategory category = CategoryManager.get(context)
-                .getTilesByCategory(context, categoryKey);
-        if (category != null) {
-            mSearchEnabledByCategoryKeyMap.put(category.key, provider.isPageSearchEnabled(context));
-        }
+    /**
+     * Returns the key of the category hosted by the page of {@code provider}, or an empty string
+     * if it hosts none.
+     */
+    private static String getCategoryKey(BaseSearchIndexProvider provider) {
+        return sCategoryKeyByProviderClass.computeIfAbsent(provider.getClass(), providerClass -> {
+            // Provider's class name is like "com.android.settings.Settings$1"
+            String className = providerClass.getName();
+            final int delimiter = className.lastIndexOf("$");
+            if (delimiter > 0) {
+                // Parse the outer class name of this provider
+                className = className.substring(0, delimiter);
+            }
+            final String categoryKey =
+                    DashboardFragmentRegistry.PARENT_TO_CATEGORY_KEY_MAP.get(className);
+            return categoryKey != null ? categoryKey : "";
+        });
     }
 
     @VisibleForTesting
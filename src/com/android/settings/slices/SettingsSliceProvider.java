@@ -25,6 +25,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Binder;
 import android.os.Build;
@@ -48,6 +50,8 @@ import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.bluetooth.BluetoothSliceBuilder;
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.instrumentation.LatencyTracer;
+import com.android.settings.core.instrumentation.LatencyTracer.Section;
 import com.android.settings.notification.VolumeSeekBarPreferenceController;
 import com.android.settings.notification.zen.ZenModeSliceBuilder;
 import com.android.settings.overlay.FeatureFactory;
@@ -61,7 +65,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -76,9 +79,11 @@ import java.util.stream.Collectors;
  * return an stub {@link Slice} with the correct {@link Uri} immediately. In the background, the
  * data corresponding to the key in the {@link Uri} is read by {@link SlicesDatabaseAccessor}, and
  * the entire row is converted into a {@link SliceData}. Once complete, it is stored in
- * {@link #mSliceWeakDataCache}, and then an update sent via the Slice framework to the Slice.
+ * {@link #mSliceDataCache}, and then an update sent via the Slice framework to the Slice.
  * The {@link Slice} displayed by the Slice-presenter will re-query this Slice-provider and find
- * the {@link SliceData} cached to build the full {@link Slice}.
+ * the {@link SliceData} cached to build the full {@link Slice}. Pages that know which slices
+ * they are about to show can fill the cache ahead of time with
+ * {@link SliceDataCache#prewarm(Collection)}, in which case the first bind is already complete.
  *
  * <p>When an action is taken on that {@link Slice}, we receive the action in
  * {@link SliceBroadcastReceiver}, and use the
@@ -130,16 +135,54 @@ public class SettingsSliceProvider extends SliceProvider {
 
     private static final KeyValueListParser KEY_VALUE_LIST_PARSER = new KeyValueListParser(',');
 
+    /**
+     * The slices built by a dedicated builder rather than from {@link SliceData}, keyed by
+     * {@link Uri}. Before adding a slice here, please get approval from the Settings team.
+     */
+    private static final Map<Uri, SpecialSliceBuilder> SPECIAL_SLICE_BUILDERS = new ArrayMap<>();
+
+    static {
+        SPECIAL_SLICE_BUILDERS.put(CustomSliceRegistry.WIFI_CALLING_URI,
+                (context, uri) -> FeatureFactory.getFactory(context)
+                        .getSlicesFeatureProvider()
+                        .getNewWifiCallingSliceHelper(context)
+                        .createWifiCallingSlice(uri));
+        SPECIAL_SLICE_BUILDERS.put(CustomSliceRegistry.ZEN_MODE_SLICE_URI,
+                (context, uri) -> ZenModeSliceBuilder.getSlice(context));
+        SPECIAL_SLICE_BUILDERS.put(CustomSliceRegistry.BLUETOOTH_URI,
+                (context, uri) -> BluetoothSliceBuilder.getSlice(context));
+        SPECIAL_SLICE_BUILDERS.put(CustomSliceRegistry.ENHANCED_4G_SLICE_URI,
+                (context, uri) -> FeatureFactory.getFactory(context)
+                        .getSlicesFeatureProvider()
+                        .getNewEnhanced4gLteSliceHelper(context)
+                        .createEnhanced4gLteSlice(uri));
+        SPECIAL_SLICE_BUILDERS.put(CustomSliceRegistry.WIFI_CALLING_PREFERENCE_URI,
+                (context, uri) -> FeatureFactory.getFactory(context)
+                        .getSlicesFeatureProvider()
+                        .getNewWifiCallingSliceHelper(context)
+                        .createWifiCallingPreferenceSlice(uri));
+    }
+
     @VisibleForTesting
     SlicesDatabaseAccessor mSlicesDatabaseAccessor;
 
     @VisibleForTesting
-    Map<Uri, SliceData> mSliceWeakDataCache;
+    SliceDataCache mSliceDataCache;
 
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
 
-    private Boolean mNightMode;
+    private final ContentObserver mBlockedSlicesObserver = new ContentObserver(null /* handler */) {
+        @Override
+        public void onChange(boolean selfChange) {
+            mBlockedKeys = null;
+        }
+    };
+
+    // Parsed from Settings.Global.BLOCKED_SLICES on first use, and again after it changes.
+    private volatile Set<String> mBlockedKeys;
+    private volatile Boolean mNightMode;
+    private volatile boolean mThemeRebaseNeeded;
     private boolean mFirstSlicePinned;
     private boolean mFirstSliceBound;
 
@@ -152,10 +195,24 @@ public class SettingsSliceProvider extends SliceProvider {
     public boolean onCreateSliceProvider() {
         Log.d(TAG, "onCreateSliceProvider");
         mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(getContext());
-        mSliceWeakDataCache = new WeakHashMap<>();
+        mSliceDataCache = SliceDataCache.getInstance(getContext());
+        getContext().getContentResolver().registerContentObserver(
+                Settings.Global.getUriFor(Settings.Global.BLOCKED_SLICES),
+                false /* notifyForDescendants */, mBlockedSlicesObserver);
         return true;
     }
 
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        final boolean nightMode = (newConfig.uiMode & Configuration.UI_MODE_NIGHT_MASK)
+                == Configuration.UI_MODE_NIGHT_YES;
+        if (mNightMode != null && mNightMode != nightMode) {
+            mNightMode = nightMode;
+            mThemeRebaseNeeded = true;
+        }
+    }
+
     @Override
     public void onSlicePinned(Uri sliceUri) {
         if (!mFirstSlicePinned) {
@@ -183,6 +240,7 @@ public class SettingsSliceProvider extends SliceProvider {
         }
 
         // Start warming the slice, we expect someone will want it soon.
+        mSliceDataCache.pin(sliceUri);
         loadSliceInBackground(sliceUri);
     }
 
@@ -192,6 +250,7 @@ public class SettingsSliceProvider extends SliceProvider {
         if (!VolumeSliceHelper.unregisterUri(context, sliceUri)) {
             SliceBroadcastRelay.unregisterReceivers(context, sliceUri);
         }
+        mSliceDataCache.unpin(sliceUri);
         ThreadUtils.postOnMainThread(() -> stopBackgroundWorker(sliceUri));
     }
 
@@ -200,6 +259,7 @@ public class SettingsSliceProvider extends SliceProvider {
         if (!mFirstSliceBound) {
             Log.d(TAG, "onBindSlice start: " + sliceUri);
         }
+        final long startTime = LatencyTracer.begin(Section.SLICE_BIND);
         final StrictMode.ThreadPolicy oldPolicy = StrictMode.getThreadPolicy();
         try {
             if (!ThreadUtils.isMainThread()) {
@@ -214,13 +274,13 @@ public class SettingsSliceProvider extends SliceProvider {
                 return null;
             }
 
-            final boolean nightMode = Utils.isNightMode(getContext());
+            // The night mode is tracked by onConfigurationChanged once the theme is set.
             if (mNightMode == null) {
-                mNightMode = nightMode;
+                mNightMode = Utils.isNightMode(getContext());
                 getContext().setTheme(R.style.Theme_SettingsBase);
-            } else if (mNightMode != nightMode) {
+            } else if (mThemeRebaseNeeded) {
                 Log.d(TAG, "Night mode changed, reload theme");
-                mNightMode = nightMode;
+                mThemeRebaseNeeded = false;
                 getContext().getTheme().rebase();
             }
 
@@ -233,40 +293,22 @@ public class SettingsSliceProvider extends SliceProvider {
                         .getSlice();
             }
 
-            if (CustomSliceRegistry.WIFI_CALLING_URI.equals(sliceUri)) {
-                return FeatureFactory.getFactory(getContext())
-                        .getSlicesFeatureProvider()
-                        .getNewWifiCallingSliceHelper(getContext())
-                        .createWifiCallingSlice(sliceUri);
-            } else if (CustomSliceRegistry.ZEN_MODE_SLICE_URI.equals(sliceUri)) {
-                return ZenModeSliceBuilder.getSlice(getContext());
-            } else if (CustomSliceRegistry.BLUETOOTH_URI.equals(sliceUri)) {
-                return BluetoothSliceBuilder.getSlice(getContext());
-            } else if (CustomSliceRegistry.ENHANCED_4G_SLICE_URI.equals(sliceUri)) {
-                return FeatureFactory.getFactory(getContext())
-                        .getSlicesFeatureProvider()
-                        .getNewEnhanced4gLteSliceHelper(getContext())
-                        .createEnhanced4gLteSlice(sliceUri);
-            } else if (CustomSliceRegistry.WIFI_CALLING_PREFERENCE_URI.equals(sliceUri)) {
-                return FeatureFactory.getFactory(getContext())
-                        .getSlicesFeatureProvider()
-                        .getNewWifiCallingSliceHelper(getContext())
-                        .createWifiCallingPreferenceSlice(sliceUri);
+            final SpecialSliceBuilder builder = SPECIAL_SLICE_BUILDERS.get(sliceUri);
+            if (builder != null) {
+                return builder.build(getContext(), sliceUri);
             }
 
-            final SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
+            // The cache is bounded and its entries expire unless the slice is pinned, so they are
+            // kept after being used.
+            final SliceData cachedSliceData = mSliceDataCache.get(sliceUri);
             if (cachedSliceData == null) {
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
-
-            // Remove the SliceData from the cache after it has been used to prevent a memory-leak.
-            if (!getPinnedSlices().contains(sliceUri)) {
-                mSliceWeakDataCache.remove(sliceUri);
-            }
             return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
+            LatencyTracer.end(Section.SLICE_BIND, startTime);
             if (!mFirstSliceBound) {
                 Log.v(TAG, "onBindSlice end");
                 mFirstSliceBound = true;
@@ -402,12 +444,14 @@ public class SettingsSliceProvider extends SliceProvider {
     void loadSlice(Uri uri) {
         long startBuildTime = System.currentTimeMillis();
 
-        final SliceData sliceData;
-        try {
-            sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
-        } catch (IllegalStateException e) {
-            Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
-            return;
+        SliceData sliceData = mSliceDataCache.get(uri);
+        if (sliceData == null) {
+            try {
+                sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
+            } catch (IllegalStateException e) {
+                Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
+                return;
+            }
         }
 
         final BasePreferenceController controller = SliceBuilderUtils.getPreferenceController(
@@ -426,7 +470,7 @@ public class SettingsSliceProvider extends SliceProvider {
 
         ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
 
-        mSliceWeakDataCache.put(uri, sliceData);
+        mSliceDataCache.put(uri, sliceData);
         getContext().getContentResolver().notifyChange(uri, null /* content observer */);
 
         Log.d(TAG, "Built slice (" + uri + ") in: " +
@@ -448,8 +492,21 @@ public class SettingsSliceProvider extends SliceProvider {
                 intentFilter);
     }
 
+    /**
+     * Returns the keys of the slices blocked by {@link Settings.Global#BLOCKED_SLICES}, parsed
+     * once and cached until the setting changes.
+     */
     @VisibleForTesting
     Set<String> getBlockedKeys() {
+        Set<String> blockedKeys = mBlockedKeys;
+        if (blockedKeys == null) {
+            blockedKeys = Collections.unmodifiableSet(loadBlockedKeys());
+            mBlockedKeys = blockedKeys;
+        }
+        return blockedKeys;
+    }
+
+    private Set<String> loadBlockedKeys() {
         final String value = Settings.Global.getString(getContext().getContentResolver(),
                 Settings.Global.BLOCKED_SLICES);
         final Set<String> set = new ArraySet<>();
@@ -466,6 +523,14 @@ public class SettingsSliceProvider extends SliceProvider {
         return set;
     }
 
+    /**
+     * Returns whether {@code uri} is built from the {@link SliceData} in the slices index, rather
+     * than by a {@link CustomSliceable} or a dedicated builder.
+     */
+    static boolean isIndexedSliceUri(Uri uri) {
+        return !CustomSliceRegistry.isValidUri(uri) && !SPECIAL_SLICE_BUILDERS.containsKey(uri);
+    }
+
     @VisibleForTesting
     boolean isPrivateSlicesNeeded(Uri uri) {
         final String queryUri = getContext().getString(R.string.config_non_public_slice_query_uri);
@@ -519,6 +584,11 @@ public class SettingsSliceProvider extends SliceProvider {
         return new Slice.Builder(uri).build();
     }
 
+    /** Builds a slice that is not backed by {@link SliceData}. */
+    private interface SpecialSliceBuilder {
+        Slice build(Context context, Uri sliceUri);
+    }
+
     private static String[] parseStringArray(String value) {
         if (value != null) {
             String[] parts = value.split(":");
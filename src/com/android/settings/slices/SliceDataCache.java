@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.SettingsTaskScheduler;
+import com.android.settings.core.SettingsTaskScheduler.Priority;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded cache of the {@link SliceData} read from the slices index, shared by
+ * {@link SettingsSliceProvider} and the pages hosting Settings slices in this process.
+ *
+ * <p>Entries expire {@link #TTL_MS} after they were loaded, and the least recently used one is
+ * dropped once the cache holds {@link #MAX_ENTRIES}. Slices that are pinned never expire and are
+ * never evicted, so a pinned slice keeps binding with real content until it is unpinned. Panels
+ * and the homepage call {@link #prewarm(Collection)} with the slices they are about to show, so
+ * that the first bind of those slices can be served with real content instead of a stub.
+ */
+public class SliceDataCache {
+
+    private static final String TAG = "SliceDataCache";
+
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 32;
+    @VisibleForTesting
+    static final long TTL_MS = 60_000;
+
+    private static SliceDataCache sInstance;
+
+    private final Context mContext;
+    private final Map<Uri, Entry> mEntries = new LinkedHashMap<>(16, 0.75f,
+            true /* accessOrder */);
+    private final Set<Uri> mPinnedUris = new HashSet<>();
+
+    /** Returns the instance shared by the whole process. */
+    public static synchronized SliceDataCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SliceDataCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    public static synchronized void setInstanceForTesting(@Nullable SliceDataCache cache) {
+        sInstance = cache;
+    }
+
+    @VisibleForTesting
+    SliceDataCache(Context context) {
+        mContext = context;
+    }
+
+    /** Returns the cached data of {@code uri}, or null if it is not loaded or has expired. */
+    @Nullable
+    public synchronized SliceData get(Uri uri) {
+        final Entry entry = mEntries.get(uri);
+        if (entry == null) {
+            return null;
+        }
+        if (!mPinnedUris.contains(uri) && isExpired(entry)) {
+            mEntries.remove(uri);
+            return null;
+        }
+        return entry.mData;
+    }
+
+    /**
+     * Caches {@code data} for {@code uri}, evicting the least recently used entry that is not
+     * pinned if full.
+     */
+    public synchronized void put(Uri uri, SliceData data) {
+        mEntries.put(uri, new Entry(data, getElapsedRealtime()));
+        final Iterator<Uri> iterator = mEntries.keySet().iterator();
+        while (mEntries.size() > MAX_ENTRIES && iterator.hasNext()) {
+            if (!mPinnedUris.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Keeps the data of {@code uri} cached past its TTL and capacity until it is unpinned. */
+    public synchronized void pin(Uri uri) {
+        mPinnedUris.add(uri);
+    }
+
+    /** Releases {@code uri} pinned by {@link #pin(Uri)} and drops its cached data. */
+    public synchronized void unpin(Uri uri) {
+        if (mPinnedUris.remove(uri)) {
+            mEntries.remove(uri);
+        }
+    }
+
+    public synchronized void remove(Uri uri) {
+        mEntries.remove(uri);
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * Loads the {@link SliceData} of {@code uris} in the background and resolves their
+     * controllers once, ahead of the first bind. Slices that are not built from the slices index
+     * have nothing to load and are skipped, and so are slices that are already cached.
+     */
+    public void prewarm(Collection<Uri> uris) {
+        for (Uri uri : uris) {
+            if (uri == null || !SettingsSliceProvider.isIndexedSliceUri(uri) || get(uri) != null) {
+                continue;
+            }
+            SettingsTaskScheduler.getInstance().executeUnique(Priority.PREFETCH,
+                    "SliceDataCache.prewarm:" + uri, () -> loadAndResolve(uri));
+        }
+    }
+
+    /**
+     * Reads the {@link SliceData} of {@code uri} from the slices index and caches it.
+     *
+     * @throws IllegalStateException if {@code uri} is not in the index
+     */
+    SliceData load(Uri uri) {
+        final SliceData cached = get(uri);
+        if (cached != null) {
+            return cached;
+        }
+        final SliceData data = new SlicesDatabaseAccessor(mContext).getSliceDataFromUri(uri);
+        put(uri, data);
+        return data;
+    }
+
+    private void loadAndResolve(Uri uri) {
+        final SliceData data;
+        try {
+            data = load(uri);
+        } catch (IllegalStateException e) {
+            Log.d(TAG, "Could not prewarm " + uri, e);
+            return;
+        }
+        // Instantiating the controller once loads its class off the bind path.
+        SliceBuilderUtils.getPreferenceController(mContext, data);
+    }
+
+    @VisibleForTesting
+    long getElapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    private boolean isExpired(Entry entry) {
+        return getElapsedRealtime() - entry.mLoadedAtMs >= TTL_MS;
+    }
+
+    private static class Entry {
+        private final SliceData mData;
+        private final long mLoadedAtMs;
+
+        Entry(SliceData data, long loadedAtMs) {
+            mData = data;
+            mLoadedAtMs = loadedAtMs;
+        }
+    }
+}
@@ -24,6 +24,8 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.instrumentation.LatencyTracer;
+import com.android.settings.core.instrumentation.LatencyTracer.Section;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
@@ -68,7 +70,7 @@ class SlicesIndexer implements Runnable {
 
         final SQLiteDatabase database = mHelper.getWritableDatabase();
 
-        long startTime = System.currentTimeMillis();
+        final long startTime = LatencyTracer.begin(Section.SLICE_INDEX);
         database.beginTransaction();
         try {
             mHelper.reconstruct(database);
@@ -76,13 +78,10 @@ class SlicesIndexer implements Runnable {
             insertSliceData(database, indexData);
 
             mHelper.setIndexedState();
-
-            // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
+            LatencyTracer.end(Section.SLICE_INDEX, startTime);
         }
     }
 
@@ -21,7 +21,6 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -32,9 +31,13 @@ import androidx.preference.PreferenceGroup;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
+import com.android.settings.core.SettingsTaskScheduler;
 import com.android.settingslib.users.AppCopyHelper;
 import com.android.settingslib.widget.AppSwitchPreference;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
 /**
  * Allows an admin user to selectively copy some of their installed packages to a second user.
  */
@@ -58,7 +61,9 @@ public class AppCopyFragment extends SettingsPreferenceFragment {
 
     private boolean mAppListChanged;
 
-    private AsyncTask mAppLoadingTask;
+    // Loads and applies the app list in order, so an apply never races the load it is based on.
+    private Executor mAppsExecutor;
+    private Future<?> mAppLoadingTask;
 
     private final BroadcastReceiver mUserBackgrounding = new BroadcastReceiver() {
         @Override
@@ -85,6 +90,8 @@ public class AppCopyFragment extends SettingsPreferenceFragment {
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
+        mAppsExecutor = SettingsTaskScheduler.getInstance().newSerialExecutor(
+                SettingsTaskScheduler.Priority.UI_CRITICAL);
         init(icicle);
     }
 
@@ -136,8 +143,12 @@ public class AppCopyFragment extends SettingsPreferenceFragment {
         getActivity().registerReceiver(mPackageObserver, packageFilter);
 
         mAppListChanged = false;
-        if (mAppLoadingTask == null || mAppLoadingTask.getStatus() == AsyncTask.Status.FINISHED) {
-            mAppLoadingTask = new AppLoadingTask().execute();
+        if (mAppLoadingTask == null || mAppLoadingTask.isDone()) {
+            mAppLoadingTask = SettingsTaskScheduler.getInstance().submit(this,
+                    mAppsExecutor, TAG + ".loadApps", () -> {
+                        mHelper.fetchAndMergeApps();
+                        return null;
+                    }, result -> populateApps());
         }
     }
 
@@ -147,13 +158,8 @@ public class AppCopyFragment extends SettingsPreferenceFragment {
         getActivity().unregisterReceiver(mUserBackgrounding);
         getActivity().unregisterReceiver(mPackageObserver);
         if (mAppListChanged) {
-            new AsyncTask<Void, Void, Void>() {
-                @Override
-                protected Void doInBackground(Void... params) {
-                    mHelper.installSelectedApps();
-                    return null;
-                }
-            }.execute();
+            SettingsTaskScheduler.getInstance().execute(mAppsExecutor, TAG + ".applyApps",
+                    () -> mHelper.installSelectedApps());
         }
     }
 
@@ -175,20 +181,6 @@ public class AppCopyFragment extends SettingsPreferenceFragment {
         }
     }
 
-    private class AppLoadingTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... params) {
-            mHelper.fetchAndMergeApps();
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void result) {
-            populateApps();
-        }
-    }
-
     private void populateApps() {
         // Check if the user was removed in the meantime.
         if (Utils.getExistingUser(mUserManager, mUser) == null) {
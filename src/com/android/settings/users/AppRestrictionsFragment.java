@@ -32,7 +32,6 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.ResolveInfo;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.RemoteException;
 import android.os.ServiceManager;
@@ -59,6 +58,7 @@ import androidx.preference.SwitchPreference;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
+import com.android.settings.core.SettingsTaskScheduler;
 import com.android.settingslib.users.AppRestrictionsHelper;
 
 import java.util.ArrayList;
@@ -68,6 +68,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 public class AppRestrictionsFragment extends SettingsPreferenceFragment implements
         OnPreferenceChangeListener, OnClickListener, OnPreferenceClickListener,
@@ -109,7 +111,9 @@ public class AppRestrictionsFragment extends SettingsPreferenceFragment implemen
 
     private HashMap<Integer, AppRestrictionsPreference> mCustomRequestMap = new HashMap<>();
 
-    private AsyncTask mAppLoadingTask;
+    // Loads and applies the app list in order, so an apply never races the load it is based on.
+    private Executor mAppsExecutor;
+    private Future<?> mAppLoadingTask;
 
     private BroadcastReceiver mUserBackgrounding = new BroadcastReceiver() {
         @Override
@@ -214,6 +218,8 @@ public class AppRestrictionsFragment extends SettingsPreferenceFragment implemen
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
+        mAppsExecutor = SettingsTaskScheduler.getInstance().newSerialExecutor(
+                SettingsTaskScheduler.Priority.UI_CRITICAL);
         init(icicle);
     }
 
@@ -274,8 +280,12 @@ public class AppRestrictionsFragment extends SettingsPreferenceFragment implemen
         getActivity().registerReceiver(mPackageObserver, packageFilter);
 
         mAppListChanged = false;
-        if (mAppLoadingTask == null || mAppLoadingTask.getStatus() == AsyncTask.Status.FINISHED) {
-            mAppLoadingTask = new AppLoadingTask().execute();
+        if (mAppLoadingTask == null || mAppLoadingTask.isDone()) {
+            mAppLoadingTask = SettingsTaskScheduler.getInstance().submit(this,
+                    mAppsExecutor, TAG + ".loadApps", () -> {
+                        mHelper.fetchAndMergeApps();
+                        return null;
+                    }, result -> populateApps());
         }
     }
 
@@ -286,13 +296,8 @@ public class AppRestrictionsFragment extends SettingsPreferenceFragment implemen
         getActivity().unregisterReceiver(mUserBackgrounding);
         getActivity().unregisterReceiver(mPackageObserver);
         if (mAppListChanged) {
-            new AsyncTask<Void, Void, Void>() {
-                @Override
-                protected Void doInBackground(Void... params) {
-                    mHelper.applyUserAppsStates(AppRestrictionsFragment.this);
-                    return null;
-                }
-            }.execute();
+            SettingsTaskScheduler.getInstance().execute(mAppsExecutor, TAG + ".applyApps",
+                    () -> mHelper.applyUserAppsStates(this));
         }
     }
 
@@ -323,20 +328,6 @@ public class AppRestrictionsFragment extends SettingsPreferenceFragment implemen
         }
     }
 
-    private class AppLoadingTask extends AsyncTask<Void, Void, Void> {
-
-        @Override
-        protected Void doInBackground(Void... params) {
-            mHelper.fetchAndMergeApps();
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void result) {
-            populateApps();
-        }
-    }
-
     private boolean isPlatformSigned(PackageInfo pi) {
         return (pi != null && pi.signatures != null &&
                     mSysPackageInfo.signatures[0].equals(pi.signatures[0]));
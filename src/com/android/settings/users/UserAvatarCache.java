@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.ArraySet;
+import android.util.LruCache;
+import android.util.SparseIntArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.internal.util.UserIcons;
+import com.android.settings.R;
+import com.android.settingslib.drawable.CircleFramedDrawable;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Process wide cache of user avatars, already encircled and scaled to the size of a user list
+ * entry. Avatars are decoded in parallel on background threads, and dropped when the user info
+ * changes or the user is removed.
+ */
+public class UserAvatarCache {
+    // Room for a few dozen avatars at the user list icon size.
+    @VisibleForTesting
+    static final int MAX_SIZE_BYTES = 2 * 1024 * 1024;
+
+    private static UserAvatarCache sInstance;
+
+    private final Resources mResources;
+    private final UserManager mUserManager;
+    private final int mIconSize;
+    private final LruCache<Integer, Bitmap> mAvatars =
+            new LruCache<Integer, Bitmap>(MAX_SIZE_BYTES) {
+                @Override
+                protected int sizeOf(Integer userId, Bitmap avatar) {
+                    return avatar.getAllocationByteCount();
+                }
+            };
+    @GuardedBy("mLoadingUserIds")
+    private final Set<Integer> mLoadingUserIds = new ArraySet<>();
+    // Bumped whenever the avatar of a user changes, so that a load started before is dropped.
+    @GuardedBy("mLoadingUserIds")
+    private final SparseIntArray mGenerations = new SparseIntArray();
+    @GuardedBy("mLoadingUserIds")
+    private final List<PendingCallback> mPendingCallbacks = new ArrayList<>();
+
+    private final BroadcastReceiver mUserChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final int userId = intent.getIntExtra(Intent.EXTRA_USER_HANDLE, UserHandle.USER_NULL);
+            if (userId != UserHandle.USER_NULL) {
+                invalidate(userId);
+            }
+        }
+    };
+
+    /** Returns the process wide instance. */
+    public static synchronized UserAvatarCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new UserAvatarCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private UserAvatarCache(Context context) {
+        mResources = context.getResources();
+        mUserManager = context.getSystemService(UserManager.class);
+        mIconSize = mResources.getDimensionPixelSize(R.dimen.multiple_users_user_icon_size);
+
+        final IntentFilter filter = new IntentFilter(Intent.ACTION_USER_INFO_CHANGED);
+        filter.addAction(Intent.ACTION_USER_REMOVED);
+        context.registerReceiver(mUserChangeReceiver, filter);
+    }
+
+    /**
+     * Returns the cached avatar of {@code userId}, or {@code null} if it is not loaded yet.
+     */
+    @Nullable
+    public Drawable getAvatar(int userId) {
+        final Bitmap avatar = mAvatars.get(userId);
+        // Each caller gets its own drawable, only the bitmap is shared.
+        return avatar != null ? new BitmapDrawable(mResources, avatar) : null;
+    }
+
+    /**
+     * Encircle {@code icon} and cache it as the avatar of {@code userId}.
+     */
+    public void putAvatar(int userId, Bitmap icon) {
+        final Bitmap avatar = createAvatar(icon);
+        synchronized (mLoadingUserIds) {
+            bumpGeneration(userId);
+            mAvatars.put(userId, avatar);
+        }
+    }
+
+    /**
+     * Load the avatars of {@code userIds} that are neither cached nor already loading, in
+     * parallel, then run {@code onLoaded} on the main thread once none of them is loading
+     * anymore, including the ones loaded for an earlier caller.
+     */
+    public void loadAvatars(List<Integer> userIds, Runnable onLoaded) {
+        final List<Integer> toLoad = new ArrayList<>();
+        final Set<Integer> waitingFor = new ArraySet<>();
+        final List<Integer> generations = new ArrayList<>();
+        synchronized (mLoadingUserIds) {
+            for (int userId : userIds) {
+                if (mLoadingUserIds.contains(userId)) {
+                    waitingFor.add(userId);
+                } else if (mAvatars.get(userId) == null) {
+                    mLoadingUserIds.add(userId);
+                    waitingFor.add(userId);
+                    toLoad.add(userId);
+                    generations.add(mGenerations.get(userId));
+                }
+            }
+            if (!waitingFor.isEmpty()) {
+                mPendingCallbacks.add(new PendingCallback(waitingFor, onLoaded));
+            }
+        }
+        if (waitingFor.isEmpty()) {
+            // Loaded since the caller looked them up.
+            ThreadUtils.postOnMainThread(onLoaded);
+            return;
+        }
+
+        for (int i = 0; i < toLoad.size(); i++) {
+            final int userId = toLoad.get(i);
+            final int generation = generations.get(i);
+            ThreadUtils.postOnBackgroundThread(() -> {
+                final Bitmap avatar = loadAvatar(userId);
+                final List<Runnable> ready = new ArrayList<>();
+                synchronized (mLoadingUserIds) {
+                    // Dropped if the user changed while loading, the next load picks it up.
+                    if (mGenerations.get(userId) == generation) {
+                        mAvatars.put(userId, avatar);
+                    }
+                    mLoadingUserIds.remove(userId);
+                    final Iterator<PendingCallback> iterator = mPendingCallbacks.iterator();
+                    while (iterator.hasNext()) {
+                        final PendingCallback callback = iterator.next();
+                        callback.mUserIds.remove(userId);
+                        if (callback.mUserIds.isEmpty()) {
+                            iterator.remove();
+                            ready.add(callback.mOnLoaded);
+                        }
+                    }
+                }
+                for (Runnable onReady : ready) {
+                    ThreadUtils.postOnMainThread(onReady);
+                }
+            });
+        }
+    }
+
+    /** Drop the cached avatar of {@code userId}. */
+    public void invalidate(int userId) {
+        synchronized (mLoadingUserIds) {
+            bumpGeneration(userId);
+            mAvatars.remove(userId);
+        }
+    }
+
+    @GuardedBy("mLoadingUserIds")
+    private void bumpGeneration(int userId) {
+        mGenerations.put(userId, mGenerations.get(userId) + 1);
+    }
+
+    @WorkerThread
+    private Bitmap loadAvatar(int userId) {
+        Bitmap icon = mUserManager.getUserIcon(userId);
+        if (icon == null) {
+            icon = UserIcons.convertToBitmapAtUserIconSize(mResources,
+                    UserIcons.getDefaultUserIcon(mResources, userId, false));
+        }
+        return createAvatar(icon);
+    }
+
+    private Bitmap createAvatar(Bitmap icon) {
+        final CircleFramedDrawable drawable = new CircleFramedDrawable(icon, mIconSize);
+        final Bitmap avatar = Bitmap.createBitmap(mIconSize, mIconSize, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, mIconSize, mIconSize);
+        drawable.draw(new Canvas(avatar));
+        return avatar;
+    }
+
+    private static class PendingCallback {
+        private final Set<Integer> mUserIds;
+        private final Runnable mOnLoaded;
+
+        PendingCallback(Set<Integer> userIds, Runnable onLoaded) {
+            mUserIds = userIds;
+            mOnLoaded = onLoaded;
+        }
+    }
+}
@@ -37,7 +37,6 @@ import android.graphics.BlendMode;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
@@ -72,6 +71,7 @@ import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
+import com.android.settings.core.SettingsTaskScheduler;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.password.ChooseLockGeneric;
 import com.android.settings.search.BaseSearchIndexProvider;
@@ -195,7 +195,7 @@ public class UserSettings extends SettingsPreferenceFragment
     @VisibleForTesting
     RestrictedPreference mAddSupervisedUser;
     @VisibleForTesting
-    SparseArray<Bitmap> mUserIcons = new SparseArray<>();
+    UserAvatarCache mUserAvatarCache;
     private int mRemovingUserId = -1;
     private boolean mAddingUser;
     private boolean mGuestUserAutoCreated;
@@ -254,7 +254,7 @@ public class UserSettings extends SettingsPreferenceFragment
             } else if (intent.getAction().equals(Intent.ACTION_USER_INFO_CHANGED)) {
                 int userHandle = intent.getIntExtra(Intent.EXTRA_USER_HANDLE, -1);
                 if (userHandle != -1) {
-                    mUserIcons.remove(userHandle);
+                    getUserAvatarCache().invalidate(userHandle);
                 }
             }
             mHandler.sendEmptyMessage(MESSAGE_UPDATE_LIST);
@@ -485,22 +485,16 @@ public class UserSettings extends SettingsPreferenceFragment
             return;
         }
 
-        new AsyncTask<Void, Void, String>() {
-            @Override
-            protected void onPostExecute(String result) {
-                finishLoadProfile(result);
-            }
-
-            @Override
-            protected String doInBackground(Void... values) {
-                UserInfo user = mUserManager.getUserInfo(UserHandle.myUserId());
-                if (user.iconPath == null || user.iconPath.equals("")) {
-                    // Assign profile photo.
-                    copyMeProfilePhoto(getActivity(), user);
-                }
-                return user.name;
-            }
-        }.execute();
+        final Activity activity = getActivity();
+        SettingsTaskScheduler.getInstance().submit(this,
+                SettingsTaskScheduler.Priority.UI_CRITICAL, TAG + ".loadProfile", () -> {
+                    UserInfo user = mUserManager.getUserInfo(UserHandle.myUserId());
+                    if (user.iconPath == null || user.iconPath.equals("")) {
+                        // Assign profile photo.
+                        copyMeProfilePhoto(activity, user);
+                    }
+                    return user.name;
+                }, this::finishLoadProfile);
     }
 
     private void finishLoadProfile(String profileName) {
@@ -511,8 +505,8 @@ public class UserSettings extends SettingsPreferenceFragment
         int myUserId = UserHandle.myUserId();
         Bitmap b = mUserManager.getUserIcon(myUserId);
         if (b != null) {
-            mMePreference.setIcon(encircleUserIcon(b));
-            mUserIcons.put(myUserId, b);
+            getUserAvatarCache().putAvatar(myUserId, b);
+            mMePreference.setIcon(getUserAvatarCache().getAvatar(myUserId));
         }
     }
 
@@ -1236,12 +1230,13 @@ public class UserSettings extends SettingsPreferenceFragment
                 pref.setSummary(R.string.user_summary_restricted_profile);
             }
             if (user.iconPath != null) {
-                if (mUserIcons.get(user.id) == null) {
+                final Drawable avatar = getUserAvatarCache().getAvatar(user.id);
+                if (avatar == null) {
                     // Icon not loaded yet, print a placeholder
                     missingIcons.add(user.id);
                     pref.setIcon(getEncircledDefaultIcon());
                 } else {
-                    setPhotoId(pref, user);
+                    pref.setIcon(avatar);
                 }
             } else {
                 // Icon not available yet, print a placeholder
@@ -1515,24 +1510,14 @@ public class UserSettings extends SettingsPreferenceFragment
     }
 
     private void loadIconsAsync(List<Integer> missingIcons) {
-        new AsyncTask<List<Integer>, Void, Void>() {
-            @Override
-            protected void onPostExecute(Void result) {
-                updateUserList();
-            }
+        getUserAvatarCache().loadAvatars(missingIcons, this::updateUserList);
+    }
 
-            @Override
-            protected Void doInBackground(List<Integer>... values) {
-                for (int userId : values[0]) {
-                    Bitmap bitmap = mUserManager.getUserIcon(userId);
-                    if (bitmap == null) {
-                        bitmap = getDefaultUserIconAsBitmap(getContext().getResources(), userId);
-                    }
-                    mUserIcons.append(userId, bitmap);
-                }
-                return null;
-            }
-        }.execute(missingIcons);
+    private UserAvatarCache getUserAvatarCache() {
+        if (mUserAvatarCache == null) {
+            mUserAvatarCache = UserAvatarCache.getInstance(getContext());
+        }
+        return mUserAvatarCache;
     }
 
     private Drawable getEncircledDefaultIcon() {
@@ -1543,13 +1528,6 @@ public class UserSettings extends SettingsPreferenceFragment
         return mDefaultIconDrawable;
     }
 
-    private void setPhotoId(Preference pref, UserInfo user) {
-        Bitmap bitmap = mUserIcons.get(user.id);
-        if (bitmap != null) {
-            pref.setIcon(encircleUserIcon(bitmap));
-        }
-    }
-
     @Override
     public boolean onPreferenceClick(Preference pref) {
         if (isCurrentUserGuest()) {
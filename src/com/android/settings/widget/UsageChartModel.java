@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.widget;
+
+import android.util.SparseIntArray;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The content of a {@link UsageView} graph, computed once from the loaded data and then bound to
+ * the view as many times as needed, e.g. each time a preference is rebound while scrolling.
+ *
+ * <p>A model is immutable: the points given to the {@link Builder} are copied, and the view
+ * copies them again when they are applied.
+ */
+public final class UsageChartModel {
+
+    private final int mMaxX;
+    private final int mMaxY;
+    private final List<SparseIntArray> mPaths;
+    @Nullable
+    private final SparseIntArray mProjectedPath;
+    @Nullable
+    private final CharSequence mContentDescription;
+
+    private UsageChartModel(Builder builder) {
+        mMaxX = builder.mMaxX;
+        mMaxY = builder.mMaxY;
+        mPaths = Collections.unmodifiableList(new ArrayList<>(builder.mPaths));
+        mProjectedPath = builder.mProjectedPath;
+        mContentDescription = builder.mContentDescription;
+    }
+
+    public int getMaxX() {
+        return mMaxX;
+    }
+
+    public int getMaxY() {
+        return mMaxY;
+    }
+
+    @Nullable
+    public CharSequence getContentDescription() {
+        return mContentDescription;
+    }
+
+    /** Replaces the graph of {@code view} with this model. */
+    public void applyTo(UsageView view) {
+        view.clearPaths();
+        view.configureGraph(mMaxX, mMaxY);
+        for (SparseIntArray path : mPaths) {
+            view.addPath(path);
+        }
+        if (mProjectedPath != null) {
+            view.addProjectedPath(mProjectedPath);
+        }
+        if (mContentDescription != null) {
+            view.setContentDescription(mContentDescription);
+        }
+    }
+
+    /** Builder of {@link UsageChartModel}. */
+    public static class Builder {
+        private int mMaxX = 100;
+        private int mMaxY = 100;
+        private final List<SparseIntArray> mPaths = new ArrayList<>();
+        private SparseIntArray mProjectedPath;
+        private CharSequence mContentDescription;
+
+        /** Sets the values at the right and top edges of the graph. */
+        public Builder setMax(int maxX, int maxY) {
+            mMaxX = maxX;
+            mMaxY = maxY;
+            return this;
+        }
+
+        /** Adds a path of at least one point, keyed by x. */
+        public Builder addPath(SparseIntArray points) {
+            mPaths.add(points.clone());
+            return this;
+        }
+
+        /** Sets the path drawn as a projection, of at least one point, keyed by x. */
+        public Builder setProjectedPath(@Nullable SparseIntArray points) {
+            mProjectedPath = points != null ? points.clone() : null;
+            return this;
+        }
+
+        public Builder setContentDescription(@Nullable CharSequence contentDescription) {
+            mContentDescription = contentDescription;
+            return this;
+        }
+
+        public UsageChartModel build() {
+            return new UsageChartModel(this);
+        }
+    }
+}
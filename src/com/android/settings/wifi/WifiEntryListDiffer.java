@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi;
+
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.wifitrackerlib.WifiEntry;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Computes how a list of {@link WifiEntry} changed since the last update, by entry key and a hash
+ * of the state shown for each entry, so that only the rows that changed need to be rebound.
+ *
+ * <p>The differ remembers the last list it was given; call {@link #reset()} whenever the rows it
+ * describes are cleared by other means.
+ */
+public class WifiEntryListDiffer {
+
+    private Map<String, Integer> mStateHashes = Collections.emptyMap();
+
+    /** Compares {@code wifiEntries} with the previous list and remembers them for the next call. */
+    @NonNull
+    public Diff update(@NonNull List<WifiEntry> wifiEntries) {
+        final Map<String, Integer> stateHashes = new ArrayMap<>(wifiEntries.size());
+        final Diff diff = new Diff();
+        for (WifiEntry wifiEntry : wifiEntries) {
+            final String key = wifiEntry.getKey();
+            final int stateHash = getStateHash(wifiEntry);
+            stateHashes.put(key, stateHash);
+            final Integer previousStateHash = mStateHashes.get(key);
+            if (previousStateHash != null && previousStateHash != stateHash) {
+                diff.mChangedKeys.add(key);
+            }
+        }
+        for (String key : mStateHashes.keySet()) {
+            if (!stateHashes.containsKey(key)) {
+                diff.mRemovedKeys.add(key);
+            }
+        }
+
+        mStateHashes = stateHashes;
+        return diff;
+    }
+
+    /** Forgets the previous list, so that the next update reports no removed or changed entry. */
+    public void reset() {
+        mStateHashes = Collections.emptyMap();
+    }
+
+    /** Returns a hash of everything about {@code wifiEntry} that is shown to the user. */
+    @VisibleForTesting
+    static int getStateHash(WifiEntry wifiEntry) {
+        return Objects.hash(
+                wifiEntry.getTitle(),
+                wifiEntry.getSummary(false /* concise */),
+                wifiEntry.getLevel(),
+                wifiEntry.shouldShowXLevelIcon(),
+                wifiEntry.getSecurity(),
+                wifiEntry.getConnectedState(),
+                wifiEntry.isSaved(),
+                wifiEntry.canConnect(),
+                wifiEntry.canDisconnect(),
+                wifiEntry.canSignIn(),
+                wifiEntry.shouldEditBeforeConnect(),
+                wifiEntry.hasInternetAccess(),
+                wifiEntry.getHelpUriString());
+    }
+
+    /** The changes between two consecutive lists of {@link WifiEntry}. */
+    public static class Diff {
+        private final Set<String> mRemovedKeys = new ArraySet<>();
+        private final Set<String> mChangedKeys = new ArraySet<>();
+
+        /** Returns the keys of the entries that are no longer in the list. */
+        public Set<String> getRemovedKeys() {
+            return mRemovedKeys;
+        }
+
+        /** Returns whether the entry with {@code key} is still listed but shows a new state. */
+        public boolean isChanged(String key) {
+            return mChangedKeys.contains(key);
+        }
+    }
+}
@@ -93,6 +93,19 @@ public class WifiEntryPreference extends Preference implements WifiEntry.WifiEnt
         return mWifiEntry;
     }
 
+    /**
+     * Binds this preference to {@code wifiEntry}, which replaces an entry of the same network.
+     */
+    public void setWifiEntry(@NonNull WifiEntry wifiEntry) {
+        if (mWifiEntry == wifiEntry) {
+            return;
+        }
+        mWifiEntry.setListener(null);
+        mWifiEntry = wifiEntry;
+        mWifiEntry.setListener(this);
+        refresh();
+    }
+
     @Override
     public void onBindViewHolder(final PreferenceViewHolder view) {
         super.onBindViewHolder(view);
@@ -116,6 +116,8 @@ public class WifiSettings extends RestrictedSettingsFragment
     private static final long MAX_SCAN_AGE_MILLIS = 15_000;
     // Interval between initiating WifiPickerTracker scans
     private static final long SCAN_INTERVAL_MILLIS = 10_000;
+    // Min interval between two rebuilds of the list while scan results keep arriving
+    private static final long MIN_WIFI_ENTRY_UPDATE_INTERVAL_MS = 300;
 
     @VisibleForTesting
     static final int ADD_NETWORK_REQUEST = 2;
@@ -166,7 +168,10 @@ public class WifiSettings extends RestrictedSettingsFragment
     }
 
     private boolean mIsWifiEntryListStale = true;
+    // Uptime of the last list update, see MIN_WIFI_ENTRY_UPDATE_INTERVAL_MS.
+    private long mLastWifiEntryUpdateTime;
     private final Runnable mUpdateWifiEntryPreferencesRunnable = () -> {
+        mLastWifiEntryUpdateTime = SystemClock.uptimeMillis();
         updateWifiEntryPreferences();
     };
     private final Runnable mHideProgressBarRunnable = () -> {
@@ -194,6 +199,7 @@ public class WifiSettings extends RestrictedSettingsFragment
 
     @VisibleForTesting
     WifiPickerTracker mWifiPickerTracker;
+    private final WifiEntryListDiffer mWifiEntryListDiffer = new WifiEntryListDiffer();
 
     private WifiDialog2 mDialog;
 
@@ -740,20 +746,25 @@ public class WifiSettings extends RestrictedSettingsFragment
     }
 
     /**
-     * Updates WifiEntries from {@link WifiPickerTracker#getWifiEntries()}. Adds a delay to have
-     * progress bar displayed before starting to modify entries.
+     * Updates WifiEntries from {@link WifiPickerTracker#getWifiEntries()} on the next frame, so
+     * that the progress bar is displayed first and a burst of scan results is applied at once.
+     * While scan results keep arriving, the list is rebuilt at most once per
+     * {@link #MIN_WIFI_ENTRY_UPDATE_INTERVAL_MS}.
      */
     private void updateWifiEntryPreferencesDelayed() {
         // Safeguard from some delayed event handling
         if (getActivity() != null && !mIsRestricted
                 && mWifiPickerTracker.getWifiState() == WifiManager.WIFI_STATE_ENABLED) {
             final View view = getView();
-            final Handler handler = view.getHandler();
-            if (handler != null && handler.hasCallbacks(mUpdateWifiEntryPreferencesRunnable)) {
-                return;
-            }
             setProgressBarVisible(true);
-            view.postDelayed(mUpdateWifiEntryPreferencesRunnable, 300);
+            view.removeCallbacks(mUpdateWifiEntryPreferencesRunnable);
+            final long delayMs = mLastWifiEntryUpdateTime + MIN_WIFI_ENTRY_UPDATE_INTERVAL_MS
+                    - SystemClock.uptimeMillis();
+            if (delayMs > 0) {
+                view.postDelayed(mUpdateWifiEntryPreferencesRunnable, delayMs);
+            } else {
+                view.postOnAnimation(mUpdateWifiEntryPreferencesRunnable);
+            }
         }
     }
 
@@ -801,47 +812,52 @@ public class WifiSettings extends RestrictedSettingsFragment
         }
 
         int index = 0;
-        cacheRemoveAllPrefs(mWifiEntryPreferenceCategory);
-        List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
+        final List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
+        final WifiEntryListDiffer.Diff diff = mWifiEntryListDiffer.update(wifiEntries);
+        for (String key : diff.getRemovedKeys()) {
+            removeWifiEntryPreference(key);
+        }
         for (WifiEntry wifiEntry : wifiEntries) {
             hasAvailableWifiEntries = true;
 
-            String key = wifiEntry.getKey();
-            LongPressWifiEntryPreference pref =
-                    (LongPressWifiEntryPreference) getCachedPreference(key);
-            if (pref != null) {
-                if (pref.getWifiEntry() == wifiEntry) {
-                    pref.setOrder(index++);
-                    continue;
-                } else {
-                    // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
-                }
-            }
-
-            pref = createLongPressWifiEntryPreference(wifiEntry);
-            pref.setKey(wifiEntry.getKey());
-            pref.setOrder(index++);
-            pref.refresh();
+            final String key = wifiEntry.getKey();
+            final int order = index++;
+            LongPressWifiEntryPreference pref = mWifiEntryPreferenceCategory.findPreference(key);
+            if (pref == null) {
+                pref = createLongPressWifiEntryPreference(wifiEntry);
+                pref.setKey(key);
+                pref.setOrder(order);
+                pref.refresh();
 
-            if (wifiEntry.getHelpUriString() != null) {
+                final LongPressWifiEntryPreference helpPref = pref;
                 pref.setOnButtonClickListener(preference -> {
-                    openSubscriptionHelpPage(wifiEntry);
+                    openSubscriptionHelpPage(helpPref.getWifiEntry());
                 });
+                mWifiEntryPreferenceCategory.addPreference(pref);
+                continue;
+            }
+            if (pref.getWifiEntry() != wifiEntry) {
+                // Same network with a new WifiEntry object, rebind the row instead of recreating.
+                pref.setWifiEntry(wifiEntry);
+            } else if (diff.isChanged(key)) {
+                pref.refresh();
             }
-            mWifiEntryPreferenceCategory.addPreference(pref);
+            pref.setOrder(order);
         }
-        removeCachedPrefs(mWifiEntryPreferenceCategory);
 
         if (!hasAvailableWifiEntries) {
             setProgressBarVisible(true);
-            Preference pref = new Preference(getPrefContext());
-            pref.setSelectable(false);
-            pref.setSummary(R.string.wifi_empty_list_wifi_on);
-            pref.setOrder(index++);
-            pref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
-            mWifiEntryPreferenceCategory.addPreference(pref);
+            if (mWifiEntryPreferenceCategory.findPreference(PREF_KEY_EMPTY_WIFI_LIST) == null) {
+                Preference pref = new Preference(getPrefContext());
+                pref.setSelectable(false);
+                pref.setSummary(R.string.wifi_empty_list_wifi_on);
+                pref.setOrder(index);
+                pref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
+                mWifiEntryPreferenceCategory.addPreference(pref);
+            }
+            index++;
         } else {
+            removeWifiEntryPreference(PREF_KEY_EMPTY_WIFI_LIST);
             // Continuing showing progress bar for an additional delay to overlap with animation
             getView().postDelayed(mHideProgressBarRunnable, 1700 /* delay millis */);
         }
@@ -892,9 +908,17 @@ public class WifiSettings extends RestrictedSettingsFragment
 
     private void removeWifiEntryPreference() {
         mWifiEntryPreferenceCategory.removeAll();
+        mWifiEntryListDiffer.reset();
         mWifiEntryPreferenceCategory.setVisible(false);
     }
 
+    private void removeWifiEntryPreference(String key) {
+        final Preference preference = mWifiEntryPreferenceCategory.findPreference(key);
+        if (preference != null) {
+            mWifiEntryPreferenceCategory.removePreference(preference);
+        }
+    }
+
     @VisibleForTesting
     void setAdditionalSettingsSummaries() {
         mConfigureWifiSettingsPreference.setSummary(getString(
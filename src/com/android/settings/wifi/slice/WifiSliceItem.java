@@ -22,6 +22,8 @@ import android.text.TextUtils;
 import com.android.settingslib.R;
 import com.android.wifitrackerlib.WifiEntry;
 
+import java.util.Objects;
+
 /**
  * The data set which is needed by a Wi-Fi Slice, it collects necessary data from {@link WifiEntry}
  * and provides similar getter methods for corresponding data.
@@ -86,6 +88,11 @@ public class WifiSliceItem {
         return true;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(mKey, mConnectedState, mLevel, mShouldShowXLevelIcon, mSummary);
+    }
+
     public String getKey() {
         return mKey;
     }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.tests.perf;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+
+import static junit.framework.TestCase.fail;
+
+import android.os.Bundle;
+import android.support.test.uiautomator.By;
+import android.support.test.uiautomator.UiDevice;
+import android.support.test.uiautomator.Until;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures cold starts of the Settings homepage: the time to the first frame, reported by
+ * {@code am start -W}, and the time until the homepage reports itself fully drawn.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HomepageStartupTest {
+    private static final String TAG = "HomepageStartupTest";
+    private static final String ACTION = "android.settings.SETTINGS";
+    private static final String DISPLAY_NAME = "Search settings";
+    private static final int TIME_OUT = 5000;
+    private static final int TEST_TIME = 10;
+    private static final Pattern FIRST_FRAME_PATTERN = Pattern.compile("TotalTime:\\s([0-9]+)");
+    private static final Pattern FULLY_DRAWN_PATTERN = Pattern.compile(
+            "Fully drawn com\\.android\\.settings/[^:]*: \\+(?:([0-9]+)s)?([0-9]+)ms");
+
+    private UiDevice mDevice;
+    private List<Integer> mFirstFrameResults;
+    private List<Integer> mFullyDrawnResults;
+
+    @Before
+    public void setUp() throws Exception {
+        mDevice = UiDevice.getInstance(getInstrumentation());
+        mFirstFrameResults = new ArrayList<>();
+        mFullyDrawnResults = new ArrayList<>();
+        mDevice.pressHome();
+        mDevice.waitForIdle(TIME_OUT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        final Bundle bundle = new Bundle();
+        putResults(bundle, "first_frame", mFirstFrameResults);
+        putResults(bundle, "fully_drawn", mFullyDrawnResults);
+        getInstrumentation().sendStatus(0, bundle);
+        closeApp();
+    }
+
+    @Test
+    public void homepageColdStartTest() throws Exception {
+        // Launch once and leave the homepage so that the next cold starts have a snapshot.
+        launchHomepage();
+        mDevice.pressHome();
+        mDevice.waitForIdle(TIME_OUT);
+
+        for (int i = 0; i < TEST_TIME; i++) {
+            closeApp();
+            mDevice.executeShellCommand("logcat -c");
+            final String launchResult = launchHomepage();
+            mFirstFrameResults.add(parse(FIRST_FRAME_PATTERN, launchResult, "first frame"));
+            mFullyDrawnResults.add(waitForFullyDrawn());
+        }
+    }
+
+    private String launchHomepage() throws Exception {
+        final String result = mDevice.executeShellCommand("am start -W -a " + ACTION);
+        mDevice.wait(Until.findObject(By.text(DISPLAY_NAME)), TIME_OUT);
+        return result;
+    }
+
+    private int waitForFullyDrawn() throws Exception {
+        final long deadline = System.currentTimeMillis() + TIME_OUT;
+        while (System.currentTimeMillis() < deadline) {
+            final Matcher matcher = FULLY_DRAWN_PATTERN.matcher(
+                    mDevice.executeShellCommand("logcat -d -s ActivityTaskManager"));
+            if (matcher.find()) {
+                final int seconds = matcher.group(1) == null
+                        ? 0 : Integer.parseInt(matcher.group(1));
+                return seconds * 1000 + Integer.parseInt(matcher.group(2));
+            }
+            Thread.sleep(100);
+        }
+        fail("Homepage was not reported fully drawn");
+        return 0;
+    }
+
+    private int parse(Pattern pattern, String output, String name) {
+        final Matcher matcher = pattern.matcher(output);
+        if (!matcher.find()) {
+            fail(String.format("Not found %s.\n %s", name, output));
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private void closeApp() throws Exception {
+        mDevice.executeShellCommand("am force-stop com.android.settings");
+        Thread.sleep(1000);
+    }
+
+    private static void putResults(Bundle bundle, String name, List<Integer> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        final List<Integer> sorted = new ArrayList<>(results);
+        Collections.sort(sorted);
+        final String prefix = TAG + "_" + name + "_";
+        bundle.putString(prefix + "min", String.valueOf(sorted.get(0)));
+        bundle.putString(prefix + "max", String.valueOf(sorted.get(sorted.size() - 1)));
+        bundle.putString(prefix + "50 Percentile", String.valueOf(sorted.get(sorted.size() / 2)));
+        bundle.putString(prefix + "avg", String.valueOf(
+                (int) sorted.stream().mapToInt(i -> i).average().orElse(0)));
+        bundle.putString(prefix + "all_results", results.toString());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.android.settings.applications.manageapplications.AppFilterRegistry.FILTER_APPS_ALL;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.os.Looper;
+import android.os.UserManager;
+import android.widget.Filter;
+
+import androidx.fragment.app.FragmentActivity;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.testutils.shadow.ShadowAppUtils;
+import com.android.settings.testutils.shadow.ShadowUserManager;
+import com.android.settingslib.applications.ApplicationsState;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowUserManager.class, ShadowAppUtils.class})
+public class ManageApplicationsSearchBenchmark {
+
+    private static final String[] WORDS = new String[] {
+            "Maps", "Camera", "Music", "Notes", "Photos", "Weather", "Clock", "Files"};
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Mock
+    private ApplicationsState mState;
+    @Mock
+    private ApplicationsState.Session mSession;
+    @Mock
+    private FragmentActivity mActivity;
+    @Mock
+    private Resources mResources;
+    @Mock
+    private UserManager mUserManager;
+    @Mock
+    private PackageManager mPackageManager;
+
+    private ManageApplications.ApplicationsAdapter mAdapter;
+    private Filter mSearchFilter;
+    private Method mPerformFiltering;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        final Context context = RuntimeEnvironment.application;
+        ReflectionHelpers.setStaticField(ApplicationsState.class, "sInstance", mState);
+        when(mState.newSession(any())).thenReturn(mSession);
+        when(mState.getBackgroundLooper()).thenReturn(Looper.myLooper());
+        final ManageApplications fragment = spy(new ManageApplications());
+        when(fragment.getContext()).thenReturn(context);
+        when(fragment.getActivity()).thenReturn(mActivity);
+        when(mActivity.getResources()).thenReturn(mResources);
+        when(mActivity.getSystemService(UserManager.class)).thenReturn(mUserManager);
+        when(mActivity.getPackageManager()).thenReturn(mPackageManager);
+
+        mAdapter = new ManageApplications.ApplicationsAdapter(mState, fragment,
+                AppFilterRegistry.getInstance().get(FILTER_APPS_ALL),
+                null /* savedInstanceState */);
+        // The search filter runs on a worker thread of its own; measure the filtering itself.
+        final Constructor<?> constructor = Class.forName(
+                ManageApplications.ApplicationsAdapter.class.getName() + "$SearchFilter")
+                .getDeclaredConstructor(ManageApplications.ApplicationsAdapter.class);
+        constructor.setAccessible(true);
+        mSearchFilter = (Filter) constructor.newInstance(mAdapter);
+        mPerformFiltering = Filter.class.getDeclaredMethod("performFiltering", CharSequence.class);
+        mPerformFiltering.setAccessible(true);
+    }
+
+    @Test
+    public void filterSearch() throws Exception {
+        for (int apps : new int[] {100, 500, 2000}) {
+            ReflectionHelpers.setField(mAdapter, "mOriginalEntries", createEntries(apps));
+            mBenchmarkRule.measure("apps=" + apps,
+                    state -> mPerformFiltering.invoke(mSearchFilter, "cam"));
+        }
+    }
+
+    private static ArrayList<ApplicationsState.AppEntry> createEntries(int apps) {
+        final ArrayList<ApplicationsState.AppEntry> entries = new ArrayList<>(apps);
+        for (int i = 0; i < apps; i++) {
+            final ApplicationsState.AppEntry entry = mock(ApplicationsState.AppEntry.class);
+            entry.label = WORDS[i % WORDS.length] + " " + i;
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/** The measured iterations of one benchmark at one fixture size, in nanoseconds per operation. */
+public class BenchmarkResult {
+    static final String KEY_NAME = "name";
+    static final String KEY_UNIT = "unit";
+    static final String KEY_MIN = "min";
+    static final String KEY_MEDIAN = "median";
+    static final String KEY_P90 = "p90";
+    static final String KEY_MEAN = "mean";
+    static final String KEY_OPERATIONS = "operations";
+    static final String KEY_SAMPLES = "samples";
+
+    private final String mName;
+    private final double[] mSamples;
+    private final long mOperations;
+
+    BenchmarkResult(String name, double[] samples, long operations) {
+        mName = name;
+        mSamples = samples.clone();
+        Arrays.sort(mSamples);
+        mOperations = operations;
+    }
+
+    /** Returns the unique name of the benchmark, e.g. {@code ClassName#method[size=100]}. */
+    public String getName() {
+        return mName;
+    }
+
+    public double getMin() {
+        return mSamples[0];
+    }
+
+    public double getMedian() {
+        return percentile(50);
+    }
+
+    public double getP90() {
+        return percentile(90);
+    }
+
+    public double getMean() {
+        double sum = 0;
+        for (double sample : mSamples) {
+            sum += sample;
+        }
+        return sum / mSamples.length;
+    }
+
+    private double percentile(int percentile) {
+        final int index = (int) Math.ceil(percentile / 100.0 * mSamples.length) - 1;
+        return mSamples[Math.max(0, Math.min(mSamples.length - 1, index))];
+    }
+
+    /** Returns the result as a single line JSON object. */
+    public String toJson() {
+        try {
+            final JSONArray samples = new JSONArray();
+            for (double sample : mSamples) {
+                samples.put(Math.round(sample));
+            }
+            return new JSONObject()
+                    .put(KEY_NAME, mName)
+                    .put(KEY_UNIT, "ns/op")
+                    .put(KEY_MIN, Math.round(getMin()))
+                    .put(KEY_MEDIAN, Math.round(getMedian()))
+                    .put(KEY_P90, Math.round(getP90()))
+                    .put(KEY_MEAN, Math.round(getMean()))
+                    .put(KEY_OPERATIONS, mOperations)
+                    .put(KEY_SAMPLES, samples)
+                    .toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: median %,.0f ns/op, p90 %,.0f ns/op, min %,.0f ns/op",
+                mName, getMedian(), getP90(), getMin());
+    }
+}
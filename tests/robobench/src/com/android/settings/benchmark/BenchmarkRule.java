@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures operations the way JMH does: a few warmup iterations that are thrown away, followed by
+ * measurement iterations that each run the operation for a fixed time and report the average time
+ * of one operation.
+ *
+ * <p>Every result is printed, and appended as one JSON object per line to the file named by the
+ * {@code settings.benchmark.output} system property, if set. When
+ * {@code settings.benchmark.baseline} names such a file from an earlier run, the test fails if
+ * the median of a benchmark got slower than its baseline by more than
+ * {@code settings.benchmark.tolerance}, a ratio that defaults to {@code 0.2}.
+ *
+ * <p>The number and length of iterations can be changed with
+ * {@code settings.benchmark.warmupIterations}, {@code settings.benchmark.iterations} and
+ * {@code settings.benchmark.iterationMillis}.
+ *
+ * <pre>
+ * &#64;Rule
+ * public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+ *
+ * &#64;Test
+ * public void sortList() throws Exception {
+ *     for (int size : new int[] {10, 100, 1000}) {
+ *         mBenchmarkRule.measure("size=" + size, () -> createList(size), Collections::sort);
+ *     }
+ * }
+ * </pre>
+ */
+public class BenchmarkRule implements TestRule {
+    private static final String PROPERTY_PREFIX = "settings.benchmark.";
+
+    private static Map<String, Double> sBaseline;
+    // Written by every operation so that the JIT cannot drop the work as dead code.
+    private static volatile int sSink;
+
+    private final int mWarmupIterations =
+            Integer.getInteger(PROPERTY_PREFIX + "warmupIterations", 3);
+    private final int mIterations = Integer.getInteger(PROPERTY_PREFIX + "iterations", 5);
+    private final long mIterationNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong(PROPERTY_PREFIX + "iterationMillis", 200));
+    private final List<BenchmarkResult> mResults = new ArrayList<>();
+    private Description mDescription;
+
+    /** Creates the state an operation runs on. It is not part of the measured time. */
+    public interface Setup<T> {
+        T create() throws Exception;
+    }
+
+    /** The measured operation. What it returns is consumed so that it cannot be optimized out. */
+    public interface Operation<T> {
+        Object run(T state) throws Exception;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                mDescription = description;
+                mResults.clear();
+                base.evaluate();
+                report();
+            }
+        };
+    }
+
+    /**
+     * Measures {@code operation}, which needs no state of its own.
+     *
+     * @param params describes the fixture, e.g. {@code size=100}
+     */
+    public BenchmarkResult measure(String params, Operation<Void> operation) throws Exception {
+        return measure(params, () -> null, operation);
+    }
+
+    /**
+     * Measures {@code operation} on a new state from {@code setup} for every call, for operations
+     * that change their input.
+     *
+     * @param params describes the fixture, e.g. {@code size=100}
+     */
+    public <T> BenchmarkResult measure(String params, Setup<T> setup, Operation<T> operation)
+            throws Exception {
+        for (int i = 0; i < mWarmupIterations; i++) {
+            runIteration(setup, operation, null /* operations */);
+        }
+        final double[] samples = new double[mIterations];
+        final long[] operations = new long[1];
+        for (int i = 0; i < mIterations; i++) {
+            samples[i] = runIteration(setup, operation, operations);
+        }
+        final BenchmarkResult result = new BenchmarkResult(
+                getTestName() + "[" + params + "]", samples, operations[0]);
+        mResults.add(result);
+        return result;
+    }
+
+    private String getTestName() {
+        final String className = mDescription.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "#"
+                + mDescription.getMethodName();
+    }
+
+    // Returns the average time of one operation, in nanoseconds.
+    private <T> double runIteration(Setup<T> setup, Operation<T> operation, long[] operations)
+            throws Exception {
+        long elapsed = 0;
+        int count = 0;
+        do {
+            final T state = setup.create();
+            final long start = System.nanoTime();
+            final Object result = operation.run(state);
+            elapsed += System.nanoTime() - start;
+            sSink ^= System.identityHashCode(result);
+            count++;
+        } while (elapsed < mIterationNanos);
+        if (operations != null) {
+            operations[0] += count;
+        }
+        return (double) elapsed / count;
+    }
+
+    private void report() throws IOException {
+        final String output = System.getProperty(PROPERTY_PREFIX + "output");
+        try (Writer writer = output != null ? new FileWriter(output, true /* append */) : null) {
+            for (BenchmarkResult result : mResults) {
+                System.out.println(result);
+                if (writer != null) {
+                    writer.write(result.toJson());
+                    writer.write('\n');
+                }
+            }
+        }
+
+        final Map<String, Double> baseline = getBaseline();
+        final double tolerance =
+                Double.parseDouble(System.getProperty(PROPERTY_PREFIX + "tolerance", "0.2"));
+        final StringBuilder regressions = new StringBuilder();
+        for (BenchmarkResult result : mResults) {
+            final Double baselineMedian = baseline.get(result.getName());
+            if (baselineMedian != null
+                    && result.getMedian() > baselineMedian * (1 + tolerance)) {
+                regressions.append(String.format("\n%s: median %,.0f ns/op, baseline %,.0f ns/op",
+                        result.getName(), result.getMedian(), baselineMedian));
+            }
+        }
+        if (regressions.length() > 0) {
+            throw new AssertionError("Benchmarks slower than the baseline by more than "
+                    + Math.round(tolerance * 100) + "%:" + regressions);
+        }
+    }
+
+    private static synchronized Map<String, Double> getBaseline() throws IOException {
+        if (sBaseline != null) {
+            return sBaseline;
+        }
+        sBaseline = new HashMap<>();
+        final String path = System.getProperty(PROPERTY_PREFIX + "baseline");
+        if (path == null) {
+            return sBaseline;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                final JSONObject result = new JSONObject(line);
+                sBaseline.put(result.getString(BenchmarkResult.KEY_NAME),
+                        result.getDouble(BenchmarkResult.KEY_MEDIAN));
+            }
+        } catch (JSONException e) {
+            throw new IOException("Malformed baseline " + path, e);
+        }
+        return sBaseline;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import com.android.settings.DisplaySettings;
+import com.android.settings.LegalSettings;
+import com.android.settings.notification.SoundSettings;
+import com.android.settings.search.SearchFeatureProvider;
+import com.android.settings.search.SearchFeatureProviderImpl;
+import com.android.settings.testutils.FakeFeatureFactory;
+import com.android.settingslib.search.Indexable.SearchIndexProvider;
+import com.android.settingslib.search.SearchIndexableData;
+
+import java.util.Collection;
+
+/** Fills the search index registry with a given number of real Settings pages. */
+public class SearchIndexableFixture {
+
+    // Small, medium and large pages, registered in turn.
+    private static final Class<?>[] PAGE_CLASSES = new Class<?>[] {
+            LegalSettings.class, DisplaySettings.class, SoundSettings.class};
+    private static final SearchIndexProvider[] PAGE_PROVIDERS = new SearchIndexProvider[] {
+            LegalSettings.SEARCH_INDEX_DATA_PROVIDER,
+            DisplaySettings.SEARCH_INDEX_DATA_PROVIDER,
+            SoundSettings.SEARCH_INDEX_DATA_PROVIDER};
+
+    private SearchIndexableFixture() {
+    }
+
+    /** Makes {@code featureFactory} return a registry of {@code count} pages. */
+    public static void setUp(FakeFeatureFactory featureFactory, int count) {
+        final SearchFeatureProvider searchFeatureProvider = new SearchFeatureProviderImpl();
+        final Collection<SearchIndexableData> providers =
+                searchFeatureProvider.getSearchIndexableResources().getProviderValues();
+        providers.clear();
+        for (int i = 0; i < count; i++) {
+            // A new instance every time, the registry may be a set.
+            providers.add(new SearchIndexableData(PAGE_CLASSES[i % PAGE_CLASSES.length],
+                    PAGE_PROVIDERS[i % PAGE_PROVIDERS.length]));
+        }
+        featureFactory.searchFeatureProvider = searchFeatureProvider;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+
+import com.android.settings.R;
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceXmlParserBenchmark {
+
+    // The flags search indexing and slice conversion ask for, together.
+    private static final int ALL_FLAGS = MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+            | MetadataFlag.FLAG_NEED_KEY
+            | MetadataFlag.FLAG_NEED_PREF_TYPE
+            | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+            | MetadataFlag.FLAG_NEED_PREF_TITLE
+            | MetadataFlag.FLAG_NEED_PREF_SUMMARY
+            | MetadataFlag.FLAG_NEED_PREF_ICON
+            | MetadataFlag.FLAG_NEED_KEYWORDS
+            | MetadataFlag.FLAG_NEED_SEARCHABLE
+            | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void extractMetadata_keysOnly() throws Exception {
+        measure(MetadataFlag.FLAG_NEED_KEY);
+    }
+
+    @Test
+    public void extractMetadata_allFlags() throws Exception {
+        measure(ALL_FLAGS);
+    }
+
+    // Screens from small to large.
+    private void measure(int flags) throws Exception {
+        mBenchmarkRule.measure("xml=about_legal", state ->
+                PreferenceXmlParserUtils.extractMetadata(mContext, R.xml.about_legal, flags));
+        mBenchmarkRule.measure("xml=display_settings", state ->
+                PreferenceXmlParserUtils.extractMetadata(mContext, R.xml.display_settings, flags));
+        mBenchmarkRule.measure("xml=sound_settings", state ->
+                PreferenceXmlParserUtils.extractMetadata(mContext, R.xml.sound_settings, flags));
+    }
+}
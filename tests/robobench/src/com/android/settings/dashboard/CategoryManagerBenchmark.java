@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.TileUtils.META_DATA_KEY_ORDER;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYHINT;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ProviderInfo;
+import android.os.Bundle;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settingslib.drawer.ActivityTile;
+import com.android.settingslib.drawer.CategoryKey;
+import com.android.settingslib.drawer.DashboardCategory;
+import com.android.settingslib.drawer.ProviderTile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class CategoryManagerBenchmark {
+
+    private static final String[] CATEGORIES = new String[] {
+            CategoryKey.CATEGORY_HOMEPAGE,
+            CategoryKey.CATEGORY_ACCOUNT,
+            CategoryKey.CATEGORY_SECURITY,
+            CategoryKey.CATEGORY_SOUND,
+    };
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private CategoryManager mCategoryManager;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCategoryManager = new CategoryManager(mContext);
+    }
+
+    @Test
+    public void sortAndFilterTiles() throws Exception {
+        for (int tiles : new int[] {20, 100, 500}) {
+            mBenchmarkRule.measure("tiles=" + tiles, () -> createCategories(tiles), categories -> {
+                mCategoryManager.sortCategories(mContext, categories);
+                mCategoryManager.filterDuplicateTiles(categories);
+                return categories;
+            });
+        }
+    }
+
+    /**
+     * Spreads {@code tiles} over a few categories, from several packages with clashing orders,
+     * with one in ten tiles a duplicate of an earlier one.
+     */
+    private static Map<String, DashboardCategory> createCategories(int tiles) {
+        final Map<String, DashboardCategory> categories = new HashMap<>();
+        for (String key : CATEGORIES) {
+            categories.put(key, new DashboardCategory(key));
+        }
+        for (int i = 0; i < tiles; i++) {
+            final String categoryKey = CATEGORIES[i % CATEGORIES.length];
+            final int id = i % 10 == 9 ? i - CATEGORIES.length : i;
+            final String packageName = "com.example.package" + (id % 5);
+            final int order = (id * 31) % 7;
+            if (i % 4 == 0) {
+                final ProviderInfo providerInfo = new ProviderInfo();
+                providerInfo.packageName = packageName;
+                providerInfo.name = "Provider" + id;
+                providerInfo.authority = packageName + ".authority";
+                final Bundle metaData = new Bundle();
+                metaData.putString(META_DATA_PREFERENCE_KEYHINT, "key" + id);
+                metaData.putInt(META_DATA_KEY_ORDER, order);
+                categories.get(categoryKey).addTile(
+                        new ProviderTile(providerInfo, categoryKey, metaData));
+            } else {
+                final ActivityInfo activityInfo = new ActivityInfo();
+                activityInfo.packageName = packageName;
+                activityInfo.name = "Activity" + id;
+                activityInfo.metaData = new Bundle();
+                activityInfo.metaData.putInt(META_DATA_KEY_ORDER, order);
+                categories.get(categoryKey).addTile(new ActivityTile(activityInfo, categoryKey));
+            }
+        }
+        return categories;
+    }
+}
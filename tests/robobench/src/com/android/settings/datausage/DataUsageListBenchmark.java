@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.NetworkStats;
+import android.content.Context;
+import android.os.Process;
+import android.os.UserHandle;
+
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.testutils.FakeFeatureFactory;
+import com.android.settingslib.net.UidDetail;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
+
+@RunWith(RobolectricTestRunner.class)
+public class DataUsageListBenchmark {
+
+    // Uids of a user that is not a profile of the current one.
+    private static final int OTHER_USER_ID = 11;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private DataUsageList mDataUsageList;
+
+    @Before
+    public void setUp() {
+        FakeFeatureFactory.setupForTest();
+        final Context context = RuntimeEnvironment.application;
+        mDataUsageList = spy(DataUsageList.class);
+        doReturn(context).when(mDataUsageList).getContext();
+
+        final PreferenceScreen screen =
+                new PreferenceManager(context).createPreferenceScreen(context);
+        final PreferenceCategory apps = new PreferenceCategory(context);
+        screen.addPreference(apps);
+        ReflectionHelpers.setField(mDataUsageList, "mApps", apps);
+
+        final UidDetail uidDetail = new UidDetail();
+        uidDetail.label = "App";
+        final UidDetailProvider uidDetailProvider = mock(UidDetailProvider.class);
+        when(uidDetailProvider.getUidDetail(anyInt(), anyBoolean())).thenReturn(uidDetail);
+        ReflectionHelpers.setField(mDataUsageList, "mUidDetailProvider", uidDetailProvider);
+    }
+
+    @Test
+    public void bindStats() throws Exception {
+        for (int buckets : new int[] {50, 200, 1000}) {
+            final int[] uids = createUids(buckets);
+            final int[] restrictedUids = createRestrictedUids(buckets);
+            mBenchmarkRule.measure("buckets=" + buckets, () -> createStats(uids), stats -> {
+                mDataUsageList.bindStats(stats, restrictedUids);
+                return stats;
+            });
+        }
+    }
+
+    /**
+     * Mostly apps of the current user, some of them more than once, with system uids and apps of
+     * another user mixed in, like a real summary.
+     */
+    private static int[] createUids(int buckets) {
+        final int[] uids = new int[buckets];
+        for (int i = 0; i < buckets; i++) {
+            if (i % 10 == 0) {
+                uids[i] = Process.SYSTEM_UID + i % 3;
+            } else if (i % 10 == 1) {
+                uids[i] = UserHandle.getUid(OTHER_USER_ID, Process.FIRST_APPLICATION_UID + i);
+            } else {
+                uids[i] = Process.FIRST_APPLICATION_UID + i * 3 / 4;
+            }
+        }
+        return uids;
+    }
+
+    private static int[] createRestrictedUids(int buckets) {
+        final int[] uids = new int[buckets / 20];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = Process.FIRST_APPLICATION_UID + i * 20;
+        }
+        return uids;
+    }
+
+    // The buckets are filled in by a mock, whose own cost is part of every measurement.
+    private static NetworkStats createStats(int[] uids) {
+        final NetworkStats stats = mock(NetworkStats.class);
+        final int[] next = new int[1];
+        when(stats.hasNextBucket()).thenAnswer(invocation -> next[0] < uids.length);
+        when(stats.getNextBucket(any())).thenAnswer(invocation -> {
+            final NetworkStats.Bucket bucket = invocation.getArgument(0);
+            final int uid = uids[next[0]++];
+            ReflectionHelpers.setField(bucket, "mUid", uid);
+            ReflectionHelpers.setField(bucket, "mRxBytes", (long) uid * 1024);
+            ReflectionHelpers.setField(bucket, "mTxBytes", (long) uid * 128);
+            return true;
+        });
+        return stats;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.text.format.DateUtils;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+@RunWith(RobolectricTestRunner.class)
+public class DataProcessorBenchmark {
+
+    // A week of hourly snapshots, the longest history the usage chart shows.
+    private static final int HOURS = 7 * 24;
+    // Monday, 2 January 2023 00:00 GMT+8.
+    private static final long START_TIME = 1672588800000L;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT+8"));
+        FakeFeatureFactory.setupForTest();
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void getBatteryUsageData() throws Exception {
+        for (int apps : new int[] {10, 50, 200}) {
+            final Map<Long, Map<String, BatteryHistEntry>> historyMap = createHistoryMap(apps);
+            mBenchmarkRule.measure("apps=" + apps,
+                    state -> DataProcessor.getBatteryUsageData(mContext, historyMap));
+        }
+    }
+
+    // Every app uses a bit more battery each hour, while the level goes down from 100 to 1.
+    private static Map<Long, Map<String, BatteryHistEntry>> createHistoryMap(int apps) {
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap = new HashMap<>();
+        for (int hour = 0; hour <= HOURS; hour++) {
+            final int level = 100 - hour * 99 / HOURS;
+            final Map<String, BatteryHistEntry> entries = new HashMap<>();
+            for (int app = 0; app < apps; app++) {
+                final BatteryHistEntry entry = createEntry(app, hour, level);
+                entries.put(entry.getKey(), entry);
+            }
+            historyMap.put(START_TIME + hour * DateUtils.HOUR_IN_MILLIS, entries);
+        }
+        return historyMap;
+    }
+
+    private static BatteryHistEntry createEntry(int app, int hour, int level) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, "com.example.app" + app);
+        values.put(BatteryHistEntry.KEY_APP_LABEL, "App " + app);
+        values.put(BatteryHistEntry.KEY_UID, 10000L + app);
+        values.put(BatteryHistEntry.KEY_USER_ID, 0L);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+        values.put(BatteryHistEntry.KEY_TOTAL_POWER, 10000.0);
+        values.put(BatteryHistEntry.KEY_CONSUME_POWER, (app + 1) * hour * 0.5);
+        values.put(BatteryHistEntry.KEY_FOREGROUND_USAGE_TIME,
+                (long) (app % 7) * hour * DateUtils.MINUTE_IN_MILLIS);
+        values.put(BatteryHistEntry.KEY_BACKGROUND_USAGE_TIME,
+                (long) (app % 3) * hour * DateUtils.MINUTE_IN_MILLIS);
+        values.put(BatteryHistEntry.KEY_BATTERY_LEVEL, level);
+        return new BatteryHistEntry(values);
+    }
+}
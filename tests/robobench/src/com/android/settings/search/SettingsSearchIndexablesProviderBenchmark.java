@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static org.mockito.Mockito.mock;
+
+import android.Manifest;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.SearchIndexableFixture;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class SettingsSearchIndexablesProviderBenchmark {
+
+    private static final int[] PAGES = new int[] {10, 50, 200};
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private FakeFeatureFactory mFakeFeatureFactory;
+    private SettingsSearchIndexablesProvider mProvider;
+
+    @Before
+    public void setUp() {
+        mProvider = new SettingsSearchIndexablesProvider();
+        final ProviderInfo info = new ProviderInfo();
+        info.exported = true;
+        info.grantUriPermissions = true;
+        info.authority = "com.android.settings";
+        info.readPermission = Manifest.permission.READ_SEARCH_INDEXABLES;
+        mProvider.attachInfo(RuntimeEnvironment.application, info);
+        mFakeFeatureFactory = FakeFeatureFactory.setupForTest();
+    }
+
+    @After
+    public void tearDown() {
+        mFakeFeatureFactory.searchFeatureProvider = mock(SearchFeatureProvider.class);
+    }
+
+    @Test
+    public void queryXmlResources() throws Exception {
+        for (int pages : PAGES) {
+            SearchIndexableFixture.setUp(mFakeFeatureFactory, pages);
+            mBenchmarkRule.measure("pages=" + pages,
+                    state -> readAll(mProvider.queryXmlResources(null /* projection */)));
+        }
+    }
+
+    @Test
+    public void queryRawData() throws Exception {
+        for (int pages : PAGES) {
+            SearchIndexableFixture.setUp(mFakeFeatureFactory, pages);
+            mBenchmarkRule.measure("pages=" + pages,
+                    state -> readAll(mProvider.queryRawData(null /* projection */)));
+        }
+    }
+
+    @Test
+    public void queryNonIndexableKeys() throws Exception {
+        for (int pages : PAGES) {
+            SearchIndexableFixture.setUp(mFakeFeatureFactory, pages);
+            mBenchmarkRule.measure("pages=" + pages,
+                    state -> readAll(mProvider.queryNonIndexableKeys(null /* projection */)));
+        }
+    }
+
+    // Walks every row, like the search app does when it indexes.
+    private static int readAll(Cursor cursor) {
+        int rows = 0;
+        while (cursor.moveToNext()) {
+            rows++;
+        }
+        cursor.close();
+        return rows;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.SearchIndexableFixture;
+import com.android.settings.search.SearchFeatureProvider;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceDataConverterBenchmark {
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private FakeFeatureFactory mFakeFeatureFactory;
+    private SliceDataConverter mSliceDataConverter;
+
+    @Before
+    public void setUp() {
+        mFakeFeatureFactory = FakeFeatureFactory.setupForTest();
+        mSliceDataConverter = spy(new SliceDataConverter(RuntimeEnvironment.application));
+        doReturn(Collections.emptyList()).when(mSliceDataConverter)
+                .getAccessibilityServiceInfoList();
+    }
+
+    @After
+    public void tearDown() {
+        mFakeFeatureFactory.searchFeatureProvider = mock(SearchFeatureProvider.class);
+    }
+
+    @Test
+    public void getSliceData() throws Exception {
+        for (int pages : new int[] {10, 50, 200}) {
+            SearchIndexableFixture.setUp(mFakeFeatureFactory, pages);
+            mBenchmarkRule.measure("pages=" + pages, state -> mSliceDataConverter.getSliceData());
+        }
+    }
+}
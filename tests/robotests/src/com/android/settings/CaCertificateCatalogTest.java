@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.StringParceledListSlice;
+import android.security.IKeyChainService;
+import android.util.Base64;
+
+import com.android.settings.TrustedCredentialsSettings.Tab;
+import com.android.settings.core.SettingsTaskScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class CaCertificateCatalogTest {
+    private static final int PROFILE_ID = 0;
+    private static final String ALIAS_ORG = "system:org.0";
+    private static final String ALIAS_CN = "system:cn.0";
+    // Self-signed, subject O=Test Org, CN=Test CA.
+    private static final byte[] CERT_ORG = Base64.decode(
+            "MIIBoDCCAUegAwIBAgIUQWj9PrwTU7izrw0pdYNUOcAfbrEwCgYIKoZIzj0EAwIw"
+            + "JTERMA8GA1UECgwIVGVzdCBPcmcxEDAOBgNVBAMMB1Rlc3QgQ0EwIBcNMjYxMDE5"
+            + "MTUzODQ3WhgPMjEyNjA5MjUxNTM4NDdaMCUxETAPBgNVBAoMCFRlc3QgT3JnMRAw"
+            + "DgYDVQQDDAdUZXN0IENBMFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAEf/GdvYXJ"
+            + "+2IfniQP6F+EHVAOePLwLcc4IVg+X8fXQuZKJRlzyrnJYeUFqYqWi4PowZxlzL5z"
+            + "VuFFgq/j4wZ+iKNTMFEwHQYDVR0OBBYEFDuwwZnlFVS6cjCpeBHuDk3iBDgkMB8G"
+            + "A1UdIwQYMBaAFDuwwZnlFVS6cjCpeBHuDk3iBDgkMA8GA1UdEwEB/wQFMAMBAf8w"
+            + "CgYIKoZIzj0EAwIDRwAwRAIgE5leAg/z6pHNC2Z4SJ2sGVExKuURYhUXk5sPij3E"
+            + "C9oCIGkYvOpKvmLcnoAg7cZimA3m3rZhCZHz1s/kwRdiuqe0", Base64.DEFAULT);
+    // Self-signed, subject CN=Another CA.
+    private static final byte[] CERT_CN = Base64.decode(
+            "MIIBgjCCASegAwIBAgIUWO6IabDledzo0Ww4X6fmMceYw/0wCgYIKoZIzj0EAwIw"
+            + "FTETMBEGA1UEAwwKQW5vdGhlciBDQTAgFw0yNjEwMTkxNTM4NDdaGA8yMTI2MDky"
+            + "NTE1Mzg0N1owFTETMBEGA1UEAwwKQW5vdGhlciBDQTBZMBMGByqGSM49AgEGCCqG"
+            + "SM49AwEHA0IABC9kLuCDY1EH05f0Q0ABMhcHROvNTXnzR7TZb/hP/wtWkFcnVHao"
+            + "gwH9w8UnIbx3WF25WuhPr2G/tvkoIdBf2P2jUzBRMB0GA1UdDgQWBBShEVeSIT85"
+            + "oNvwH4r2/I/zXt8lJzAfBgNVHSMEGDAWgBShEVeSIT85oNvwH4r2/I/zXt8lJzAP"
+            + "BgNVHRMBAf8EBTADAQH/MAoGCCqGSM49BAMCA0kAMEYCIQDdZFlFQseZSfeMJQrD"
+            + "TYLuliUPdTkbCs4Mo0KP7eRDdQIhAPfz7h0B5lHkb4OhYlXNZYzLrBS147Ylrxeq"
+            + "qyacxEoa", Base64.DEFAULT);
+
+    @Mock
+    private IKeyChainService mService;
+    private CaCertificateCatalog mCatalog;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        SettingsTaskScheduler.setInstanceForTesting(new SettingsTaskScheduler(Runnable::run));
+        mCatalog = new CaCertificateCatalog(null /* context */);
+        when(mService.getSystemCaAliases()).thenReturn(
+                new StringParceledListSlice(Arrays.asList(ALIAS_ORG, ALIAS_CN)));
+        when(mService.getEncodedCaCertificate(ALIAS_ORG, false)).thenReturn(CERT_ORG);
+        when(mService.getEncodedCaCertificate(ALIAS_ORG, true)).thenReturn(CERT_ORG);
+        when(mService.getEncodedCaCertificate(ALIAS_CN, false)).thenReturn(CERT_CN);
+        when(mService.getEncodedCaCertificate(ALIAS_CN, true)).thenReturn(CERT_CN);
+    }
+
+    @After
+    public void tearDown() {
+        SettingsTaskScheduler.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void getEntries_parsedAndSortedBySubject() throws Exception {
+        final AtomicInteger loaded = new AtomicInteger();
+
+        final List<CaCertificateCatalog.Entry> entries =
+                mCatalog.getEntries(mService, Tab.SYSTEM, PROFILE_ID, loaded::incrementAndGet);
+
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).mAlias).isEqualTo(ALIAS_CN);
+        assertThat(entries.get(0).mSubjectPrimary).isEqualTo("Another CA");
+        assertThat(entries.get(0).mSubjectSecondary).isEmpty();
+        assertThat(entries.get(1).mAlias).isEqualTo(ALIAS_ORG);
+        assertThat(entries.get(1).mSubjectPrimary).isEqualTo("Test Org");
+        assertThat(entries.get(1).mSubjectSecondary).isEqualTo("Test CA");
+        assertThat(loaded.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getEntries_deletedSystemCertificate_markedDeleted() throws Exception {
+        when(mService.getEncodedCaCertificate(ALIAS_ORG, false)).thenReturn(null);
+
+        final List<CaCertificateCatalog.Entry> entries =
+                mCatalog.getEntries(mService, Tab.SYSTEM, PROFILE_ID, () -> {});
+
+        assertThat(entries.get(0).mDeleted).isFalse();
+        assertThat(entries.get(1).mDeleted).isTrue();
+    }
+
+    @Test
+    public void getEntries_secondVisit_notFetchedAgain() throws Exception {
+        mCatalog.getEntries(mService, Tab.SYSTEM, PROFILE_ID, () -> {});
+        mCatalog.getEntries(mService, Tab.SYSTEM, PROFILE_ID, () -> {});
+
+        verify(mService, times(1)).getSystemCaAliases();
+        verify(mService, times(2)).getEncodedCaCertificate(anyString(), anyBoolean());
+    }
+
+    @Test
+    public void getEntries_afterInvalidate_fetchedAgainButNotParsedAgain() throws Exception {
+        final List<CaCertificateCatalog.Entry> entries =
+                mCatalog.getEntries(mService, Tab.SYSTEM, PROFILE_ID, () -> {});
+
+        mCatalog.invalidate();
+        final List<CaCertificateCatalog.Entry> newEntries =
+                mCatalog.getEntries(mService, Tab.SYSTEM, PROFILE_ID, () -> {});
+
+        verify(mService, times(2)).getSystemCaAliases();
+        assertThat(newEntries.get(0)).isSameInstanceAs(entries.get(0));
+        assertThat(newEntries.get(1)).isSameInstanceAs(entries.get(1));
+    }
+}
@@ -31,10 +31,13 @@ import android.content.pm.ResolveInfo;
 
 import androidx.annotation.NonNull;
 
+import com.android.settings.core.SettingsTaskScheduler;
+import com.android.settings.core.instrumentation.LatencyTracer;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -69,6 +72,11 @@ public class SettingsDumpServiceTest {
         mTestService.setPackageManager(mPackageManager);
     }
 
+    @After
+    public void tearDown() {
+        SettingsTaskScheduler.setInstanceForTesting(null);
+    }
+
     @Test
     public void testDumpDefaultBrowser_DefaultBrowser_ReturnBrowserName() {
         mResolveInfo.activityInfo = new ActivityInfo();
@@ -113,6 +121,34 @@ public class SettingsDumpServiceTest {
         assertThat(object.get(TestService.KEY_SERVICE)).isNotNull();
     }
 
+    @Test
+    public void testDump_containsLatency() throws JSONException {
+        mResolveInfo.activityInfo = new ActivityInfo();
+        mResolveInfo.activityInfo.packageName = PACKAGE_BROWSER;
+        LatencyTracer.record(LatencyTracer.Section.SLICE_BIND, 1000000L /* durationNanos */);
+        TestPrintWriter printWriter = new TestPrintWriter(System.out);
+
+        mTestService.dump(null, printWriter, null);
+        JSONObject object = (JSONObject) printWriter.getPrintObject();
+
+        assertThat(object.getJSONObject(TestService.KEY_LATENCY).has("slice_bind")).isTrue();
+    }
+
+    @Test
+    public void testDump_containsBackgroundTasks() throws JSONException {
+        mResolveInfo.activityInfo = new ActivityInfo();
+        mResolveInfo.activityInfo.packageName = PACKAGE_BROWSER;
+        SettingsTaskScheduler.setInstanceForTesting(new SettingsTaskScheduler(Runnable::run));
+        SettingsTaskScheduler.getInstance().execute(SettingsTaskScheduler.Priority.MAINTENANCE,
+                "task", () -> {});
+        TestPrintWriter printWriter = new TestPrintWriter(System.out);
+
+        mTestService.dump(null, printWriter, null);
+        JSONObject object = (JSONObject) printWriter.getPrintObject();
+
+        assertThat(object.getJSONObject(TestService.KEY_BACKGROUND_TASKS).has("task")).isTrue();
+    }
+
     /**
      * Test service used to pass in the mock {@link PackageManager}
      */
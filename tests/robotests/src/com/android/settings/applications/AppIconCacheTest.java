@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.UserHandle;
+
+import com.android.settings.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppIconCacheTest {
+    private static final String PACKAGE_NAME = "com.android.test";
+
+    private Context mContext;
+    private AppIconCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new AppIconCache(mContext);
+    }
+
+    @Test
+    public void getLabel_loadedOnce() {
+        final ApplicationInfo info = createApplicationInfo(0 /* userId */, "Label");
+        mCache.getLabel(info);
+        info.nonLocalizedLabel = "New label";
+
+        assertThat(mCache.getLabel(info).toString()).isEqualTo("Label");
+    }
+
+    @Test
+    public void getLabel_otherUser_loadedSeparately() {
+        mCache.getLabel(createApplicationInfo(0 /* userId */, "Label"));
+
+        assertThat(mCache.getLabel(createApplicationInfo(10 /* userId */, "Work label"))
+                .toString()).isEqualTo("Work label");
+    }
+
+    @Test
+    public void getBadgedIcon_scaledToAppIconSize() {
+        final Drawable icon = mCache.getBadgedIcon(createApplicationInfo(0 /* userId */, "Label"));
+
+        final int iconSize = mContext.getResources().getDimensionPixelSize(R.dimen.app_icon_size);
+        assertThat(((BitmapDrawable) icon).getBitmap().getWidth()).isEqualTo(iconSize);
+        assertThat(((BitmapDrawable) icon).getBitmap().getHeight()).isEqualTo(iconSize);
+    }
+
+    @Test
+    public void getBadgedIcon_otherSize_cachedSeparately() {
+        final ApplicationInfo info = createApplicationInfo(0 /* userId */, "Label");
+        final int iconSize = mContext.getResources().getDimensionPixelSize(R.dimen.app_icon_size);
+
+        final Drawable icon = mCache.getBadgedIcon(info);
+        final Drawable largeIcon = mCache.getBadgedIcon(info, iconSize * 2);
+
+        assertThat(((BitmapDrawable) largeIcon).getBitmap().getWidth()).isEqualTo(iconSize * 2);
+        assertThat(((BitmapDrawable) mCache.getBadgedIcon(info)).getBitmap())
+                .isSameInstanceAs(((BitmapDrawable) icon).getBitmap());
+        assertThat(((BitmapDrawable) mCache.getBadgedIcon(info, iconSize * 2)).getBitmap())
+                .isSameInstanceAs(((BitmapDrawable) largeIcon).getBitmap());
+    }
+
+    @Test
+    public void invalidate_iconsOfEverySizeDropped() {
+        final ApplicationInfo info = createApplicationInfo(0 /* userId */, "Label");
+        final int iconSize = mContext.getResources().getDimensionPixelSize(R.dimen.app_icon_size);
+        final Drawable icon = mCache.getBadgedIcon(info);
+        final Drawable largeIcon = mCache.getBadgedIcon(info, iconSize * 2);
+
+        mCache.invalidate(PACKAGE_NAME);
+
+        assertThat(((BitmapDrawable) mCache.getBadgedIcon(info)).getBitmap())
+                .isNotSameInstanceAs(((BitmapDrawable) icon).getBitmap());
+        assertThat(((BitmapDrawable) mCache.getBadgedIcon(info, iconSize * 2)).getBitmap())
+                .isNotSameInstanceAs(((BitmapDrawable) largeIcon).getBitmap());
+    }
+
+    @Test
+    public void getBadgedIcon_sharesBitmapButNotDrawable() {
+        final ApplicationInfo info = createApplicationInfo(0 /* userId */, "Label");
+
+        final Drawable icon1 = mCache.getBadgedIcon(info);
+        final Drawable icon2 = mCache.getBadgedIcon(info);
+
+        assertThat(icon1).isNotSameInstanceAs(icon2);
+        assertThat(((BitmapDrawable) icon1).getBitmap())
+                .isSameInstanceAs(((BitmapDrawable) icon2).getBitmap());
+    }
+
+    @Test
+    public void packageChanged_entriesOfEveryUserDropped() {
+        final ApplicationInfo info = createApplicationInfo(0 /* userId */, "Label");
+        final ApplicationInfo workInfo = createApplicationInfo(10 /* userId */, "Label");
+        mCache.getLabel(info);
+        mCache.getLabel(workInfo);
+        info.nonLocalizedLabel = "New label";
+        workInfo.nonLocalizedLabel = "New label";
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_PACKAGE_CHANGED,
+                Uri.fromParts("package", PACKAGE_NAME, null /* fragment */)));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mCache.getLabel(info).toString()).isEqualTo("New label");
+        assertThat(mCache.getLabel(workInfo).toString()).isEqualTo("New label");
+    }
+
+    @Test
+    public void localeChanged_labelsDropped() {
+        final ApplicationInfo info = createApplicationInfo(0 /* userId */, "Label");
+        mCache.getLabel(info);
+        info.nonLocalizedLabel = "Libellé";
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_LOCALE_CHANGED));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mCache.getLabel(info).toString()).isEqualTo("Libellé");
+    }
+
+    @Test
+    public void getLabel_invalidatedWhileLoading_notCached() {
+        final ApplicationInfo info = new ApplicationInfo() {
+            @Override
+            public CharSequence loadLabel(PackageManager pm) {
+                // The package is updated while its old label is read.
+                mCache.invalidate(PACKAGE_NAME);
+                return super.loadLabel(pm);
+            }
+        };
+        info.packageName = PACKAGE_NAME;
+        info.nonLocalizedLabel = "Label";
+        mCache.getLabel(info);
+
+        info.nonLocalizedLabel = "New label";
+
+        assertThat(mCache.getLabel(info).toString()).isEqualTo("New label");
+    }
+
+    private static ApplicationInfo createApplicationInfo(int userId, String label) {
+        final ApplicationInfo info = new ApplicationInfo();
+        info.packageName = PACKAGE_NAME;
+        info.uid = UserHandle.getUid(userId, 10001 /* appId */);
+        info.nonLocalizedLabel = label;
+        return info;
+    }
+}
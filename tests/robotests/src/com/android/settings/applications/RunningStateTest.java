@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.ActivityManager;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningStateTest {
+
+    @Mock
+    private ActivityManager mActivityManager;
+    @Mock
+    private RunningState.OnRefreshUiListener mRefreshUiListener;
+
+    private RunningState mRunningState;
+    private Looper mBackgroundLooper;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mRunningState = new RunningState(RuntimeEnvironment.application, mActivityManager);
+        mBackgroundLooper = mRunningState.mBackgroundThread.getLooper();
+    }
+
+    @After
+    public void tearDown() {
+        mRunningState.mBackgroundThread.quit();
+    }
+
+    @Test
+    public void onContentsUpdated_nothingChanged_delayDoublesUpToMax() {
+        assertThat(mRunningState.onContentsUpdated(false /* changed */))
+                .isEqualTo(RunningState.CONTENTS_UPDATE_DELAY * 2);
+        assertThat(mRunningState.onContentsUpdated(false /* changed */))
+                .isEqualTo(RunningState.CONTENTS_UPDATE_DELAY * 4);
+
+        for (int i = 0; i < 10; i++) {
+            mRunningState.onContentsUpdated(false /* changed */);
+        }
+
+        assertThat(mRunningState.onContentsUpdated(false /* changed */))
+                .isEqualTo(RunningState.MAX_CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void onContentsUpdated_changed_delayReset() {
+        mRunningState.onContentsUpdated(false /* changed */);
+        mRunningState.onContentsUpdated(false /* changed */);
+
+        assertThat(mRunningState.onContentsUpdated(true /* changed */))
+                .isEqualTo(RunningState.CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void resume_delayResetAndImportanceListenerAdded() {
+        mRunningState.onContentsUpdated(false /* changed */);
+        // Keep the background thread from updating the contents once resumed.
+        shadowOf(mBackgroundLooper).pause();
+
+        mRunningState.resume(mRefreshUiListener);
+        mRunningState.pause();
+        shadowOf(mBackgroundLooper).unPause();
+        shadowOf(mBackgroundLooper).idle();
+
+        assertThat(mRunningState.mContentsUpdateDelay)
+                .isEqualTo(RunningState.CONTENTS_UPDATE_DELAY);
+        verify(mActivityManager).addOnUidImportanceListener(
+                mRunningState.mUidImportanceListener,
+                ActivityManager.RunningAppProcessInfo.IMPORTANCE_SERVICE);
+    }
+
+    @Test
+    public void uidImportanceChanged_delayReset() {
+        mRunningState.onContentsUpdated(false /* changed */);
+        mRunningState.onContentsUpdated(false /* changed */);
+
+        mRunningState.mUidImportanceListener.onUidImportance(1000 /* uid */,
+                ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND_SERVICE);
+        shadowOf(mBackgroundLooper).idle();
+
+        assertThat(mRunningState.mContentsUpdateDelay)
+                .isEqualTo(RunningState.CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void pause_importanceListenerRemoved() {
+        shadowOf(mBackgroundLooper).pause();
+        mRunningState.resume(mRefreshUiListener);
+
+        mRunningState.pause();
+        shadowOf(mBackgroundLooper).unPause();
+
+        verify(mActivityManager).removeOnUidImportanceListener(
+                mRunningState.mUidImportanceListener);
+    }
+}
@@ -146,6 +146,18 @@ public class BluetoothPairingDetailTest {
                 .isEqualTo(BluetoothAdapter.SCAN_MODE_CONNECTABLE_DISCOVERABLE);
     }
 
+    @Test
+    public void updateContent_stateOn_clearDiscoveredDevices() {
+        mFragment.mAvailableDevicesCategory = mAvailableDevicesCategory;
+        mFragment.mFooterPreference = mFooterPreference;
+        mFragment.mDiscoveredDevices.add(mCachedBluetoothDevice);
+        doNothing().when(mFragment).addDeviceCategory(any(), anyInt(), any(), anyBoolean());
+
+        mFragment.updateContent(BluetoothAdapter.STATE_ON);
+
+        assertThat(mFragment.mDiscoveredDevices.contains(mCachedBluetoothDevice)).isFalse();
+    }
+
     @Test
     public void updateContent_stateOff_finish() {
         mFragment.updateContent(BluetoothAdapter.STATE_OFF);
@@ -290,6 +302,20 @@ public class BluetoothPairingDetailTest {
         assertThat(mFragment.mDevicePreferenceMap.size()).isEqualTo(0);
     }
 
+    @Test
+    public void onProfileConnectionStateChanged_deviceTrackedButNotDisplayed_removed() {
+        final BluetoothDevice device = mBluetoothAdapter.getRemoteDevice(TEST_DEVICE_ADDRESS);
+        mFragment.mDiscoveredDevices.add(mCachedBluetoothDevice);
+
+        when(mCachedBluetoothDevice.isConnected()).thenReturn(true);
+        when(mCachedBluetoothDevice.getDevice()).thenReturn(device);
+
+        mFragment.onProfileConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothProfile.A2DP, BluetoothAdapter.STATE_CONNECTED);
+
+        assertThat(mFragment.mDiscoveredDevices.contains(mCachedBluetoothDevice)).isFalse();
+    }
+
     @Test
     public void onProfileConnectionStateChanged_deviceNotInPreferenceMap_doNothing() {
         final CachedBluetoothDevice cachedDevice = mock(CachedBluetoothDevice.class);
@@ -20,16 +20,23 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
 import android.content.res.Resources;
+import android.util.Pair;
 
 import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
 import com.android.settings.testutils.shadow.ShadowBluetoothAdapter;
@@ -39,13 +46,19 @@ import com.android.settingslib.core.AbstractPreferenceController;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowBluetoothAdapter.class})
@@ -169,6 +182,124 @@ public class DeviceListPreferenceFragmentTest {
         verify(mFragment, times(1)).startScanning();
     }
 
+    @Test
+    public void onDeviceAdded_listUpdatedOnceAfterInterval() {
+        final ListTestFragment fragment = createListTestFragment();
+
+        fragment.onDeviceAdded(createDevice("00:00:00:00:00:01", true /* hasName */, -50));
+        ShadowLooper.idleMainLooper(DeviceListPreferenceFragment.DEVICE_LIST_UPDATE_INTERVAL_MS - 1,
+                TimeUnit.MILLISECONDS);
+        fragment.onDeviceAdded(createDevice("00:00:00:00:00:02", true /* hasName */, -60));
+
+        assertThat(fragment.mDeviceListGroup.getPreferenceCount()).isEqualTo(0);
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+
+        assertThat(getDisplayedKeys(fragment))
+                .containsExactly("00:00:00:00:00:01", "00:00:00:00:00:02").inOrder();
+    }
+
+    @Test
+    public void onDeviceAdded_moreThanMaxDevices_showStrongestOnly() {
+        final ListTestFragment fragment = createListTestFragment();
+        final int deviceCount = DeviceListPreferenceFragment.MAX_DISPLAYED_DEVICES + 5;
+        for (int i = 0; i < deviceCount; i++) {
+            fragment.onDeviceAdded(createDevice(String.format("00:00:00:00:00:%02d", i),
+                    true /* hasName */, -100 + i));
+        }
+
+        ShadowLooper.idleMainLooper(DeviceListPreferenceFragment.DEVICE_LIST_UPDATE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+
+        final List<String> keys = getDisplayedKeys(fragment);
+        assertThat(keys).hasSize(DeviceListPreferenceFragment.MAX_DISPLAYED_DEVICES);
+        assertThat(keys.get(0))
+                .isEqualTo(String.format("00:00:00:00:00:%02d", deviceCount - 1));
+        for (int i = 0; i < deviceCount - DeviceListPreferenceFragment.MAX_DISPLAYED_DEVICES;
+                i++) {
+            assertThat(keys).doesNotContain(String.format("00:00:00:00:00:%02d", i));
+        }
+    }
+
+    @Test
+    public void onDeviceAttributesChanged_reorderedAfterIntervalKeepingPreferences() {
+        final ListTestFragment fragment = createListTestFragment();
+        final CachedBluetoothDevice noName =
+                createDevice("00:00:00:00:00:01", false /* hasName */, -30);
+        final CachedBluetoothDevice weak =
+                createDevice("00:00:00:00:00:02", true /* hasName */, -90);
+        final CachedBluetoothDevice strong =
+                createDevice("00:00:00:00:00:03", true /* hasName */, -40);
+        fragment.onDeviceAdded(noName);
+        fragment.onDeviceAdded(weak);
+        fragment.onDeviceAdded(strong);
+        ShadowLooper.idleMainLooper(DeviceListPreferenceFragment.DEVICE_LIST_UPDATE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        assertThat(getDisplayedKeys(fragment)).containsExactly(
+                "00:00:00:00:00:03", "00:00:00:00:00:02", "00:00:00:00:00:01").inOrder();
+        final Preference weakPreference = fragment.mDevicePreferenceMap.get(weak);
+
+        when(weak.getRssi()).thenReturn((short) -20);
+        notifyAttributesChanged(weak);
+        ShadowLooper.idleMainLooper(DeviceListPreferenceFragment.DEVICE_LIST_UPDATE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+
+        assertThat(getDisplayedKeys(fragment)).containsExactly(
+                "00:00:00:00:00:02", "00:00:00:00:00:03", "00:00:00:00:00:01").inOrder();
+        assertThat(fragment.mDevicePreferenceMap.get(weak)).isSameInstanceAs(weakPreference);
+    }
+
+    private ListTestFragment createListTestFragment() {
+        final Context context = RuntimeEnvironment.application;
+        final ShadowBluetoothAdapter shadowBluetoothAdapter =
+                Shadow.extract(BluetoothAdapter.getDefaultAdapter());
+        shadowBluetoothAdapter.setState(BluetoothAdapter.STATE_ON);
+        final PreferenceManager preferenceManager = new PreferenceManager(context);
+        final PreferenceScreen screen = preferenceManager.createPreferenceScreen(context);
+        final PreferenceCategory category = new PreferenceCategory(context);
+        screen.addPreference(category);
+
+        final ListTestFragment fragment = new ListTestFragment(preferenceManager);
+        fragment.mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+        fragment.mDeviceListGroup = category;
+        return fragment;
+    }
+
+    private static CachedBluetoothDevice createDevice(String address, boolean hasName,
+            int rssi) {
+        final CachedBluetoothDevice device = mock(CachedBluetoothDevice.class);
+        when(device.getAddress()).thenReturn(address);
+        when(device.getDevice())
+                .thenReturn(BluetoothAdapter.getDefaultAdapter().getRemoteDevice(address));
+        when(device.getName()).thenReturn(address);
+        when(device.hasHumanReadableName()).thenReturn(hasName);
+        when(device.getRssi()).thenReturn((short) rssi);
+        when(device.getDrawableWithDescription()).thenReturn(new Pair<>(null, address));
+        return device;
+    }
+
+    private static void notifyAttributesChanged(CachedBluetoothDevice device) {
+        final ArgumentCaptor<CachedBluetoothDevice.Callback> captor =
+                ArgumentCaptor.forClass(CachedBluetoothDevice.Callback.class);
+        verify(device, atLeastOnce()).registerCallback(captor.capture());
+        for (CachedBluetoothDevice.Callback callback : captor.getAllValues()) {
+            callback.onDeviceAttributesChanged();
+        }
+    }
+
+    private static List<String> getDisplayedKeys(DeviceListPreferenceFragment fragment) {
+        final List<Preference> preferences = new ArrayList<>();
+        for (int i = 0; i < fragment.mDeviceListGroup.getPreferenceCount(); i++) {
+            preferences.add(fragment.mDeviceListGroup.getPreference(i));
+        }
+        preferences.sort(Comparator.comparingInt(Preference::getOrder));
+        final List<String> keys = new ArrayList<>(preferences.size());
+        for (Preference preference : preferences) {
+            keys.add(preference.getKey());
+        }
+        return keys;
+    }
+
     /**
      * Fragment to test since {@code DeviceListPreferenceFragment} is abstract
      */
@@ -209,4 +340,19 @@ public class DeviceListPreferenceFragmentTest {
             return null;
         }
     }
+    /**
+     * Test fragment with a preference manager, so that it can create device preferences
+     */
+    public static class ListTestFragment extends TestFragment {
+        private final PreferenceManager mPreferenceManager;
+
+        ListTestFragment(PreferenceManager preferenceManager) {
+            mPreferenceManager = preferenceManager;
+        }
+
+        @Override
+        public PreferenceManager getPreferenceManager() {
+            return mPreferenceManager;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.bluetooth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class DiscoveredDeviceListTest {
+    private static final int MAX_DISPLAYED_COUNT = 2;
+
+    private int mChangeCount;
+    private DiscoveredDeviceList mDeviceList;
+
+    @Before
+    public void setUp() {
+        mChangeCount = 0;
+        mDeviceList = new DiscoveredDeviceList(MAX_DISPLAYED_COUNT, () -> mChangeCount++);
+    }
+
+    @Test
+    public void add_sameDeviceTwice_trackOnce() {
+        final CachedBluetoothDevice device = createDevice("00:00:00:00:00:01", true, -50);
+
+        assertThat(mDeviceList.add(device)).isTrue();
+        assertThat(mDeviceList.add(device)).isFalse();
+        assertThat(mDeviceList.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void remove_trackedDevice_unregisterCallback() {
+        final CachedBluetoothDevice device = createDevice("00:00:00:00:00:01", true, -50);
+        mDeviceList.add(device);
+
+        assertThat(mDeviceList.remove(device)).isTrue();
+
+        verify(device).unregisterCallback(any());
+        assertThat(mDeviceList.contains(device)).isFalse();
+    }
+
+    @Test
+    public void removeIf_matchingDevices_untracked() {
+        final CachedBluetoothDevice device1 = createDevice("00:00:00:00:00:01", true, -50);
+        final CachedBluetoothDevice device2 = createDevice("00:00:00:00:00:02", true, -50);
+        mDeviceList.add(device1);
+        mDeviceList.add(device2);
+
+        assertThat(mDeviceList.removeIf(device -> device == device1)).isTrue();
+
+        verify(device1).unregisterCallback(any());
+        assertThat(mDeviceList.contains(device1)).isFalse();
+        assertThat(mDeviceList.contains(device2)).isTrue();
+        assertThat(mDeviceList.removeIf(device -> device == device1)).isFalse();
+    }
+
+    @Test
+    public void deviceAttributesChanged_notifyListener() {
+        final CachedBluetoothDevice device = createDevice("00:00:00:00:00:01", true, -50);
+        final ArgumentCaptor<CachedBluetoothDevice.Callback> captor =
+                ArgumentCaptor.forClass(CachedBluetoothDevice.Callback.class);
+        mDeviceList.add(device);
+        verify(device).registerCallback(captor.capture());
+
+        captor.getValue().onDeviceAttributesChanged();
+
+        assertThat(mChangeCount).isEqualTo(1);
+    }
+
+    @Test
+    public void getDisplayedDevices_rankByNameThenSignal() {
+        final CachedBluetoothDevice noName = createDevice("00:00:00:00:00:01", false, -30);
+        final CachedBluetoothDevice weak = createDevice("00:00:00:00:00:02", true, -90);
+        final CachedBluetoothDevice strong = createDevice("00:00:00:00:00:03", true, -40);
+        mDeviceList = new DiscoveredDeviceList(3, () -> {});
+        mDeviceList.add(noName);
+        mDeviceList.add(weak);
+        mDeviceList.add(strong);
+
+        assertThat(mDeviceList.getDisplayedDevices())
+                .containsExactly(strong, weak, noName).inOrder();
+    }
+
+    @Test
+    public void getDisplayedDevices_moreThanMax_keepBestRanked() {
+        final CachedBluetoothDevice noName = createDevice("00:00:00:00:00:01", false, -30);
+        final CachedBluetoothDevice weak = createDevice("00:00:00:00:00:02", true, -90);
+        final CachedBluetoothDevice strong = createDevice("00:00:00:00:00:03", true, -40);
+        mDeviceList.add(noName);
+        mDeviceList.add(weak);
+        mDeviceList.add(strong);
+
+        assertThat(mDeviceList.getDisplayedDevices()).containsExactly(strong, weak).inOrder();
+    }
+
+    private static CachedBluetoothDevice createDevice(String address, boolean hasName,
+            int rssi) {
+        final CachedBluetoothDevice device = mock(CachedBluetoothDevice.class);
+        when(device.getAddress()).thenReturn(address);
+        when(device.hasHumanReadableName()).thenReturn(hasName);
+        when(device.getRssi()).thenReturn((short) rssi);
+        return device;
+    }
+}
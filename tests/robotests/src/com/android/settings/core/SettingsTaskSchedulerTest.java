@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class SettingsTaskSchedulerTest {
+    private static final String TASK_NAME = "test_task";
+
+    private List<Runnable> mQueuedTasks;
+    private SettingsTaskScheduler mScheduler;
+    private TestLifecycleOwner mOwner;
+
+    @Before
+    public void setUp() {
+        mQueuedTasks = new ArrayList<>();
+        mScheduler = new SettingsTaskScheduler(mQueuedTasks::add);
+        mOwner = new TestLifecycleOwner();
+        mOwner.mRegistry.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+    }
+
+    @Test
+    public void execute_sameName_runsEveryTask() {
+        final AtomicInteger runCount = new AtomicInteger();
+
+        mScheduler.execute(SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME,
+                runCount::incrementAndGet);
+        mScheduler.execute(SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME,
+                runCount::incrementAndGet);
+        runQueuedTasks();
+
+        assertThat(runCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void executeUnique_taskInFlight_returnsInFlightTask() {
+        final AtomicInteger runCount = new AtomicInteger();
+
+        final Future<?> first = mScheduler.executeUnique(
+                SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME, runCount::incrementAndGet);
+        final Future<?> second = mScheduler.executeUnique(
+                SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME, runCount::incrementAndGet);
+        runQueuedTasks();
+
+        assertThat(second).isSameInstanceAs(first);
+        assertThat(runCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void executeUnique_taskRunning_runsOnceMoreAfterIt() {
+        final AtomicInteger runCount = new AtomicInteger();
+        final Runnable task = () -> {
+            if (runCount.incrementAndGet() == 1) {
+                // Requested twice while the first run reads its state.
+                mScheduler.executeUnique(SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME,
+                        runCount::incrementAndGet);
+                mScheduler.executeUnique(SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME,
+                        runCount::incrementAndGet);
+            }
+        };
+
+        mScheduler.executeUnique(SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME, task);
+        runQueuedTasks();
+        runQueuedTasks();
+
+        assertThat(runCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void executeUnique_previousTaskDone_runsAgain() {
+        final AtomicInteger runCount = new AtomicInteger();
+
+        mScheduler.executeUnique(SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME,
+                runCount::incrementAndGet);
+        runQueuedTasks();
+        mScheduler.executeUnique(SettingsTaskScheduler.Priority.PREFETCH, TASK_NAME,
+                runCount::incrementAndGet);
+        runQueuedTasks();
+
+        assertThat(runCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void submit_deliversResult() {
+        final List<String> results = new ArrayList<>();
+
+        mScheduler.submit(mOwner, SettingsTaskScheduler.Priority.UI_CRITICAL, TASK_NAME,
+                () -> "result", results::add);
+        runQueuedTasks();
+
+        assertThat(results).containsExactly("result");
+        assertThat(mOwner.mRegistry.getObserverCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void submit_ownerDestroyed_cancelsTaskAndDropsResult() {
+        final List<String> results = new ArrayList<>();
+
+        final Future<String> future = mScheduler.submit(mOwner,
+                SettingsTaskScheduler.Priority.UI_CRITICAL, TASK_NAME, () -> "result",
+                results::add);
+        mOwner.mRegistry.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        runQueuedTasks();
+
+        assertThat(future.isCancelled()).isTrue();
+        assertThat(results).isEmpty();
+    }
+
+    @Test
+    public void submit_ownerStopped_cancelsTaskAndDropsResult() {
+        final List<String> results = new ArrayList<>();
+        mOwner.mRegistry.handleLifecycleEvent(Lifecycle.Event.ON_RESUME);
+
+        final Future<String> future = mScheduler.submit(mOwner,
+                SettingsTaskScheduler.Priority.UI_CRITICAL, TASK_NAME, () -> "result",
+                results::add);
+        mOwner.mRegistry.handleLifecycleEvent(Lifecycle.Event.ON_STOP);
+        runQueuedTasks();
+
+        assertThat(future.isCancelled()).isTrue();
+        assertThat(results).isEmpty();
+    }
+
+    @Test
+    public void newSerialExecutor_runsTasksOneAtATimeInOrder() {
+        final List<String> order = new ArrayList<>();
+        final Executor executor =
+                mScheduler.newSerialExecutor(SettingsTaskScheduler.Priority.UI_CRITICAL);
+
+        mScheduler.execute(executor, TASK_NAME, () -> order.add("first"));
+        mScheduler.execute(executor, TASK_NAME, () -> order.add("second"));
+
+        assertThat(mQueuedTasks).hasSize(1);
+        runQueuedTasks();
+        assertThat(order).containsExactly("first");
+        runQueuedTasks();
+        assertThat(order).containsExactly("first", "second").inOrder();
+    }
+
+    @Test
+    public void submit_taskThrows_dropsResult() {
+        final List<String> results = new ArrayList<>();
+
+        mScheduler.submit(null /* owner */, SettingsTaskScheduler.Priority.UI_CRITICAL,
+                TASK_NAME, () -> {
+                    throw new IllegalStateException();
+                }, results::add);
+        runQueuedTasks();
+
+        assertThat(results).isEmpty();
+    }
+
+    @Test
+    public void toJson_containsTaskStats() throws JSONException {
+        mScheduler.execute(SettingsTaskScheduler.Priority.MAINTENANCE, TASK_NAME, () -> {});
+        mScheduler.execute(SettingsTaskScheduler.Priority.MAINTENANCE, TASK_NAME, () -> {});
+        runQueuedTasks();
+
+        final JSONObject tasks = mScheduler.toJson();
+
+        assertThat(tasks.getJSONObject(TASK_NAME).getInt("count")).isEqualTo(2);
+    }
+
+    private void runQueuedTasks() {
+        final List<Runnable> tasks = new ArrayList<>(mQueuedTasks);
+        mQueuedTasks.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private static class TestLifecycleOwner implements LifecycleOwner {
+        private final LifecycleRegistry mRegistry = new LifecycleRegistry(this);
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return mRegistry;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import android.app.settings.SettingsEnums;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.android.settingslib.core.instrumentation.LogWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatchedLogWriterTest {
+
+    @Mock
+    private LogWriter mWriter1;
+    @Mock
+    private LogWriter mWriter2;
+    private Context mContext;
+    private BatchedLogWriter mBatchedWriter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mBatchedWriter = new BatchedLogWriter(Arrays.asList(mWriter1, mWriter2),
+                new Handler(Looper.getMainLooper()));
+    }
+
+    @Test
+    public void action_notWrittenOnCallingThread() {
+        mBatchedWriter.action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS, 1);
+
+        verifyNoInteractions(mWriter1, mWriter2);
+    }
+
+    @Test
+    public void action_writtenToEveryWriterInOrder() {
+        mBatchedWriter.visible(mContext, SettingsEnums.PAGE_UNKNOWN,
+                SettingsEnums.SETTINGS_HOMEPAGE, 100 /* latency */);
+        mBatchedWriter.action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS, "pkg");
+        mBatchedWriter.action(SettingsEnums.SETTINGS_HOMEPAGE,
+                SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS, SettingsEnums.PAGE_UNKNOWN, "key",
+                1 /* value */);
+
+        idle();
+
+        for (LogWriter writer : Arrays.asList(mWriter1, mWriter2)) {
+            final InOrder inOrder = inOrder(writer);
+            inOrder.verify(writer).visible(mContext, SettingsEnums.PAGE_UNKNOWN,
+                    SettingsEnums.SETTINGS_HOMEPAGE, 100);
+            inOrder.verify(writer).action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS,
+                    "pkg");
+            inOrder.verify(writer).action(SettingsEnums.SETTINGS_HOMEPAGE,
+                    SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS, SettingsEnums.PAGE_UNKNOWN, "key",
+                    1);
+        }
+    }
+
+    @Test
+    public void action_bufferFull_dropsAndCounts() {
+        for (int i = 0; i < BatchedLogWriter.CAPACITY + 2; i++) {
+            mBatchedWriter.action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS, i);
+        }
+
+        idle();
+
+        assertThat(mBatchedWriter.getDroppedCount()).isEqualTo(2);
+        verify(mWriter1).action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS,
+                BatchedLogWriter.CAPACITY - 1);
+        verify(mWriter1, times(0)).action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS,
+                BatchedLogWriter.CAPACITY);
+    }
+
+    @Test
+    public void action_afterDrain_bufferReused() {
+        for (int i = 0; i < BatchedLogWriter.CAPACITY; i++) {
+            mBatchedWriter.action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS, true);
+        }
+        idle();
+
+        mBatchedWriter.action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS, false);
+        idle();
+
+        assertThat(mBatchedWriter.getDroppedCount()).isEqualTo(0);
+        verify(mWriter1).action(mContext, SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS, false);
+    }
+
+    private static void idle() {
+        ShadowLooper.idleMainLooper(BatchedLogWriter.BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+}
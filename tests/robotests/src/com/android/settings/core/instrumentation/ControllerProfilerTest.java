@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+import android.os.SystemClock;
+
+import com.android.settings.core.instrumentation.ControllerProfiler.Call;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.util.ReflectionHelpers;
+
+@RunWith(RobolectricTestRunner.class)
+public class ControllerProfilerTest {
+    private static final int PAGE = 1;
+
+    private ControllerProfiler mProfiler;
+
+    @Before
+    public void setUp() {
+        mProfiler = spy(new ControllerProfiler());
+    }
+
+    @Test
+    public void shouldSample_noSampleRate_false() {
+        doReturn(0f).when(mProfiler).getSampleRate();
+
+        assertThat(mProfiler.shouldSample()).isFalse();
+    }
+
+    @Test
+    public void shouldSample_fullSampleRate_true() {
+        doReturn(1f).when(mProfiler).getSampleRate();
+
+        assertThat(mProfiler.shouldSample()).isTrue();
+    }
+
+    @Test
+    public void shouldSample_overheadBudgetUsed_false() {
+        doReturn(1f).when(mProfiler).getSampleRate();
+        mProfiler.shouldSample();
+        ReflectionHelpers.setField(mProfiler, "mOverheadNanos",
+                ControllerProfiler.OVERHEAD_BUDGET_NANOS);
+
+        assertThat(mProfiler.shouldSample()).isFalse();
+    }
+
+    @Test
+    public void end_aggregatesCallsPerController() throws JSONException {
+        final Object controller = new Object();
+        mProfiler.end(mProfiler.begin(), PAGE, controller, Call.UPDATE_STATE);
+        mProfiler.end(mProfiler.begin(), PAGE, controller, Call.UPDATE_STATE);
+        mProfiler.end(mProfiler.begin(), PAGE, controller, Call.GET_SUMMARY);
+
+        final JSONArray costs = mProfiler.toJson();
+
+        assertThat(costs.length()).isEqualTo(1);
+        final JSONObject cost = costs.getJSONObject(0);
+        assertThat(cost.getInt("page")).isEqualTo(PAGE);
+        assertThat(cost.getString("controller")).isEqualTo(Object.class.getName());
+        final JSONObject calls = cost.getJSONObject("calls");
+        assertThat(calls.getJSONObject("updateState").getLong("count")).isEqualTo(2);
+        assertThat(calls.getJSONObject("getSummary").getLong("count")).isEqualTo(1);
+        assertThat(calls.has("displayPreference")).isFalse();
+    }
+
+    @Test
+    public void end_nestedCall_notCountedInOuterCall() throws JSONException {
+        final Object controller = new Object();
+        doReturn(0L).when(mProfiler).getCpuNanos();
+        doReturn(0L, 2_000L, 7_000L, 10_000L).when(mProfiler).getWallNanos();
+
+        final ControllerProfiler.Sample outer = mProfiler.begin();
+        final ControllerProfiler.Sample inner = mProfiler.begin();
+        mProfiler.end(inner, PAGE, controller, Call.GET_SUMMARY);
+        mProfiler.end(outer, PAGE, controller, Call.UPDATE_STATE);
+
+        final JSONObject calls = mProfiler.toJson().getJSONObject(0).getJSONObject("calls");
+        assertThat(calls.getJSONObject("getSummary").getLong("wall_us")).isEqualTo(5);
+        assertThat(calls.getJSONObject("updateState").getLong("wall_us")).isEqualTo(5);
+    }
+
+    @Test
+    public void time_taskThrows_callTimedAndSampleEnded() throws JSONException {
+        final Object controller = new Object();
+
+        try {
+            mProfiler.time(PAGE, controller, Call.UPDATE_STATE, (Runnable) () -> {
+                throw new IllegalStateException();
+            });
+        } catch (IllegalStateException e) {
+            // Expected, the profiler does not swallow it.
+        }
+
+        final ThreadLocal<?> currentSample =
+                ReflectionHelpers.getField(mProfiler, "mCurrentSample");
+        assertThat(currentSample.get()).isNull();
+        final JSONObject calls = mProfiler.toJson().getJSONObject(0).getJSONObject("calls");
+        assertThat(calls.getJSONObject("updateState").getLong("count")).isEqualTo(1);
+    }
+
+    @Test
+    public void time_supplier_returnsResult() throws JSONException {
+        final Object controller = new Object();
+
+        final int result = mProfiler.time(PAGE, controller, Call.GET_AVAILABILITY_STATUS, () -> 3);
+
+        assertThat(result).isEqualTo(3);
+        final JSONObject calls = mProfiler.toJson().getJSONObject(0).getJSONObject("calls");
+        assertThat(calls.getJSONObject("getAvailabilityStatus").getLong("count")).isEqualTo(1);
+    }
+
+    @Test
+    public void begin_overheadBudgetUsed_callNotTimed() throws JSONException {
+        ReflectionHelpers.setField(mProfiler, "mWindowStartMillis",
+                SystemClock.elapsedRealtime());
+        ReflectionHelpers.setField(mProfiler, "mOverheadNanos",
+                ControllerProfiler.OVERHEAD_BUDGET_NANOS);
+
+        final ControllerProfiler.Sample sample = mProfiler.begin();
+        mProfiler.end(sample, PAGE, new Object(), Call.UPDATE_STATE);
+
+        assertThat(sample).isNull();
+        assertThat(mProfiler.toJson().length()).isEqualTo(0);
+    }
+
+    @Test
+    public void end_sameControllerOnOtherPage_keptApart() throws JSONException {
+        final Object controller = new Object();
+        mProfiler.end(mProfiler.begin(), PAGE, controller, Call.DISPLAY_PREFERENCE);
+        mProfiler.end(mProfiler.begin(), PAGE + 1, controller, Call.DISPLAY_PREFERENCE);
+
+        assertThat(mProfiler.toJson().length()).isEqualTo(2);
+    }
+}
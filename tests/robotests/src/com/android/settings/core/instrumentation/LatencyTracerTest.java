@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.android.settings.core.instrumentation.LatencyTracer.Histogram;
+import com.android.settings.core.instrumentation.LatencyTracer.Section;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class LatencyTracerTest {
+
+    @Before
+    public void setUp() {
+        LatencyTracer.reset();
+    }
+
+    @After
+    public void tearDown() {
+        LatencyTracer.reset();
+    }
+
+    @Test
+    public void beginAndEnd_recordsOneSample() {
+        final long startTime = LatencyTracer.begin(Section.SLICE_BIND);
+        LatencyTracer.end(Section.SLICE_BIND, startTime);
+
+        assertThat(LatencyTracer.getHistogram(Section.SLICE_BIND).getCount()).isEqualTo(1);
+        assertThat(LatencyTracer.getHistogram(Section.LOADER).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getPercentileMicros_reportsUpperBoundOfBucket() {
+        final Histogram histogram = LatencyTracer.getHistogram(Section.LOADER);
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        // 100us falls in [64, 128), 50ms is the max.
+        assertThat(histogram.getPercentileMicros(50)).isEqualTo(127);
+        assertThat(histogram.getPercentileMicros(99)).isEqualTo(127);
+        assertThat(histogram.getPercentileMicros(100)).isEqualTo(50000);
+    }
+
+    @Test
+    public void getPercentileMicros_neverAboveMax() {
+        final Histogram histogram = LatencyTracer.getHistogram(Section.LOADER);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(70));
+
+        assertThat(histogram.getPercentileMicros(50)).isEqualTo(70);
+    }
+
+    @Test
+    public void toJson_onlyContainsRecordedSections() throws Exception {
+        LatencyTracer.record(Section.TILE_LOADING, TimeUnit.MILLISECONDS.toNanos(2));
+        LatencyTracer.record(Section.TILE_LOADING, TimeUnit.MILLISECONDS.toNanos(4));
+
+        final JSONObject json = LatencyTracer.toJson();
+
+        assertThat(json.length()).isEqualTo(1);
+        final JSONObject tileLoading = json.getJSONObject("tile_loading");
+        assertThat(tileLoading.getLong("count")).isEqualTo(2);
+        assertThat(tileLoading.getLong("mean_us")).isEqualTo(3000);
+        assertThat(tileLoading.getLong("max_us")).isEqualTo(4000);
+    }
+}
@@ -182,6 +182,19 @@ public class ChartDataUsagePreferenceTest {
         assertThat(labelEnd.getContentDescription()).isNull();
     }
 
+    @Test
+    public void onBindViewHolder_rebound_reusesContentDescription() {
+        final UsageView chart = (UsageView) mHolder.findViewById(R.id.data_usage);
+        createTestNetworkData();
+        mPreference.setNetworkCycleData(mNetworkCycleChartData);
+        mPreference.onBindViewHolder(mHolder);
+        final CharSequence contentDescription = chart.getContentDescription();
+
+        mPreference.onBindViewHolder(mHolder);
+
+        assertThat(chart.getContentDescription()).isSameInstanceAs(contentDescription);
+    }
+
     @Test
     public void getDensedStatsData_someSamePercentageNodes_getDifferentPercentageNodes() {
         createSomeSamePercentageNetworkData();
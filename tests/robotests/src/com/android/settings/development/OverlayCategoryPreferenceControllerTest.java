@@ -32,7 +32,9 @@ import android.content.pm.PackageManager;
 import android.os.RemoteException;
 
 import com.android.settings.R;
+import com.android.settings.core.SettingsTaskScheduler;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -40,7 +42,6 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
-import org.robolectric.shadows.ShadowApplication;
 import org.robolectric.shadows.ShadowToast;
 
 import java.util.ArrayList;
@@ -72,10 +73,16 @@ public class OverlayCategoryPreferenceControllerTest {
         mockCurrentOverlays();
         when(mPackageManager.getApplicationInfo(any(), anyInt()))
             .thenThrow(PackageManager.NameNotFoundException.class);
+        SettingsTaskScheduler.setInstanceForTesting(new SettingsTaskScheduler(Runnable::run));
         mController = createController();
         mController.setPreference(mPreference);
     }
 
+    @After
+    public void tearDown() {
+        SettingsTaskScheduler.setInstanceForTesting(null);
+    }
+
     Object mockCurrentOverlays(OverlayInfo... overlays) {
         try {
             return when(mOverlayManager.getOverlayInfosForTarget(eq("android"), anyInt()))
@@ -109,7 +116,6 @@ public class OverlayCategoryPreferenceControllerTest {
         mockCurrentOverlays(ONE_DISABLED, TWO_DISABLED);
 
         mController.onPreferenceChange(null, TWO_DISABLED.packageName);
-        ShadowApplication.runBackgroundTasks();
 
         verify(mOverlayManager)
             .setEnabledExclusiveInCategory(eq(TWO_DISABLED.packageName), anyInt());
@@ -122,7 +128,6 @@ public class OverlayCategoryPreferenceControllerTest {
                 .thenReturn(false);
 
         mController.onPreferenceChange(null, TWO_DISABLED.packageName);
-        ShadowApplication.runBackgroundTasks();
 
         assertThat(ShadowToast.getTextOfLatestToast()).isEqualTo(
                 RuntimeEnvironment.application.getString(R.string.overlay_toast_failed_to_apply));
@@ -134,7 +139,6 @@ public class OverlayCategoryPreferenceControllerTest {
 
         mController.onPreferenceChange(
                 null, OverlayCategoryPreferenceController.PACKAGE_DEVICE_DEFAULT);
-        ShadowApplication.runBackgroundTasks();
 
         verify(mOverlayManager).setEnabled(eq(TWO_ENABLED.packageName), eq(false), anyInt());
     }
@@ -147,7 +151,6 @@ public class OverlayCategoryPreferenceControllerTest {
 
         mController.onPreferenceChange(
                 null, OverlayCategoryPreferenceController.PACKAGE_DEVICE_DEFAULT);
-        ShadowApplication.runBackgroundTasks();
 
         assertThat(ShadowToast.getTextOfLatestToast()).isEqualTo(
                 RuntimeEnvironment.application.getString(R.string.overlay_toast_failed_to_apply));
@@ -161,7 +164,6 @@ public class OverlayCategoryPreferenceControllerTest {
 
         mController.onPreferenceChange(
                 null, OverlayCategoryPreferenceController.PACKAGE_DEVICE_DEFAULT);
-        ShadowApplication.runBackgroundTasks();
 
         assertThat(ShadowToast.getTextOfLatestToast()).isEqualTo(
                 RuntimeEnvironment.application.getString(R.string.overlay_toast_failed_to_apply));
@@ -369,7 +369,7 @@ public class BatteryInfoTest {
         when(view.getContext()).thenReturn(mContext);
 
         info.bindHistory(view);
-        verify(view, times(2)).configureGraph(anyInt(), anyInt());
+        verify(view, times(1)).configureGraph(anyInt(), anyInt());
         verify(view, times(1)).addPath(any(SparseIntArray.class));
         ArgumentCaptor<SparseIntArray> pointsActual = ArgumentCaptor.forClass(SparseIntArray.class);
         verify(view, times(1)).addProjectedPath(pointsActual.capture());
@@ -392,11 +392,11 @@ public class BatteryInfoTest {
                 .getEnhancedBatteryPredictionCurve(any(Context.class), anyLong());
 
         info.bindHistory(view);
-        verify(view, times(2)).configureGraph(anyInt(), anyInt());
+        verify(view, times(1)).configureGraph(anyInt(), anyInt());
         verify(view, times(1)).addPath(any(SparseIntArray.class));
         ArgumentCaptor<SparseIntArray> pointsActual = ArgumentCaptor.forClass(SparseIntArray.class);
         verify(view, times(1)).addProjectedPath(pointsActual.capture());
-        assertThat(pointsActual.getValue()).isEqualTo(pointsExpected);
+        assertThat(pointsActual.getValue().toString()).isEqualTo(pointsExpected.toString());
     }
 
     private BatteryInfo getBatteryInfo(boolean charging, boolean enhanced, boolean estimate) {
@@ -446,4 +446,21 @@ public class BatteryInfoTest {
         info = getBatteryInfo(true /* charging */, true /* enhanced */, true /* estimate */);
         assertHistoryAndLinearProjection(info);
     }
+
+    @Test
+    public void bindHistory_boundTwice_parsesHistoryOnce() {
+        final BatteryInfo info =
+                getBatteryInfo(false /* charging */, false /* enhanced */, true /* estimate */);
+        mockBatteryStatsHistory();
+        final UsageView view = mock(UsageView.class);
+        when(view.getContext()).thenReturn(mContext);
+
+        info.bindHistory(view);
+        info.bindHistory(view);
+
+        // Parsing iterates over the history twice.
+        verify(mBatteryUsageStats, times(2)).iterateBatteryStatsHistory();
+        verify(view, times(2)).addPath(any(SparseIntArray.class));
+        verify(view, times(2)).addProjectedPath(any(SparseIntArray.class));
+    }
 }
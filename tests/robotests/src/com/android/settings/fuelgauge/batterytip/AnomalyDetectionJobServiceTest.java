@@ -89,7 +89,7 @@ public class AnomalyDetectionJobServiceTest {
     @Mock
     private UserManager mUserManager;
     @Mock
-    private BatteryDatabaseManager mBatteryDatabaseManager;
+    private BatteryDatabaseManager.AnomalyBatch mAnomalyBatch;
     @Mock
     private BatteryUtils mBatteryUtils;
     @Mock
@@ -148,13 +148,13 @@ public class AnomalyDetectionJobServiceTest {
         doReturn(true).when(mPowerAllowlistBackend).isAllowlisted(any(String[].class));
 
         mAnomalyDetectionJobService.saveAnomalyToDatabase(mContext,
-                mUserManager, mBatteryDatabaseManager, mBatteryUtils, mPolicy,
+                mUserManager, mAnomalyBatch, mBatteryUtils, mPolicy,
                 mPowerAllowlistBackend, mContext.getContentResolver(),
                 mFeatureFactory.powerUsageFeatureProvider,
                 mFeatureFactory.metricsFeatureProvider, mBundle);
 
-        verify(mBatteryDatabaseManager, never()).insertAnomaly(anyInt(), anyString(), anyInt(),
-                anyInt(), anyLong());
+        verify(mAnomalyBatch, never()).add(anyInt(), anyString(), anyInt(), anyInt(),
+                anyLong());
     }
 
     @Test
@@ -169,13 +169,13 @@ public class AnomalyDetectionJobServiceTest {
         doReturn(true).when(mBatteryUtils).shouldHideAnomaly(any(), anyInt(), any());
 
         mAnomalyDetectionJobService.saveAnomalyToDatabase(mContext,
-                mUserManager, mBatteryDatabaseManager, mBatteryUtils, mPolicy,
+                mUserManager, mAnomalyBatch, mBatteryUtils, mPolicy,
                 mPowerAllowlistBackend, mContext.getContentResolver(),
                 mFeatureFactory.powerUsageFeatureProvider,
                 mFeatureFactory.metricsFeatureProvider, mBundle);
 
-        verify(mBatteryDatabaseManager, never()).insertAnomaly(anyInt(), anyString(), anyInt(),
-                anyInt(), anyLong());
+        verify(mAnomalyBatch, never()).add(anyInt(), anyString(), anyInt(), anyInt(),
+                anyLong());
         verify(mFeatureFactory.metricsFeatureProvider).action(SettingsEnums.PAGE_UNKNOWN,
                 MetricsProto.MetricsEvent.ACTION_ANOMALY_IGNORED,
                 SettingsEnums.PAGE_UNKNOWN,
@@ -189,13 +189,13 @@ public class AnomalyDetectionJobServiceTest {
                 mAnomalyDetectionJobService).extractUidFromStatsDimensionsValue(any());
 
         mAnomalyDetectionJobService.saveAnomalyToDatabase(mContext,
-                mUserManager, mBatteryDatabaseManager, mBatteryUtils, mPolicy,
+                mUserManager, mAnomalyBatch, mBatteryUtils, mPolicy,
                 mPowerAllowlistBackend, mContext.getContentResolver(),
                 mFeatureFactory.powerUsageFeatureProvider, mFeatureFactory.metricsFeatureProvider,
                 mBundle);
 
-        verify(mBatteryDatabaseManager, never()).insertAnomaly(anyInt(), anyString(), anyInt(),
-                anyInt(), anyLong());
+        verify(mAnomalyBatch, never()).add(anyInt(), anyString(), anyInt(), anyInt(),
+                anyLong());
     }
 
     @Test
@@ -204,13 +204,13 @@ public class AnomalyDetectionJobServiceTest {
                 mAnomalyDetectionJobService).extractUidFromStatsDimensionsValue(any());
 
         mAnomalyDetectionJobService.saveAnomalyToDatabase(mContext,
-                mUserManager, mBatteryDatabaseManager, mBatteryUtils, mPolicy,
+                mUserManager, mAnomalyBatch, mBatteryUtils, mPolicy,
                 mPowerAllowlistBackend, mContext.getContentResolver(),
                 mFeatureFactory.powerUsageFeatureProvider, mFeatureFactory.metricsFeatureProvider,
                 mBundle);
 
-        verify(mBatteryDatabaseManager, never()).insertAnomaly(anyInt(), anyString(), anyInt(),
-                anyInt(), anyLong());
+        verify(mAnomalyBatch, never()).add(anyInt(), anyString(), anyInt(), anyInt(),
+                anyLong());
     }
 
     @Test
@@ -224,12 +224,12 @@ public class AnomalyDetectionJobServiceTest {
                 mAnomalyDetectionJobService).extractUidFromStatsDimensionsValue(any());
 
         mAnomalyDetectionJobService.saveAnomalyToDatabase(mContext,
-                mUserManager, mBatteryDatabaseManager, mBatteryUtils, mPolicy,
+                mUserManager, mAnomalyBatch, mBatteryUtils, mPolicy,
                 mPowerAllowlistBackend, mContext.getContentResolver(),
                 mFeatureFactory.powerUsageFeatureProvider, mFeatureFactory.metricsFeatureProvider,
                 mBundle);
 
-        verify(mBatteryDatabaseManager).insertAnomaly(anyInt(), anyString(), eq(6),
+        verify(mAnomalyBatch).add(anyInt(), anyString(), eq(6),
                 eq(AnomalyDatabaseHelper.State.AUTO_HANDLED), anyLong());
         verify(mFeatureFactory.metricsFeatureProvider).action(SettingsEnums.PAGE_UNKNOWN,
                 MetricsProto.MetricsEvent.ACTION_ANOMALY_TRIGGERED,
@@ -249,12 +249,12 @@ public class AnomalyDetectionJobServiceTest {
                 mAnomalyDetectionJobService).extractUidFromStatsDimensionsValue(any());
 
         mAnomalyDetectionJobService.saveAnomalyToDatabase(mContext,
-                mUserManager, mBatteryDatabaseManager, mBatteryUtils, mPolicy,
+                mUserManager, mAnomalyBatch, mBatteryUtils, mPolicy,
                 mPowerAllowlistBackend, mContext.getContentResolver(),
                 mFeatureFactory.powerUsageFeatureProvider, mFeatureFactory.metricsFeatureProvider,
                 mBundle);
 
-        verify(mBatteryDatabaseManager).insertAnomaly(anyInt(), anyString(), eq(6),
+        verify(mAnomalyBatch).add(anyInt(), anyString(), eq(6),
                 eq(AnomalyDatabaseHelper.State.NEW), anyLong());
         verify(mFeatureFactory.metricsFeatureProvider).action(SettingsEnums.PAGE_UNKNOWN,
                 MetricsProto.MetricsEvent.ACTION_ANOMALY_TRIGGERED,
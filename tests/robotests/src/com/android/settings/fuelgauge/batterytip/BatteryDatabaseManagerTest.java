@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batterytip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settings.testutils.DatabaseTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatteryDatabaseManagerTest {
+    private static final int UID = 1234;
+    private static final int UID_OTHER = 5678;
+    private static final String PACKAGE_NAME = "com.android.package";
+    private static final String PACKAGE_NAME_OTHER = "com.android.package.other";
+    private static final int ANOMALY_TYPE = 1;
+    private static final long TIMESTAMP = 1000L;
+
+    private Context mContext;
+    private BatteryDatabaseManager mBatteryDatabaseManager;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mBatteryDatabaseManager = BatteryDatabaseManager.getInstance(mContext);
+    }
+
+    @After
+    public void cleanUp() {
+        DatabaseTestUtils.clearDb(mContext);
+    }
+
+    @Test
+    public void insertAnomalies_emptyBatch_insertNothing() {
+        assertThat(mBatteryDatabaseManager.insertAnomalies(
+                new BatteryDatabaseManager.AnomalyBatch())).isEqualTo(0);
+    }
+
+    @Test
+    public void insertAnomalies_insertAllAnomaliesInBatch() {
+        final BatteryDatabaseManager.AnomalyBatch batch =
+                new BatteryDatabaseManager.AnomalyBatch();
+        batch.add(UID, PACKAGE_NAME, ANOMALY_TYPE, AnomalyDatabaseHelper.State.NEW, TIMESTAMP);
+        batch.add(UID_OTHER, PACKAGE_NAME_OTHER, ANOMALY_TYPE, AnomalyDatabaseHelper.State.NEW,
+                TIMESTAMP);
+
+        assertThat(mBatteryDatabaseManager.insertAnomalies(batch)).isEqualTo(2);
+
+        final List<AppInfo> appInfos = mBatteryDatabaseManager.queryAllAnomalies(0,
+                AnomalyDatabaseHelper.State.NEW);
+        assertThat(appInfos).containsExactly(
+                new AppInfo.Builder()
+                        .setUid(UID)
+                        .setPackageName(PACKAGE_NAME)
+                        .addAnomalyType(ANOMALY_TYPE)
+                        .build(),
+                new AppInfo.Builder()
+                        .setUid(UID_OTHER)
+                        .setPackageName(PACKAGE_NAME_OTHER)
+                        .addAnomalyType(ANOMALY_TYPE)
+                        .build());
+    }
+
+    @Test
+    public void insertAnomalies_duplicateAnomaly_ignoreDuplicate() {
+        final BatteryDatabaseManager.AnomalyBatch batch =
+                new BatteryDatabaseManager.AnomalyBatch();
+        batch.add(UID, PACKAGE_NAME, ANOMALY_TYPE, AnomalyDatabaseHelper.State.NEW, TIMESTAMP);
+        batch.add(UID, PACKAGE_NAME, ANOMALY_TYPE, AnomalyDatabaseHelper.State.NEW, TIMESTAMP);
+
+        assertThat(mBatteryDatabaseManager.insertAnomalies(batch)).isEqualTo(1);
+    }
+}
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.spy;
 
 import android.content.Context;
 import android.content.Intent;
+import android.os.BatteryManager;
 import android.os.BatteryUsageStats;
 import android.os.PowerManager;
 
@@ -32,6 +33,7 @@ import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.tips.AppLabelPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.AppRestrictionPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.SmartBatteryTip;
 
 import org.junit.After;
 import org.junit.Before;
@@ -44,7 +46,9 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.util.ReflectionHelpers;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(RobolectricTestRunner.class)
 public class BatteryTipLoaderTest {
@@ -84,6 +88,7 @@ public class BatteryTipLoaderTest {
 
     @After
     public void tearDown() {
+        BatteryTipLoader.clearCache();
         ReflectionHelpers.setStaticField(AppLabelPredicate.class, "sInstance", null);
         ReflectionHelpers.setStaticField(AppRestrictionPredicate.class, "sInstance", null);
     }
@@ -97,4 +102,109 @@ public class BatteryTipLoaderTest {
             assertThat(batteryTips.get(i).getType()).isEqualTo(TIP_ORDER[i]);
         }
     }
+
+    @Test
+    public void runDetectors_detectorTimeout_returnInvisibleFallback() {
+        final List<BatteryTipLoader.DetectorTask> tasks = new ArrayList<>();
+        tasks.add(new BatteryTipLoader.DetectorTask(this::detectSlowly,
+                new SmartBatteryTip(BatteryTip.StateType.INVISIBLE)));
+
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.runDetectors(tasks, createInputs());
+
+        assertThat(batteryTips).hasSize(1);
+        assertThat(batteryTips.get(0).getType())
+                .isEqualTo(BatteryTip.TipType.SMART_BATTERY_MANAGER);
+        assertThat(batteryTips.get(0).getState()).isEqualTo(BatteryTip.StateType.INVISIBLE);
+    }
+
+    @Test
+    public void runDetectors_detectorTimeout_returnLastKnownTip() {
+        final List<BatteryTipLoader.DetectorTask> tasks = new ArrayList<>();
+        tasks.add(new BatteryTipLoader.DetectorTask(
+                () -> new SmartBatteryTip(BatteryTip.StateType.NEW),
+                new SmartBatteryTip(BatteryTip.StateType.INVISIBLE)));
+        mBatteryTipLoader.runDetectors(tasks, createInputs());
+        tasks.clear();
+        tasks.add(new BatteryTipLoader.DetectorTask(this::detectSlowly,
+                new SmartBatteryTip(BatteryTip.StateType.INVISIBLE)));
+
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.runDetectors(tasks, createInputs());
+
+        assertThat(batteryTips.get(0).getState()).isEqualTo(BatteryTip.StateType.NEW);
+    }
+
+    @Test
+    public void runDetectors_batteryStateChanged_doesNotReturnLastKnownTip() {
+        final List<BatteryTipLoader.DetectorTask> tasks = new ArrayList<>();
+        tasks.add(new BatteryTipLoader.DetectorTask(
+                () -> new SmartBatteryTip(BatteryTip.StateType.NEW),
+                new SmartBatteryTip(BatteryTip.StateType.INVISIBLE)));
+        mBatteryTipLoader.runDetectors(tasks, createInputs());
+        tasks.clear();
+        tasks.add(new BatteryTipLoader.DetectorTask(this::detectSlowly,
+                new SmartBatteryTip(BatteryTip.StateType.INVISIBLE)));
+        mBatteryInfo.batteryLevel--;
+
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.runDetectors(tasks, createInputs());
+
+        assertThat(batteryTips.get(0).getState()).isEqualTo(BatteryTip.StateType.INVISIBLE);
+    }
+
+    @Test
+    public void runDetectors_cacheableDetectorSameInputs_notRunAgain() {
+        final AtomicInteger detectCount = new AtomicInteger();
+        final List<BatteryTipLoader.DetectorTask> tasks = new ArrayList<>();
+        tasks.add(new BatteryTipLoader.DetectorTask(() -> {
+            detectCount.incrementAndGet();
+            return new SmartBatteryTip(BatteryTip.StateType.NEW);
+        }, new SmartBatteryTip(BatteryTip.StateType.INVISIBLE), true /* cacheable */));
+        mBatteryTipLoader.runDetectors(tasks, createInputs());
+
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.runDetectors(tasks, createInputs());
+
+        assertThat(detectCount.get()).isEqualTo(1);
+        assertThat(batteryTips.get(0).getState()).isEqualTo(BatteryTip.StateType.NEW);
+    }
+
+    @Test
+    public void runDetectors_cacheableDetectorBatteryStateChanged_runAgain() {
+        final AtomicInteger detectCount = new AtomicInteger();
+        final List<BatteryTipLoader.DetectorTask> tasks = new ArrayList<>();
+        tasks.add(new BatteryTipLoader.DetectorTask(() -> {
+            detectCount.incrementAndGet();
+            return new SmartBatteryTip(BatteryTip.StateType.NEW);
+        }, new SmartBatteryTip(BatteryTip.StateType.INVISIBLE), true /* cacheable */));
+        mBatteryTipLoader.runDetectors(tasks, createInputs());
+        mBatteryInfo.batteryStatus = BatteryManager.BATTERY_STATUS_CHARGING;
+
+        mBatteryTipLoader.runDetectors(tasks, createInputs());
+
+        assertThat(detectCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void runDetectors_interrupted_keepsInterruptStatus() {
+        final List<BatteryTipLoader.DetectorTask> tasks = new ArrayList<>();
+        tasks.add(new BatteryTipLoader.DetectorTask(this::detectSlowly,
+                new SmartBatteryTip(BatteryTip.StateType.INVISIBLE)));
+        Thread.currentThread().interrupt();
+
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.runDetectors(tasks, createInputs());
+
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(batteryTips.get(0).getState()).isEqualTo(BatteryTip.StateType.INVISIBLE);
+    }
+
+    private BatteryTipLoader.DetectorInputs createInputs() {
+        return new BatteryTipLoader.DetectorInputs(mBatteryInfo, mBatteryUsageStats);
+    }
+
+    private BatteryTip detectSlowly() {
+        try {
+            Thread.sleep(BatteryTipLoader.DETECTOR_TIMEOUT_MS * 4);
+        } catch (InterruptedException e) {
+            // Cancelled by the loader, expected.
+        }
+        return new SmartBatteryTip(BatteryTip.StateType.NEW);
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.ShapeDrawable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class HomepageSnapshotTest {
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        new File(mContext.getCacheDir(), HomepageSnapshot.FILE_NAME).delete();
+    }
+
+    @Test
+    public void load_noSnapshot_returnNull() {
+        assertThat(HomepageSnapshot.load(mContext)).isNull();
+    }
+
+    @Test
+    public void load_corruptedSnapshot_returnNull() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(
+                new File(mContext.getCacheDir(), HomepageSnapshot.FILE_NAME))) {
+            out.write(new byte[]{1, 2, 3});
+        }
+
+        assertThat(HomepageSnapshot.load(mContext)).isNull();
+    }
+
+    @Test
+    public void save_thenLoad_returnSameTiles() {
+        new HomepageSnapshot(Arrays.asList(
+                new HomepageSnapshot.TileEntry("key1", "title1", "summary1", 10, null),
+                new HomepageSnapshot.TileEntry("key2", "title2", null, 20, null)),
+                null /* avatar */).save(mContext);
+
+        final HomepageSnapshot snapshot = HomepageSnapshot.load(mContext);
+
+        assertThat(snapshot.getTiles()).hasSize(2);
+        final HomepageSnapshot.TileEntry first = snapshot.getTiles().get(0);
+        assertThat(first.mKey).isEqualTo("key1");
+        assertThat(first.mTitle.toString()).isEqualTo("title1");
+        assertThat(first.mSummary.toString()).isEqualTo("summary1");
+        assertThat(first.mOrder).isEqualTo(10);
+        assertThat(snapshot.getTiles().get(1).mSummary.toString()).isEmpty();
+        assertThat(snapshot.getAvatar()).isNull();
+    }
+
+    @Test
+    public void hasSameContent_sameTiles_returnTrue() {
+        final HomepageSnapshot snapshot = new HomepageSnapshot(Arrays.asList(
+                new HomepageSnapshot.TileEntry("key1", "title1", "summary1", 10, null)),
+                null /* avatar */);
+        final HomepageSnapshot other = new HomepageSnapshot(Arrays.asList(
+                new HomepageSnapshot.TileEntry("key1", "title1", "summary1", 10, null)),
+                null /* avatar */);
+
+        assertThat(snapshot.hasSameContent(other)).isTrue();
+    }
+
+    @Test
+    public void hasSameContent_changedTile_returnFalse() {
+        final HomepageSnapshot snapshot = new HomepageSnapshot(Arrays.asList(
+                new HomepageSnapshot.TileEntry("key1", "title1", "summary1", 10, null)),
+                null /* avatar */);
+        final HomepageSnapshot other = new HomepageSnapshot(Arrays.asList(
+                new HomepageSnapshot.TileEntry("key1", "title1", "summary2", 10, null)),
+                null /* avatar */);
+
+        assertThat(snapshot.hasSameContent(other)).isFalse();
+        assertThat(snapshot.hasSameContent(null)).isFalse();
+    }
+
+    @Test
+    public void toBitmap_noIntrinsicSize_returnNull() {
+        assertThat(HomepageSnapshot.toBitmap(new ColorDrawable())).isNull();
+        assertThat(HomepageSnapshot.toBitmap(null)).isNull();
+    }
+
+    @Test
+    public void toBitmap_intrinsicSize_returnBitmapOfThatSize() {
+        final ShapeDrawable drawable = new ShapeDrawable();
+        drawable.setIntrinsicWidth(8);
+        drawable.setIntrinsicHeight(6);
+
+        final Bitmap bitmap = HomepageSnapshot.toBitmap(drawable);
+
+        assertThat(bitmap.getWidth()).isEqualTo(8);
+        assertThat(bitmap.getHeight()).isEqualTo(6);
+    }
+}
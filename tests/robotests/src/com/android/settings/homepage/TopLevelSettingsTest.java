@@ -81,4 +81,10 @@ public class TopLevelSettingsTest {
 
         verify(icon).setTint(anyInt());
     }
+
+    @Test
+    public void noSnapshot_dashboardTilesReadyWithoutPlaceholders() {
+        assertThat(mSettings.isDashboardTilesReady()).isTrue();
+        assertThat(mSettings.takePlaceholderPreference("key")).isNull();
+    }
 }
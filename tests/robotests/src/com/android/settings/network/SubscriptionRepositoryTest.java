@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Looper;
+import android.telephony.TelephonyManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class SubscriptionRepositoryTest {
+    private Context mContext;
+    private SubscriptionRepository mRepository;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mRepository = new SubscriptionRepository(mContext);
+        SubscriptionRepository.setInstanceForTesting(mRepository);
+    }
+
+    @After
+    public void tearDown() {
+        SubscriptionRepository.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void getSharedSnapshot_noPageStarted_returnsNull() {
+        assertThat(SubscriptionRepository.getSharedSnapshot(mContext)).isNull();
+    }
+
+    @Test
+    public void getSharedSnapshot_pageStarted_returnsSameSnapshot() {
+        mRepository.onPageStarted();
+
+        final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(mContext);
+
+        assertThat(snapshot).isNotNull();
+        assertThat(SubscriptionRepository.getSharedSnapshot(mContext)).isSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void getSharedSnapshot_otherContext_returnsNull() {
+        mRepository.onPageStarted();
+
+        assertThat(SubscriptionRepository.getSharedSnapshot(mock(Context.class))).isNull();
+    }
+
+    @Test
+    public void invalidate_takesNewSnapshot() {
+        mRepository.onPageStarted();
+        final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(mContext);
+
+        mRepository.invalidate();
+
+        assertThat(SubscriptionRepository.getSharedSnapshot(mContext))
+                .isNotSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void invalidateSharedSnapshot_takesNewSnapshot() {
+        mRepository.onPageStarted();
+        final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(mContext);
+
+        SubscriptionRepository.invalidateSharedSnapshot(mContext);
+
+        assertThat(SubscriptionRepository.getSharedSnapshot(mContext))
+                .isNotSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void slotStatusChanged_takesNewSnapshot() {
+        mRepository.onPageStarted();
+        final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(mContext);
+
+        mContext.sendBroadcast(new Intent(TelephonyManager.ACTION_SIM_SLOT_STATUS_CHANGED));
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertThat(SubscriptionRepository.getSharedSnapshot(mContext))
+                .isNotSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void onPageStopped_otherPageStillStarted_keepsSnapshot() {
+        mRepository.onPageStarted();
+        mRepository.onPageStarted();
+        final SubscriptionSnapshot snapshot = SubscriptionRepository.getSharedSnapshot(mContext);
+
+        mRepository.onPageStopped();
+
+        assertThat(SubscriptionRepository.getSharedSnapshot(mContext)).isSameInstanceAs(snapshot);
+    }
+
+    @Test
+    public void onPageStopped_lastPage_dropsSnapshot() {
+        mRepository.onPageStarted();
+        SubscriptionRepository.getSharedSnapshot(mContext);
+
+        mRepository.onPageStopped();
+
+        assertThat(SubscriptionRepository.getSharedSnapshot(mContext)).isNull();
+    }
+}
@@ -20,6 +20,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -48,6 +49,9 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @RunWith(RobolectricTestRunner.class)
 public class SubscriptionsChangeListenerTest {
 
@@ -97,6 +101,36 @@ public class SubscriptionsChangeListenerTest {
         verify(mClient).onSubscriptionsChanged();
     }
 
+    @Test
+    public void onSubscriptionsChangedEvent_sharedSnapshotDroppedBeforeClientNotified() {
+        final SubscriptionRepository repository =
+                new SubscriptionRepository(RuntimeEnvironment.application);
+        SubscriptionRepository.setInstanceForTesting(repository);
+        try {
+            repository.onPageStarted();
+            final SubscriptionSnapshot snapshot =
+                    SubscriptionRepository.getSharedSnapshot(mContext);
+            final List<SubscriptionSnapshot> clientSnapshots = new ArrayList<>();
+            doAnswer(invocation -> clientSnapshots.add(
+                    SubscriptionRepository.getSharedSnapshot(mContext)))
+                    .when(mClient).onSubscriptionsChanged();
+            initListener(true);
+            final ArgumentCaptor<SubscriptionManager.OnSubscriptionsChangedListener> captor =
+                    ArgumentCaptor.forClass(
+                            SubscriptionManager.OnSubscriptionsChangedListener.class);
+            verify(mSubscriptionManager).addOnSubscriptionsChangedListener(any(),
+                    captor.capture());
+
+            captor.getValue().onSubscriptionsChanged();
+
+            assertThat(clientSnapshots).hasSize(1);
+            assertThat(clientSnapshots.get(0)).isNotSameInstanceAs(snapshot);
+        } finally {
+            repository.onPageStopped();
+            SubscriptionRepository.setInstanceForTesting(null);
+        }
+    }
+
     @Test
     public void
     onSubscriptionsChangedEvent_ignoresStickyBroadcastFromBeforeRegistering() {
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.apn;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ContentProvider;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.Telephony;
+
+import com.android.settings.core.SettingsTaskScheduler;
+import com.android.settings.network.apn.ApnRepository.ApnEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class ApnRepositoryTest {
+    private static final int SUB_ID = 1;
+
+    @Mock
+    private ApnRepository.Callback mCallback;
+    private ApnRepository mRepository;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        SettingsTaskScheduler.setInstanceForTesting(new SettingsTaskScheduler(Runnable::run));
+        mRepository = new ApnRepository(
+                RuntimeEnvironment.application.getContentResolver(), SUB_ID);
+    }
+
+    @After
+    public void tearDown() {
+        mRepository.removeCallback(mCallback);
+        SettingsTaskScheduler.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void parse_readsEveryRow() {
+        final MatrixCursor cursor = new MatrixCursor(new String[] {
+                Telephony.Carriers._ID, Telephony.Carriers.NAME, Telephony.Carriers.APN,
+                Telephony.Carriers.TYPE, Telephony.Carriers.MVNO_TYPE,
+                Telephony.Carriers.MVNO_MATCH_DATA, Telephony.Carriers.EDITED_STATUS});
+        cursor.addRow(new Object[] {"1", "Internet", "internet", "default", "", "", 0});
+        cursor.addRow(new Object[] {"2", "MMS", "mms", "mms", "spn", "carrier", 1});
+
+        final List<ApnEntry> entries = ApnRepository.parse(cursor);
+
+        assertThat(entries).containsExactly(
+                new ApnEntry("1", "Internet", "internet", "default", "", "", 0),
+                new ApnEntry("2", "MMS", "mms", "mms", "spn", "carrier", 1)).inOrder();
+    }
+
+    @Test
+    public void onLoaded_sameList_notifiedOnce() {
+        mRepository.addCallback(mCallback);
+
+        mRepository.onLoaded(Arrays.asList(entry("1")), "1");
+        mRepository.onLoaded(Arrays.asList(entry("1")), "1");
+
+        verify(mCallback, times(1)).onApnListChanged(anyList(), any());
+    }
+
+    @Test
+    public void onLoaded_selectedKeyChanged_notified() {
+        mRepository.addCallback(mCallback);
+
+        mRepository.onLoaded(Arrays.asList(entry("1"), entry("2")), "1");
+        mRepository.onLoaded(Arrays.asList(entry("1"), entry("2")), "2");
+
+        verify(mCallback, times(2)).onApnListChanged(anyList(), any());
+    }
+
+    @Test
+    public void onLoaded_providerUnavailable_notNotified() {
+        mRepository.addCallback(mCallback);
+
+        mRepository.onLoaded(null, null);
+
+        verify(mCallback, never()).onApnListChanged(anyList(), any());
+    }
+
+    @Test
+    public void addCallback_cachedList_deliveredRightAway() {
+        final List<ApnEntry> entries = Arrays.asList(entry("1"));
+        mRepository.onLoaded(entries, "1");
+
+        mRepository.addCallback(mCallback);
+
+        verify(mCallback).onApnListChanged(entries, "1");
+    }
+
+    @Test
+    public void removeCallback_notNotifiedAnymore() {
+        mRepository.addCallback(mCallback);
+        mRepository.removeCallback(mCallback);
+
+        mRepository.onLoaded(Arrays.asList(entry("1")), "1");
+
+        verify(mCallback, never()).onApnListChanged(anyList(), any());
+    }
+
+    @Test
+    public void getInstance_callbackRegistered_repositoryShared() {
+        final ApnRepository repository =
+                ApnRepository.getInstance(RuntimeEnvironment.application, SUB_ID);
+
+        repository.addCallback(mCallback);
+
+        assertThat(ApnRepository.getInstance(RuntimeEnvironment.application, SUB_ID))
+                .isSameInstanceAs(repository);
+        repository.removeCallback(mCallback);
+    }
+
+    @Test
+    public void getInstance_lastCallbackRemoved_repositoryNotShared() {
+        final ApnRepository repository =
+                ApnRepository.getInstance(RuntimeEnvironment.application, SUB_ID);
+        repository.addCallback(mCallback);
+
+        repository.removeCallback(mCallback);
+
+        assertThat(ApnRepository.getInstance(RuntimeEnvironment.application, SUB_ID))
+                .isNotSameInstanceAs(repository);
+    }
+
+    @Test
+    public void refresh_preferredApnQueryFails_nextRefreshLoadsAgain() {
+        final ContentProvider provider = mock(ContentProvider.class);
+        when(provider.query(any(Uri.class), any(), any(), any(), any()))
+                .thenAnswer(invocation -> new MatrixCursor(new String[] {"_id"}));
+        when(provider.query(argThat(uri -> uri.toString().startsWith(
+                ApnSettings.PREFERRED_APN_URI)), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException());
+        ShadowContentResolver.registerProviderInternal("telephony", provider);
+
+        mRepository.refresh();
+        mRepository.refresh();
+
+        verify(provider, times(2)).query(argThat(uri -> uri.toString().startsWith(
+                Telephony.Carriers.SIM_APN_URI.toString())), any(), any(), any(), any());
+    }
+
+    private static ApnEntry entry(String key) {
+        return new ApnEntry(key, "name" + key, "apn" + key, "default", null, null,
+                Telephony.Carriers.UNEDITED);
+    }
+}
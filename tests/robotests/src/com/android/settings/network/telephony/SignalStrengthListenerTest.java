@@ -19,7 +19,6 @@ package com.android.settings.network.telephony;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -27,9 +26,12 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.telephony.TelephonyCallback;
 import android.telephony.TelephonyManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -70,9 +72,16 @@ public class SignalStrengthListenerTest {
         when(mBaseManager.createForSubscriptionId(SUB_ID_1)).thenReturn(mManager1);
         when(mBaseManager.createForSubscriptionId(SUB_ID_2)).thenReturn(mManager2);
         when(mBaseManager.createForSubscriptionId(SUB_ID_3)).thenReturn(mManager3);
+        TelephonyEventHub.setInstanceForTesting(
+                new TelephonyEventHub(mBaseManager, new Handler(Looper.getMainLooper())));
         mListener = new SignalStrengthListener(mContext, mCallback);
     }
 
+    @After
+    public void tearDown() {
+        TelephonyEventHub.setInstanceForTesting(null);
+    }
+
     @Test
     public void resume_noIds_noCrash() {
         mListener.resume();
@@ -86,12 +95,10 @@ public class SignalStrengthListenerTest {
     @Test
     public void updateSubscriptionIds_beforeResume_startedListening() {
         mListener.updateSubscriptionIds(Sets.newSet(SUB_ID_1, SUB_ID_2));
-        ArgumentCaptor<SignalStrengthListener.SignalStrengthTelephonyCallback> captor1 =
-                ArgumentCaptor.forClass(
-                        SignalStrengthListener.SignalStrengthTelephonyCallback.class);
-        ArgumentCaptor<SignalStrengthListener.SignalStrengthTelephonyCallback> captor2 =
-                ArgumentCaptor.forClass(
-                        SignalStrengthListener.SignalStrengthTelephonyCallback.class);
+        ArgumentCaptor<TelephonyCallback> captor1 =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
+        ArgumentCaptor<TelephonyCallback> captor2 =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
 
         verify(mManager1).registerTelephonyCallback(
                 any(Executor.class), captor1.capture());
@@ -111,24 +118,36 @@ public class SignalStrengthListenerTest {
         mListener.updateSubscriptionIds(Sets.newSet(SUB_ID_1, SUB_ID_2));
 
         verify(mManager1).registerTelephonyCallback(any(Executor.class),
-                eq(mListener.mTelephonyCallbacks.get(SUB_ID_1)));
+                any(TelephonyCallback.class));
         verify(mManager2).registerTelephonyCallback(any(Executor.class),
-                eq(mListener.mTelephonyCallbacks.get(SUB_ID_2)));
+                any(TelephonyCallback.class));
 
         mListener.updateSubscriptionIds(Sets.newSet(SUB_ID_1, SUB_ID_2, SUB_ID_3));
-        verify(mManager1, never()).unregisterTelephonyCallback(
-                mListener.mTelephonyCallbacks.get(SUB_ID_1));
-        verify(mManager2, never()).unregisterTelephonyCallback(
-                mListener.mTelephonyCallbacks.get(SUB_ID_2));
+        verify(mManager1, never()).unregisterTelephonyCallback(any(TelephonyCallback.class));
+        verify(mManager2, never()).unregisterTelephonyCallback(any(TelephonyCallback.class));
         verify(mManager3).registerTelephonyCallback(
-                any(Executor.class), eq(mListener.mTelephonyCallbacks.get(SUB_ID_3)));
+                any(Executor.class), any(TelephonyCallback.class));
+        assertThat(mListener.mSubscriptionIds).containsExactly(SUB_ID_1, SUB_ID_2, SUB_ID_3);
+    }
+
+    @Test
+    public void updateSubscriptionIds_twoListenersSameId_registeredOnce() {
+        final SignalStrengthListener otherListener =
+                new SignalStrengthListener(mContext, mCallback);
+
+        mListener.updateSubscriptionIds(Sets.newSet(SUB_ID_1));
+        otherListener.updateSubscriptionIds(Sets.newSet(SUB_ID_1));
+        mListener.updateSubscriptionIds(Sets.newSet());
+
+        verify(mManager1, times(1)).registerTelephonyCallback(any(Executor.class),
+                any(TelephonyCallback.class));
+        verify(mManager1, never()).unregisterTelephonyCallback(any(TelephonyCallback.class));
     }
 
     @Test
     public void updateSubscriptionIds_twoCalls_oneIdRemoved() {
-        ArgumentCaptor<SignalStrengthListener.SignalStrengthTelephonyCallback> captor1 =
-                ArgumentCaptor.forClass(
-                        SignalStrengthListener.SignalStrengthTelephonyCallback.class);
+        ArgumentCaptor<TelephonyCallback> captor1 =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
 
         mListener.updateSubscriptionIds(Sets.newSet(SUB_ID_1, SUB_ID_2));
         verify(mManager1).registerTelephonyCallback(any(Executor.class), captor1.capture());
@@ -144,12 +163,10 @@ public class SignalStrengthListenerTest {
 
     @Test
     public void updateSubscriptionIds_twoCalls_twoIdsRemovedOneAdded() {
-        ArgumentCaptor<SignalStrengthListener.SignalStrengthTelephonyCallback> captor1 =
-                ArgumentCaptor.forClass(
-                        SignalStrengthListener.SignalStrengthTelephonyCallback.class);
-        ArgumentCaptor<SignalStrengthListener.SignalStrengthTelephonyCallback> captor2 =
-                ArgumentCaptor.forClass(
-                        SignalStrengthListener.SignalStrengthTelephonyCallback.class);
+        ArgumentCaptor<TelephonyCallback> captor1 =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
+        ArgumentCaptor<TelephonyCallback> captor2 =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
 
         mListener.updateSubscriptionIds(Sets.newSet(SUB_ID_1, SUB_ID_2));
         verify(mManager1).registerTelephonyCallback(any(Executor.class), captor1.capture());
@@ -172,12 +189,10 @@ public class SignalStrengthListenerTest {
         mListener.pause();
         mListener.resume();
 
-        ArgumentCaptor<SignalStrengthListener.SignalStrengthTelephonyCallback> captor1 =
-                ArgumentCaptor.forClass(
-                        SignalStrengthListener.SignalStrengthTelephonyCallback.class);
-        ArgumentCaptor<SignalStrengthListener.SignalStrengthTelephonyCallback> captor2 =
-                ArgumentCaptor.forClass(
-                        SignalStrengthListener.SignalStrengthTelephonyCallback.class);
+        ArgumentCaptor<TelephonyCallback> captor1 =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
+        ArgumentCaptor<TelephonyCallback> captor2 =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
         verify(mManager1, times(2)).registerTelephonyCallback(
                 any(Executor.class), captor1.capture());
         verify(mManager1).unregisterTelephonyCallback(captor1.capture());
@@ -186,10 +201,8 @@ public class SignalStrengthListenerTest {
                 any(Executor.class), captor2.capture());
         verify(mManager2).unregisterTelephonyCallback(captor2.capture());
 
-        assertThat(captor1.getAllValues().get(0) == captor1.getAllValues().get(1)).isTrue();
+        // Pausing unregistered the callbacks registered first.
         assertThat(captor1.getAllValues().get(0) == captor1.getAllValues().get(2)).isTrue();
-
-        assertThat(captor2.getAllValues().get(0) == captor2.getAllValues().get(1)).isTrue();
         assertThat(captor2.getAllValues().get(0) == captor2.getAllValues().get(2)).isTrue();
     }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.telephony.SignalStrength;
+import android.telephony.TelephonyCallback;
+import android.telephony.TelephonyManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class TelephonyEventHubTest {
+    private static final int SUB_ID = 1;
+
+    @Mock
+    private TelephonyManager mBaseManager;
+    @Mock
+    private TelephonyManager mManager;
+    @Mock
+    private TelephonyEventHub.Listener mListener1;
+    @Mock
+    private TelephonyEventHub.Listener mListener2;
+
+    private TelephonyEventHub mHub;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mBaseManager.createForSubscriptionId(SUB_ID)).thenReturn(mManager);
+        mHub = new TelephonyEventHub(mBaseManager, new Handler(Looper.getMainLooper()));
+    }
+
+    @Test
+    public void addListener_sameEventTwice_registeredOnce() {
+        mHub.addListener(SUB_ID, TelephonyEventHub.EVENT_SIGNAL_STRENGTH, mListener1);
+        mHub.addListener(SUB_ID, TelephonyEventHub.EVENT_SIGNAL_STRENGTH, mListener2);
+
+        verify(mManager, times(1)).registerTelephonyCallback(any(Executor.class),
+                any(TelephonyCallback.class));
+    }
+
+    @Test
+    public void removeListener_lastOfEvent_unregistered() {
+        final ArgumentCaptor<TelephonyCallback> captor =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
+        mHub.addListener(SUB_ID, TelephonyEventHub.EVENT_SIGNAL_STRENGTH, mListener1);
+        mHub.addListener(SUB_ID, TelephonyEventHub.EVENT_SIGNAL_STRENGTH, mListener2);
+        verify(mManager).registerTelephonyCallback(any(Executor.class), captor.capture());
+
+        mHub.removeListener(SUB_ID, mListener1);
+        verify(mManager, never()).unregisterTelephonyCallback(any(TelephonyCallback.class));
+
+        mHub.removeListener(SUB_ID, mListener2);
+        verify(mManager).unregisterTelephonyCallback(captor.getValue());
+    }
+
+    @Test
+    public void onSignalStrengthsChanged_burst_deliveredOncePerFrame() {
+        final TelephonyCallback.SignalStrengthsListener callback = registerSignalStrength();
+        final SignalStrength first = mock(SignalStrength.class);
+        final SignalStrength last = mock(SignalStrength.class);
+
+        callback.onSignalStrengthsChanged(first);
+        callback.onSignalStrengthsChanged(mock(SignalStrength.class));
+        callback.onSignalStrengthsChanged(last);
+        ShadowLooper.idleMainLooper(TelephonyEventHub.FRAME_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        verify(mListener1).onSignalStrengthsChanged(SUB_ID, first);
+        verify(mListener1).onSignalStrengthsChanged(SUB_ID, last);
+        verify(mListener1, times(2)).onSignalStrengthsChanged(anyInt(), any());
+    }
+
+    @Test
+    public void addListener_afterEvent_replaysLastValue() {
+        final TelephonyCallback.SignalStrengthsListener callback = registerSignalStrength();
+        final SignalStrength signalStrength = mock(SignalStrength.class);
+        callback.onSignalStrengthsChanged(signalStrength);
+
+        mHub.addListener(SUB_ID, TelephonyEventHub.EVENT_SIGNAL_STRENGTH, mListener2);
+        ShadowLooper.idleMainLooper();
+
+        verify(mListener2).onSignalStrengthsChanged(SUB_ID, signalStrength);
+    }
+
+    @Test
+    public void onAllowedNetworkTypesChanged_onlyDeliveredToItsListeners() {
+        final ArgumentCaptor<TelephonyCallback> captor =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
+        mHub.addListener(SUB_ID, TelephonyEventHub.EVENT_ALLOWED_NETWORK_TYPES, mListener1);
+        mHub.addListener(SUB_ID, TelephonyEventHub.EVENT_SIGNAL_STRENGTH, mListener2);
+        verify(mManager, times(2)).registerTelephonyCallback(any(Executor.class),
+                captor.capture());
+        final TelephonyCallback.AllowedNetworkTypesListener callback =
+                (TelephonyCallback.AllowedNetworkTypesListener) captor.getAllValues().get(0);
+
+        callback.onAllowedNetworkTypesChanged(
+                TelephonyManager.ALLOWED_NETWORK_TYPES_REASON_USER, 1L);
+
+        verify(mListener1).onAllowedNetworkTypesChanged(SUB_ID,
+                TelephonyManager.ALLOWED_NETWORK_TYPES_REASON_USER, 1L);
+        verify(mListener2, never()).onAllowedNetworkTypesChanged(anyInt(), anyInt(), anyLong());
+    }
+
+    private TelephonyCallback.SignalStrengthsListener registerSignalStrength() {
+        final ArgumentCaptor<TelephonyCallback> captor =
+                ArgumentCaptor.forClass(TelephonyCallback.class);
+        mHub.addListener(SUB_ID, TelephonyEventHub.EVENT_SIGNAL_STRENGTH, mListener1);
+        verify(mManager).registerTelephonyCallback(any(Executor.class), captor.capture());
+        return (TelephonyCallback.SignalStrengthsListener) captor.getValue();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.telephony;
+
+import static com.android.settings.core.BasePreferenceController.AVAILABLE;
+import static com.android.settings.core.BasePreferenceController.CONDITIONALLY_UNAVAILABLE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(RobolectricTestRunner.class)
+public class TelephonyStatusControlSessionTest {
+    private static final int SUB_ID = 1;
+
+    private Context mContext;
+    private FakeController mController;
+    private List<AbstractPreferenceController> mControllers;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mController = new FakeController(mContext, SUB_ID);
+        mControllers = Arrays.asList(mController);
+    }
+
+    @After
+    public void tearDown() {
+        TelephonyStatusControlSession.clearLastKnownStatus();
+    }
+
+    @Test
+    public void build_probesAvailabilityOnce() {
+        mController.mStatus = CONDITIONALLY_UNAVAILABLE;
+
+        final TelephonyStatusControlSession session = buildSession(
+                MoreExecutors.newDirectExecutorService());
+        mController.getAvailabilityStatus();
+        mController.getAvailabilityStatus();
+
+        assertThat(mController.getAvailabilityStatus()).isEqualTo(CONDITIONALLY_UNAVAILABLE);
+        assertThat(mController.mProbeCount).isEqualTo(1);
+        session.close();
+    }
+
+    @Test
+    public void close_statusNoLongerControlled() {
+        buildSession(MoreExecutors.newDirectExecutorService()).close();
+        mController.mStatus = CONDITIONALLY_UNAVAILABLE;
+
+        assertThat(mController.getAvailabilityStatus()).isEqualTo(CONDITIONALLY_UNAVAILABLE);
+    }
+
+    @Test
+    public void build_probeWithinDeadline_usesProbedStatus() {
+        mController.mStatus = CONDITIONALLY_UNAVAILABLE;
+        buildSession(MoreExecutors.newDirectExecutorService()).close();
+        mController.mStatus = AVAILABLE;
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            final TelephonyStatusControlSession session = buildSession(executor);
+
+            assertThat(mController.getAvailabilityStatus()).isEqualTo(AVAILABLE);
+            session.close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void build_probePending_usesLastKnownStatus() throws Exception {
+        mController.mStatus = CONDITIONALLY_UNAVAILABLE;
+        buildSession(MoreExecutors.newDirectExecutorService()).close();
+        mController.mStatus = AVAILABLE;
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> {
+            blocked.await();
+            return null;
+        });
+
+        try {
+            final TelephonyStatusControlSession session = buildSession(executor);
+
+            assertThat(mController.getAvailabilityStatus()).isEqualTo(CONDITIONALLY_UNAVAILABLE);
+            assertThat(mController.mProbeCount).isEqualTo(1);
+            session.close();
+        } finally {
+            blocked.countDown();
+            executor.shutdown();
+        }
+        assertThat(mController.getAvailabilityStatus()).isEqualTo(AVAILABLE);
+    }
+
+    private TelephonyStatusControlSession buildSession(ExecutorService executor) {
+        return new TelephonyStatusControlSession.Builder(mControllers)
+                .setExecutor(executor)
+                .build();
+    }
+
+    private static class FakeController extends TelephonyBasePreferenceController {
+        private int mStatus = AVAILABLE;
+        private int mProbeCount;
+
+        FakeController(Context context, int subId) {
+            super(context, "key");
+            mSubId = subId;
+        }
+
+        @Override
+        public int getAvailabilityStatus(int subId) {
+            mProbeCount++;
+            return mStatus;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification;
+
+import static android.text.format.DateUtils.DAY_IN_MILLIS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.IUsageStatsManager;
+import android.app.usage.UsageEvents;
+import android.os.Parcel;
+
+import com.android.settings.notification.NotificationBackend.NotificationsSentState;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationActivityAggregatorTest {
+
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+    private static final String CALLING_PKG = "com.android.settings";
+
+    @Mock
+    private IUsageStatsManager mUsageStats;
+    private NotificationActivityAggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mAggregator = new NotificationActivityAggregator();
+    }
+
+    @Test
+    public void getSentStates_aggregatesNotificationEventsPerPackage() throws Exception {
+        final long now = System.currentTimeMillis();
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(
+                        notificationEvent(PKG1, "channel1", now - 3000),
+                        notificationEvent(PKG1, "channel2", now - 1000),
+                        notificationEvent(PKG2, "channel1", now - 2000),
+                        event(PKG2, UsageEvents.Event.CHOOSER_ACTION, now - 500)));
+
+        final Map<String, NotificationsSentState> sentStates =
+                mAggregator.getSentStates(mUsageStats, 0, CALLING_PKG);
+
+        assertThat(sentStates.get(PKG1).sentCount).isEqualTo(2);
+        assertThat(sentStates.get(PKG1).lastSent).isEqualTo(now - 1000);
+        assertThat(sentStates.get(PKG1).avgSentWeekly).isEqualTo(2);
+        assertThat(sentStates.get(PKG2).sentCount).isEqualTo(1);
+        assertThat(sentStates.get(PKG2).lastSent).isEqualTo(now - 2000);
+    }
+
+    @Test
+    public void getSentStates_secondCall_onlyReadsNewerEvents() throws Exception {
+        final long now = System.currentTimeMillis();
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(notificationEvent(PKG1, "channel1", now - 1000)))
+                .thenReturn(getUsageEvents(notificationEvent(PKG1, "channel1", now)));
+
+        mAggregator.getSentStates(mUsageStats, 0, CALLING_PKG);
+        final Map<String, NotificationsSentState> sentStates =
+                mAggregator.getSentStates(mUsageStats, 0, CALLING_PKG);
+
+        final ArgumentCaptor<Long> startTime = ArgumentCaptor.forClass(Long.class);
+        final ArgumentCaptor<Long> endTime = ArgumentCaptor.forClass(Long.class);
+        verify(mUsageStats, times(2)).queryEventsForUser(
+                startTime.capture(), endTime.capture(), eq(0), eq(CALLING_PKG));
+        assertThat(startTime.getAllValues().get(0)).isLessThan(now - 6 * DAY_IN_MILLIS);
+        assertThat(startTime.getAllValues().get(1)).isEqualTo(endTime.getAllValues().get(0));
+        assertThat(sentStates.get(PKG1).sentCount).isEqualTo(2);
+        assertThat(sentStates.get(PKG1).lastSent).isEqualTo(now);
+    }
+
+    @Test
+    public void getSentStates_eventsOutOfWindow_dropped() throws Exception {
+        final long now = System.currentTimeMillis();
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(
+                        notificationEvent(PKG1, "channel1", now - 8 * DAY_IN_MILLIS),
+                        notificationEvent(PKG2, "channel1", now - 1000)))
+                .thenReturn(getUsageEvents());
+
+        mAggregator.getSentStates(mUsageStats, 0, CALLING_PKG);
+        final Map<String, NotificationsSentState> sentStates =
+                mAggregator.getSentStates(mUsageStats, 0, CALLING_PKG);
+
+        assertThat(sentStates).doesNotContainKey(PKG1);
+        assertThat(sentStates.get(PKG2).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void getSentStates_queryFails_nextCallReadsWholeWindow() throws Exception {
+        final long now = System.currentTimeMillis();
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(null)
+                .thenReturn(getUsageEvents(notificationEvent(PKG1, "channel1", now - 1000)));
+
+        assertThat(mAggregator.getSentStates(mUsageStats, 0, CALLING_PKG)).isEmpty();
+        final Map<String, NotificationsSentState> sentStates =
+                mAggregator.getSentStates(mUsageStats, 0, CALLING_PKG);
+
+        final ArgumentCaptor<Long> startTime = ArgumentCaptor.forClass(Long.class);
+        verify(mUsageStats, times(2)).queryEventsForUser(
+                startTime.capture(), anyLong(), eq(0), eq(CALLING_PKG));
+        assertThat(startTime.getAllValues().get(1)).isLessThan(now - 6 * DAY_IN_MILLIS);
+        assertThat(sentStates.get(PKG1).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void getSentStatesByChannel_sharesSummaryWithAppList() throws Exception {
+        final long now = System.currentTimeMillis();
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(
+                        notificationEvent(PKG1, "channel1", now - 3000),
+                        notificationEvent(PKG1, "channel1", now - 2000),
+                        notificationEvent(PKG1, "channel2", now - 1000)))
+                .thenReturn(getUsageEvents());
+
+        mAggregator.getSentStates(mUsageStats, 0, CALLING_PKG);
+        final Map<String, NotificationsSentState> sentByChannel =
+                mAggregator.getSentStatesByChannel(mUsageStats, 0, PKG1, CALLING_PKG);
+
+        assertThat(sentByChannel.keySet()).containsExactly("channel1", "channel2");
+        assertThat(sentByChannel.get("channel1").sentCount).isEqualTo(2);
+        assertThat(sentByChannel.get("channel1").lastSent).isEqualTo(now - 2000);
+        assertThat(sentByChannel.get("channel2").sentCount).isEqualTo(1);
+        assertThat(mAggregator.getSentStatesByChannel(mUsageStats, 0, PKG2, CALLING_PKG))
+                .isEmpty();
+    }
+
+    private static UsageEvents.Event notificationEvent(String pkg, String channelId,
+            long timestamp) {
+        final UsageEvents.Event event =
+                event(pkg, UsageEvents.Event.NOTIFICATION_INTERRUPTION, timestamp);
+        event.mNotificationChannelId = channelId;
+        return event;
+    }
+
+    private static UsageEvents.Event event(String pkg, int eventType, long timestamp) {
+        final UsageEvents.Event event = new UsageEvents.Event();
+        event.mEventType = eventType;
+        event.mPackage = pkg;
+        event.mTimeStamp = timestamp;
+        return event;
+    }
+
+    private static UsageEvents getUsageEvents(UsageEvents.Event... events) {
+        final List<UsageEvents.Event> eventList = new ArrayList<>(Arrays.asList(events));
+        final UsageEvents usageEvents = new UsageEvents(eventList, new String[] {PKG1, PKG2});
+        final Parcel parcel = Parcel.obtain();
+        parcel.setDataPosition(0);
+        usageEvents.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        return UsageEvents.CREATOR.createFromParcel(parcel);
+    }
+}
@@ -16,6 +16,9 @@
 
 package com.android.settings.notification;
 
+import static android.app.NotificationManager.IMPORTANCE_DEFAULT;
+import static android.app.NotificationManager.IMPORTANCE_NONE;
+
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.junit.Assert.assertFalse;
@@ -26,6 +29,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import android.app.INotificationManager;
+import android.app.NotificationChannel;
+import android.app.NotificationChannelGroup;
 import android.app.role.RoleManager;
 import android.app.usage.UsageEvents;
 import android.bluetooth.BluetoothAdapter;
@@ -191,6 +196,26 @@ public class NotificationBackendTest {
         assertThat(appRow.sentByApp.avgSentWeekly).isEqualTo(3);
     }
 
+    @Test
+    public void testRecordChannelCounts() {
+        NotificationChannelGroup group = new NotificationChannelGroup("group", "Group");
+        group.addChannel(new NotificationChannel("ch1", "Channel 1", IMPORTANCE_DEFAULT));
+        group.addChannel(new NotificationChannel("ch2", "Channel 2", IMPORTANCE_NONE));
+        NotificationChannel deleted =
+                new NotificationChannel("ch3", "Channel 3", IMPORTANCE_NONE);
+        deleted.setDeleted(true);
+        group.addChannel(deleted);
+        NotificationChannelGroup ungrouped = new NotificationChannelGroup(null, null);
+        ungrouped.addChannel(new NotificationChannel("ch4", "Channel 4", IMPORTANCE_DEFAULT));
+
+        AppRow appRow = new AppRow();
+        new NotificationBackend().recordChannelCounts(ImmutableList.of(group, ungrouped), appRow);
+
+        assertThat(appRow.channelCount).isEqualTo(3);
+        assertThat(appRow.blockedChannelCount).isEqualTo(1);
+        assertThat(appRow.deletedChannelCount).isEqualTo(1);
+    }
+
     private UsageEvents getUsageEvents(List<UsageEvents.Event> events) {
         UsageEvents usageEvents = new UsageEvents(events, new String[] {"pkg"});
         Parcel parcel = Parcel.obtain();
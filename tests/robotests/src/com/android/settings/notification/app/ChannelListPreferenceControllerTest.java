@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.app;
+
+import static android.app.NotificationManager.IMPORTANCE_DEFAULT;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import android.app.NotificationChannel;
+import android.app.NotificationChannelGroup;
+import android.content.Context;
+import android.content.pm.ParceledListSlice;
+
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceGroup;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.core.SettingsTaskScheduler;
+import com.android.settings.notification.NotificationBackend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+@RunWith(RobolectricTestRunner.class)
+public class ChannelListPreferenceControllerTest {
+
+    private static final int CHANNEL_COUNT = 50;
+
+    @Mock
+    private NotificationBackend mBackend;
+
+    private Context mContext;
+    private ChannelListPreferenceController mController;
+    private PreferenceCategory mGroupList;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        SettingsTaskScheduler.setInstanceForTesting(new SettingsTaskScheduler(Runnable::run));
+
+        final NotificationChannelGroup group = new NotificationChannelGroup("group", "Group");
+        for (int i = 0; i < CHANNEL_COUNT; i++) {
+            group.addChannel(new NotificationChannel("channel" + i, "Channel " + i,
+                    IMPORTANCE_DEFAULT));
+        }
+        when(mBackend.getGroups(anyString(), anyInt()))
+                .thenReturn(new ParceledListSlice<>(Collections.singletonList(group)));
+
+        final NotificationBackend.AppRow appRow = new NotificationBackend.AppRow();
+        appRow.pkg = "pkg";
+        appRow.uid = 1;
+        appRow.sentByChannel = new HashMap<>();
+        mController = new ChannelListPreferenceController(mContext, mBackend);
+        mController.onResume(appRow, null, null, null, null, null, null);
+
+        final PreferenceScreen screen =
+                new PreferenceManager(mContext).createPreferenceScreen(mContext);
+        mGroupList = new PreferenceCategory(mContext);
+        screen.addPreference(mGroupList);
+    }
+
+    @After
+    public void tearDown() {
+        SettingsTaskScheduler.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void updateState_manyChannels_bindAllRowsPageByPage() {
+        mController.updateState(mGroupList);
+        final int firstPageRowCount = getChannelRowCount();
+
+        ShadowLooper.idleMainLooper();
+
+        assertThat(firstPageRowCount).isLessThan(CHANNEL_COUNT);
+        assertThat(getChannelRowCount()).isEqualTo(CHANNEL_COUNT);
+    }
+
+    @Test
+    public void onStop_whilePaging_stopBindingRows() {
+        mController.updateState(mGroupList);
+        final int firstPageRowCount = getChannelRowCount();
+
+        mController.onStop();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(getChannelRowCount()).isEqualTo(firstPageRowCount);
+    }
+
+    // The group toggle comes first, followed by one row per channel.
+    private int getChannelRowCount() {
+        if (mGroupList.getPreferenceCount() == 0) {
+            return 0;
+        }
+        return ((PreferenceGroup) mGroupList.getPreference(0)).getPreferenceCount() - 1;
+    }
+}
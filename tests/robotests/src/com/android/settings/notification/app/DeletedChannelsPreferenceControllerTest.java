@@ -22,9 +22,9 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 import android.app.NotificationChannel;
 import android.app.NotificationChannelGroup;
@@ -103,29 +103,31 @@ public class DeletedChannelsPreferenceControllerTest {
 
     @Test
     public void isAvailable_appScreen_notIfNoDeletedChannels() {
-        when(mBackend.getDeletedChannelCount(any(), anyInt())).thenReturn(0);
-        mController.onResume(new NotificationBackend.AppRow(), null, null, null, null, null, null);
+        NotificationBackend.AppRow appRow = new NotificationBackend.AppRow();
+        appRow.deletedChannelCount = 0;
+        mController.onResume(appRow, null, null, null, null, null, null);
         assertFalse(mController.isAvailable());
     }
 
     @Test
     public void isAvailable_appScreen() {
-        when(mBackend.getDeletedChannelCount(any(), anyInt())).thenReturn(1);
-        mController.onResume(
-                new NotificationBackend.AppRow(), null, null, null, null, null, new ArrayList<>());
+        NotificationBackend.AppRow appRow = new NotificationBackend.AppRow();
+        appRow.deletedChannelCount = 1;
+        mController.onResume(appRow, null, null, null, null, null, new ArrayList<>());
         assertTrue(mController.isAvailable());
     }
 
     @Test
     public void updateState() {
-        when(mBackend.getDeletedChannelCount(any(), anyInt())).thenReturn(1);
-        mController.onResume(new NotificationBackend.AppRow(), null, null, null, null, null, null);
+        NotificationBackend.AppRow appRow = new NotificationBackend.AppRow();
+        appRow.deletedChannelCount = 1;
+        mController.onResume(appRow, null, null, null, null, null, null);
 
         Preference pref = mock(Preference.class);
         mController.updateState(pref);
 
         verify(pref, times(1)).setSelectable(false);
-        verify(mBackend, times(1)).getDeletedChannelCount(any(), anyInt());
+        verify(mBackend, never()).getDeletedChannelCount(any(), anyInt());
         ArgumentCaptor<CharSequence> argumentCaptor = ArgumentCaptor.forClass(CharSequence.class);
         verify(pref, times(1)).setTitle(argumentCaptor.capture());
         assertTrue(argumentCaptor.getValue().toString().contains("1"));
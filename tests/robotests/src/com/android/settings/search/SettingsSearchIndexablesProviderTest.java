@@ -78,7 +78,7 @@ public class SettingsSearchIndexablesProviderTest {
         activityInfo.name = "class";
         activityInfo.metaData = new Bundle();
         activityInfo.metaData.putString(META_DATA_PREFERENCE_TITLE, "title");
-        final DashboardCategory category = new DashboardCategory("key");
+        final DashboardCategory category = new DashboardCategory(CategoryKey.CATEGORY_HOMEPAGE);
         when(mFakeFeatureFactory.dashboardFeatureProvider.getAllCategories())
                 .thenReturn(Arrays.asList(category));
         category.addTile(new ActivityTile(activityInfo, category.key));
@@ -158,13 +158,33 @@ public class SettingsSearchIndexablesProviderTest {
     }
 
     @Test
-    public void refreshSearchEnabledState_noDashboardCategory_hasInjectionRawData() {
+    public void refreshSearchEnabledState_doesNotLoadTiles() {
+        mProvider.refreshSearchEnabledState(mContext,
+                TopLevelSettings.SEARCH_INDEX_DATA_PROVIDER);
+
+        assertThat(ShadowCategoryManager.sTilesLoaded).isFalse();
+    }
+
+    @Test
+    public void refreshSearchEnabledState_noCategoryLoaded_searchEnabled_hasInjectionRawData() {
         ShadowCategoryManager.setDashboardCategory(null);
 
         mProvider.refreshSearchEnabledState(mContext,
-                TopLevelSettings.SEARCH_INDEX_DATA_PROVIDER);
+                NetworkDashboardFragment.SEARCH_INDEX_DATA_PROVIDER);
 
         assertThat(mProvider.getInjectionIndexableRawData(mContext)).isNotEmpty();
+        assertThat(ShadowCategoryManager.sTilesLoaded).isFalse();
+    }
+
+    @Test
+    public void refreshSearchEnabledState_noCategoryLoaded_searchDisabled_noInjectionRawData() {
+        ShadowCategoryManager.setDashboardCategory(null);
+
+        mProvider.refreshSearchEnabledState(mContext,
+                TopLevelSettings.SEARCH_INDEX_DATA_PROVIDER);
+
+        assertThat(mProvider.getInjectionIndexableRawData(mContext)).isEmpty();
+        assertThat(ShadowCategoryManager.sTilesLoaded).isFalse();
     }
 
     @Test
@@ -209,14 +229,17 @@ public class SettingsSearchIndexablesProviderTest {
     public static class ShadowCategoryManager {
 
         private static DashboardCategory sCategory;
+        private static boolean sTilesLoaded;
 
         @Resetter
         static void reset() {
             sCategory = null;
+            sTilesLoaded = false;
         }
 
         @Implementation
         public DashboardCategory getTilesByCategory(Context context, String categoryKey) {
+            sTilesLoaded = true;
             return sCategory;
         }
 
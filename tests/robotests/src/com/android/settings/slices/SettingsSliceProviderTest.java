@@ -29,6 +29,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -90,7 +91,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -152,7 +152,7 @@ public class SettingsSliceProviderTest {
 
         mProvider = spy(new SettingsSliceProvider());
         ShadowStrictMode.reset();
-        mProvider.mSliceWeakDataCache = new HashMap<>();
+        mProvider.mSliceDataCache = new SliceDataCache(mContext);
         mProvider.mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(mContext);
         when(mProvider.getContext()).thenReturn(mContext);
 
@@ -189,7 +189,7 @@ public class SettingsSliceProviderTest {
         SliceTestUtils.insertSliceToDb(mContext, KEY);
 
         mProvider.loadSlice(INTENT_SLICE_URI);
-        SliceData data = mProvider.mSliceWeakDataCache.get(INTENT_SLICE_URI);
+        SliceData data = mProvider.mSliceDataCache.get(INTENT_SLICE_URI);
 
         assertThat(data.getKey()).isEqualTo(KEY);
         assertThat(data.getTitle()).isEqualTo(SliceTestUtils.FAKE_TITLE);
@@ -222,15 +222,14 @@ public class SettingsSliceProviderTest {
 
     @Test
     @Ignore
-    public void testLoadSlice_cachedEntryRemovedOnBuild() {
+    public void testLoadSlice_cachedEntryKeptOnBuild() {
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
-        SliceTestUtils.insertSliceToDb(mContext, data.getKey());
 
-        SliceData cachedData = mProvider.mSliceWeakDataCache.get(data.getUri());
+        SliceData cachedData = mProvider.mSliceDataCache.get(data.getUri());
 
-        assertThat(cachedData).isNull();
+        assertThat(cachedData).isEqualTo(data);
     }
 
     @Test
@@ -239,7 +238,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(true);
         final StrictMode.ThreadPolicy oldThreadPolicy = StrictMode.getThreadPolicy();
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         final StrictMode.ThreadPolicy newThreadPolicy = StrictMode.getThreadPolicy();
@@ -253,12 +252,35 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(false);
 
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowStrictMode.isThreadPolicyOverridden()).isTrue();
     }
 
+    @Test
+    public void onBindSlice_pinnedSliceAfterTtl_servedFromCache() {
+        final long[] now = {0};
+        mProvider.mSliceDataCache = new SliceDataCache(mContext) {
+            @Override
+            long getElapsedRealtime() {
+                return now[0];
+            }
+        };
+        doNothing().when(mProvider).loadSliceInBackground(any());
+        final SliceData data = getMockData();
+        mProvider.onSlicePinned(data.getUri());
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+        now[0] += SliceDataCache.TTL_MS;
+
+        mProvider.onBindSlice(data.getUri());
+
+        // Only the warm-up started by the pin loads the slice, the bind does not fall back to a
+        // stub and load it again.
+        verify(mProvider).loadSliceInBackground(data.getUri());
+        assertThat(mProvider.mSliceDataCache.get(data.getUri())).isEqualTo(data);
+    }
+
     @Test
     public void onBindSlice_requestsBlockedSlice_returnsNull() {
         final String blockedKey = "blocked_key";
@@ -282,10 +304,11 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeChanged_shouldReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         final SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_YES;
+        mProvider.onConfigurationChanged(mContext.getResources().getConfiguration());
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowTheme.isThemeRebased()).isTrue();
@@ -296,15 +319,36 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeNotChanged_shouldNotReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
+        mProvider.onConfigurationChanged(mContext.getResources().getConfiguration());
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowTheme.isThemeRebased()).isFalse();
     }
 
+    @Test
+    public void getBlockedKeys_parsedOnce() {
+        final Set<String> blockedKeys = mProvider.getBlockedKeys();
+
+        assertThat(mProvider.getBlockedKeys()).isSameInstanceAs(blockedKeys);
+    }
+
+    @Test
+    public void isIndexedSliceUri_specialSlice_returnsFalse() {
+        assertThat(SettingsSliceProvider.isIndexedSliceUri(CustomSliceRegistry.ZEN_MODE_SLICE_URI))
+                .isFalse();
+        assertThat(SettingsSliceProvider.isIndexedSliceUri(CustomSliceRegistry.WIFI_SLICE_URI))
+                .isFalse();
+    }
+
+    @Test
+    public void isIndexedSliceUri_indexedSlice_returnsTrue() {
+        assertThat(SettingsSliceProvider.isIndexedSliceUri(ACTION_SLICE_URI)).isTrue();
+    }
+
     @Test
     public void getDescendantUris_fullActionUri_returnsSelf() {
         final Collection<Uri> descendants = mProvider.onGetSliceDescendants(ACTION_SLICE_URI);
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.provider.SettingsSlicesContract;
+
+import com.android.settings.core.SettingsTaskScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceDataCacheTest {
+    private static final String KEY = "key";
+    private static final Uri URI = new Uri.Builder()
+            .scheme(ContentResolver.SCHEME_CONTENT)
+            .authority(SettingsSliceProvider.SLICE_AUTHORITY)
+            .appendPath(SettingsSlicesContract.PATH_SETTING_ACTION)
+            .appendPath(KEY)
+            .build();
+
+    private Context mContext;
+    private long mNow;
+    private SliceDataCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        SettingsTaskScheduler.setInstanceForTesting(new SettingsTaskScheduler(Runnable::run));
+        mCache = spy(new SliceDataCache(mContext) {
+            @Override
+            long getElapsedRealtime() {
+                return mNow;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        SettingsTaskScheduler.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void get_afterPut_returnsData() {
+        final SliceData data = createData(URI);
+
+        mCache.put(URI, data);
+
+        assertThat(mCache.get(URI)).isEqualTo(data);
+    }
+
+    @Test
+    public void get_afterTtl_returnsNull() {
+        mCache.put(URI, createData(URI));
+
+        mNow += SliceDataCache.TTL_MS;
+
+        assertThat(mCache.get(URI)).isNull();
+    }
+
+    @Test
+    public void put_overCapacity_evictsLeastRecentlyUsed() {
+        final Uri first = createUri(0);
+        mCache.put(first, createData(first));
+        final Uri second = createUri(1);
+        mCache.put(second, createData(second));
+        mCache.get(first);
+
+        for (int i = 2; i <= SliceDataCache.MAX_ENTRIES; i++) {
+            final Uri uri = createUri(i);
+            mCache.put(uri, createData(uri));
+        }
+
+        assertThat(mCache.get(first)).isNotNull();
+        assertThat(mCache.get(second)).isNull();
+    }
+
+    @Test
+    public void get_pinnedAfterTtl_returnsData() {
+        final SliceData data = createData(URI);
+        mCache.pin(URI);
+        mCache.put(URI, data);
+
+        mNow += SliceDataCache.TTL_MS;
+
+        assertThat(mCache.get(URI)).isEqualTo(data);
+    }
+
+    @Test
+    public void put_overCapacity_keepsPinnedEntry() {
+        final Uri pinned = createUri(0);
+        mCache.pin(pinned);
+        mCache.put(pinned, createData(pinned));
+
+        for (int i = 1; i <= SliceDataCache.MAX_ENTRIES; i++) {
+            final Uri uri = createUri(i);
+            mCache.put(uri, createData(uri));
+        }
+
+        assertThat(mCache.get(pinned)).isNotNull();
+        assertThat(mCache.get(createUri(1))).isNull();
+    }
+
+    @Test
+    public void unpin_dropsData() {
+        mCache.pin(URI);
+        mCache.put(URI, createData(URI));
+
+        mCache.unpin(URI);
+
+        assertThat(mCache.get(URI)).isNull();
+    }
+
+    @Test
+    public void prewarm_indexedSlice_loadsData() {
+        doReturn(createData(URI)).when(mCache).load(URI);
+
+        mCache.prewarm(Arrays.asList(URI));
+
+        verify(mCache).load(URI);
+    }
+
+    @Test
+    public void prewarm_customSlice_skipped() {
+        mCache.prewarm(Arrays.asList(CustomSliceRegistry.WIFI_SLICE_URI,
+                CustomSliceRegistry.BLUETOOTH_URI));
+
+        verify(mCache, never()).load(any());
+    }
+
+    @Test
+    public void prewarm_alreadyCached_skipped() {
+        mCache.put(URI, createData(URI));
+
+        mCache.prewarm(Arrays.asList(URI));
+
+        verify(mCache, never()).load(any());
+    }
+
+    private static Uri createUri(int index) {
+        return URI.buildUpon().appendPath(String.valueOf(index)).build();
+    }
+
+    private static SliceData createData(Uri uri) {
+        return new SliceData.Builder()
+                .setKey(KEY)
+                .setUri(uri)
+                .setTitle(SliceTestUtils.FAKE_TITLE)
+                .setFragmentName(SliceTestUtils.FAKE_FRAGMENT_NAME)
+                .setPreferenceControllerClassName(SliceTestUtils.FAKE_CONTROLLER_NAME)
+                .build();
+    }
+}
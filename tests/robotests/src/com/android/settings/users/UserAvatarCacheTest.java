@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.os.UserManager;
+
+import com.android.settings.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class UserAvatarCacheTest {
+    private static final int USER_ID = 10;
+    private static final int OTHER_USER_ID = 11;
+
+    @Mock
+    private UserManager mUserManager;
+
+    private Context mContext;
+    private UserAvatarCache mUserAvatarCache;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(RuntimeEnvironment.application);
+        doReturn(mContext).when(mContext).getApplicationContext();
+        doReturn(mUserManager).when(mContext).getSystemService(UserManager.class);
+        doReturn(createIcon()).when(mUserManager).getUserIcon(USER_ID);
+        doReturn(createIcon()).when(mUserManager).getUserIcon(OTHER_USER_ID);
+
+        mUserAvatarCache = UserAvatarCache.getInstance(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        ReflectionHelpers.setStaticField(UserAvatarCache.class, "sInstance", null);
+    }
+
+    @Test
+    public void getAvatar_notLoaded_returnNull() {
+        assertThat(mUserAvatarCache.getAvatar(USER_ID)).isNull();
+    }
+
+    @Test
+    public void putAvatar_scaledToUserListIconSize() {
+        mUserAvatarCache.putAvatar(USER_ID, createIcon());
+
+        final int iconSize = mContext.getResources().getDimensionPixelSize(
+                R.dimen.multiple_users_user_icon_size);
+        assertThat(mUserAvatarCache.getAvatar(USER_ID).getIntrinsicWidth()).isEqualTo(iconSize);
+    }
+
+    @Test
+    public void loadAvatars_loadEachUserOnceAndNotifyEachCaller() {
+        final AtomicInteger loadedCount = new AtomicInteger();
+
+        mUserAvatarCache.loadAvatars(Arrays.asList(USER_ID, OTHER_USER_ID),
+                loadedCount::incrementAndGet);
+        mUserAvatarCache.loadAvatars(Arrays.asList(USER_ID, OTHER_USER_ID),
+                loadedCount::incrementAndGet);
+
+        verify(mUserManager, times(1)).getUserIcon(USER_ID);
+        verify(mUserManager, times(1)).getUserIcon(OTHER_USER_ID);
+        assertThat(loadedCount.get()).isEqualTo(2);
+        assertThat(mUserAvatarCache.getAvatar(USER_ID)).isNotNull();
+        assertThat(mUserAvatarCache.getAvatar(OTHER_USER_ID)).isNotNull();
+    }
+
+    @Test
+    public void loadAvatars_alreadyLoading_notifiedWhenLoaded() {
+        final AtomicInteger firstCount = new AtomicInteger();
+        final AtomicInteger secondCount = new AtomicInteger();
+        doAnswer(invocation -> {
+            mUserAvatarCache.loadAvatars(Arrays.asList(USER_ID), secondCount::incrementAndGet);
+            assertThat(secondCount.get()).isEqualTo(0);
+            return createIcon();
+        }).when(mUserManager).getUserIcon(USER_ID);
+
+        mUserAvatarCache.loadAvatars(Arrays.asList(USER_ID), firstCount::incrementAndGet);
+
+        verify(mUserManager, times(1)).getUserIcon(USER_ID);
+        assertThat(firstCount.get()).isEqualTo(1);
+        assertThat(secondCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadAvatars_invalidatedWhileLoading_notCached() {
+        doAnswer(invocation -> {
+            mUserAvatarCache.invalidate(USER_ID);
+            return createIcon();
+        }).when(mUserManager).getUserIcon(USER_ID);
+
+        mUserAvatarCache.loadAvatars(Arrays.asList(USER_ID), () -> {});
+
+        assertThat(mUserAvatarCache.getAvatar(USER_ID)).isNull();
+    }
+
+    @Test
+    public void userInfoChanged_invalidateAvatar() {
+        mUserAvatarCache.putAvatar(USER_ID, createIcon());
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_USER_INFO_CHANGED)
+                .putExtra(Intent.EXTRA_USER_HANDLE, USER_ID));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mUserAvatarCache.getAvatar(USER_ID)).isNull();
+    }
+
+    private static Bitmap createIcon() {
+        return Bitmap.createBitmap(200, 200, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2023 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.android.wifitrackerlib.WifiEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class WifiEntryListDifferTest {
+
+    private WifiEntryListDiffer mDiffer;
+    private WifiEntry mWifiEntry1;
+    private WifiEntry mWifiEntry2;
+    private WifiEntry mWifiEntry3;
+
+    @Before
+    public void setUp() {
+        mDiffer = new WifiEntryListDiffer();
+        mWifiEntry1 = mockWifiEntry("key1", 1);
+        mWifiEntry2 = mockWifiEntry("key2", 2);
+        mWifiEntry3 = mockWifiEntry("key3", 3);
+    }
+
+    @Test
+    public void update_firstList_nothingRemovedOrChanged() {
+        final WifiEntryListDiffer.Diff diff =
+                mDiffer.update(Arrays.asList(mWifiEntry1, mWifiEntry2));
+
+        assertThat(diff.getRemovedKeys()).isEmpty();
+        assertThat(diff.isChanged("key1")).isFalse();
+        assertThat(diff.isChanged("key2")).isFalse();
+    }
+
+    @Test
+    public void update_newEntryObjectWithSameState_notChanged() {
+        mDiffer.update(Arrays.asList(mWifiEntry1, mWifiEntry2));
+
+        final WifiEntryListDiffer.Diff diff =
+                mDiffer.update(Arrays.asList(mockWifiEntry("key1", 1), mWifiEntry2));
+
+        assertThat(diff.getRemovedKeys()).isEmpty();
+        assertThat(diff.isChanged("key1")).isFalse();
+    }
+
+    @Test
+    public void update_levelChanged_isChanged() {
+        mDiffer.update(Arrays.asList(mWifiEntry1, mWifiEntry2));
+        when(mWifiEntry2.getLevel()).thenReturn(4);
+
+        final WifiEntryListDiffer.Diff diff =
+                mDiffer.update(Arrays.asList(mWifiEntry1, mWifiEntry2));
+
+        assertThat(diff.isChanged("key1")).isFalse();
+        assertThat(diff.isChanged("key2")).isTrue();
+    }
+
+    @Test
+    public void update_insertAndRemove_reportRemovedKeys() {
+        mDiffer.update(Arrays.asList(mWifiEntry1, mWifiEntry2));
+
+        final WifiEntryListDiffer.Diff diff =
+                mDiffer.update(Arrays.asList(mWifiEntry3, mWifiEntry2));
+
+        assertThat(diff.getRemovedKeys()).containsExactly("key1");
+        assertThat(diff.isChanged("key3")).isFalse();
+    }
+
+    @Test
+    public void reset_nextUpdateReportsNothingRemoved() {
+        mDiffer.update(Arrays.asList(mWifiEntry1, mWifiEntry2));
+
+        mDiffer.reset();
+        final WifiEntryListDiffer.Diff diff =
+                mDiffer.update(Collections.singletonList(mWifiEntry1));
+
+        assertThat(diff.getRemovedKeys()).isEmpty();
+    }
+
+    private static WifiEntry mockWifiEntry(String key, int level) {
+        final WifiEntry wifiEntry = mock(WifiEntry.class);
+        when(wifiEntry.getKey()).thenReturn(key);
+        when(wifiEntry.getTitle()).thenReturn(key);
+        when(wifiEntry.getLevel()).thenReturn(level);
+        return wifiEntry;
+    }
+}
@@ -16,7 +16,6 @@
 
 package com.android.settings.network;
 
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -24,9 +23,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
-import android.os.HandlerExecutor;
 import android.telephony.RadioAccessFamily;
-import android.telephony.TelephonyCallback;
 import android.telephony.TelephonyManager;
 import android.test.mock.MockContentResolver;
 
@@ -34,6 +31,9 @@ import androidx.test.annotation.UiThreadTest;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import com.android.settings.network.telephony.TelephonyEventHub;
+
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -53,6 +53,8 @@ public class AllowedNetworkTypesListenerTest {
     private AllowedNetworkTypesListener.OnAllowedNetworkTypesListener mListener;
     @Mock
     private TelephonyManager mTelephonyManager;
+    @Mock
+    private TelephonyEventHub mTelephonyEventHub;
 
 
     @Before
@@ -63,10 +65,17 @@ public class AllowedNetworkTypesListenerTest {
         when(mContext.getSystemService(TelephonyManager.class)).thenReturn(mTelephonyManager);
         doReturn(mTelephonyManager).when(mTelephonyManager).createForSubscriptionId(SUB_ID);
 
+        TelephonyEventHub.setInstanceForTesting(mTelephonyEventHub);
+
         mAllowedNetworkTypesListener =
                 spy(new AllowedNetworkTypesListener(mContext.getMainExecutor()));
     }
 
+    @After
+    public void tearDown() {
+        TelephonyEventHub.setInstanceForTesting(null);
+    }
+
     @Test
     public void onChange_userReasonChanged_shouldCallListener() {
         mAllowedNetworkTypesListener.mListener = mListener;
@@ -92,18 +101,17 @@ public class AllowedNetworkTypesListenerTest {
     }
 
     @Test
-    public void register_shouldRegisterContentObserver() {
+    public void register_shouldAddHubListener() {
         mAllowedNetworkTypesListener.register(mContext, SUB_ID);
 
-        verify(mTelephonyManager, times(1)).registerTelephonyCallback(any(HandlerExecutor.class),
-                any(TelephonyCallback.class));
+        verify(mTelephonyEventHub, times(1)).addListener(SUB_ID,
+                TelephonyEventHub.EVENT_ALLOWED_NETWORK_TYPES, mAllowedNetworkTypesListener);
     }
 
     @Test
-    public void unregister_shouldUnregisterContentObserver() {
+    public void unregister_shouldRemoveHubListener() {
         mAllowedNetworkTypesListener.unregister(mContext, SUB_ID);
 
-        verify(mTelephonyManager).unregisterTelephonyCallback(
-                mAllowedNetworkTypesListener);
+        verify(mTelephonyEventHub).removeListener(SUB_ID, mAllowedNetworkTypesListener);
     }
 }
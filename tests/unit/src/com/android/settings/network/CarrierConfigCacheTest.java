@@ -27,10 +27,14 @@ import android.content.Context;
 import android.os.PersistableBundle;
 import android.os.UserHandle;
 import android.telephony.CarrierConfigManager;
+import android.telephony.SubscriptionManager;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import com.android.settings.core.SettingsTaskScheduler;
+
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -39,16 +43,23 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 @RunWith(AndroidJUnit4.class)
 public class CarrierConfigCacheTest {
 
     static final int ONCE_SUB_ID = 11;
     static final int TWICE_SUB_ID = 12;
+    static final int PREFETCH_SUB_ID = 13;
+    static final int CACHED_SUB_ID = 14;
+    static final int SLOW_SUB_ID = 15;
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
     @Mock
     CarrierConfigManager mCarrierConfigManager;
+    @Mock
+    SubscriptionManager mSubscriptionManager;
 
     Context mContext;
     CarrierConfigCache mCarrierConfigCache;
@@ -60,6 +71,13 @@ public class CarrierConfigCacheTest {
 
         mCarrierConfigCache = CarrierConfigCache.getInstance(mContext);
         mCarrierConfigCache.sCarrierConfigManager = mCarrierConfigManager;
+        mCarrierConfigCache.sSubscriptionManager = mSubscriptionManager;
+        SettingsTaskScheduler.setInstanceForTesting(new SettingsTaskScheduler(Runnable::run));
+    }
+
+    @After
+    public void tearDown() {
+        SettingsTaskScheduler.setInstanceForTesting(null);
     }
 
     @Test
@@ -98,4 +116,36 @@ public class CarrierConfigCacheTest {
 
         verify(mCarrierConfigManager, times(1)).getConfigForSubId(TWICE_SUB_ID);
     }
+
+    @Test
+    public void getConfigForSubId_otherSubIdFetching_returnsCachedConfigWithoutWaiting()
+            throws Exception {
+        final PersistableBundle slowConfig = new PersistableBundle();
+        final AtomicReference<PersistableBundle> cachedConfig = new AtomicReference<>();
+        when(mCarrierConfigManager.getConfigForSubId(CACHED_SUB_ID)).thenReturn(mCarrierConfig);
+        when(mCarrierConfigManager.getConfigForSubId(SLOW_SUB_ID)).thenAnswer(invocation -> {
+            final Thread reader = new Thread(() -> cachedConfig.set(
+                    mCarrierConfigCache.getConfigForSubId(CACHED_SUB_ID)));
+            reader.start();
+            reader.join(1000 /* millis */);
+            return slowConfig;
+        });
+        mCarrierConfigCache.getConfigForSubId(CACHED_SUB_ID);
+
+        assertThat(mCarrierConfigCache.getConfigForSubId(SLOW_SUB_ID)).isEqualTo(slowConfig);
+        assertThat(cachedConfig.get()).isEqualTo(mCarrierConfig);
+    }
+
+    @Test
+    public void prefetchActiveSubscriptions_fetchesActiveSubscriptionsOnce() {
+        when(mSubscriptionManager.getActiveSubscriptionIdList())
+                .thenReturn(new int[] {PREFETCH_SUB_ID});
+        when(mCarrierConfigManager.getConfigForSubId(PREFETCH_SUB_ID)).thenReturn(mCarrierConfig);
+
+        mCarrierConfigCache.prefetchActiveSubscriptions();
+        PersistableBundle config = mCarrierConfigCache.getConfigForSubId(PREFETCH_SUB_ID);
+
+        assertThat(config).isEqualTo(mCarrierConfig);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(PREFETCH_SUB_ID);
+    }
 }